@@ -6,6 +6,13 @@ import com.qiniu.model3d.entity.TaskEvaluation;
 import com.qiniu.model3d.dto.ApiResponse;
 import com.qiniu.model3d.scheduler.MetricsScheduler;
 import com.qiniu.model3d.service.EvaluationService;
+import com.qiniu.model3d.service.GenerationExecutorService;
+import com.qiniu.model3d.service.GenerationJobQueueService;
+import com.qiniu.model3d.service.ImagePreprocessService;
+import com.qiniu.model3d.service.TaskProgressBuffer;
+import com.qiniu.model3d.service.TaskStatusRegistry;
+import com.qiniu.model3d.service.TaskStatusStreamService;
+import com.qiniu.model3d.service.UpstreamJobPollerService;
 import com.qiniu.model3d.repository.SystemMetricsRepository;
 import com.qiniu.model3d.repository.TaskEvaluationRepository;
 import org.slf4j.Logger;
@@ -47,6 +54,27 @@ public class AdminDashboardController {
     @Autowired
     private MetricsScheduler metricsScheduler;
     
+    @Autowired
+    private GenerationExecutorService generationExecutorService;
+    
+    @Autowired
+    private GenerationJobQueueService generationJobQueueService;
+    
+    @Autowired
+    private UpstreamJobPollerService upstreamJobPollerService;
+
+    @Autowired
+    private TaskProgressBuffer taskProgressBuffer;
+
+    @Autowired
+    private TaskStatusRegistry taskStatusRegistry;
+
+    @Autowired
+    private TaskStatusStreamService taskStatusStreamService;
+
+    @Autowired
+    private ImagePreprocessService imagePreprocessService;
+    
     /**
      * 获取仪表板概览数据
      */
@@ -244,6 +272,97 @@ public class AdminDashboardController {
         }
     }
     
+    /**
+     * 获取生成队列状态（队列深度、排队等待时间、执行中任务数）
+     */
+    @GetMapping("/generation-queue")
+    public ResponseEntity<ApiResponse<GenerationExecutorService.ExecutorStatistics>> getGenerationQueueStats() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(generationExecutorService.getStatistics()));
+        } catch (Exception e) {
+            logger.error("获取生成队列状态失败", e);
+            return ResponseEntity.internalServerError().body(ApiResponse.error("获取生成队列状态失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取持久化生成队列状态（等待/运行中作业数、本节点持有的租约、接管和续约失败次数）
+     */
+    @GetMapping("/job-queue")
+    public ResponseEntity<ApiResponse<GenerationJobQueueService.JobQueueStatistics>> getJobQueueStats() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(generationJobQueueService.getStatistics()));
+        } catch (Exception e) {
+            logger.error("获取持久化生成队列状态失败", e);
+            return ResponseEntity.internalServerError().body(ApiResponse.error("获取持久化生成队列状态失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取上游任务轮询状态（未完成任务数、并发查询数、每个任务的平均查询次数）
+     */
+    @GetMapping("/upstream-poller")
+    public ResponseEntity<ApiResponse<UpstreamJobPollerService.PollerStatistics>> getUpstreamPollerStats() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(upstreamJobPollerService.getStatistics()));
+        } catch (Exception e) {
+            logger.error("获取上游任务轮询状态失败", e);
+            return ResponseEntity.internalServerError().body(ApiResponse.error("获取上游任务轮询状态失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取任务进度写缓冲状态（记录的进度更新数、实际写入行数、待写入任务数）
+     */
+    @GetMapping("/progress-buffer")
+    public ResponseEntity<ApiResponse<TaskProgressBuffer.ProgressBufferStatistics>> getProgressBufferStats() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(taskProgressBuffer.getStatistics()));
+        } catch (Exception e) {
+            logger.error("获取任务进度写缓冲状态失败", e);
+            return ResponseEntity.internalServerError().body(ApiResponse.error("获取任务进度写缓冲状态失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取进行中任务状态登记情况（登记任务数、状态查询命中率）
+     */
+    @GetMapping("/status-registry")
+    public ResponseEntity<ApiResponse<TaskStatusRegistry.RegistryStatistics>> getStatusRegistryStats() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(taskStatusRegistry.getStatistics()));
+        } catch (Exception e) {
+            logger.error("获取任务状态登记情况失败", e);
+            return ResponseEntity.internalServerError().body(ApiResponse.error("获取任务状态登记情况失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取任务状态推送情况（SSE 连接数、挂起的长轮询数、事件发布/投递数）
+     */
+    @GetMapping("/status-stream")
+    public ResponseEntity<ApiResponse<TaskStatusStreamService.StreamStatistics>> getStatusStreamStats() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(taskStatusStreamService.getStatistics()));
+        } catch (Exception e) {
+            logger.error("获取任务状态推送情况失败", e);
+            return ResponseEntity.internalServerError().body(ApiResponse.error("获取任务状态推送情况失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取上游提交图片预处理情况（缩小图片数、节省字节数、提交请求体大小和耗时）
+     */
+    @GetMapping("/image-preprocess")
+    public ResponseEntity<ApiResponse<ImagePreprocessService.PreprocessStatistics>> getImagePreprocessStats() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(imagePreprocessService.getStatistics()));
+        } catch (Exception e) {
+            logger.error("获取图片预处理情况失败", e);
+            return ResponseEntity.internalServerError().body(ApiResponse.error("获取图片预处理情况失败: " + e.getMessage()));
+        }
+    }
+    
     /**
      * 获取系统健康状态的私有方法
      */
@@ -1,26 +1,34 @@
 package com.qiniu.model3d.controller;
 
 import com.qiniu.model3d.dto.*;
+import com.qiniu.model3d.service.ArtifactCacheService;
 import com.qiniu.model3d.service.TencentAi3dClient;
 import com.qiniu.model3d.service.EvaluationService;
+import com.qiniu.model3d.service.UpstreamJobPollerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.ByteArrayOutputStream;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * AI3D 控制器
@@ -35,11 +43,23 @@ public class Ai3dController {
 
     private static final Logger logger = LoggerFactory.getLogger(Ai3dController.class);
 
+    /** Tomcat sendfile 请求属性 */
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private TencentAi3dClient tencentAi3dClient;
     
     @Autowired
     private EvaluationService evaluationService;
+    
+    @Autowired
+    private UpstreamJobPollerService upstreamJobPollerService;
+    
+    @Autowired
+    private ArtifactCacheService artifactCacheService;
 
     /**
      * 提交混元生3D任务
@@ -264,6 +284,7 @@ public class Ai3dController {
 
     /**
      * 轮询任务直到完成
+     * 请求异步挂起，由共享的上游轮询器完成，不占用 Servlet 线程；每个客户端同时挂起的轮询数有上限
      * 
      * @param jobId 任务ID
      * @param maxWaitTimeSeconds 最大等待时间（秒），默认300秒
@@ -271,18 +292,43 @@ public class Ai3dController {
      * @return 最终任务响应
      */
     @GetMapping("/poll/{jobId}")
-    public ResponseEntity<ApiResponse<QueryHunyuanTo3DJobResponse>> pollJob(
+    public DeferredResult<ResponseEntity<ApiResponse<QueryHunyuanTo3DJobResponse>>> pollJob(
             @PathVariable String jobId,
             @RequestParam(defaultValue = "300") int maxWaitTimeSeconds,
-            @RequestParam(defaultValue = "5") int pollIntervalSeconds) {
+            @RequestParam(defaultValue = "5") int pollIntervalSeconds,
+            HttpServletRequest request) {
+        logger.info("收到轮询任务请求: {}", jobId);
+        
+        // 轮询器自己处理超时，异步请求的超时只作兜底
+        long waitSeconds = maxWaitTimeSeconds > 0 ? maxWaitTimeSeconds : 300;
+        DeferredResult<ResponseEntity<ApiResponse<QueryHunyuanTo3DJobResponse>>> result =
+            new DeferredResult<>(TimeUnit.SECONDS.toMillis(waitSeconds + 10));
+        result.onTimeout(() -> result.setResult(ResponseEntity.ok(ApiResponse.error("轮询任务失败: 等待超时"))));
+        
+        CompletableFuture<QueryHunyuanTo3DJobResponse> future;
         try {
-            logger.info("收到轮询任务请求: {}", jobId);
-            QueryHunyuanTo3DJobResponse response = tencentAi3dClient.pollJobUntilComplete(jobId, maxWaitTimeSeconds, pollIntervalSeconds);
-            return ResponseEntity.ok(ApiResponse.success(response));
-        } catch (Exception e) {
-            logger.error("轮询任务失败", e);
-            return ResponseEntity.ok(ApiResponse.error("轮询任务失败: " + e.getMessage()));
+            future = upstreamJobPollerService.watchForClient(getClientIpAddress(request), jobId,
+                                                             pollIntervalSeconds, maxWaitTimeSeconds);
+        } catch (UpstreamJobPollerService.TooManyPollsException e) {
+            logger.warn("客户端同时轮询的任务过多，拒绝轮询请求: jobId={}", jobId);
+            result.setResult(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.tooManyRequests(e.getMessage())));
+            return result;
         }
+        
+        future.whenComplete((response, error) -> {
+            if (error == null) {
+                result.setResult(ResponseEntity.ok(ApiResponse.success(response)));
+            } else if (!(error instanceof CancellationException)) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.error("轮询任务失败", cause);
+                result.setResult(ResponseEntity.ok(ApiResponse.error("轮询任务失败: " + cause.getMessage())));
+            }
+        });
+        // 客户端断开或兜底超时后不再关注该任务，释放名额
+        result.onCompletion(() -> future.cancel(false));
+        return result;
     }
 
     /**
@@ -305,245 +351,136 @@ public class Ai3dController {
 
     /**
      * 下载模型文件
+     * 本地镜像命中时直接发送文件，未命中时边下载边返回
      * 
      * @param jobId 任务ID
      * @param format 文件格式（可选）
-     * @return 模型文件
      */
     @GetMapping("/download/{jobId}")
-    public ResponseEntity<Resource> downloadModel(
+    public void downloadModel(
             @PathVariable String jobId,
-            @RequestParam(value = "format", required = false) String format) {
+            @RequestParam(value = "format", required = false) String format,
+            HttpServletRequest request,
+            HttpServletResponse response) {
         
         try {
             logger.info("下载模型文件: jobId={}, format={}", jobId, format);
             
-            // 查询任务状态获取文件信息
-            QueryHunyuanTo3DJobResponse response = tencentAi3dClient.queryHunyuanTo3DJob(jobId);
-            
-            if (response == null || !response.isCompleted()) {
-                logger.warn("任务未完成或不存在: jobId={}", jobId);
-                return ResponseEntity.notFound().build();
-            }
-            
-            if (response.getResultFile3Ds() == null || response.getResultFile3Ds().isEmpty()) {
-                logger.warn("任务没有生成文件: jobId={}", jobId);
-                return ResponseEntity.notFound().build();
-            }
-            
-            // 查找匹配格式的文件，如果没有指定格式则使用第一个文件
-            File3D targetFile = null;
-            if (format != null && !format.isEmpty()) {
-                for (File3D file3D : response.getResultFile3Ds()) {
-                    if (file3D.getType() != null && file3D.getType().equalsIgnoreCase(format)) {
-                        targetFile = file3D;
-                        break;
-                    }
-                }
-            }
-            
-            if (targetFile == null && !response.getResultFile3Ds().isEmpty()) {
-                targetFile = response.getResultFile3Ds().get(0);
-            }
-            
-            if (targetFile == null || targetFile.getUrl() == null) {
-                logger.warn("找不到可下载的文件: jobId={}, format={}", jobId, format);
-                return ResponseEntity.notFound().build();
-            }
-            
-            // 直接下载文件内容
-            logger.info("开始下载文件: url={}", targetFile.getUrl());
-            byte[] fileContent = downloadFileFromUrl(targetFile.getUrl());
-            
-            if (fileContent == null || fileContent.length == 0) {
-                logger.warn("下载的文件内容为空: url={}", targetFile.getUrl());
-                return ResponseEntity.notFound().build();
+            ArtifactCacheService.CachedArtifact artifact =
+                artifactCacheService.getModel(jobId, format, artifactSink(response, true));
+            if (!artifact.isStreamed()) {
+                sendFile(request, response, artifact, true);
             }
             
-            // 生成文件名
-            String filename = "model_" + jobId;
-            String fileExtension = getFileExtensionFromUrl(targetFile.getUrl());
-            
-            if (targetFile.getType() != null && !targetFile.getType().isEmpty()) {
-                filename += "." + targetFile.getType().toLowerCase();
-            } else if (fileExtension != null && !fileExtension.isEmpty()) {
-                filename += "." + fileExtension;
-            } else {
-                filename += ".zip"; // 默认为zip格式
-            }
-            
-            String contentType = "application/octet-stream";
-            
             // 记录下载行为
-            evaluationService.recordDownload(jobId, fileContent.length);
-            
-            // 创建资源对象
-            Resource resource = new ByteArrayResource(fileContent);
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(resource);
+            evaluationService.recordDownload(jobId, (int) Math.min(Integer.MAX_VALUE, artifact.getSize()));
                     
+        } catch (ArtifactCacheService.ArtifactUnavailableException e) {
+            logger.warn("找不到可下载的文件: jobId={}, format={}, reason={}", jobId, format, e.getMessage());
+            sendError(response, HttpStatus.NOT_FOUND);
         } catch (IOException e) {
             logger.error("文件下载错误: jobId={}", jobId, e);
-            return ResponseEntity.internalServerError().build();
+            sendError(response, HttpStatus.INTERNAL_SERVER_ERROR);
         } catch (Exception e) {
             logger.error("下载模型文件失败: jobId={}", jobId, e);
-            return ResponseEntity.internalServerError().build();
-        }
-    }
-
-    /**
-     * 从URL下载文件内容
-     * 
-     * @param fileUrl 文件URL
-     * @return 文件字节数组
-     * @throws IOException 下载失败时抛出异常
-     */
-    private byte[] downloadFileFromUrl(String fileUrl) throws IOException {
-        URL url = new URL(fileUrl);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        
-        try {
-            // 设置请求属性
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(30000); // 30秒连接超时
-            connection.setReadTimeout(60000);    // 60秒读取超时
-            connection.setInstanceFollowRedirects(true);
-            
-            // 设置User-Agent，避免某些服务器拒绝请求
-            connection.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36");
-            
-            int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                logger.warn("下载文件失败，HTTP状态码: {}, URL: {}", responseCode, fileUrl);
-                return null;
-            }
-            
-            // 读取文件内容
-            try (InputStream inputStream = connection.getInputStream();
-                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                }
-                
-                byte[] result = outputStream.toByteArray();
-                logger.info("文件下载成功，大小: {} bytes", result.length);
-                return result;
-            }
-            
-        } finally {
-            connection.disconnect();
+            sendError(response, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-    /**
-     * 从URL中提取文件扩展名
-     * 
-     * @param url 文件URL
-     * @return 文件扩展名（不包含点号）
-     */
-    private String getFileExtensionFromUrl(String url) {
-        if (url == null || url.isEmpty()) {
-            return null;
-        }
-        
-        try {
-            // 移除查询参数
-            int queryIndex = url.indexOf('?');
-            String cleanUrl = queryIndex > 0 ? url.substring(0, queryIndex) : url;
-            
-            // 提取文件名
-            int lastSlashIndex = cleanUrl.lastIndexOf('/');
-            String filename = lastSlashIndex > 0 ? cleanUrl.substring(lastSlashIndex + 1) : cleanUrl;
-            
-            // 提取扩展名
-            int lastDotIndex = filename.lastIndexOf('.');
-            if (lastDotIndex > 0 && lastDotIndex < filename.length() - 1) {
-                return filename.substring(lastDotIndex + 1).toLowerCase();
-            }
-            
-        } catch (Exception e) {
-            logger.warn("提取文件扩展名失败: url={}", url, e);
-        }
-        
-        return null;
-    }
-
     /**
      * 获取模型预览图
      * 
      * @param jobId 任务ID
      * @param angle 视角参数（兼容前端，实际不使用）
      * @param size 尺寸参数（兼容前端，实际不使用）
-     * @return 预览图响应
      */
     @GetMapping("/preview/{jobId}")
-    public ResponseEntity<?> getModelPreview(
+    public void getModelPreview(
             @PathVariable String jobId,
             @RequestParam(value = "angle", defaultValue = "front") String angle,
-            @RequestParam(value = "size", defaultValue = "medium") String size) {
+            @RequestParam(value = "size", defaultValue = "medium") String size,
+            HttpServletRequest request,
+            HttpServletResponse response) {
         
         try {
             logger.info("获取模型预览图: jobId={}, angle={}, size={}", jobId, angle, size);
             
-            // 查询腾讯云任务状态
-            QueryHunyuanTo3DJobResponse response = tencentAi3dClient.queryHunyuanTo3DJob(jobId);
-            
-            if (response == null || response.getStatus() == null) {
-                logger.warn("查询任务状态失败: jobId={}", jobId);
-                return ResponseEntity.notFound().build();
-            }
-            
-            // 检查任务状态
-            if (!"DONE".equals(response.getStatus())) {
-                logger.warn("任务未完成，无法获取预览图: jobId={}, status={}", jobId, response.getStatus());
-                return ResponseEntity.badRequest().build();
-            }
-            
-            // 获取预览图URL
-            String previewImageUrl = null;
-            if (response.getResultFile3Ds() != null && !response.getResultFile3Ds().isEmpty()) {
-                for (File3D file : response.getResultFile3Ds()) {
-                    if (file.getPreviewImageUrl() != null && !file.getPreviewImageUrl().isEmpty()) {
-                        previewImageUrl = file.getPreviewImageUrl();
-                        break;
-                    }
-                }
-            }
-            
-            if (previewImageUrl == null || previewImageUrl.isEmpty()) {
-                logger.warn("预览图URL不存在: jobId={}", jobId);
-                return ResponseEntity.notFound().build();
-            }
-            
-            logger.info("获取到预览图URL: {}", previewImageUrl);
-            
-            // 下载预览图并返回
-            byte[] imageContent = downloadFileFromUrl(previewImageUrl);
-            
-            if (imageContent == null || imageContent.length == 0) {
-                logger.warn("下载预览图失败: url={}", previewImageUrl);
-                return ResponseEntity.notFound().build();
+            ArtifactCacheService.CachedArtifact artifact =
+                artifactCacheService.getPreview(jobId, artifactSink(response, false));
+            if (!artifact.isStreamed()) {
+                sendFile(request, response, artifact, false);
             }
             
             // 记录预览行为
             evaluationService.recordPreview(jobId);
-            
-            // 创建资源对象
-            Resource resource = new ByteArrayResource(imageContent);
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.IMAGE_PNG)
-                    .body(resource);
                     
+        } catch (ArtifactCacheService.ArtifactUnavailableException e) {
+            logger.warn("无法获取预览图: jobId={}, reason={}", jobId, e.getMessage());
+            sendError(response, e.isJobNotDone() ? HttpStatus.BAD_REQUEST : HttpStatus.NOT_FOUND);
         } catch (Exception e) {
             logger.error("获取模型预览图失败: jobId={}", jobId, e);
-            return ResponseEntity.internalServerError().build();
+            sendError(response, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * 未命中镜像时接收下载中的响应体：先写响应头，再返回响应输出流
+     */
+    private ArtifactCacheService.ArtifactSink artifactSink(HttpServletResponse response, boolean attachment) {
+        return (contentType, contentLength, filename) -> {
+            writeHeaders(response, contentType, contentLength, filename, attachment);
+            return response.getOutputStream();
+        };
+    }
+
+    /**
+     * 发送本地文件
+     * 容器支持 sendfile 时交给容器零拷贝发送，否则用 FileChannel.transferTo 写出
+     */
+    private void sendFile(HttpServletRequest request, HttpServletResponse response,
+                          ArtifactCacheService.CachedArtifact artifact, boolean attachment) throws IOException {
+        Path path = artifact.getPath();
+        long length = Files.size(path);
+        writeHeaders(response, artifact.getContentType(), length, artifact.getFilename(), attachment);
+        
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, 0L);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, length);
+            return;
+        }
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < length) {
+                position += channel.transferTo(position, length - position, out);
+            }
+        }
+    }
+
+    private void writeHeaders(HttpServletResponse response, String contentType, long contentLength,
+                              String filename, boolean attachment) {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(contentType);
+        if (contentLength >= 0) {
+            response.setContentLengthLong(contentLength);
+        }
+        if (attachment) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        }
+    }
+
+    private void sendError(HttpServletResponse response, HttpStatus status) {
+        if (response.isCommitted()) {
+            // 响应体已开始发送，只能中断连接
+            return;
+        }
+        try {
+            response.reset();
+            response.sendError(status.value());
+        } catch (IOException e) {
+            logger.debug("发送错误响应失败: status={}", status, e);
         }
     }
 }
\ No newline at end of file
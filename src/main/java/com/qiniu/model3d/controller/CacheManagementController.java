@@ -155,6 +155,78 @@ public class CacheManagementController {
         }
     }
 
+    @GetMapping("/metrics/similarity-index")
+    public ResponseEntity<SimilarityIndexService.IndexStatistics> getSimilarityIndexStatistics() {
+        try {
+            SimilarityIndexService.IndexStatistics statistics = 
+                cacheMetricsService.getSimilarityIndexStatistics();
+            return ResponseEntity.ok(statistics);
+        } catch (Exception e) {
+            logger.error("Failed to get similarity index statistics", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @GetMapping("/metrics/similarity-cascade")
+    public ResponseEntity<SimilarityService.CascadeStatistics> getSimilarityCascadeStatistics() {
+        try {
+            SimilarityService.CascadeStatistics statistics = 
+                cacheMetricsService.getSimilarityCascadeStatistics();
+            return ResponseEntity.ok(statistics);
+        } catch (Exception e) {
+            logger.error("Failed to get similarity cascade statistics", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @GetMapping("/metrics/access-recorder")
+    public ResponseEntity<CacheAccessRecorder.AccessRecorderStatistics> getAccessRecorderStatistics() {
+        try {
+            CacheAccessRecorder.AccessRecorderStatistics statistics = 
+                cacheMetricsService.getAccessRecorderStatistics();
+            return ResponseEntity.ok(statistics);
+        } catch (Exception e) {
+            logger.error("Failed to get access recorder statistics", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @GetMapping("/metrics/exact-match-l1")
+    public ResponseEntity<ExactMatchCacheService.ExactMatchCacheStatistics> getExactMatchCacheStatistics() {
+        try {
+            ExactMatchCacheService.ExactMatchCacheStatistics statistics = 
+                cacheMetricsService.getExactMatchCacheStatistics();
+            return ResponseEntity.ok(statistics);
+        } catch (Exception e) {
+            logger.error("Failed to get exact match L1 cache statistics", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @GetMapping("/metrics/input-hash-filter")
+    public ResponseEntity<InputHashFilterService.FilterStatistics> getInputHashFilterStatistics() {
+        try {
+            InputHashFilterService.FilterStatistics statistics = 
+                cacheMetricsService.getInputHashFilterStatistics();
+            return ResponseEntity.ok(statistics);
+        } catch (Exception e) {
+            logger.error("Failed to get input hash filter statistics", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    @GetMapping("/metrics/single-flight")
+    public ResponseEntity<SingleFlightService.SingleFlightStatistics> getSingleFlightStatistics() {
+        try {
+            SingleFlightService.SingleFlightStatistics statistics = 
+                cacheMetricsService.getSingleFlightStatistics();
+            return ResponseEntity.ok(statistics);
+        } catch (Exception e) {
+            logger.error("Failed to get single-flight statistics", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
     // ==================== 缓存管理端点 ====================
 
     @PostMapping("/cleanup/force")
@@ -332,7 +404,13 @@ public class CacheManagementController {
             CacheMetricsService.CacheMetrics metrics = cacheMetricsService.getRealTimeMetrics();
             status.put("totalRequests", metrics.getTotalRequests());
             status.put("avgResponseTime", metrics.getAvgResponseTime());
-            
+
+            // 输入哈希过滤器
+            InputHashFilterService.FilterStatistics filterStats = cacheMetricsService.getInputHashFilterStatistics();
+            status.put("inputHashFilterEntries", filterStats.getEntries());
+            status.put("inputHashFilterFalsePositiveRate", filterStats.getFalsePositiveRate());
+            status.put("inputHashFilterMemoryBytes", filterStats.getMemoryBytes());
+
             status.put("timestamp", LocalDateTime.now());
             
             return ResponseEntity.ok(status);
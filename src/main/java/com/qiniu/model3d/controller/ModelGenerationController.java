@@ -4,7 +4,10 @@ import com.qiniu.model3d.dto.ApiResponse;
 import com.qiniu.model3d.dto.TaskStatusResponse;
 import com.qiniu.model3d.dto.TextGenerationRequest;
 import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.service.GenerationExecutorService;
 import com.qiniu.model3d.service.ModelGenerationService;
+import com.qiniu.model3d.service.TaskEventHub;
+import com.qiniu.model3d.service.TaskStatusStreamService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,9 +18,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -44,13 +52,17 @@ public class ModelGenerationController {
     @Autowired
     private ModelGenerationService modelGenerationService;
 
+    @Autowired
+    private TaskStatusStreamService taskStatusStreamService;
+
     /**
      * 根据文本生成3D模型
      */
     @PostMapping("/generate/text")
     public ApiResponse<Map<String, Object>> generateFromText(
             @Valid @RequestBody TextGenerationRequest request,
-            HttpServletRequest httpRequest) {
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) {
         
         try {
             logger.info("收到文本生成请求: {}", request.getText());
@@ -65,6 +77,9 @@ public class ModelGenerationController {
             
             return ApiResponse.success("模型生成任务已创建", response);
             
+        } catch (GenerationExecutorService.QueueFullException e) {
+            logger.warn("生成队列已满，拒绝文本生成请求: retryAfter={}s", e.getRetryAfterSeconds());
+            return tooManyRequests(httpResponse, e);
         } catch (IllegalArgumentException e) {
             logger.warn("文本生成请求参数错误: {}", e.getMessage());
             return ApiResponse.badRequest(e.getMessage());
@@ -83,7 +98,8 @@ public class ModelGenerationController {
             @RequestParam(value = "complexity", defaultValue = "SIMPLE") String complexity,
             @RequestParam(value = "format", defaultValue = "OBJ") String format,
             @RequestParam(value = "description", required = false) String description,
-            HttpServletRequest httpRequest) {
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) {
         
         try {
             logger.info("收到图片生成请求: 文件名={}, 大小={}", image.getOriginalFilename(), image.getSize());
@@ -110,6 +126,9 @@ public class ModelGenerationController {
             
             return ApiResponse.success("图片上传成功，开始生成模型", response);
             
+        } catch (GenerationExecutorService.QueueFullException e) {
+            logger.warn("生成队列已满，拒绝图片生成请求: retryAfter={}s", e.getRetryAfterSeconds());
+            return tooManyRequests(httpResponse, e);
         } catch (IllegalArgumentException e) {
             logger.warn("图片生成请求参数错误: {}", e.getMessage());
             return ApiResponse.badRequest(e.getMessage());
@@ -119,11 +138,41 @@ public class ModelGenerationController {
         }
     }
 
+    /**
+     * 订阅任务状态推送（SSE），taskIds 为逗号分隔的一个或多个任务ID
+     * 先推送各任务当前状态，之后推送进度和完成/失败事件，全部任务结束后关闭连接
+     */
+    @GetMapping(value = "/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTaskStatus(@RequestParam("taskIds") List<String> taskIds) {
+        try {
+            logger.debug("订阅任务状态推送: {}", taskIds);
+            return taskStatusStreamService.openStream(taskIds);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * 长轮询任务状态：version 为上次响应的 ETag，状态变化或超时后返回，响应的 ETag 为新版本
+     */
+    @CrossOrigin(exposedHeaders = HttpHeaders.ETAG)
+    @GetMapping("/status/{taskId}/wait")
+    public DeferredResult<ResponseEntity<ApiResponse<TaskStatusResponse>>> waitTaskStatus(
+            @PathVariable String taskId,
+            @RequestParam(value = "version", required = false) String version,
+            @RequestParam(value = "timeout", defaultValue = "30") long timeoutSeconds) {
+        logger.debug("长轮询任务状态: taskId={}, version={}", taskId, version);
+        return taskStatusStreamService.awaitChange(taskId, version, timeoutSeconds);
+    }
+
     /**
      * 查询任务状态
+     * 响应带 ETag，状态、进度和更新时间都未变化的轮询返回 304，不带响应体
      */
     @GetMapping("/status/{taskId}")
-    public ApiResponse<TaskStatusResponse> getTaskStatus(@PathVariable String taskId) {
+    public ApiResponse<TaskStatusResponse> getTaskStatus(@PathVariable String taskId,
+                                                         WebRequest webRequest,
+                                                         HttpServletResponse httpResponse) {
         try {
             logger.debug("查询任务状态: {}", taskId);
             
@@ -132,6 +181,11 @@ public class ModelGenerationController {
                 return ApiResponse.notFound("任务不存在");
             }
             
+            httpResponse.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            if (webRequest.checkNotModified(statusETag(task))) {
+                return null;
+            }
+            
             TaskStatusResponse response = new TaskStatusResponse(task);
             return ApiResponse.success("查询成功", response);
             
@@ -281,6 +335,23 @@ public class ModelGenerationController {
 
     // 辅助方法
 
+    /**
+     * 生成队列已满：HTTP 429 + Retry-After
+     */
+    private <T> ApiResponse<T> tooManyRequests(HttpServletResponse httpResponse,
+                                              GenerationExecutorService.QueueFullException e) {
+        httpResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        httpResponse.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return ApiResponse.tooManyRequests(e.getMessage());
+    }
+
+    /**
+     * 任务状态的 ETag：即状态事件的版本，由状态、进度和更新时间组成
+     */
+    private String statusETag(ModelTask task) {
+        return "\"" + TaskEventHub.TaskStatusEvent.of(task).getVersion() + "\"";
+    }
+
     /**
      * 获取客户端IP地址
      */
@@ -0,0 +1,155 @@
+package com.qiniu.model3d.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 生成作业实体类
+ * 持久化的生成队列：每个新建的生成任务对应一条作业，节点通过租约认领并定期续约，
+ * 租约过期的作业由任意节点重新认领，已提交的上游任务按 upstreamJobId 继续轮询
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "generation_jobs")
+public class GenerationJob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "task_id", unique = true, nullable = false, length = 50)
+    private String taskId;
+
+    @Column(name = "status", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
+
+    @Column(name = "owner_id", length = 100)
+    private String ownerId;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "upstream_job_id", length = 100)
+    private String upstreamJobId;
+
+    /** 认领版本号，每次认领或释放时递增，用于乐观认领 */
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // 构造函数
+    public GenerationJob() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+        this.status = JobStatus.PENDING;
+        this.attempts = 0;
+        this.version = 0L;
+    }
+
+    public GenerationJob(String taskId) {
+        this();
+        this.taskId = taskId;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(String ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getUpstreamJobId() {
+        return upstreamJobId;
+    }
+
+    public void setUpstreamJobId(String upstreamJobId) {
+        this.upstreamJobId = upstreamJobId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * 作业状态：PENDING 等待认领，RUNNING 已被某节点认领（租约有效期内），DONE 已结束
+     */
+    public enum JobStatus {
+        PENDING, RUNNING, DONE
+    }
+}
@@ -13,6 +13,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "model_tasks")
+@EntityListeners(ModelTaskStatusListener.class)
 public class ModelTask implements Serializable {
     
     private static final long serialVersionUID = 1L;
@@ -97,6 +98,12 @@ public class ModelTask implements Serializable {
 
     @Column(name = "input_hash", length = 64)
     private String inputHash;
+
+    @Column(name = "request_key", length = 32)
+    private String requestKey;
+
+    @Column(name = "minhash_signature", length = 512)
+    private String minhashSignature;
     
     @Column(name = "cached")
     private Boolean cached;
@@ -340,6 +347,22 @@ public class ModelTask implements Serializable {
         this.inputHash = inputHash;
     }
 
+    public String getRequestKey() {
+        return requestKey;
+    }
+
+    public void setRequestKey(String requestKey) {
+        this.requestKey = requestKey;
+    }
+
+    public String getMinhashSignature() {
+        return minhashSignature;
+    }
+
+    public void setMinhashSignature(String minhashSignature) {
+        this.minhashSignature = minhashSignature;
+    }
+
     /**
      * 增加访问计数并更新最后访问时间
      */
@@ -0,0 +1,48 @@
+package com.qiniu.model3d.entity;
+
+import com.qiniu.model3d.service.TaskEventHub;
+import com.qiniu.model3d.service.TaskStatusRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+
+/**
+ * ModelTask 实体监听器
+ * 任务每次写入提交后更新进行中任务状态登记并发布状态事件，所有保存任务的地方都经过这里
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public class ModelTaskStatusListener {
+
+    @Autowired
+    private TaskStatusRegistry taskStatusRegistry;
+
+    @Autowired
+    private TaskEventHub taskEventHub;
+
+    @PostPersist
+    @PostUpdate
+    public void afterSave(ModelTask task) {
+        TaskEventHub.TaskStatusEvent event = TaskEventHub.TaskStatusEvent.of(task);
+        Runnable notification = () -> {
+            taskStatusRegistry.onTaskSaved(task);
+            taskEventHub.publish(event);
+        };
+
+        // 提交后再通知，订阅方随后查询数据库时能读到这次写入
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notification.run();
+                }
+            });
+        } else {
+            notification.run();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.qiniu.model3d.repository;
+
+import com.qiniu.model3d.entity.GenerationJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 生成作业数据访问接口
+ * 认领、续约、释放均为带条件的单行更新，返回值为 0 表示条件不满足（被其他节点抢先或租约已丢失）
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Repository
+public interface GenerationJobRepository extends JpaRepository<GenerationJob, Long> {
+
+    /**
+     * 根据任务ID查找作业
+     */
+    Optional<GenerationJob> findByTaskId(String taskId);
+
+    /**
+     * 查找可认领的作业：等待中的作业，以及租约已过期的运行中作业
+     */
+    @Query("SELECT j FROM GenerationJob j WHERE j.status = 'PENDING' " +
+           "OR (j.status = 'RUNNING' AND j.leaseUntil < :now) ORDER BY j.createdAt ASC")
+    List<GenerationJob> findClaimable(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * 乐观认领：仅当版本号未变化时成功
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE GenerationJob j SET j.status = 'RUNNING', j.ownerId = :ownerId, j.leaseUntil = :leaseUntil, " +
+           "j.attempts = j.attempts + 1, j.version = j.version + 1, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.version = :version")
+    int claim(@Param("id") Long id, @Param("version") Long version, @Param("ownerId") String ownerId,
+              @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * 续约：仅当作业仍由本节点持有时成功
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE GenerationJob j SET j.leaseUntil = :leaseUntil, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.ownerId = :ownerId AND j.status = 'RUNNING'")
+    int renewLease(@Param("id") Long id, @Param("ownerId") String ownerId,
+                   @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * 记录已提交的上游任务ID
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE GenerationJob j SET j.upstreamJobId = :upstreamJobId, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.ownerId = :ownerId AND j.status = 'RUNNING'")
+    int updateUpstreamJobId(@Param("id") Long id, @Param("ownerId") String ownerId,
+                            @Param("upstreamJobId") String upstreamJobId, @Param("now") LocalDateTime now);
+
+    /**
+     * 释放认领，作业回到等待状态；作业未实际执行，不计入尝试次数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE GenerationJob j SET j.status = 'PENDING', j.ownerId = NULL, j.leaseUntil = NULL, " +
+           "j.attempts = CASE WHEN j.attempts > 0 THEN j.attempts - 1 ELSE 0 END, " +
+           "j.version = j.version + 1, j.updatedAt = :now " +
+           "WHERE j.id = :id AND j.ownerId = :ownerId AND j.status = 'RUNNING'")
+    int release(@Param("id") Long id, @Param("ownerId") String ownerId, @Param("now") LocalDateTime now);
+
+    /**
+     * 结束作业
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE GenerationJob j SET j.status = 'DONE', j.leaseUntil = NULL, j.version = j.version + 1, " +
+           "j.updatedAt = :now WHERE j.id = :id AND j.ownerId = :ownerId AND j.status = 'RUNNING'")
+    int finish(@Param("id") Long id, @Param("ownerId") String ownerId, @Param("now") LocalDateTime now);
+
+    /**
+     * 统计各状态作业数
+     */
+    long countByStatus(GenerationJob.JobStatus status);
+
+    /**
+     * 删除早于指定时间结束的作业
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM GenerationJob j WHERE j.status = 'DONE' AND j.updatedAt < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
@@ -9,7 +9,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.transaction.Transactional;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +29,11 @@ public interface ModelTaskRepository extends JpaRepository<ModelTask, Long> {
      */
     Optional<ModelTask> findByTaskId(String taskId);
 
+    /**
+     * 根据一组任务ID查找任务
+     */
+    List<ModelTask> findByTaskIdIn(Collection<String> taskIds);
+
     /**
      * 根据模型ID查找任务
      */
@@ -90,6 +97,20 @@ public interface ModelTaskRepository extends JpaRepository<ModelTask, Long> {
     @Query("SELECT t FROM ModelTask t WHERE t.inputHash = :inputHash AND t.status = 'COMPLETED' ORDER BY t.lastAccessed DESC")
     List<ModelTask> findByInputHashAndCompleted(@Param("inputHash") String inputHash);
 
+    /**
+     * 根据规范请求键查找完全匹配的缓存任务
+     */
+    @Query("SELECT t FROM ModelTask t WHERE t.requestKey = :requestKey AND t.status = 'COMPLETED' ORDER BY t.lastAccessed DESC")
+    List<ModelTask> findByRequestKeyAndCompleted(@Param("requestKey") String requestKey);
+
+    /**
+     * 回填历史记录的规范请求键
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ModelTask t SET t.requestKey = :requestKey WHERE t.taskId = :taskId AND t.requestKey IS NULL")
+    int updateRequestKey(@Param("taskId") String taskId, @Param("requestKey") String requestKey);
+
     /**
      * 根据文件签名查找任务
      */
@@ -145,7 +166,7 @@ public interface ModelTaskRepository extends JpaRepository<ModelTask, Long> {
      * 更新任务的访问信息
      */
     @Modifying
-    @Query("UPDATE ModelTask t SET t.accessCount = t.accessCount + 1, t.lastAccessed = :accessTime " +
+    @Query("UPDATE ModelTask t SET t.accessCount = COALESCE(t.accessCount, 0) + 1, t.lastAccessed = :accessTime " +
            "WHERE t.taskId = :taskId")
     void updateAccessInfo(@Param("taskId") String taskId, @Param("accessTime") LocalDateTime accessTime);
 
@@ -170,6 +191,14 @@ public interface ModelTaskRepository extends JpaRepository<ModelTask, Long> {
     @Query("SELECT t FROM ModelTask t WHERE t.cached = true AND t.status = 'COMPLETED'")
     List<ModelTask> findCachedTasks();
 
+    /**
+     * 查找可被完全匹配命中的查找键（已完成且未被淘汰）：规范请求键，尚未回填的历史记录为输入哈希
+     */
+    @Query("SELECT COALESCE(t.requestKey, t.inputHash) FROM ModelTask t WHERE t.status = 'COMPLETED' " +
+           "AND (t.requestKey IS NOT NULL OR t.inputHash IS NOT NULL) " +
+           "AND (t.cached IS NULL OR t.cached = true)")
+    List<String> findCachedLookupKeys();
+
     /**
      * 根据最后访问时间查找缓存任务（LRU淘汰）
      */
@@ -226,7 +255,7 @@ public interface ModelTaskRepository extends JpaRepository<ModelTask, Long> {
      * 更新缓存命中计数
      */
     @Modifying
-    @Query("UPDATE ModelTask t SET t.cacheHitCount = t.cacheHitCount + 1, t.lastAccessedAt = :accessTime " +
+    @Query("UPDATE ModelTask t SET t.cacheHitCount = COALESCE(t.cacheHitCount, 0) + 1, t.lastAccessedAt = :accessTime " +
            "WHERE t.taskId = :taskId")
     void incrementCacheHitCount(@Param("taskId") String taskId, @Param("accessTime") LocalDateTime accessTime);
 
@@ -234,10 +263,21 @@ public interface ModelTaskRepository extends JpaRepository<ModelTask, Long> {
      * 更新相似度使用计数
      */
     @Modifying
-    @Query("UPDATE ModelTask t SET t.similarityUsageCount = t.similarityUsageCount + 1 " +
+    @Query("UPDATE ModelTask t SET t.similarityUsageCount = COALESCE(t.similarityUsageCount, 0) + 1 " +
            "WHERE t.taskId = :taskId")
     void incrementSimilarityUsageCount(@Param("taskId") String taskId);
 
+    /**
+     * 累加合并后的缓存访问（访问计数、命中计数、相似度使用计数和最后访问时间）
+     */
+    @Modifying
+    @Query("UPDATE ModelTask t SET t.accessCount = COALESCE(t.accessCount, 0) + :hits, t.lastAccessed = :accessTime, " +
+           "t.cacheHitCount = COALESCE(t.cacheHitCount, 0) + :hits, t.lastAccessedAt = :accessTime, " +
+           "t.similarityUsageCount = COALESCE(t.similarityUsageCount, 0) + :similarityHits " +
+           "WHERE t.taskId = :taskId")
+    int addCacheAccess(@Param("taskId") String taskId, @Param("hits") int hits,
+                       @Param("similarityHits") int similarityHits, @Param("accessTime") LocalDateTime accessTime);
+
     /**
      * 查找热门缓存任务（用于预热）
      */
@@ -216,4 +216,11 @@ public interface TaskEvaluationRepository extends JpaRepository<TaskEvaluation,
     @Query("SELECT SUM(te.previewCount) FROM TaskEvaluation te WHERE te.createdAt BETWEEN :startTime AND :endTime")
     Long getTotalPreviewsByDateRange(@Param("startTime") LocalDateTime startTime, 
                                     @Param("endTime") LocalDateTime endTime);
+    
+    /**
+     * 查询指定时间之后成功完成的任务耗时（结果格式, 耗时秒数），最近完成的在前
+     */
+    @Query("SELECT te.resultFormat, te.durationSeconds FROM TaskEvaluation te WHERE te.status IN ('SUCCESS', 'DONE') " +
+           "AND te.durationSeconds IS NOT NULL AND te.completeTime >= :since ORDER BY te.completeTime DESC")
+    List<Object[]> findCompletionDurationsSince(@Param("since") LocalDateTime since, Pageable pageable);
 }
\ No newline at end of file
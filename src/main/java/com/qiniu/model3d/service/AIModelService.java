@@ -2,6 +2,7 @@ package com.qiniu.model3d.service;
 
 import com.qiniu.model3d.entity.ModelTask;
 
+import java.time.LocalDateTime;
 import java.util.function.Consumer;
 
 /**
@@ -42,6 +43,58 @@ public interface AIModelService {
                                 ModelTask.OutputFormat format,
                                 Consumer<Integer> progressCallback) throws Exception;
 
+    /**
+     * 根据文本生成3D模型，提交上游任务后回调上游任务ID，供重启后继续轮询
+     *
+     * @param upstreamJobCallback 上游任务ID回调
+     */
+    default String generateModelFromText(String text,
+                                         ModelTask.Complexity complexity,
+                                         ModelTask.OutputFormat format,
+                                         Consumer<Integer> progressCallback,
+                                         Consumer<String> upstreamJobCallback) throws Exception {
+        return generateModelFromText(text, complexity, format, progressCallback);
+    }
+
+    /**
+     * 根据图片生成3D模型，提交上游任务后回调上游任务ID，供重启后继续轮询
+     *
+     * @param upstreamJobCallback 上游任务ID回调
+     */
+    default String generateModelFromImage(String imagePath,
+                                          String description,
+                                          ModelTask.Complexity complexity,
+                                          ModelTask.OutputFormat format,
+                                          Consumer<Integer> progressCallback,
+                                          Consumer<String> upstreamJobCallback) throws Exception {
+        return generateModelFromImage(imagePath, description, complexity, format, progressCallback);
+    }
+
+    /**
+     * 是否支持按上游任务ID继续之前提交的生成；返回 true 的实现必须覆盖 {@link #resumeModelGeneration}
+     */
+    default boolean supportsResume() {
+        return false;
+    }
+
+    /**
+     * 继续轮询已提交的上游任务并保存结果，仅在 {@link #supportsResume()} 返回 true 时调用
+     *
+     * @param upstreamJobId 上游任务ID
+     * @param startedAt 任务开始时间，用于按已耗时安排查询和计算进度，可为 null
+     * @param format 输出格式
+     * @param baseName 模型名称
+     * @param progressCallback 进度回调函数
+     * @return 生成的模型文件路径
+     */
+    default String resumeModelGeneration(String upstreamJobId,
+                                         LocalDateTime startedAt,
+                                         ModelTask.OutputFormat format,
+                                         String baseName,
+                                         Consumer<Integer> progressCallback) throws Exception {
+        throw new UnsupportedOperationException("当前AI服务不支持继续已提交的任务");
+    }
+
     /**
      * 生成模型预览图
      * 
@@ -65,6 +118,16 @@ public interface AIModelService {
         return previewPaths;
     }
 
+    /**
+     * 获取生成时一并保存到本地的各格式模型文件
+     *
+     * @param modelPath 主模型文件路径
+     * @return 格式到本地文件路径的映射，没有时返回空映射
+     */
+    default java.util.Map<ModelTask.OutputFormat, String> getResultFiles(String modelPath) {
+        return java.util.Collections.emptyMap();
+    }
+
     /**
      * 检查服务是否可用
      * 
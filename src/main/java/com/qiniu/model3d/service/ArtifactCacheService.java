@@ -0,0 +1,135 @@
+package com.qiniu.model3d.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * 上游任务结果文件本地镜像服务接口
+ * 按（上游任务ID，格式或预览图）读穿缓存到磁盘：未命中时查询上游并全速下载到磁盘，触发下载的客户端边下载边接收；
+ * 同一文件的并发请求只下载一次；缓存总大小有上限，按最近访问淘汰
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface ArtifactCacheService {
+
+    /** 预览图的文件种类 */
+    String PREVIEW = "preview";
+
+    /**
+     * 获取结果文件
+     *
+     * @param jobId 上游任务ID
+     * @param format 模型格式；为 null 或空时取上游返回的第一个文件
+     * @param sink 未命中时边下载边接收响应体的一方，可以为 null
+     * @return 本地文件；{@link CachedArtifact#isStreamed()} 为 true 时响应体已写给 sink
+     * @throws ArtifactUnavailableException 任务未完成或没有对应的文件
+     */
+    CachedArtifact getModel(String jobId, String format, ArtifactSink sink) throws IOException;
+
+    /**
+     * 获取预览图
+     *
+     * @param jobId 上游任务ID
+     * @param sink 未命中时边下载边接收响应体的一方，可以为 null
+     * @return 本地文件；{@link CachedArtifact#isStreamed()} 为 true 时响应体已写给 sink
+     * @throws ArtifactUnavailableException 任务未完成或没有预览图
+     */
+    CachedArtifact getPreview(String jobId, ArtifactSink sink) throws IOException;
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 统计信息
+     */
+    ArtifactCacheStatistics getStatistics();
+
+    /**
+     * 边下载边接收响应体的一方
+     */
+    interface ArtifactSink {
+
+        /**
+         * 响应体开始前调用一次，返回写出响应体的输出流
+         *
+         * @param contentType 内容类型
+         * @param contentLength 长度，未知时为 -1
+         * @param filename 建议的下载文件名
+         */
+        OutputStream open(String contentType, long contentLength, String filename) throws IOException;
+    }
+
+    /**
+     * 本地结果文件
+     */
+    class CachedArtifact {
+        private final Path path;
+        private final long size;
+        private final String contentType;
+        private final String filename;
+        private final boolean streamed;
+
+        public CachedArtifact(Path path, long size, String contentType, String filename, boolean streamed) {
+            this.path = path;
+            this.size = size;
+            this.contentType = contentType;
+            this.filename = filename;
+            this.streamed = streamed;
+        }
+
+        public Path getPath() { return path; }
+        public long getSize() { return size; }
+        public String getContentType() { return contentType; }
+        public String getFilename() { return filename; }
+        public boolean isStreamed() { return streamed; }
+    }
+
+    /**
+     * 任务未完成或没有对应的结果文件
+     */
+    class ArtifactUnavailableException extends RuntimeException {
+        private final boolean jobNotDone;
+
+        public ArtifactUnavailableException(String message, boolean jobNotDone) {
+            super(message);
+            this.jobNotDone = jobNotDone;
+        }
+
+        public boolean isJobNotDone() {
+            return jobNotDone;
+        }
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    class ArtifactCacheStatistics {
+        private final int entries;
+        private final long totalBytes;
+        private final long maxBytes;
+        private final long hits;
+        private final long misses;
+        private final long coalesced;
+        private final long evictions;
+
+        public ArtifactCacheStatistics(int entries, long totalBytes, long maxBytes, long hits, long misses,
+                                       long coalesced, long evictions) {
+            this.entries = entries;
+            this.totalBytes = totalBytes;
+            this.maxBytes = maxBytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.coalesced = coalesced;
+            this.evictions = evictions;
+        }
+
+        public int getEntries() { return entries; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getMaxBytes() { return maxBytes; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getCoalesced() { return coalesced; }
+        public long getEvictions() { return evictions; }
+    }
+}
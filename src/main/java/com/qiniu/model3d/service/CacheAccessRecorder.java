@@ -0,0 +1,62 @@
+package com.qiniu.model3d.service;
+
+/**
+ * 缓存访问记录服务接口
+ * 只记录实际被使用的缓存任务；同一任务在一个刷新周期内的多次访问合并为一次数据库更新，异步写入
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface CacheAccessRecorder {
+
+    /**
+     * 记录一次缓存使用
+     *
+     * @param taskId 被使用的缓存任务ID
+     * @param similarityMatch 是否为相似度匹配（非精确匹配）
+     */
+    void recordAccess(String taskId, boolean similarityMatch);
+
+    /**
+     * 立即写入所有待写入的访问记录
+     *
+     * @return 更新的任务数
+     */
+    int flush();
+
+    /**
+     * 获取访问记录统计
+     *
+     * @return 统计信息
+     */
+    AccessRecorderStatistics getStatistics();
+
+    /**
+     * 访问记录统计信息
+     */
+    class AccessRecorderStatistics {
+        private final long recordedAccesses;
+        private final long writtenRows;
+        private final long flushCount;
+        private final long failedFlushes;
+        private final int pendingTasks;
+
+        public AccessRecorderStatistics(long recordedAccesses, long writtenRows, long flushCount,
+                                        long failedFlushes, int pendingTasks) {
+            this.recordedAccesses = recordedAccesses;
+            this.writtenRows = writtenRows;
+            this.flushCount = flushCount;
+            this.failedFlushes = failedFlushes;
+            this.pendingTasks = pendingTasks;
+        }
+
+        public long getRecordedAccesses() { return recordedAccesses; }
+        public long getWrittenRows() { return writtenRows; }
+        public long getFlushCount() { return flushCount; }
+        public long getFailedFlushes() { return failedFlushes; }
+        public int getPendingTasks() { return pendingTasks; }
+        public double getCoalescingRatio() {
+            return writtenRows > 0 ? (double) recordedAccesses / writtenRows : 0.0;
+        }
+    }
+}
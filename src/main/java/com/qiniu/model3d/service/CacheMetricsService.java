@@ -82,6 +82,48 @@ public interface CacheMetricsService {
      */
     void resetMetrics();
 
+    /**
+     * 获取相似度候选索引的规模与内存统计
+     * 
+     * @return 索引统计
+     */
+    SimilarityIndexService.IndexStatistics getSimilarityIndexStatistics();
+
+    /**
+     * 获取相似度级联打分各阶段的淘汰统计
+     * 
+     * @return 级联打分统计
+     */
+    SimilarityService.CascadeStatistics getSimilarityCascadeStatistics();
+
+    /**
+     * 获取缓存访问记录的合并写入统计
+     * 
+     * @return 访问记录统计
+     */
+    CacheAccessRecorder.AccessRecorderStatistics getAccessRecorderStatistics();
+
+    /**
+     * 获取完全匹配一级缓存的命中统计
+     * 
+     * @return 一级缓存统计
+     */
+    ExactMatchCacheService.ExactMatchCacheStatistics getExactMatchCacheStatistics();
+
+    /**
+     * 获取输入哈希过滤器的误判率和内存占用
+     * 
+     * @return 过滤器统计
+     */
+    InputHashFilterService.FilterStatistics getInputHashFilterStatistics();
+
+    /**
+     * 获取相同请求合并（single-flight）统计
+     * 
+     * @return 合并统计
+     */
+    SingleFlightService.SingleFlightStatistics getSingleFlightStatistics();
+
     /**
      * 缓存指标数据类
      */
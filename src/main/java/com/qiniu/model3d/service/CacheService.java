@@ -17,6 +17,7 @@ public interface CacheService {
 
     /**
      * 查找完全匹配的缓存
+     * 不更新访问统计，实际使用缓存时由调用方通过 CacheAccessRecorder 记录
      * 
      * @param inputText 输入文本
      * @param taskType 任务类型
@@ -29,6 +30,7 @@ public interface CacheService {
 
     /**
      * 查找相似度匹配的缓存
+     * 只读查找，不更新访问统计，实际使用缓存时由调用方通过 CacheAccessRecorder 记录
      * 
      * @param inputText 输入文本
      * @param taskType 任务类型
@@ -148,6 +150,20 @@ public interface CacheService {
     String calculateInputHash(String inputText, ModelTask.TaskType taskType, 
                             String complexity, String outputFormat);
 
+    /**
+     * 计算规范请求键：忽略大小写和多余空白，枚举按序号参与哈希
+     * 复杂度和输出格式不区分大小写，为空表示未指定
+     * 
+     * @param inputText 输入文本
+     * @param taskType 任务类型
+     * @param complexity 复杂度
+     * @param outputFormat 输出格式
+     * @return 32位十六进制请求键
+     * @throws IllegalArgumentException 复杂度或输出格式无法识别
+     */
+    String calculateRequestKey(String inputText, ModelTask.TaskType taskType, 
+                             String complexity, String outputFormat);
+
     /**
      * 计算文件签名
      * 
@@ -156,6 +172,15 @@ public interface CacheService {
      */
     String calculateFileSignature(String filePath);
 
+    /**
+     * 登记写文件时已经算出的文件签名，之后对同一文件计算签名时直接使用，不再重新读取文件；
+     * 文件大小或修改时间变化后登记失效
+     *
+     * @param filePath 文件路径
+     * @param signature 文件签名（MD5十六进制串）
+     */
+    void recordFileSignature(String filePath, String signature);
+
     /**
      * 更新相似度使用计数
      * 
@@ -0,0 +1,89 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.entity.ModelTask;
+
+import java.util.Optional;
+
+/**
+ * 完全匹配一级缓存服务接口
+ * 在进程内按输入哈希保存完全匹配命中的缓存任务，热门提示词无需查询数据库和文件系统
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface ExactMatchCacheService {
+
+    /**
+     * 按输入哈希查找
+     *
+     * @param inputHash 输入哈希
+     * @return 命中的缓存任务；模型文件校验过期且文件已不可用时返回空
+     */
+    Optional<ModelTask> get(String inputHash);
+
+    /**
+     * 放入完全匹配命中的缓存任务（调用方已校验模型文件可用）
+     *
+     * @param inputHash 输入哈希
+     * @param task 缓存任务
+     */
+    void put(String inputHash, ModelTask task);
+
+    /**
+     * 使指定任务的条目失效（淘汰、失效或删除缓存任务时调用）
+     *
+     * @param taskId 任务ID
+     */
+    void invalidateTask(String taskId);
+
+    /**
+     * 清空一级缓存
+     */
+    void clear();
+
+    /**
+     * 获取一级缓存统计
+     *
+     * @return 统计信息
+     */
+    ExactMatchCacheStatistics getStatistics();
+
+    /**
+     * 一级缓存统计信息
+     */
+    class ExactMatchCacheStatistics {
+        private final boolean enabled;
+        private final int size;
+        private final int maxEntries;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long rejections;
+        private final long invalidations;
+
+        public ExactMatchCacheStatistics(boolean enabled, int size, int maxEntries, long hits, long misses,
+                                         long evictions, long rejections, long invalidations) {
+            this.enabled = enabled;
+            this.size = size;
+            this.maxEntries = maxEntries;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.rejections = rejections;
+            this.invalidations = invalidations;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public int getSize() { return size; }
+        public int getMaxEntries() { return maxEntries; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getRejections() { return rejections; }
+        public long getInvalidations() { return invalidations; }
+        public double getHitRate() {
+            long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0.0;
+        }
+    }
+}
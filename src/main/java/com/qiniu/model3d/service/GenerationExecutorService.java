@@ -0,0 +1,95 @@
+package com.qiniu.model3d.service;
+
+/**
+ * 生成任务执行服务接口
+ * 生成任务在专用的有界线程池中执行，不占用请求线程；队列已满时拒绝提交并给出建议的重试等待时间
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface GenerationExecutorService {
+
+    /**
+     * 提交生成任务
+     *
+     * @param taskId 任务ID
+     * @param job 生成逻辑
+     * @throws QueueFullException 队列已满
+     */
+    void submit(String taskId, Runnable job);
+
+    /**
+     * 当前建议的重试等待时间（秒）
+     *
+     * @return 按队列深度和平均执行时间估算的等待秒数
+     */
+    long estimateRetryAfterSeconds();
+
+    /**
+     * 获取执行统计
+     *
+     * @return 统计信息
+     */
+    ExecutorStatistics getStatistics();
+
+    /**
+     * 生成队列已满
+     */
+    class QueueFullException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public QueueFullException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    /**
+     * 执行统计信息
+     */
+    class ExecutorStatistics {
+        private final int queueDepth;
+        private final int queueCapacity;
+        private final int runningJobs;
+        private final int poolSize;
+        private final int maxPoolSize;
+        private final long submittedJobs;
+        private final long completedJobs;
+        private final long rejectedJobs;
+        private final double avgQueueWaitMillis;
+        private final long maxQueueWaitMillis;
+        private final double avgRunSeconds;
+
+        public ExecutorStatistics(int queueDepth, int queueCapacity, int runningJobs, int poolSize, int maxPoolSize,
+                                  long submittedJobs, long completedJobs, long rejectedJobs,
+                                  double avgQueueWaitMillis, long maxQueueWaitMillis, double avgRunSeconds) {
+            this.queueDepth = queueDepth;
+            this.queueCapacity = queueCapacity;
+            this.runningJobs = runningJobs;
+            this.poolSize = poolSize;
+            this.maxPoolSize = maxPoolSize;
+            this.submittedJobs = submittedJobs;
+            this.completedJobs = completedJobs;
+            this.rejectedJobs = rejectedJobs;
+            this.avgQueueWaitMillis = avgQueueWaitMillis;
+            this.maxQueueWaitMillis = maxQueueWaitMillis;
+            this.avgRunSeconds = avgRunSeconds;
+        }
+
+        public int getQueueDepth() { return queueDepth; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public int getRunningJobs() { return runningJobs; }
+        public int getPoolSize() { return poolSize; }
+        public int getMaxPoolSize() { return maxPoolSize; }
+        public long getSubmittedJobs() { return submittedJobs; }
+        public long getCompletedJobs() { return completedJobs; }
+        public long getRejectedJobs() { return rejectedJobs; }
+        public double getAvgQueueWaitMillis() { return avgQueueWaitMillis; }
+        public long getMaxQueueWaitMillis() { return maxQueueWaitMillis; }
+        public double getAvgRunSeconds() { return avgRunSeconds; }
+    }
+}
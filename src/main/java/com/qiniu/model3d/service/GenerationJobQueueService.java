@@ -0,0 +1,105 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.entity.ModelTask;
+
+import java.util.function.Consumer;
+
+/**
+ * 持久化生成队列服务接口
+ * 生成任务以作业形式写入数据库，节点按租约认领并在本地生成线程池中执行；
+ * 节点重启或宕机后租约过期，作业由任意节点重新认领，已提交的上游任务继续轮询
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface GenerationJobQueueService {
+
+    /**
+     * 登记作业执行逻辑，由生成服务在启动时注册
+     *
+     * @param handler 作业执行逻辑
+     */
+    void setJobHandler(JobHandler handler);
+
+    /**
+     * 为新任务创建作业。本地生成线程池有空位时由本节点直接认领并提交，
+     * 否则作业保持等待状态、不指定持有节点，由任一有空位的节点认领
+     *
+     * @param task 已保存的任务
+     * @throws GenerationExecutorService.QueueFullException 全集群等待中的作业超过上限，作业不会保留
+     */
+    void enqueue(ModelTask task);
+
+    /**
+     * 任务是否由本节点持有的作业执行；其他节点执行的任务状态变化不会在本节点发布事件
+     *
+     * @param taskId 任务ID
+     * @return 本节点持有时返回 true
+     */
+    boolean isHeldLocally(String taskId);
+
+    /**
+     * 获取队列统计
+     *
+     * @return 统计信息
+     */
+    JobQueueStatistics getStatistics();
+
+    /**
+     * 作业执行逻辑
+     */
+    @FunctionalInterface
+    interface JobHandler {
+
+        /**
+         * 执行生成任务
+         *
+         * @param task 任务
+         * @param upstreamJobId 之前已提交的上游任务ID，首次执行为 null
+         * @param upstreamJobRecorder 提交上游任务后调用，持久化上游任务ID
+         */
+        void execute(ModelTask task, String upstreamJobId, Consumer<String> upstreamJobRecorder);
+    }
+
+    /**
+     * 队列统计信息
+     */
+    class JobQueueStatistics {
+        private final String nodeId;
+        private final long pendingJobs;
+        private final long runningJobs;
+        private final int heldLeases;
+        private final long claimedJobs;
+        private final long reclaimedJobs;
+        private final long resumedJobs;
+        private final long lostLeases;
+        private final long abandonedJobs;
+        private final long timedOutTasks;
+
+        public JobQueueStatistics(String nodeId, long pendingJobs, long runningJobs, int heldLeases,
+                                  long claimedJobs, long reclaimedJobs, long resumedJobs,
+                                  long lostLeases, long abandonedJobs, long timedOutTasks) {
+            this.nodeId = nodeId;
+            this.pendingJobs = pendingJobs;
+            this.runningJobs = runningJobs;
+            this.heldLeases = heldLeases;
+            this.claimedJobs = claimedJobs;
+            this.reclaimedJobs = reclaimedJobs;
+            this.resumedJobs = resumedJobs;
+            this.lostLeases = lostLeases;
+            this.abandonedJobs = abandonedJobs;
+            this.timedOutTasks = timedOutTasks;
+        }
+
+        public String getNodeId() { return nodeId; }
+        public long getPendingJobs() { return pendingJobs; }
+        public long getRunningJobs() { return runningJobs; }
+        public int getHeldLeases() { return heldLeases; }
+        public long getClaimedJobs() { return claimedJobs; }
+        public long getReclaimedJobs() { return reclaimedJobs; }
+        public long getResumedJobs() { return resumedJobs; }
+        public long getLostLeases() { return lostLeases; }
+        public long getAbandonedJobs() { return abandonedJobs; }
+        public long getTimedOutTasks() { return timedOutTasks; }
+    }
+}
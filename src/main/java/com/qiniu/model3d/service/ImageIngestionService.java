@@ -0,0 +1,49 @@
+package com.qiniu.model3d.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+
+/**
+ * 上传图片接收服务接口
+ * 上传流只读一遍：同一遍读取中计算内容哈希、按文件头识别并校验图片类型、写入以内容哈希命名的文件
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface ImageIngestionService {
+
+    /**
+     * 接收上传的图片
+     *
+     * @param image 上传的图片
+     * @return 保存结果
+     * @throws IllegalArgumentException 文件为空、过大或不是支持的图片格式
+     */
+    IngestedImage ingest(MultipartFile image);
+
+    /**
+     * 已保存的上传图片
+     */
+    class IngestedImage {
+        private final Path path;
+        private final String contentHash;
+        private final String imageType;
+        private final long size;
+
+        public IngestedImage(Path path, String contentHash, String imageType, long size) {
+            this.path = path;
+            this.contentHash = contentHash;
+            this.imageType = imageType;
+            this.size = size;
+        }
+
+        /** 以内容哈希命名的文件路径，相同内容只保存一份 */
+        public Path getPath() { return path; }
+        /** 内容 MD5（十六进制） */
+        public String getContentHash() { return contentHash; }
+        /** 按文件头识别的图片类型：jpg、png、gif、bmp、webp */
+        public String getImageType() { return imageType; }
+        public long getSize() { return size; }
+    }
+}
@@ -0,0 +1,92 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.dto.SubmitHunyuanTo3DJobRequest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 上游提交图片预处理服务接口
+ * 提交给上游前按上游可用的分辨率缩小图片并重新编码为 JPEG，减小请求体；
+ * 预处理在有界的计算线程池中执行，多视角图片并行处理。缓存哈希仍按原图计算，原图保持不变
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface ImagePreprocessService {
+
+    /**
+     * 预处理图片文件
+     *
+     * @param source 原图路径
+     * @return 预处理后的文件路径；不需要处理或处理后没有变小时返回原图路径
+     */
+    Path prepareFile(Path source) throws IOException;
+
+    /**
+     * 预处理提交请求中的 ImageBase64 和多视角图片，直接替换请求中的字段
+     * 用于直接提交的请求；已经过 prepareFile 处理的图片不要再经过这里
+     *
+     * @param request 提交请求
+     */
+    void prepareRequest(SubmitHunyuanTo3DJobRequest request);
+
+    /**
+     * 记录一次提交
+     *
+     * @param payloadBytes 请求中图片 Base64 的总字节数
+     * @param latencyMillis 提交耗时（毫秒）
+     */
+    void recordSubmit(long payloadBytes, long latencyMillis);
+
+    /**
+     * 获取预处理统计
+     *
+     * @return 统计信息
+     */
+    PreprocessStatistics getStatistics();
+
+    /**
+     * 预处理统计信息
+     */
+    class PreprocessStatistics {
+        private final long processedImages;
+        private final long passthroughImages;
+        private final long failedImages;
+        private final long originalBytes;
+        private final long processedBytes;
+        private final double avgProcessMillis;
+        private final long submits;
+        private final double avgSubmitMillis;
+        private final long maxSubmitMillis;
+        private final double avgSubmitPayloadBytes;
+
+        public PreprocessStatistics(long processedImages, long passthroughImages, long failedImages,
+                                    long originalBytes, long processedBytes, double avgProcessMillis,
+                                    long submits, double avgSubmitMillis, long maxSubmitMillis,
+                                    double avgSubmitPayloadBytes) {
+            this.processedImages = processedImages;
+            this.passthroughImages = passthroughImages;
+            this.failedImages = failedImages;
+            this.originalBytes = originalBytes;
+            this.processedBytes = processedBytes;
+            this.avgProcessMillis = avgProcessMillis;
+            this.submits = submits;
+            this.avgSubmitMillis = avgSubmitMillis;
+            this.maxSubmitMillis = maxSubmitMillis;
+            this.avgSubmitPayloadBytes = avgSubmitPayloadBytes;
+        }
+
+        public long getProcessedImages() { return processedImages; }
+        public long getPassthroughImages() { return passthroughImages; }
+        public long getFailedImages() { return failedImages; }
+        public long getOriginalBytes() { return originalBytes; }
+        public long getProcessedBytes() { return processedBytes; }
+        public long getBytesSaved() { return originalBytes - processedBytes; }
+        public double getAvgProcessMillis() { return avgProcessMillis; }
+        public long getSubmits() { return submits; }
+        public double getAvgSubmitMillis() { return avgSubmitMillis; }
+        public long getMaxSubmitMillis() { return maxSubmitMillis; }
+        public double getAvgSubmitPayloadBytes() { return avgSubmitPayloadBytes; }
+    }
+}
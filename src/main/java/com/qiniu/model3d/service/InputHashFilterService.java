@@ -0,0 +1,103 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.entity.ModelTask;
+
+/**
+ * 输入哈希过滤器服务接口
+ * 以计数布隆过滤器记录所有可命中任务的查找键，判定"一定不存在"时完全匹配查询无需访问数据库。
+ * 查找键为规范请求键，尚未回填请求键的历史记录为输入哈希
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface InputHashFilterService {
+
+    /**
+     * 查找键是否可能存在；过滤器未就绪时始终返回 true
+     *
+     * @param lookupKey 规范请求键或输入哈希
+     * @return false 表示一定不存在
+     */
+    boolean mightContain(String lookupKey);
+
+    /**
+     * 记录可命中的任务（任务完成并进入缓存时调用）
+     *
+     * @param task 缓存任务
+     */
+    void add(ModelTask task);
+
+    /**
+     * 移除任务（缓存任务被淘汰或删除时调用）
+     *
+     * @param task 缓存任务
+     */
+    void remove(ModelTask task);
+
+    /**
+     * 历史记录回填规范请求键后，将查找键从输入哈希换为请求键
+     *
+     * @param inputHash 原输入哈希
+     * @param requestKey 回填的规范请求键
+     */
+    void replace(String inputHash, String requestKey);
+
+    /**
+     * 从数据库重建过滤器
+     *
+     * @return 载入的查找键数，失败时返回 -1
+     */
+    int rebuild();
+
+    /**
+     * 获取过滤器统计
+     *
+     * @return 统计信息
+     */
+    FilterStatistics getStatistics();
+
+    /**
+     * 过滤器统计信息
+     */
+    class FilterStatistics {
+        private final boolean enabled;
+        private final boolean ready;
+        private final long entries;
+        private final long capacity;
+        private final long counters;
+        private final int hashFunctions;
+        private final double falsePositiveRate;
+        private final long memoryBytes;
+        private final long queries;
+        private final long negatives;
+
+        public FilterStatistics(boolean enabled, boolean ready, long entries, long capacity, long counters,
+                                int hashFunctions, double falsePositiveRate, long memoryBytes,
+                                long queries, long negatives) {
+            this.enabled = enabled;
+            this.ready = ready;
+            this.entries = entries;
+            this.capacity = capacity;
+            this.counters = counters;
+            this.hashFunctions = hashFunctions;
+            this.falsePositiveRate = falsePositiveRate;
+            this.memoryBytes = memoryBytes;
+            this.queries = queries;
+            this.negatives = negatives;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public boolean isReady() { return ready; }
+        public long getEntries() { return entries; }
+        public long getCapacity() { return capacity; }
+        public long getCounters() { return counters; }
+        public int getHashFunctions() { return hashFunctions; }
+        public double getFalsePositiveRate() { return falsePositiveRate; }
+        public long getMemoryBytes() { return memoryBytes; }
+        public long getQueries() { return queries; }
+        public long getNegatives() { return negatives; }
+        public double getSkipRate() {
+            return queries > 0 ? (double) negatives / queries : 0.0;
+        }
+    }
+}
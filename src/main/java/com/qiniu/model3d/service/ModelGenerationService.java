@@ -11,22 +11,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * 3D模型生成服务
@@ -54,6 +54,27 @@ public class ModelGenerationService {
     @Autowired
     private CacheMetricsService cacheMetricsService;
 
+    @Autowired
+    private CacheAccessRecorder cacheAccessRecorder;
+
+    @Autowired
+    private InputHashFilterService inputHashFilterService;
+
+    @Autowired
+    private SingleFlightService singleFlightService;
+
+    @Autowired
+    private GenerationJobQueueService generationJobQueueService;
+
+    @Autowired
+    private TaskProgressBuffer taskProgressBuffer;
+
+    @Autowired
+    private TaskStatusRegistry taskStatusRegistry;
+
+    @Autowired
+    private TaskEventHub taskEventHub;
+
     @Autowired
     private EvaluationService evaluationService;
 
@@ -63,8 +84,8 @@ public class ModelGenerationService {
     @Autowired
     private Model3DHistoryService model3DHistoryService;
 
-    @Value("${app.file.upload-dir}")
-    private String uploadDir;
+    @Autowired
+    private ImageIngestionService imageIngestionService;
 
     @Value("${app.file.model-dir}")
     private String modelDir;
@@ -72,19 +93,25 @@ public class ModelGenerationService {
     @Value("${app.file.preview-dir}")
     private String previewDir;
 
-    @Value("${app.file.max-file-size}")
-    private long maxFileSize;
-
     @Value("${app.ai.service-type:default}")
     private String aiServiceType;
 
     @Value("${app.cache.similarity-threshold:0.8}")
     private double similarityThreshold;
 
-    // 支持的图片格式
-    private static final List<String> SUPPORTED_IMAGE_TYPES = Arrays.asList(
-        "image/jpeg", "image/jpg", "image/png", "image/gif", "image/bmp", "image/webp"
-    );
+    /**
+     * 注册持久化队列的作业执行逻辑，本节点认领的作业（含其他节点中断的作业）都在这里执行
+     */
+    @PostConstruct
+    public void registerJobHandler() {
+        generationJobQueueService.setJobHandler((task, upstreamJobId, upstreamJobRecorder) -> {
+            if (task.getType() == ModelTask.TaskType.IMAGE) {
+                processImageGeneration(task, upstreamJobId, upstreamJobRecorder);
+            } else {
+                processTextGeneration(task, upstreamJobId, upstreamJobRecorder);
+            }
+        });
+    }
 
     /**
      * 根据文本生成3D模型
@@ -142,14 +169,35 @@ public class ModelGenerationService {
             }
         }
         
-        // 3. 缓存未命中 - 创建新任务
+        // 3. 缓存未命中 - 相同请求正在生成时合并到进行中的任务，否则创建新任务
         // 记录缓存未命中
         cacheMetricsService.recordCacheMiss(request.getText(), "text", 0);
         
-        ModelTask task = createNewTask(request, clientIp);
+        String requestKey = cacheService.calculateRequestKey(request.getText(), 
+                                                             ModelTask.TaskType.TEXT,
+                                                             request.getComplexity() != null ? request.getComplexity().toString() : null, 
+                                                             request.getFormat() != null ? request.getFormat().toString() : null);
+        String taskId = generateTaskId();
+        SingleFlightService.Flight flight = singleFlightService.begin(requestKey, taskId);
+        if (!flight.isLeader(taskId)) {
+            ModelTask followerTask = createFollowerTask(flight, taskId, ModelTask.TaskType.TEXT, request.getText(), 
+                                                        null, request.getText(), request.getComplexity(), 
+                                                        request.getFormat(), clientIp);
+            logger.info("相同请求正在生成，合并到进行中的任务: taskId={}, leaderTaskId={}", 
+                       followerTask.getTaskId(), flight.getLeaderTaskId());
+            return followerTask;
+        }
         
-        // 异步处理生成任务
-        processTextGenerationAsync(task);
+        ModelTask task;
+        try {
+            task = createNewTask(request, clientIp, taskId);
+        } catch (RuntimeException e) {
+            singleFlightService.fail(requestKey, taskId, e);
+            throw e;
+        }
+        
+        // 写入持久化队列并提交到生成线程池异步处理
+        submitGeneration(task);
         
         logger.info("缓存未命中，创建新任务: taskId={}, text={}", task.getTaskId(), request.getText());
         return task;
@@ -160,14 +208,12 @@ public class ModelGenerationService {
      */
     public ModelTask generateFromImage(MultipartFile image, ModelTask.Complexity complexity, 
                                      ModelTask.OutputFormat format, String description, String clientIp) {
-        // 验证图片
-        validateImageFile(image);
-        
-        // 保存上传的图片
-        String imagePath = saveUploadedImage(image);
+        // 接收上传的图片：一次读取完成类型校验、内容哈希和保存
+        ImageIngestionService.IngestedImage ingested = imageIngestionService.ingest(image);
+        String imagePath = ingested.getPath().toString();
         
         // 1. 图片缓存查找（基于文件内容和描述）
-        String imageHash = calculateFileHash(imagePath);
+        String imageHash = ingested.getContentHash();
         String combinedInput = (description != null ? description : "") + "|" + imageHash;
         
         Optional<ModelTask> exactMatch = cacheService.findExactMatch(
@@ -183,7 +229,7 @@ public class ModelGenerationService {
             cacheMetricsService.recordCacheHit(sourceTask.getId().toString(), "image_exact", 0);
             
             // 完全匹配缓存命中
-            ModelTask cacheTask = createImageCacheTask(sourceTask, clientIp, imagePath, description, 1.0);
+            ModelTask cacheTask = createImageCacheTask(sourceTask, clientIp, imagePath, description, combinedInput, 1.0);
             copyModelFilesAsync(sourceTask, cacheTask);
             
             logger.info("图片完全匹配缓存命中: taskId={}, sourceTaskId={}", 
@@ -210,7 +256,8 @@ public class ModelGenerationService {
                     // 记录图片相似度缓存命中
                     cacheMetricsService.recordCacheHit(bestMatch.getTask().getId().toString(), "image_similar", 0);
                     
-                    ModelTask cacheTask = createImageCacheTask(bestMatch.getTask(), clientIp, imagePath, description, bestMatch.getSimilarity());
+                    ModelTask cacheTask = createImageCacheTask(bestMatch.getTask(), clientIp, imagePath, description, combinedInput,
+                                                              bestMatch.getSimilarity());
                     copyModelFilesAsync(bestMatch.getTask(), cacheTask);
                     
                     String level = similarityService.getSimilarityLevel(bestMatch.getSimilarity());
@@ -221,24 +268,49 @@ public class ModelGenerationService {
             }
         }
         
-        // 3. 缓存未命中 - 创建新任务
+        // 3. 缓存未命中 - 相同图片和描述正在生成时合并到进行中的任务，否则创建新任务
         // 记录图片缓存未命中
         cacheMetricsService.recordCacheMiss(description != null ? description : imagePath, "image", 0);
         
-        ModelTask task = createNewImageTask(imagePath, description, complexity, format, clientIp);
+        String requestKey = cacheService.calculateRequestKey(combinedInput, 
+                                                             ModelTask.TaskType.IMAGE,
+                                                             complexity != null ? complexity.toString() : null,
+                                                             format != null ? format.toString() : null);
+        String taskId = generateTaskId();
+        SingleFlightService.Flight flight = singleFlightService.begin(requestKey, taskId);
+        if (!flight.isLeader(taskId)) {
+            ModelTask followerTask = createFollowerTask(flight, taskId, ModelTask.TaskType.IMAGE, description, 
+                                                        imagePath, combinedInput, complexity, format, clientIp);
+            logger.info("相同图片请求正在生成，合并到进行中的任务: taskId={}, leaderTaskId={}", 
+                       followerTask.getTaskId(), flight.getLeaderTaskId());
+            return followerTask;
+        }
+        
+        ModelTask task;
+        try {
+            task = createNewImageTask(imagePath, description, combinedInput, complexity, format, clientIp, taskId);
+        } catch (RuntimeException e) {
+            singleFlightService.fail(requestKey, taskId, e);
+            throw e;
+        }
         
-        // 异步处理生成任务
-        processImageGenerationAsync(task);
+        // 写入持久化队列并提交到生成线程池异步处理
+        submitGeneration(task);
         
         logger.info("图片缓存未命中，创建新任务: taskId={}, imagePath={}", task.getTaskId(), imagePath);
         return task;
     }
 
     /**
-     * 获取任务状态
+     * 获取任务状态：本节点登记的进行中任务直接返回内存快照，
+     * 其余任务查询数据库，进行中任务的进度取写缓冲中的最新值
      */
     public ModelTask getTaskStatus(String taskId) {
-        return modelTaskRepository.findByTaskId(taskId).orElse(null);
+        ModelTask registered = taskStatusRegistry.find(taskId);
+        if (registered != null) {
+            return registered;
+        }
+        return taskProgressBuffer.applyPending(modelTaskRepository.findByTaskId(taskId).orElse(null));
     }
 
     /**
@@ -313,10 +385,32 @@ public class ModelGenerationService {
     // 异步处理方法
 
     /**
-     * 异步处理文本生成任务
+     * 提交生成任务；全集群等待中的作业超过上限时将任务标记为失败并抛出 QueueFullException
      */
-    @Async
-    public void processTextGenerationAsync(ModelTask task) {
+    private void submitGeneration(ModelTask task) {
+        try {
+            generationJobQueueService.enqueue(task);
+        } catch (GenerationExecutorService.QueueFullException e) {
+            task.setStatus(ModelTask.TaskStatus.FAILED);
+            task.setErrorMessage(e.getMessage());
+            task.setUpdatedAt(LocalDateTime.now());
+            modelTaskRepository.save(task);
+            singleFlightService.fail(task.getRequestKey(), task.getTaskId(), e);
+            
+            try {
+                evaluationService.updateTaskStatus(task.getTaskId(), "FAILED", 
+                    LocalDateTime.now(), e.getMessage());
+            } catch (Exception evalException) {
+                logger.warn("更新TaskEvaluation状态失败: {}", task.getTaskId(), evalException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 处理文本生成任务（在生成线程池中执行）；upstreamJobId 不为空时继续轮询之前提交的上游任务
+     */
+    private void processTextGeneration(ModelTask task, String upstreamJobId, Consumer<String> upstreamJobRecorder) {
         try {
             logger.info("开始处理文本生成任务: {}", task.getTaskId());
             
@@ -328,12 +422,29 @@ public class ModelGenerationService {
             
             // 选择合适的AI服务并生成模型
             AIModelService selectedService = getSelectedAIService();
-            String modelPath = selectedService.generateModelFromText(
-                task.getInputText(), 
-                task.getComplexity(), 
-                task.getOutputFormat(),
-                (progress) -> updateTaskProgress(task.getTaskId(), progress)
-            );
+            String modelPath;
+            if (upstreamJobId != null) {
+                if (!selectedService.supportsResume()) {
+                    // 上游任务已提交但无法继续轮询，重新提交会重复生成，直接标记失败
+                    throw new IllegalStateException("生成任务被中断，当前AI服务不支持继续已提交的上游任务");
+                }
+                logger.info("继续轮询已提交的上游任务: taskId={}, upstreamJobId={}", task.getTaskId(), upstreamJobId);
+                modelPath = selectedService.resumeModelGeneration(
+                    upstreamJobId,
+                    task.getCreatedAt(),
+                    task.getOutputFormat(),
+                    task.getInputText(),
+                    (progress) -> updateTaskProgress(task.getTaskId(), progress)
+                );
+            } else {
+                modelPath = selectedService.generateModelFromText(
+                    task.getInputText(), 
+                    task.getComplexity(), 
+                    task.getOutputFormat(),
+                    (progress) -> updateTaskProgress(task.getTaskId(), progress),
+                    upstreamJobRecorder
+                );
+            }
             
             // 生成多张预览图
             List<String> previewPaths = selectedService.generateMultiplePreviewImages(modelPath, 3);
@@ -360,6 +471,7 @@ public class ModelGenerationService {
             task.setModelFilePath(modelPath);
             task.setPreviewImagePath(mainPreviewPath);
             task.setFileSignature(fileSignature);
+            registerResultFiles(task, selectedService.getResultFiles(modelPath));
             task.setCompletedAt(LocalDateTime.now());
             task.setUpdatedAt(LocalDateTime.now());
             modelTaskRepository.save(task);
@@ -375,6 +487,9 @@ public class ModelGenerationService {
             // 缓存任务结果
             cacheService.cacheTask(task);
             
+            // 通知合并到本任务的跟随任务
+            singleFlightService.complete(task.getRequestKey(), task);
+            
             // 保存到历史记录
             try {
                 model3DHistoryService.saveModelToHistory(task);
@@ -392,6 +507,7 @@ public class ModelGenerationService {
             task.setErrorMessage(e.getMessage());
             task.setUpdatedAt(LocalDateTime.now());
             modelTaskRepository.save(task);
+            singleFlightService.fail(task.getRequestKey(), task.getTaskId(), e);
             
             // 更新TaskEvaluation状态为失败
             try {
@@ -404,10 +520,9 @@ public class ModelGenerationService {
     }
 
     /**
-     * 异步处理图片生成任务
+     * 处理图片生成任务（在生成线程池中执行）；upstreamJobId 不为空时继续轮询之前提交的上游任务
      */
-    @Async
-    public void processImageGenerationAsync(ModelTask task) {
+    private void processImageGeneration(ModelTask task, String upstreamJobId, Consumer<String> upstreamJobRecorder) {
         try {
             logger.info("开始处理图片生成任务: {}", task.getTaskId());
             
@@ -419,13 +534,30 @@ public class ModelGenerationService {
             
             // 选择合适的AI服务并生成模型
             AIModelService selectedService = getSelectedAIService();
-            String modelPath = selectedService.generateModelFromImage(
-                task.getInputImagePath(),
-                task.getInputText(),
-                task.getComplexity(),
-                task.getOutputFormat(),
-                (progress) -> updateTaskProgress(task.getTaskId(), progress)
-            );
+            String modelPath;
+            if (upstreamJobId != null) {
+                if (!selectedService.supportsResume()) {
+                    // 上游任务已提交但无法继续轮询，重新提交会重复生成，直接标记失败
+                    throw new IllegalStateException("生成任务被中断，当前AI服务不支持继续已提交的上游任务");
+                }
+                logger.info("继续轮询已提交的上游任务: taskId={}, upstreamJobId={}", task.getTaskId(), upstreamJobId);
+                modelPath = selectedService.resumeModelGeneration(
+                    upstreamJobId,
+                    task.getCreatedAt(),
+                    task.getOutputFormat(),
+                    task.getInputText() != null ? task.getInputText() : "image_model",
+                    (progress) -> updateTaskProgress(task.getTaskId(), progress)
+                );
+            } else {
+                modelPath = selectedService.generateModelFromImage(
+                    task.getInputImagePath(),
+                    task.getInputText(),
+                    task.getComplexity(),
+                    task.getOutputFormat(),
+                    (progress) -> updateTaskProgress(task.getTaskId(), progress),
+                    upstreamJobRecorder
+                );
+            }
             
             // 生成多张预览图
             List<String> previewPaths = selectedService.generateMultiplePreviewImages(modelPath, 3);
@@ -452,6 +584,7 @@ public class ModelGenerationService {
             task.setModelFilePath(modelPath);
             task.setPreviewImagePath(mainPreviewPath);
             task.setFileSignature(fileSignature);
+            registerResultFiles(task, selectedService.getResultFiles(modelPath));
             task.setCompletedAt(LocalDateTime.now());
             task.setUpdatedAt(LocalDateTime.now());
             modelTaskRepository.save(task);
@@ -467,6 +600,9 @@ public class ModelGenerationService {
             // 缓存任务结果
             cacheService.cacheTask(task);
             
+            // 通知合并到本任务的跟随任务
+            singleFlightService.complete(task.getRequestKey(), task);
+            
             // 保存到历史记录
             try {
                 model3DHistoryService.saveModelToHistory(task);
@@ -484,6 +620,7 @@ public class ModelGenerationService {
             task.setErrorMessage(e.getMessage());
             task.setUpdatedAt(LocalDateTime.now());
             modelTaskRepository.save(task);
+            singleFlightService.fail(task.getRequestKey(), task.getTaskId(), e);
             
             // 更新TaskEvaluation状态为失败
             try {
@@ -527,67 +664,53 @@ public class ModelGenerationService {
     }
 
     /**
-     * 验证图片文件
+     * 生成任务ID
      */
-    private void validateImageFile(MultipartFile image) {
-        if (image == null || image.isEmpty()) {
-            throw new IllegalArgumentException("请选择要上传的图片文件");
-        }
-        
-        if (image.getSize() > maxFileSize) {
-            throw new IllegalArgumentException("图片文件大小不能超过" + (maxFileSize / 1024 / 1024) + "MB");
-        }
-        
-        String contentType = image.getContentType();
-        if (contentType == null || !SUPPORTED_IMAGE_TYPES.contains(contentType.toLowerCase())) {
-            throw new IllegalArgumentException("不支持的图片格式，请上传JPG、PNG、GIF、BMP或WebP格式的图片");
-        }
+    private String generateTaskId() {
+        return "task_" + System.currentTimeMillis() + "_" + UUID.randomUUID().toString().substring(0, 8);
     }
 
     /**
-     * 保存上传的图片
+     * 更新任务进度，写入写缓冲和状态登记，由缓冲定期批量落库
      */
-    private String saveUploadedImage(MultipartFile image) {
-        try {
-            // 创建上传目录
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-            
-            // 生成唯一文件名
-            String originalFilename = image.getOriginalFilename();
-            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String filename = UUID.randomUUID().toString() + extension;
-            
-            // 保存文件
-            Path filePath = uploadPath.resolve(filename);
-            Files.copy(image.getInputStream(), filePath);
-            
-            return filePath.toString();
-            
-        } catch (IOException e) {
-            logger.error("保存上传图片失败", e);
-            throw new RuntimeException("图片保存失败", e);
+    private void updateTaskProgress(String taskId, int progress) {
+        recordProgress(taskId, progress);
+        
+        // 跟随任务同步领导任务的进度，已结束的跟随任务在落库时跳过
+        for (String followerTaskId : singleFlightService.getFollowers(taskId)) {
+            recordProgress(followerTaskId, progress);
         }
     }
 
     /**
-     * 生成任务ID
+     * 记录单个任务的进度，进度变化时发布状态事件
      */
-    private String generateTaskId() {
-        return "task_" + System.currentTimeMillis() + "_" + UUID.randomUUID().toString().substring(0, 8);
+    private void recordProgress(String taskId, int progress) {
+        taskProgressBuffer.record(taskId, progress);
+        ModelTask snapshot = taskStatusRegistry.updateProgress(taskId, progress);
+        if (snapshot != null) {
+            taskEventHub.publish(TaskEventHub.TaskStatusEvent.of(snapshot));
+        }
     }
 
     /**
-     * 更新任务进度
+     * 登记生成时一并下载的其他格式模型文件
      */
-    private void updateTaskProgress(String taskId, int progress) {
-        ModelTask task = modelTaskRepository.findByTaskId(taskId).orElse(null);
-        if (task != null) {
-            task.setProgress(progress);
-            task.setUpdatedAt(LocalDateTime.now());
-            modelTaskRepository.save(task);
+    private void registerResultFiles(ModelTask task, Map<ModelTask.OutputFormat, String> resultFiles) {
+        for (Map.Entry<ModelTask.OutputFormat, String> entry : resultFiles.entrySet()) {
+            switch (entry.getKey()) {
+                case OBJ:
+                    task.setObjFilePath(entry.getValue());
+                    break;
+                case GLB:
+                    task.setGltfFilePath(entry.getValue());
+                    break;
+                case STL:
+                    task.setStlFilePath(entry.getValue());
+                    break;
+                default:
+                    break;
+            }
         }
     }
 
@@ -595,6 +718,26 @@ public class ModelGenerationService {
      * 根据格式获取模型文件路径
      */
     private String getModelFilePathByFormat(ModelTask task, String format) {
+        // 优先使用生成时已下载到本地的对应格式文件
+        String registeredPath = null;
+        switch (format.toLowerCase()) {
+            case "obj":
+                registeredPath = task.getObjFilePath();
+                break;
+            case "glb":
+            case "gltf":
+                registeredPath = task.getGltfFilePath();
+                break;
+            case "stl":
+                registeredPath = task.getStlFilePath();
+                break;
+            default:
+                break;
+        }
+        if (registeredPath != null && Files.exists(Paths.get(registeredPath))) {
+            return registeredPath;
+        }
+        
         String basePath = task.getModelFilePath();
         if (basePath == null) return null;
         
@@ -634,16 +777,16 @@ public class ModelGenerationService {
                                                                sourceTask.getType(),
                                                                sourceTask.getComplexity() != null ? sourceTask.getComplexity().toString() : null, 
                                                                sourceTask.getOutputFormat() != null ? sourceTask.getOutputFormat().toString() : null));
+        cacheTask.setRequestKey(cacheService.calculateRequestKey(sourceTask.getInputText(), 
+                                                                 sourceTask.getType(),
+                                                                 sourceTask.getComplexity() != null ? sourceTask.getComplexity().toString() : null, 
+                                                                 sourceTask.getOutputFormat() != null ? sourceTask.getOutputFormat().toString() : null));
         
         // 保存任务
         cacheTask = modelTaskRepository.save(cacheTask);
         
-        // 更新源任务的引用计数和相似度使用计数
-        cacheService.updateCacheAccess(sourceTask.getTaskId());
-        if (similarity < 1.0) {
-            // 如果不是精确匹配，更新相似度使用计数
-            cacheService.updateSimilarityUsage(sourceTask.getTaskId());
-        }
+        // 记录实际被使用的源任务（异步合并写入访问计数和相似度使用计数）
+        cacheAccessRecorder.recordAccess(sourceTask.getTaskId(), similarity < 1.0);
         
         return cacheTask;
     }
@@ -651,9 +794,9 @@ public class ModelGenerationService {
     /**
      * 创建新任务
      */
-    private ModelTask createNewTask(TextGenerationRequest request, String clientIp) {
+    private ModelTask createNewTask(TextGenerationRequest request, String clientIp, String taskId) {
         ModelTask task = new ModelTask();
-        task.setTaskId(generateTaskId());
+        task.setTaskId(taskId);
         task.setType(ModelTask.TaskType.TEXT);
         task.setInputText(request.getText());
         task.setComplexity(request.getComplexity());
@@ -668,6 +811,10 @@ public class ModelGenerationService {
                                                           ModelTask.TaskType.TEXT,
                                                           request.getComplexity() != null ? request.getComplexity().toString() : null, 
                                                           request.getFormat() != null ? request.getFormat().toString() : null));
+        task.setRequestKey(cacheService.calculateRequestKey(request.getText(), 
+                                                            ModelTask.TaskType.TEXT,
+                                                            request.getComplexity() != null ? request.getComplexity().toString() : null, 
+                                                            request.getFormat() != null ? request.getFormat().toString() : null));
         
         // 保存任务
         ModelTask savedTask = modelTaskRepository.save(task);
@@ -685,6 +832,60 @@ public class ModelGenerationService {
         return savedTask;
     }
 
+    /**
+     * 创建跟随任务：不调用上游服务，领导任务成功后复制其结果文件，失败时随之失败
+     */
+    private ModelTask createFollowerTask(SingleFlightService.Flight flight, String taskId, ModelTask.TaskType type,
+                                         String inputText, String imagePath, String hashInput,
+                                         ModelTask.Complexity complexity, ModelTask.OutputFormat format, String clientIp) {
+        ModelTask followerTask = new ModelTask();
+        followerTask.setTaskId(taskId);
+        followerTask.setType(type);
+        followerTask.setInputText(inputText);
+        followerTask.setInputImagePath(imagePath);
+        followerTask.setComplexity(complexity);
+        followerTask.setOutputFormat(format);
+        followerTask.setStatus(ModelTask.TaskStatus.PROCESSING);
+        followerTask.setProgress(10);
+        followerTask.setClientIp(clientIp);
+        followerTask.setCreatedAt(LocalDateTime.now());
+        followerTask.setUpdatedAt(LocalDateTime.now());
+        
+        // 设置缓存相关字段
+        followerTask.setInputHash(cacheService.calculateInputHash(hashInput, type,
+                                                                  complexity != null ? complexity.toString() : null, 
+                                                                  format != null ? format.toString() : null));
+        followerTask.setRequestKey(cacheService.calculateRequestKey(hashInput, type,
+                                                                    complexity != null ? complexity.toString() : null, 
+                                                                    format != null ? format.toString() : null));
+        
+        // 保存后再挂接，领导任务已完成时立即回调
+        ModelTask savedTask = modelTaskRepository.save(followerTask);
+        flight.getResult().whenComplete((leaderTask, error) -> completeFollowerTask(savedTask, leaderTask, error));
+        return savedTask;
+    }
+
+    /**
+     * 领导任务结束后完成跟随任务
+     */
+    private void completeFollowerTask(ModelTask followerTask, ModelTask leaderTask, Throwable error) {
+        if (error == null && leaderTask != null && leaderTask.getStatus() == ModelTask.TaskStatus.COMPLETED) {
+            cacheAccessRecorder.recordAccess(leaderTask.getTaskId(), false);
+            copyModelFilesAsync(leaderTask, followerTask);
+            return;
+        }
+        
+        try {
+            String reason = error != null ? error.getMessage() : "领导任务未完成";
+            followerTask.setStatus(ModelTask.TaskStatus.FAILED);
+            followerTask.setErrorMessage("合并的生成任务失败: " + reason);
+            followerTask.setUpdatedAt(LocalDateTime.now());
+            modelTaskRepository.save(followerTask);
+        } catch (Exception e) {
+            logger.error("更新跟随任务失败状态失败: taskId={}", followerTask.getTaskId(), e);
+        }
+    }
+
     /**
      * 异步复制模型文件
      */
@@ -719,6 +920,7 @@ public class ModelGenerationService {
                 targetTask.setCompletedAt(LocalDateTime.now());
                 targetTask.setUpdatedAt(LocalDateTime.now());
                 modelTaskRepository.save(targetTask);
+                inputHashFilterService.add(targetTask);
                 
                 logger.info("缓存文件复制完成: taskId={}", targetTask.getTaskId());
                 
@@ -746,9 +948,10 @@ public class ModelGenerationService {
     }
 
     /**
-     * 创建图片缓存任务
+     * 创建图片缓存任务；combinedInput 为描述与上传时计算的图片内容哈希，不再重新读取图片
      */
-    private ModelTask createImageCacheTask(ModelTask sourceTask, String clientIp, String imagePath, String description, double similarity) {
+    private ModelTask createImageCacheTask(ModelTask sourceTask, String clientIp, String imagePath, String description,
+                                           String combinedInput, double similarity) {
         ModelTask cacheTask = new ModelTask();
         cacheTask.setTaskId(generateTaskId());
         cacheTask.setType(ModelTask.TaskType.IMAGE);
@@ -763,33 +966,32 @@ public class ModelGenerationService {
         cacheTask.setUpdatedAt(LocalDateTime.now());
         
         // 设置缓存相关字段
-        String imageHash = cacheService.calculateFileSignature(imagePath);
-        String combinedInput = (description != null ? description : "") + "|" + imageHash;
         cacheTask.setInputHash(cacheService.calculateInputHash(combinedInput, 
                                                                sourceTask.getType(),
                                                                sourceTask.getComplexity() != null ? sourceTask.getComplexity().toString() : null, 
                                                                sourceTask.getOutputFormat() != null ? sourceTask.getOutputFormat().toString() : null));
+        cacheTask.setRequestKey(cacheService.calculateRequestKey(combinedInput, 
+                                                                 sourceTask.getType(),
+                                                                 sourceTask.getComplexity() != null ? sourceTask.getComplexity().toString() : null, 
+                                                                 sourceTask.getOutputFormat() != null ? sourceTask.getOutputFormat().toString() : null));
         
         // 保存任务
         cacheTask = modelTaskRepository.save(cacheTask);
         
-        // 更新源任务的引用计数和相似度使用计数
-        cacheService.updateCacheAccess(sourceTask.getTaskId());
-        if (similarity < 1.0) {
-            // 如果不是精确匹配，更新相似度使用计数
-            cacheService.updateSimilarityUsage(sourceTask.getTaskId());
-        }
+        // 记录实际被使用的源任务（异步合并写入访问计数和相似度使用计数）
+        cacheAccessRecorder.recordAccess(sourceTask.getTaskId(), similarity < 1.0);
         
         return cacheTask;
     }
 
     /**
-     * 创建新图片任务
+     * 创建新图片任务；combinedInput 为描述与上传时计算的图片内容哈希，不再重新读取图片
      */
-    private ModelTask createNewImageTask(String imagePath, String description, ModelTask.Complexity complexity, 
-                                       ModelTask.OutputFormat format, String clientIp) {
+    private ModelTask createNewImageTask(String imagePath, String description, String combinedInput,
+                                       ModelTask.Complexity complexity, 
+                                       ModelTask.OutputFormat format, String clientIp, String taskId) {
         ModelTask task = new ModelTask();
-        task.setTaskId(generateTaskId());
+        task.setTaskId(taskId);
         task.setType(ModelTask.TaskType.IMAGE);
         task.setInputImagePath(imagePath);
         task.setInputText(description);
@@ -801,12 +1003,14 @@ public class ModelGenerationService {
         task.setCreatedAt(LocalDateTime.now());
         
         // 设置缓存相关字段
-        String imageHash = cacheService.calculateFileSignature(imagePath);
-        String combinedInput = (description != null ? description : "") + "|" + imageHash;
         task.setInputHash(cacheService.calculateInputHash(combinedInput, 
                                                           ModelTask.TaskType.IMAGE,
                                                           complexity != null ? complexity.toString() : null, 
                                                           format != null ? format.toString() : null));
+        task.setRequestKey(cacheService.calculateRequestKey(combinedInput, 
+                                                            ModelTask.TaskType.IMAGE,
+                                                            complexity != null ? complexity.toString() : null, 
+                                                            format != null ? format.toString() : null));
         
         // 保存任务
         task = modelTaskRepository.save(task);
@@ -829,26 +1033,6 @@ public class ModelGenerationService {
         return task;
     }
 
-    /**
-     * 计算文件哈希值
-     */
-    private String calculateFileHash(String filePath) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] fileBytes = Files.readAllBytes(Paths.get(filePath));
-            byte[] hashBytes = md.digest(fileBytes);
-            
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (Exception e) {
-            logger.error("计算文件哈希失败: {}", filePath, e);
-            return filePath; // 降级处理
-        }
-    }
-
     /**
      * 获取模型预览图片路径
      */
@@ -0,0 +1,110 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.dto.File3D;
+import com.qiniu.model3d.entity.ModelTask;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 上游结果文件拉取服务接口
+ * 上游任务完成后，在有界的 I/O 线程池中并发下载全部结果文件和预览图，按主机限制并发连接数，失败时重试。
+ * 下载结果按上游任务ID和主模型文件路径登记，切换格式和查看预览时直接使用本地文件
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface ResultFileFetchService {
+
+    /**
+     * 并发拉取上游任务的全部结果文件和预览图，等待全部完成后返回
+     * 主格式文件下载失败时抛出异常，其他格式和预览图下载失败只记录日志
+     *
+     * @param jobId 上游任务ID
+     * @param files 上游返回的结果文件列表
+     * @param primaryFormat 主格式；上游没有该格式时以第一个文件为主文件
+     * @return 本地文件
+     * @throws IOException 主格式文件下载失败
+     */
+    FetchedResult fetchAll(String jobId, List<File3D> files, ModelTask.OutputFormat primaryFormat) throws IOException;
+
+    /**
+     * 按上游任务ID查找已拉取的结果
+     *
+     * @param jobId 上游任务ID
+     * @return 已拉取的结果，不存在时返回 null
+     */
+    FetchedResult getByJobId(String jobId);
+
+    /**
+     * 按主模型文件路径查找已拉取的结果
+     *
+     * @param modelPath 主模型文件路径
+     * @return 已拉取的结果，不存在时返回 null
+     */
+    FetchedResult getByModelPath(String modelPath);
+
+    /**
+     * 获取拉取统计
+     *
+     * @return 统计信息
+     */
+    FetchStatistics getStatistics();
+
+    /**
+     * 一个上游任务的本地结果文件
+     */
+    class FetchedResult {
+        private final String jobId;
+        private final String primaryPath;
+        private final String primarySignature;
+        private final Map<ModelTask.OutputFormat, String> modelFiles;
+        private final List<String> previewPaths;
+
+        public FetchedResult(String jobId, String primaryPath, String primarySignature,
+                             Map<ModelTask.OutputFormat, String> modelFiles, List<String> previewPaths) {
+            this.jobId = jobId;
+            this.primaryPath = primaryPath;
+            this.primarySignature = primarySignature;
+            this.modelFiles = Collections.unmodifiableMap(modelFiles);
+            this.previewPaths = Collections.unmodifiableList(previewPaths);
+        }
+
+        public String getJobId() { return jobId; }
+        public String getPrimaryPath() { return primaryPath; }
+        public String getPrimarySignature() { return primarySignature; }
+        public Map<ModelTask.OutputFormat, String> getModelFiles() { return modelFiles; }
+        public List<String> getPreviewPaths() { return previewPaths; }
+    }
+
+    /**
+     * 拉取统计信息
+     */
+    class FetchStatistics {
+        private final int activeDownloads;
+        private final int queuedDownloads;
+        private final long completedDownloads;
+        private final long failedDownloads;
+        private final long retries;
+        private final long downloadedBytes;
+
+        public FetchStatistics(int activeDownloads, int queuedDownloads, long completedDownloads,
+                               long failedDownloads, long retries, long downloadedBytes) {
+            this.activeDownloads = activeDownloads;
+            this.queuedDownloads = queuedDownloads;
+            this.completedDownloads = completedDownloads;
+            this.failedDownloads = failedDownloads;
+            this.retries = retries;
+            this.downloadedBytes = downloadedBytes;
+        }
+
+        public int getActiveDownloads() { return activeDownloads; }
+        public int getQueuedDownloads() { return queuedDownloads; }
+        public long getCompletedDownloads() { return completedDownloads; }
+        public long getFailedDownloads() { return failedDownloads; }
+        public long getRetries() { return retries; }
+        public long getDownloadedBytes() { return downloadedBytes; }
+    }
+}
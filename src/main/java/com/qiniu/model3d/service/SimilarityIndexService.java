@@ -0,0 +1,137 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.entity.ModelTask;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 相似度候选索引服务接口
+ * 在内存中维护已缓存任务的倒排n-gram索引，按 类型/复杂度/格式 分区，
+ * 用于在全部缓存语料中快速召回相似度候选
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface SimilarityIndexService {
+
+    /**
+     * 将缓存任务加入索引（已存在时替换）
+     *
+     * @param task 已缓存的任务
+     */
+    void indexTask(ModelTask task);
+
+    /**
+     * 从索引中移除任务
+     *
+     * @param taskId 任务ID
+     */
+    void removeTask(String taskId);
+
+    /**
+     * 按n-gram重叠度召回前K个候选任务
+     *
+     * @param inputText 输入文本
+     * @param taskType 任务类型
+     * @param complexity 复杂度，为空时匹配所有复杂度
+     * @param outputFormat 输出格式，为空时匹配所有格式
+     * @param topK 最大候选数量
+     * @return 按重叠度降序排列的候选任务
+     */
+    List<ModelTask> findCandidates(String inputText, ModelTask.TaskType taskType,
+                                   String complexity, String outputFormat, int topK);
+
+    /**
+     * 通过MinHash LSH分桶召回Jaccard近邻，只访问与查询落入同一桶的任务
+     *
+     * @param inputText 输入文本
+     * @param taskType 任务类型
+     * @param complexity 复杂度，为空时匹配所有复杂度
+     * @param outputFormat 输出格式，为空时匹配所有格式
+     * @param topK 最大候选数量
+     * @return 按二元组Jaccard相似度降序排列的近邻任务
+     */
+    List<ModelTask> findNearDuplicates(String inputText, ModelTask.TaskType taskType,
+                                       String complexity, String outputFormat, int topK);
+
+    /**
+     * LSH分桶是否启用
+     *
+     * @return 是否启用
+     */
+    boolean isLshEnabled();
+
+    /**
+     * 从数据库重建索引
+     *
+     * @return 索引的任务数量
+     */
+    int rebuildIndex();
+
+    /**
+     * 索引是否已完成初始化
+     *
+     * @return 是否可用
+     */
+    boolean isReady();
+
+    /**
+     * 获取索引统计信息
+     *
+     * @return 索引统计
+     */
+    IndexStatistics getStatistics();
+
+    /**
+     * 索引统计信息
+     */
+    class IndexStatistics {
+        private final long indexedTasks;
+        private final int partitions;
+        private final long distinctTerms;
+        private final long postings;
+        private final long estimatedMemoryBytes;
+        private final long queryCount;
+        private final double avgQueryMicros;
+        private final int lshBands;
+        private final int lshRows;
+        private final long lshBuckets;
+        private final long lshQueryCount;
+        private final double avgLshQueryMicros;
+        private final LocalDateTime lastRebuildTime;
+
+        public IndexStatistics(long indexedTasks, int partitions, long distinctTerms, long postings,
+                               long estimatedMemoryBytes, long queryCount, double avgQueryMicros,
+                               int lshBands, int lshRows, long lshBuckets, long lshQueryCount,
+                               double avgLshQueryMicros, LocalDateTime lastRebuildTime) {
+            this.indexedTasks = indexedTasks;
+            this.partitions = partitions;
+            this.distinctTerms = distinctTerms;
+            this.postings = postings;
+            this.estimatedMemoryBytes = estimatedMemoryBytes;
+            this.queryCount = queryCount;
+            this.avgQueryMicros = avgQueryMicros;
+            this.lshBands = lshBands;
+            this.lshRows = lshRows;
+            this.lshBuckets = lshBuckets;
+            this.lshQueryCount = lshQueryCount;
+            this.avgLshQueryMicros = avgLshQueryMicros;
+            this.lastRebuildTime = lastRebuildTime;
+        }
+
+        public long getIndexedTasks() { return indexedTasks; }
+        public int getPartitions() { return partitions; }
+        public long getDistinctTerms() { return distinctTerms; }
+        public long getPostings() { return postings; }
+        public long getEstimatedMemoryBytes() { return estimatedMemoryBytes; }
+        public long getQueryCount() { return queryCount; }
+        public double getAvgQueryMicros() { return avgQueryMicros; }
+        public int getLshBands() { return lshBands; }
+        public int getLshRows() { return lshRows; }
+        public long getLshBuckets() { return lshBuckets; }
+        public long getLshQueryCount() { return lshQueryCount; }
+        public double getAvgLshQueryMicros() { return avgLshQueryMicros; }
+        public LocalDateTime getLastRebuildTime() { return lastRebuildTime; }
+    }
+}
@@ -1,5 +1,9 @@
 package com.qiniu.model3d.service;
 
+import com.qiniu.model3d.entity.ModelTask;
+
+import java.util.List;
+
 /**
  * 相似度计算服务接口
  * 
@@ -17,6 +21,20 @@ public interface SimilarityService {
      */
     double calculateSimilarity(String text1, String text2);
 
+    /**
+     * 批量计算文本与候选缓存任务的相似度，返回得分最高的 topK 个
+     * 输入文本的特征只计算一次，候选任务的特征按任务ID缓存复用；
+     * 按"长度/集合大小上界 → 集合重叠 → 带上界的编辑距离"级联打分，上界低于阈值的候选提前淘汰；
+     * 候选数较多且开启 cache.similarity.enable-parallel 时在有界的fork-join线程池中并行打分
+     * 
+     * @param query 输入文本
+     * @param candidates 候选任务
+     * @param threshold 相似度阈值
+     * @param topK 最大返回数量
+     * @return 相似度不低于阈值的结果，按相似度降序（相同时按最后访问时间降序）
+     */
+    List<ScoredTask> scoreBatch(String query, List<ModelTask> candidates, double threshold, int topK);
+
     /**
      * 计算语义相似度
      * 
@@ -35,6 +53,17 @@ public interface SimilarityService {
      */
     double calculateBasicSimilarity(String text1, String text2);
 
+    /**
+     * 计算带下限的基础相似度
+     * 编辑距离超过下限对应的上界时提前终止，此时返回值低于 minSimilarity 但不是精确值
+     * 
+     * @param text1 文本1
+     * @param text2 文本2
+     * @param minSimilarity 关心的最低相似度
+     * @return 基础相似度分数 (0.0 - 1.0)
+     */
+    double calculateBasicSimilarity(String text1, String text2, double minSimilarity);
+
     /**
      * 判断是否为精确匹配
      * 
@@ -92,4 +121,83 @@ public interface SimilarityService {
      * @return 相似度分数 (0.0 - 1.0)
      */
     double calculateImageSimilarity(String imagePath1, String imagePath2);
-}
\ No newline at end of file
+
+    /**
+     * 计算文本的MinHash签名（基于规范化文本的字符二元组）
+     * 
+     * @param text 文本
+     * @return MinHash签名
+     */
+    int[] calculateMinHashSignature(String text);
+
+    /**
+     * 根据MinHash签名估计Jaccard相似度
+     * 
+     * @param signature1 签名1
+     * @param signature2 签名2
+     * @return 估计的Jaccard相似度 (0.0 - 1.0)
+     */
+    double estimateJaccardSimilarity(int[] signature1, int[] signature2);
+
+    /**
+     * 通过LSH分桶查找Jaccard近邻缓存任务（亚线性时间）
+     * 
+     * @param text 输入文本
+     * @param taskType 任务类型
+     * @param complexity 复杂度
+     * @param outputFormat 输出格式
+     * @param limit 最大返回数量
+     * @return 近邻任务列表
+     */
+    List<ModelTask> findNearDuplicates(String text, ModelTask.TaskType taskType,
+                                       String complexity, String outputFormat, int limit);
+
+    /**
+     * 获取级联打分各阶段的淘汰统计
+     * 
+     * @return 级联打分统计
+     */
+    CascadeStatistics getCascadeStatistics();
+
+    /**
+     * 批量打分结果
+     */
+    class ScoredTask {
+        private final ModelTask task;
+        private final double similarity;
+
+        public ScoredTask(ModelTask task, double similarity) {
+            this.task = task;
+            this.similarity = similarity;
+        }
+
+        public ModelTask getTask() { return task; }
+        public double getSimilarity() { return similarity; }
+    }
+
+    /**
+     * 级联打分统计信息
+     */
+    class CascadeStatistics {
+        private final long candidates;
+        private final long sizeBoundPruned;
+        private final long overlapPruned;
+        private final long editDistancePruned;
+
+        public CascadeStatistics(long candidates, long sizeBoundPruned, long overlapPruned, long editDistancePruned) {
+            this.candidates = candidates;
+            this.sizeBoundPruned = sizeBoundPruned;
+            this.overlapPruned = overlapPruned;
+            this.editDistancePruned = editDistancePruned;
+        }
+
+        public long getCandidates() { return candidates; }
+        public long getSizeBoundPruned() { return sizeBoundPruned; }
+        public long getOverlapPruned() { return overlapPruned; }
+        public long getEditDistancePruned() { return editDistancePruned; }
+        public long getPassed() { return candidates - sizeBoundPruned - overlapPruned - editDistancePruned; }
+        public double getPruneRate() {
+            return candidates > 0 ? (double) (sizeBoundPruned + overlapPruned + editDistancePruned) / candidates : 0.0;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.entity.ModelTask;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 生成请求合并服务接口
+ * 按规范请求键登记进行中的生成任务，相同请求在首个任务完成前到达时只创建跟随任务，
+ * 随首个任务（领导任务）一起完成，不再重复调用上游生成服务
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface SingleFlightService {
+
+    /**
+     * 开始或加入一次生成
+     *
+     * @param requestKey 规范请求键
+     * @param taskId 当前请求预先分配的任务ID
+     * @return 进行中的生成；{@link Flight#isLeader(String)} 为 true 时当前请求负责调用上游
+     */
+    Flight begin(String requestKey, String taskId);
+
+    /**
+     * 领导任务生成成功，通知所有跟随任务
+     *
+     * @param requestKey 规范请求键
+     * @param leaderTask 已完成的领导任务
+     */
+    void complete(String requestKey, ModelTask leaderTask);
+
+    /**
+     * 领导任务生成失败，通知所有跟随任务
+     *
+     * @param requestKey 规范请求键
+     * @param leaderTaskId 领导任务ID
+     * @param error 失败原因
+     */
+    void fail(String requestKey, String leaderTaskId, Throwable error);
+
+    /**
+     * 获取领导任务当前的跟随任务ID
+     *
+     * @param leaderTaskId 领导任务ID
+     * @return 跟随任务ID；不是进行中的领导任务时返回空列表
+     */
+    List<String> getFollowers(String leaderTaskId);
+
+    /**
+     * 获取合并统计
+     *
+     * @return 统计信息
+     */
+    SingleFlightStatistics getStatistics();
+
+    /**
+     * 进行中的生成
+     */
+    class Flight {
+        private final String leaderTaskId;
+        private final long startedAt;
+        private final CompletableFuture<ModelTask> result = new CompletableFuture<>();
+        private final List<String> followerTaskIds = new CopyOnWriteArrayList<>();
+
+        public Flight(String leaderTaskId, long startedAt) {
+            this.leaderTaskId = leaderTaskId;
+            this.startedAt = startedAt;
+        }
+
+        public boolean isLeader(String taskId) {
+            return leaderTaskId.equals(taskId);
+        }
+
+        public String getLeaderTaskId() { return leaderTaskId; }
+        public long getStartedAt() { return startedAt; }
+        public CompletableFuture<ModelTask> getResult() { return result; }
+        public List<String> getFollowerTaskIds() { return followerTaskIds; }
+    }
+
+    /**
+     * 合并统计信息
+     */
+    class SingleFlightStatistics {
+        private final int inFlight;
+        private final long leaders;
+        private final long coalescedRequests;
+        private final long failedFlights;
+        private final long expiredFlights;
+
+        public SingleFlightStatistics(int inFlight, long leaders, long coalescedRequests,
+                                      long failedFlights, long expiredFlights) {
+            this.inFlight = inFlight;
+            this.leaders = leaders;
+            this.coalescedRequests = coalescedRequests;
+            this.failedFlights = failedFlights;
+            this.expiredFlights = expiredFlights;
+        }
+
+        public int getInFlight() { return inFlight; }
+        public long getLeaders() { return leaders; }
+        public long getCoalescedRequests() { return coalescedRequests; }
+        public long getFailedFlights() { return failedFlights; }
+        public long getExpiredFlights() { return expiredFlights; }
+        public double getCoalescingRatio() {
+            long total = leaders + coalescedRequests;
+            return total > 0 ? (double) coalescedRequests / total : 0.0;
+        }
+    }
+}
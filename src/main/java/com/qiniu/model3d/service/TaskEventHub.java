@@ -0,0 +1,125 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.entity.ModelTask;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 任务状态事件发布/订阅服务接口
+ * 生成流程在任务写入提交后和进度变化时发布事件，状态推送（SSE、长轮询）按任务ID订阅；
+ * 事件在单独的分发线程中回调，订阅方不会阻塞生成流程；回调必须立即返回，耗时的推送和查询交给订阅方自己的线程
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface TaskEventHub {
+
+    /**
+     * 发布任务状态事件，没有订阅方时直接丢弃
+     *
+     * @param event 状态事件
+     */
+    void publish(TaskStatusEvent event);
+
+    /**
+     * 订阅一组任务的状态事件
+     *
+     * @param taskIds 任务ID
+     * @param listener 事件回调，在分发线程中执行，不能阻塞
+     * @return 订阅，不再需要时关闭
+     */
+    Subscription subscribe(Collection<String> taskIds, Consumer<TaskStatusEvent> listener);
+
+    /**
+     * 当前有订阅方的任务ID
+     *
+     * @return 任务ID快照
+     */
+    Set<String> getWatchedTaskIds();
+
+    /**
+     * 获取发布/订阅统计
+     *
+     * @return 统计信息
+     */
+    HubStatistics getStatistics();
+
+    /**
+     * 订阅
+     */
+    interface Subscription extends AutoCloseable {
+
+        /**
+         * 取消订阅，可重复调用
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * 任务状态事件
+     * version 由状态、进度和更新时间组成，与状态查询的 ETag 相同
+     */
+    class TaskStatusEvent {
+        private final String taskId;
+        private final ModelTask.TaskStatus status;
+        private final Integer progress;
+        private final String version;
+
+        public TaskStatusEvent(String taskId, ModelTask.TaskStatus status, Integer progress, LocalDateTime updatedAt) {
+            this.taskId = taskId;
+            this.status = status;
+            this.progress = progress;
+            this.version = versionOf(status, progress, updatedAt);
+        }
+
+        public static TaskStatusEvent of(ModelTask task) {
+            LocalDateTime updatedAt = task.getUpdatedAt() != null ? task.getUpdatedAt() : task.getCreatedAt();
+            return new TaskStatusEvent(task.getTaskId(), task.getStatus(), task.getProgress(), updatedAt);
+        }
+
+        public static String versionOf(ModelTask.TaskStatus status, Integer progress, LocalDateTime updatedAt) {
+            long millis = updatedAt != null ? updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+            return status + "-" + progress + "-" + millis;
+        }
+
+        public String getTaskId() { return taskId; }
+        public ModelTask.TaskStatus getStatus() { return status; }
+        public Integer getProgress() { return progress; }
+        public String getVersion() { return version; }
+
+        public boolean isTerminal() {
+            return status != ModelTask.TaskStatus.PENDING && status != ModelTask.TaskStatus.PROCESSING;
+        }
+    }
+
+    /**
+     * 发布/订阅统计信息
+     */
+    class HubStatistics {
+        private final int subscriptions;
+        private final int watchedTasks;
+        private final long publishedEvents;
+        private final long deliveredEvents;
+        private final long listenerErrors;
+
+        public HubStatistics(int subscriptions, int watchedTasks, long publishedEvents,
+                             long deliveredEvents, long listenerErrors) {
+            this.subscriptions = subscriptions;
+            this.watchedTasks = watchedTasks;
+            this.publishedEvents = publishedEvents;
+            this.deliveredEvents = deliveredEvents;
+            this.listenerErrors = listenerErrors;
+        }
+
+        public int getSubscriptions() { return subscriptions; }
+        public int getWatchedTasks() { return watchedTasks; }
+        public long getPublishedEvents() { return publishedEvents; }
+        public long getDeliveredEvents() { return deliveredEvents; }
+        public long getListenerErrors() { return listenerErrors; }
+    }
+}
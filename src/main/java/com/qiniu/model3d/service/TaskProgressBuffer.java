@@ -0,0 +1,76 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.entity.ModelTask;
+
+/**
+ * 任务进度写缓冲服务接口
+ * 生成过程中的进度只保留每个任务的最新值，状态查询直接读取内存中的值，
+ * 变化过的进度定期用一个 JDBC 批量更新写入；完成/失败等终态仍由调用方同步写入
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface TaskProgressBuffer {
+
+    /**
+     * 记录任务的最新进度
+     *
+     * @param taskId 任务ID
+     * @param progress 进度（0-100）
+     */
+    void record(String taskId, int progress);
+
+    /**
+     * 用尚未写入的进度覆盖查询结果，终态任务不覆盖
+     *
+     * @param task 从数据库读取的任务，可为 null
+     * @return 传入的任务
+     */
+    ModelTask applyPending(ModelTask task);
+
+    /**
+     * 立即写入所有待写入的进度
+     *
+     * @return 写入的任务数
+     */
+    int flush();
+
+    /**
+     * 获取写缓冲统计
+     *
+     * @return 统计信息
+     */
+    ProgressBufferStatistics getStatistics();
+
+    /**
+     * 写缓冲统计信息
+     */
+    class ProgressBufferStatistics {
+        private final long recordedUpdates;
+        private final long writtenRows;
+        private final long flushCount;
+        private final long failedFlushes;
+        private final long servedFromBuffer;
+        private final int pendingTasks;
+
+        public ProgressBufferStatistics(long recordedUpdates, long writtenRows, long flushCount,
+                                        long failedFlushes, long servedFromBuffer, int pendingTasks) {
+            this.recordedUpdates = recordedUpdates;
+            this.writtenRows = writtenRows;
+            this.flushCount = flushCount;
+            this.failedFlushes = failedFlushes;
+            this.servedFromBuffer = servedFromBuffer;
+            this.pendingTasks = pendingTasks;
+        }
+
+        public long getRecordedUpdates() { return recordedUpdates; }
+        public long getWrittenRows() { return writtenRows; }
+        public long getFlushCount() { return flushCount; }
+        public long getFailedFlushes() { return failedFlushes; }
+        public long getServedFromBuffer() { return servedFromBuffer; }
+        public int getPendingTasks() { return pendingTasks; }
+        public double getCoalescingRatio() {
+            return writtenRows > 0 ? (double) recordedUpdates / writtenRows : 0.0;
+        }
+    }
+}
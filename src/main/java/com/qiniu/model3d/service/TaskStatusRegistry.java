@@ -0,0 +1,71 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.entity.ModelTask;
+
+/**
+ * 进行中任务状态登记服务接口
+ * 本节点写入的 PENDING/PROCESSING 任务在内存中保留状态快照，状态查询不必访问数据库；
+ * 任务进入终态后移除登记，之后的查询回到数据库
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface TaskStatusRegistry {
+
+    /**
+     * 任务写入数据库后同步登记：进行中任务更新快照，终态任务移除
+     *
+     * @param task 已写入的任务
+     */
+    void onTaskSaved(ModelTask task);
+
+    /**
+     * 更新已登记任务的进度，未登记的任务忽略
+     *
+     * @param taskId 任务ID
+     * @param progress 进度（0-100）
+     * @return 进度变化后的状态快照；未登记或进度未变化时返回 null
+     */
+    ModelTask updateProgress(String taskId, int progress);
+
+    /**
+     * 查询已登记任务的状态快照
+     *
+     * @param taskId 任务ID
+     * @return 只含状态字段的任务副本；未登记或快照过期时返回 null
+     */
+    ModelTask find(String taskId);
+
+    /**
+     * 获取登记统计
+     *
+     * @return 统计信息
+     */
+    RegistryStatistics getStatistics();
+
+    /**
+     * 登记统计信息
+     */
+    class RegistryStatistics {
+        private final int trackedTasks;
+        private final long hits;
+        private final long misses;
+        private final long expiredEntries;
+
+        public RegistryStatistics(int trackedTasks, long hits, long misses, long expiredEntries) {
+            this.trackedTasks = trackedTasks;
+            this.hits = hits;
+            this.misses = misses;
+            this.expiredEntries = expiredEntries;
+        }
+
+        public int getTrackedTasks() { return trackedTasks; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getExpiredEntries() { return expiredEntries; }
+        public double getHitRate() {
+            long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0.0;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.dto.ApiResponse;
+import com.qiniu.model3d.dto.TaskStatusResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * 任务状态推送服务接口
+ * 基于任务状态事件提供 SSE 推送和长轮询，请求在异步模式下挂起，不占用 Servlet 线程
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface TaskStatusStreamService {
+
+    /**
+     * 打开一个或多个任务的状态推送
+     * 先推送每个任务的当前状态，之后推送进度和终态事件；全部任务结束后关闭连接
+     *
+     * @param taskIds 任务ID
+     * @return SSE 连接
+     */
+    SseEmitter openStream(List<String> taskIds);
+
+    /**
+     * 长轮询：任务状态版本与 version 不同时立即返回，否则挂起直到状态变化或超时
+     *
+     * @param taskId 任务ID
+     * @param version 客户端已知的状态版本（状态查询的 ETag 内容），为空时立即返回
+     * @param timeoutSeconds 最长挂起时间（秒）
+     * @return 异步结果，ETag 为返回状态的版本；超时返回当前状态
+     */
+    DeferredResult<ResponseEntity<ApiResponse<TaskStatusResponse>>> awaitChange(String taskId, String version, long timeoutSeconds);
+
+    /**
+     * 获取推送统计
+     *
+     * @return 统计信息
+     */
+    StreamStatistics getStatistics();
+
+    /**
+     * 推送统计信息
+     */
+    class StreamStatistics {
+        private final int openStreams;
+        private final int parkedRequests;
+        private final long sentEvents;
+        private final long completedLongPolls;
+        private final long timedOutLongPolls;
+        private final TaskEventHub.HubStatistics hub;
+
+        public StreamStatistics(int openStreams, int parkedRequests, long sentEvents,
+                                long completedLongPolls, long timedOutLongPolls, TaskEventHub.HubStatistics hub) {
+            this.openStreams = openStreams;
+            this.parkedRequests = parkedRequests;
+            this.sentEvents = sentEvents;
+            this.completedLongPolls = completedLongPolls;
+            this.timedOutLongPolls = timedOutLongPolls;
+            this.hub = hub;
+        }
+
+        public int getOpenStreams() { return openStreams; }
+        public int getParkedRequests() { return parkedRequests; }
+        public long getSentEvents() { return sentEvents; }
+        public long getCompletedLongPolls() { return completedLongPolls; }
+        public long getTimedOutLongPolls() { return timedOutLongPolls; }
+        public TaskEventHub.HubStatistics getHub() { return hub; }
+    }
+}
@@ -75,6 +75,17 @@ public interface TencentAi3dClient {
      */
     SubmitHunyuanTo3DJobResponse submitImageBase64To3DJob(String imageBase64, String resultFormat, Boolean enablePBR) throws Exception;
 
+    /**
+     * 根据已预处理的图片Base64数据提交3D生成任务，提交前不再预处理图片
+     * 
+     * @param imageBase64 已按上游分辨率处理过的图片Base64编码数据
+     * @param resultFormat 生成模型的格式（可选）：OBJ、GLB、STL、USDZ、FBX、MP4
+     * @param enablePBR 是否开启PBR材质生成（可选）
+     * @return 提交任务响应，包含任务ID
+     * @throws Exception 当API调用失败时抛出异常
+     */
+    SubmitHunyuanTo3DJobResponse submitPreparedImageBase64To3DJob(String imageBase64, String resultFormat, Boolean enablePBR) throws Exception;
+
     /**
      * 轮询查询任务直到完成或失败
      * 
@@ -0,0 +1,183 @@
+package com.qiniu.model3d.service;
+
+import com.qiniu.model3d.dto.QueryHunyuanTo3DJobResponse;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 上游任务轮询服务接口
+ * 所有未完成的混元生3D任务由同一个调度循环统一轮询，查询并发数有上限；
+ * 调用方拿到 CompletableFuture，不再各自占用线程循环 sleep
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+public interface UpstreamJobPollerService {
+
+    /**
+     * 关注上游任务，直到任务完成、失败或超时
+     * 同一任务被多次关注时共享查询，每个关注方有各自的超时和回调。
+     * 该类任务有足够的历史耗时记录时按耗时分布安排查询，否则按固定间隔查询
+     *
+     * @param jobId 上游任务ID
+     * @param jobClass 任务类别（结果格式），用于选择历史耗时分布，可为 null
+     * @param pollIntervalSeconds 固定轮询间隔（秒），没有历史耗时分布时使用
+     * @param maxWaitSeconds 最大等待时间（秒）
+     * @param statusListener 每次查询到未结束状态时回调，可为 null
+     * @return 任务完成或失败时的查询响应；超时或连续查询出错时异常完成
+     */
+    default CompletableFuture<QueryHunyuanTo3DJobResponse> watch(String jobId,
+                                                                 String jobClass,
+                                                                 int pollIntervalSeconds,
+                                                                 int maxWaitSeconds,
+                                                                 Consumer<QueryHunyuanTo3DJobResponse> statusListener) {
+        return watch(jobId, jobClass, null, pollIntervalSeconds, maxWaitSeconds, statusListener);
+    }
+
+    /**
+     * 关注上游任务，按给定的开始时间计算已耗时
+     * 接管之前提交的任务时传入任务的开始时间，按耗时分布安排查询时不会被当成刚提交的任务
+     *
+     * @param jobId 上游任务ID
+     * @param jobClass 任务类别（结果格式），用于选择历史耗时分布，可为 null
+     * @param startedAt 任务开始时间，为 null 时从现在开始计算
+     * @param pollIntervalSeconds 固定轮询间隔（秒），没有历史耗时分布时使用
+     * @param maxWaitSeconds 最大等待时间（秒）
+     * @param statusListener 每次查询到未结束状态时回调，可为 null
+     * @return 任务完成或失败时的查询响应；超时或连续查询出错时异常完成
+     */
+    CompletableFuture<QueryHunyuanTo3DJobResponse> watch(String jobId,
+                                                         String jobClass,
+                                                         LocalDateTime startedAt,
+                                                         int pollIntervalSeconds,
+                                                         int maxWaitSeconds,
+                                                         Consumer<QueryHunyuanTo3DJobResponse> statusListener);
+
+    /**
+     * 代表外部客户端关注上游任务，每个客户端同时进行的关注数有上限
+     * 返回的 Future 结束（含取消）后释放名额
+     *
+     * @param clientId 客户端标识（IP）
+     * @param jobId 上游任务ID
+     * @param pollIntervalSeconds 固定轮询间隔（秒）
+     * @param maxWaitSeconds 最大等待时间（秒）
+     * @return 任务完成或失败时的查询响应
+     * @throws TooManyPollsException 该客户端同时进行的关注已达上限
+     */
+    CompletableFuture<QueryHunyuanTo3DJobResponse> watchForClient(String clientId,
+                                                                  String jobId,
+                                                                  int pollIntervalSeconds,
+                                                                  int maxWaitSeconds);
+
+    /**
+     * 获取轮询统计
+     *
+     * @return 统计信息
+     */
+    PollerStatistics getStatistics();
+
+    /**
+     * 客户端同时进行的关注数已达上限
+     */
+    class TooManyPollsException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public TooManyPollsException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    /**
+     * 轮询统计信息
+     * 发现延迟窗口为检测到结束的那次查询与前一次查询的间隔，是任务结束到被发现的延迟上限
+     */
+    class PollerStatistics {
+        private final int outstandingJobs;
+        private final int watchers;
+        private final int inFlightQueries;
+        private final int maxConcurrentQueries;
+        private final double maxQueriesPerSecond;
+        private final int modelledJobClasses;
+        private final long queriesIssued;
+        private final long queryErrors;
+        private final long throttledPolls;
+        private final long finishedJobs;
+        private final long timedOutWatchers;
+        private final int parkedClientPolls;
+        private final int maxPollsPerClient;
+        private final long rejectedClientPolls;
+        private final ScheduleStatistics adaptive;
+        private final ScheduleStatistics fixed;
+
+        public PollerStatistics(int outstandingJobs, int watchers, int inFlightQueries, int maxConcurrentQueries,
+                                double maxQueriesPerSecond, int modelledJobClasses,
+                                long queriesIssued, long queryErrors, long throttledPolls,
+                                long finishedJobs, long timedOutWatchers,
+                                int parkedClientPolls, int maxPollsPerClient, long rejectedClientPolls,
+                                ScheduleStatistics adaptive, ScheduleStatistics fixed) {
+            this.outstandingJobs = outstandingJobs;
+            this.watchers = watchers;
+            this.inFlightQueries = inFlightQueries;
+            this.maxConcurrentQueries = maxConcurrentQueries;
+            this.maxQueriesPerSecond = maxQueriesPerSecond;
+            this.modelledJobClasses = modelledJobClasses;
+            this.queriesIssued = queriesIssued;
+            this.queryErrors = queryErrors;
+            this.throttledPolls = throttledPolls;
+            this.finishedJobs = finishedJobs;
+            this.timedOutWatchers = timedOutWatchers;
+            this.parkedClientPolls = parkedClientPolls;
+            this.maxPollsPerClient = maxPollsPerClient;
+            this.rejectedClientPolls = rejectedClientPolls;
+            this.adaptive = adaptive;
+            this.fixed = fixed;
+        }
+
+        public int getOutstandingJobs() { return outstandingJobs; }
+        public int getWatchers() { return watchers; }
+        public int getInFlightQueries() { return inFlightQueries; }
+        public int getMaxConcurrentQueries() { return maxConcurrentQueries; }
+        public double getMaxQueriesPerSecond() { return maxQueriesPerSecond; }
+        public int getModelledJobClasses() { return modelledJobClasses; }
+        public long getQueriesIssued() { return queriesIssued; }
+        public long getQueryErrors() { return queryErrors; }
+        public long getThrottledPolls() { return throttledPolls; }
+        public long getFinishedJobs() { return finishedJobs; }
+        public long getTimedOutWatchers() { return timedOutWatchers; }
+        public int getParkedClientPolls() { return parkedClientPolls; }
+        public int getMaxPollsPerClient() { return maxPollsPerClient; }
+        public long getRejectedClientPolls() { return rejectedClientPolls; }
+        public ScheduleStatistics getAdaptive() { return adaptive; }
+        public ScheduleStatistics getFixed() { return fixed; }
+
+        public double getQueriesPerJob() {
+            return finishedJobs > 0 ? (double) queriesIssued / finishedJobs : 0.0;
+        }
+    }
+
+    /**
+     * 按调度方式（耗时分布 / 固定间隔）分别统计已结束的任务
+     */
+    class ScheduleStatistics {
+        private final long jobs;
+        private final double queriesPerJob;
+        private final double avgDetectWindowSeconds;
+
+        public ScheduleStatistics(long jobs, double queriesPerJob, double avgDetectWindowSeconds) {
+            this.jobs = jobs;
+            this.queriesPerJob = queriesPerJob;
+            this.avgDetectWindowSeconds = avgDetectWindowSeconds;
+        }
+
+        public long getJobs() { return jobs; }
+        public double getQueriesPerJob() { return queriesPerJob; }
+        public double getAvgDetectWindowSeconds() { return avgDetectWindowSeconds; }
+    }
+}
@@ -0,0 +1,587 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.dto.File3D;
+import com.qiniu.model3d.dto.QueryHunyuanTo3DJobResponse;
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.service.ArtifactCacheService;
+import com.qiniu.model3d.service.ResultFileFetchService;
+import com.qiniu.model3d.service.TencentAi3dClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 上游任务结果文件本地镜像服务实现
+ * 镜像文件名为「任务ID__种类.扩展名」，启动时扫描目录重建索引。索引是按访问顺序排列的 LinkedHashMap，
+ * 总大小超过上限时从最久未访问的一端删除。
+ * 生成流程已下载到本地的结果（ResultFileFetchService）直接使用，不再复制。
+ * 未命中时由下载线程池查询上游并全速写入磁盘，触发下载的请求边下载边读取临时文件写给客户端，
+ * 慢客户端不拖慢落盘；同一文件的其他请求等待下载完成后读本地文件
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class ArtifactCacheServiceImpl implements ArtifactCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactCacheServiceImpl.class);
+
+    private static final String DEFAULT_KIND = "default";
+    private static final String KEY_SEPARATOR = "__";
+    private static final String OCTET_STREAM = "application/octet-stream";
+
+    @Autowired
+    private TencentAi3dClient tencentAi3dClient;
+
+    @Autowired
+    private ResultFileFetchService resultFileFetchService;
+
+    @Value("${app.artifact-cache.dir:./artifact-cache}")
+    private String cacheDir;
+
+    @Value("${app.artifact-cache.max-bytes:2147483648}")
+    private long maxBytes;
+
+    @Value("${app.artifact-cache.wait-seconds:300}")
+    private long waitSeconds;
+
+    @Value("${app.artifact-cache.download-threads:4}")
+    private int downloadThreads;
+
+    @Value("${app.file.max-model-download-size:536870912}")
+    private long maxDownloadSize;
+
+    private Path cacheRoot;
+    private ThreadPoolExecutor downloadExecutor;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final Map<String, CompletableFuture<CachedArtifact>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong coalesced = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() throws IOException {
+        cacheRoot = Paths.get(cacheDir);
+        Files.createDirectories(cacheRoot);
+
+        int threads = Math.max(1, downloadThreads);
+        AtomicInteger threadIndex = new AtomicInteger();
+        downloadExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "artifact-download-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        downloadExecutor.allowCoreThreadTimeOut(true);
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(cacheRoot)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        // 按修改时间从旧到新放入索引，重启后仍大致保持淘汰顺序
+        files.sort(Comparator.comparingLong(ArtifactCacheServiceImpl::lastModified));
+        synchronized (lock) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int dotIndex = name.lastIndexOf('.');
+                if (name.startsWith(".") || dotIndex <= 0) {
+                    // 上次未完成下载留下的临时文件
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                long size = Files.size(file);
+                entries.put(name.substring(0, dotIndex), new Entry(file, size));
+                totalBytes += size;
+            }
+            evictIfNeeded(null);
+        }
+        logger.info("Artifact cache initialized: dir={}, entries={}, totalBytes={}, maxBytes={}",
+                    cacheRoot.toAbsolutePath(), entries.size(), totalBytes, maxBytes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (downloadExecutor != null) {
+            downloadExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public CachedArtifact getModel(String jobId, String format, ArtifactSink sink) throws IOException {
+        return get(jobId, modelKind(format), sink);
+    }
+
+    /**
+     * 模型格式对应的缓存类别；只接受模型输出格式，其他值（含 preview、default）与不指定格式一样取第一个文件，
+     * 保证模型类别不会与预览图的类别冲突
+     */
+    static String modelKind(String format) {
+        if (StringUtils.hasText(format)) {
+            String normalized = format.trim().toUpperCase(Locale.ROOT);
+            for (ModelTask.OutputFormat outputFormat : ModelTask.OutputFormat.values()) {
+                if (outputFormat.name().equals(normalized)) {
+                    return normalized.toLowerCase(Locale.ROOT);
+                }
+            }
+        }
+        return DEFAULT_KIND;
+    }
+
+    @Override
+    public CachedArtifact getPreview(String jobId, ArtifactSink sink) throws IOException {
+        return get(jobId, PREVIEW, sink);
+    }
+
+    @Override
+    public ArtifactCacheStatistics getStatistics() {
+        synchronized (lock) {
+            return new ArtifactCacheStatistics(entries.size(), totalBytes, maxBytes, hits.get(), misses.get(),
+                                               coalesced.get(), evictions.get());
+        }
+    }
+
+    private CachedArtifact get(String jobId, String kind, ArtifactSink sink) throws IOException {
+        if (!StringUtils.hasText(jobId)) {
+            throw new ArtifactUnavailableException("任务ID不能为空", false);
+        }
+        String safeJobId = jobId.replaceAll("[^A-Za-z0-9_-]", "_");
+        String key = safeJobId + KEY_SEPARATOR + kind;
+
+        CachedArtifact cached = lookup(key, safeJobId, kind);
+        if (cached == null) {
+            cached = fromFetchedResult(jobId, safeJobId, kind);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<CachedArtifact> flight = new CompletableFuture<>();
+        CompletableFuture<CachedArtifact> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing, jobId, kind);
+        }
+        // 拿到下载权之前可能刚有一次下载完成
+        cached = lookup(key, safeJobId, kind);
+        if (cached != null) {
+            hits.incrementAndGet();
+            flight.complete(cached);
+            inFlight.remove(key, flight);
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        // 下载在线程池中全速落盘，不受当前请求的客户端速度影响
+        FileTail tail = new FileTail();
+        try {
+            downloadExecutor.execute(() -> {
+                try {
+                    flight.complete(download(jobId, safeJobId, kind, key, tail));
+                } catch (Throwable t) {
+                    flight.completeExceptionally(t);
+                } finally {
+                    inFlight.remove(key, flight);
+                    tail.finish();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            IOException error = new IOException("结果文件下载线程池已关闭", e);
+            flight.completeExceptionally(error);
+            inFlight.remove(key, flight);
+            throw error;
+        }
+        return sink != null ? tail.streamTo(sink, flight, jobId, kind) : await(flight, jobId, kind);
+    }
+
+    private CachedArtifact download(String jobId, String safeJobId, String kind, String key,
+                                    FileTail tail) throws IOException {
+        QueryHunyuanTo3DJobResponse response;
+        try {
+            response = tencentAi3dClient.queryHunyuanTo3DJob(jobId);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("查询上游任务失败: " + e.getMessage(), e);
+        }
+        if (response == null || response.getStatus() == null) {
+            throw new ArtifactUnavailableException("任务不存在: " + jobId, false);
+        }
+        if (!response.isCompleted()) {
+            throw new ArtifactUnavailableException("任务未完成: " + jobId + ", status=" + response.getStatus(), true);
+        }
+
+        String url;
+        String extension;
+        if (PREVIEW.equals(kind)) {
+            url = selectPreviewUrl(response.getResultFile3Ds());
+            extension = extensionFromUrl(url, "png");
+        } else {
+            File3D file = selectModelFile(response.getResultFile3Ds(), kind);
+            url = file != null ? file.getUrl() : null;
+            extension = file != null && file.getType() != null && file.getType().matches("[A-Za-z0-9]{1,10}")
+                ? file.getType().toLowerCase(Locale.ROOT)
+                : extensionFromUrl(url, "zip");
+        }
+        if (!StringUtils.hasText(url)) {
+            throw new ArtifactUnavailableException("找不到可下载的文件: jobId=" + jobId + ", kind=" + kind, false);
+        }
+
+        String contentType = contentTypeFor(extension, kind);
+        String clientFilename = clientFilename(safeJobId, kind, extension);
+        tail.describe(contentType, clientFilename);
+
+        logger.info("镜像上游结果文件: jobId={}, kind={}, url={}", jobId, kind, url);
+        ModelFileDownloader.DownloadedFile downloaded =
+            ModelFileDownloader.download(url, cacheRoot, key + "." + extension, maxDownloadSize, tail);
+
+        synchronized (lock) {
+            Entry previous = entries.put(key, new Entry(downloaded.getPath(), downloaded.getSize()));
+            if (previous != null) {
+                totalBytes -= previous.size;
+                if (!previous.path.equals(downloaded.getPath())) {
+                    deleteQuietly(previous.path);
+                }
+            }
+            totalBytes += downloaded.getSize();
+            evictIfNeeded(key);
+        }
+        return new CachedArtifact(downloaded.getPath(), downloaded.getSize(), contentType, clientFilename, false);
+    }
+
+    private CachedArtifact lookup(String key, String safeJobId, String kind) {
+        Entry entry;
+        synchronized (lock) {
+            entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (!Files.exists(entry.path)) {
+                entries.remove(key);
+                totalBytes -= entry.size;
+                return null;
+            }
+        }
+        String extension = extensionOf(entry.path);
+        return new CachedArtifact(entry.path, entry.size, contentTypeFor(extension, kind),
+                                  clientFilename(safeJobId, kind, extension), false);
+    }
+
+    /**
+     * 生成流程已拉取到本地的结果文件
+     */
+    private CachedArtifact fromFetchedResult(String jobId, String safeJobId, String kind) throws IOException {
+        ResultFileFetchService.FetchedResult fetched = resultFileFetchService.getByJobId(jobId);
+        if (fetched == null) {
+            return null;
+        }
+        String localPath = null;
+        if (PREVIEW.equals(kind)) {
+            localPath = fetched.getPreviewPaths().isEmpty() ? null : fetched.getPreviewPaths().get(0);
+        } else if (DEFAULT_KIND.equals(kind)) {
+            localPath = fetched.getPrimaryPath();
+        } else {
+            for (Map.Entry<ModelTask.OutputFormat, String> entry : fetched.getModelFiles().entrySet()) {
+                if (entry.getKey().name().equalsIgnoreCase(kind)) {
+                    localPath = entry.getValue();
+                    break;
+                }
+            }
+        }
+        if (localPath == null) {
+            return null;
+        }
+        Path path = Paths.get(localPath);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        String extension = extensionOf(path);
+        return new CachedArtifact(path, Files.size(path), contentTypeFor(extension, kind),
+                                  clientFilename(safeJobId, kind, extension), false);
+    }
+
+    private CachedArtifact await(CompletableFuture<CachedArtifact> flight, String jobId, String kind) throws IOException {
+        try {
+            return flight.get(waitSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待结果文件下载被中断");
+        } catch (TimeoutException e) {
+            throw new IOException("等待结果文件下载超时: jobId=" + jobId + ", kind=" + kind);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ArtifactUnavailableException) {
+                throw (ArtifactUnavailableException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("结果文件下载失败: " + (cause != null ? cause.getMessage() : e.getMessage()), cause);
+        }
+    }
+
+    /**
+     * 总大小超过上限时从最久未访问的一端删除，刚放入的条目除外；调用方持有 lock
+     */
+    private void evictIfNeeded(String keep) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getValue().size;
+            evictions.incrementAndGet();
+            deleteQuietly(eldest.getValue().path);
+        }
+    }
+
+    private static File3D selectModelFile(List<File3D> files, String kind) {
+        if (files == null) {
+            return null;
+        }
+        if (!DEFAULT_KIND.equals(kind)) {
+            for (File3D file : files) {
+                if (file.getType() != null && file.getType().equalsIgnoreCase(kind) && StringUtils.hasText(file.getUrl())) {
+                    return file;
+                }
+            }
+        }
+        for (File3D file : files) {
+            if (StringUtils.hasText(file.getUrl())) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private static String selectPreviewUrl(List<File3D> files) {
+        if (files == null) {
+            return null;
+        }
+        for (File3D file : files) {
+            if (StringUtils.hasText(file.getPreviewImageUrl())) {
+                return file.getPreviewImageUrl();
+            }
+        }
+        return null;
+    }
+
+    private static String extensionFromUrl(String url, String defaultExtension) {
+        if (url == null) {
+            return defaultExtension;
+        }
+        int queryIndex = url.indexOf('?');
+        String path = queryIndex >= 0 ? url.substring(0, queryIndex) : url;
+        int dotIndex = path.lastIndexOf('.');
+        if (dotIndex > path.lastIndexOf('/') && dotIndex < path.length() - 1) {
+            String extension = path.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+            if (extension.matches("[a-z0-9]{1,10}")) {
+                return extension;
+            }
+        }
+        return defaultExtension;
+    }
+
+    private static String extensionOf(Path path) {
+        String name = path.getFileName().toString();
+        int dotIndex = name.lastIndexOf('.');
+        return dotIndex > 0 ? name.substring(dotIndex + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String contentTypeFor(String extension, String kind) {
+        if (!PREVIEW.equals(kind)) {
+            return OCTET_STREAM;
+        }
+        switch (extension) {
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg";
+            case "gif":
+                return "image/gif";
+            case "webp":
+                return "image/webp";
+            default:
+                return "image/png";
+        }
+    }
+
+    private static String clientFilename(String safeJobId, String kind, String extension) {
+        String prefix = PREVIEW.equals(kind) ? "preview_" : "model_";
+        return prefix + safeJobId + (extension.isEmpty() ? "" : "." + extension);
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("删除镜像文件失败: {}", path, e);
+        }
+    }
+
+    /**
+     * 触发下载的请求读取下载中的临时文件：下载线程只登记写盘进度，不等待客户端；
+     * 客户端读到已写入的位置后等待下一次写盘通知，下载完成后临时文件被重命名，已打开的通道仍可读完
+     */
+    private final class FileTail implements ModelFileDownloader.ProgressListener {
+        private String contentType;
+        private String filename;
+        private Path tempFile;
+        private long contentLength = -1;
+        private long bytesOnDisk;
+        private boolean finished;
+
+        synchronized void describe(String contentType, String filename) {
+            this.contentType = contentType;
+            this.filename = filename;
+        }
+
+        @Override
+        public synchronized void started(Path tempFile, long contentLength) {
+            this.tempFile = tempFile;
+            this.contentLength = contentLength;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void written(long bytesOnDisk) {
+            this.bytesOnDisk = bytesOnDisk;
+            notifyAll();
+        }
+
+        synchronized void finish() {
+            finished = true;
+            notifyAll();
+        }
+
+        CachedArtifact streamTo(ArtifactSink sink, CompletableFuture<CachedArtifact> flight,
+                                String jobId, String kind) throws IOException {
+            Path temp;
+            String type;
+            String name;
+            long length;
+            synchronized (this) {
+                awaitProgress(-1);
+                temp = tempFile;
+                type = contentType;
+                name = filename;
+                length = contentLength;
+            }
+            if (temp == null) {
+                // 查询上游失败或没有可下载的文件
+                return await(flight, jobId, kind);
+            }
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(temp, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                // 已下载完成并重命名（或已失败删除），按本地文件处理
+                return await(flight, jobId, kind);
+            }
+            try (FileChannel in = channel) {
+                OutputStream out = sink.open(type, length, name);
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = 0;
+                while (true) {
+                    long available;
+                    synchronized (this) {
+                        available = awaitProgress(position);
+                    }
+                    if (available <= position) {
+                        break;
+                    }
+                    while (position < available) {
+                        position += in.transferTo(position, available - position, target);
+                    }
+                }
+                out.flush();
+            }
+            CachedArtifact downloaded = await(flight, jobId, kind);
+            return new CachedArtifact(downloaded.getPath(), downloaded.getSize(), downloaded.getContentType(),
+                                      downloaded.getFilename(), true);
+        }
+
+        /**
+         * 等待写盘超过 position 或下载结束；position 为 -1 时等待下载开始。调用方持有本对象的锁
+         *
+         * @return 已写入的字节数
+         */
+        private long awaitProgress(long position) throws IOException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitSeconds);
+            while (!finished && (position < 0 ? tempFile == null : bytesOnDisk <= position)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IOException("等待结果文件下载超时: " + filename);
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("等待结果文件下载被中断");
+                }
+            }
+            return bytesOnDisk;
+        }
+    }
+
+    private static final class Entry {
+        private final Path path;
+        private final long size;
+
+        Entry(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.qiniu.model3d.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 文件 Base64 编码
+ * 文件按缓冲区流式读入编码器，编码结果直接写进按最终长度预分配的字节数组，不再先把整个文件读进内存。
+ * 上游 SDK 的请求字段是 String，最后仍要生成一个 String，但 Base64 只含 ASCII，按 Latin-1 构造时只复制一次
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class Base64Files {
+
+    private Base64Files() {
+    }
+
+    /**
+     * 对文件内容做标准 Base64 编码（无换行）
+     */
+    static String encode(Path path) throws IOException {
+        long size = Files.size(path);
+        long encodedLength = 4 * ((size + 2) / 3);
+        if (encodedLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("文件过大，无法编码: " + size + " bytes");
+        }
+
+        FixedByteArrayOutputStream sink = new FixedByteArrayOutputStream((int) encodedLength);
+        try (InputStream in = Files.newInputStream(path);
+             OutputStream encoder = Base64.getEncoder().wrap(sink)) {
+            byte[] buffer = new byte[ModelFileDownloader.BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                encoder.write(buffer, 0, read);
+            }
+        }
+        return new String(sink.bytes, 0, sink.count, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 写入预分配数组的输出流；文件在编码期间变大时按需扩容
+     */
+    private static final class FixedByteArrayOutputStream extends OutputStream {
+        private byte[] bytes;
+        private int count;
+
+        FixedByteArrayOutputStream(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length + (bytes.length >> 1)));
+            }
+        }
+    }
+}
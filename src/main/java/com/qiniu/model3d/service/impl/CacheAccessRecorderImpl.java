@@ -0,0 +1,182 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.repository.ModelTaskRepository;
+import com.qiniu.model3d.service.CacheAccessRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存访问记录服务实现
+ * 访问记录先按任务ID合并在内存中，由单独的线程定期（或待写入任务过多时）在一个事务内写入，
+ * 每个任务每次刷新只执行一条UPDATE
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class CacheAccessRecorderImpl implements CacheAccessRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheAccessRecorderImpl.class);
+
+    @Autowired
+    private ModelTaskRepository taskRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${cache.access.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${cache.access.max-pending:10000}")
+    private int maxPending;
+
+    private final Map<String, PendingAccess> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong recordedAccesses = new AtomicLong(0);
+    private final AtomicLong writtenRows = new AtomicLong(0);
+    private final AtomicLong flushCount = new AtomicLong(0);
+    private final AtomicLong failedFlushes = new AtomicLong(0);
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-access-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    @Override
+    public void recordAccess(String taskId, boolean similarityMatch) {
+        if (taskId == null) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        pending.compute(taskId, (id, access) -> {
+            PendingAccess merged = access != null ? access : new PendingAccess();
+            merged.hits++;
+            if (similarityMatch) {
+                merged.similarityHits++;
+            }
+            merged.lastAccessed = now;
+            return merged;
+        });
+        recordedAccesses.incrementAndGet();
+
+        // 待写入任务过多时提前刷新
+        if (pending.size() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    @Override
+    public synchronized int flush() {
+        flushScheduled.set(false);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Map.Entry<String, PendingAccess>> batch = new ArrayList<>();
+        for (String taskId : pending.keySet()) {
+            PendingAccess access = pending.remove(taskId);
+            if (access != null) {
+                batch.add(Map.entry(taskId, access));
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Map.Entry<String, PendingAccess> entry : batch) {
+                    PendingAccess access = entry.getValue();
+                    taskRepository.addCacheAccess(entry.getKey(), access.hits, access.similarityHits,
+                                                  access.lastAccessed);
+                }
+            });
+            writtenRows.addAndGet(batch.size());
+            flushCount.incrementAndGet();
+            logger.debug("Flushed cache access for {} tasks", batch.size());
+            return batch.size();
+        } catch (Exception e) {
+            // 写入失败时放回，下次刷新重试
+            failedFlushes.incrementAndGet();
+            logger.error("Error flushing cache access records, {} tasks re-queued", batch.size(), e);
+            for (Map.Entry<String, PendingAccess> entry : batch) {
+                pending.merge(entry.getKey(), entry.getValue(), PendingAccess::combine);
+            }
+            return 0;
+        }
+    }
+
+    @Override
+    public AccessRecorderStatistics getStatistics() {
+        return new AccessRecorderStatistics(recordedAccesses.get(), writtenRows.get(), flushCount.get(),
+                                            failedFlushes.get(), pending.size());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Unexpected error flushing cache access records", e);
+        }
+    }
+
+    /**
+     * 单个任务待写入的访问增量
+     */
+    private static final class PendingAccess {
+        int hits;
+        int similarityHits;
+        LocalDateTime lastAccessed;
+
+        static PendingAccess combine(PendingAccess current, PendingAccess previous) {
+            current.hits += previous.hits;
+            current.similarityHits += previous.similarityHits;
+            if (previous.lastAccessed != null && previous.lastAccessed.isAfter(current.lastAccessed)) {
+                current.lastAccessed = previous.lastAccessed;
+            }
+            return current;
+        }
+    }
+}
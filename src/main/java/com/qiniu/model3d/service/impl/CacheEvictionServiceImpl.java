@@ -3,6 +3,9 @@ package com.qiniu.model3d.service.impl;
 import com.qiniu.model3d.entity.ModelTask;
 import com.qiniu.model3d.repository.ModelTaskRepository;
 import com.qiniu.model3d.service.CacheEvictionService;
+import com.qiniu.model3d.service.ExactMatchCacheService;
+import com.qiniu.model3d.service.InputHashFilterService;
+import com.qiniu.model3d.service.SimilarityIndexService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +35,15 @@ public class CacheEvictionServiceImpl implements CacheEvictionService {
     
     @Autowired
     private ModelTaskRepository modelTaskRepository;
+
+    @Autowired
+    private SimilarityIndexService similarityIndexService;
+
+    @Autowired
+    private ExactMatchCacheService exactMatchCacheService;
+
+    @Autowired
+    private InputHashFilterService inputHashFilterService;
     
     // 缓存配置参数
     @Value("${cache.eviction.max-cache-size:10737418240}") // 10GB 默认
@@ -293,9 +305,16 @@ public class CacheEvictionServiceImpl implements CacheEvictionService {
             deleteTaskFiles(task);
             
             // 更新数据库记录
+            // 只有 cacheTask 会把 cached 置为 true 并加入过滤器，删除条件与之对应
+            boolean wasCached = Boolean.TRUE.equals(task.getCached());
             task.setCached(false);
             task.setFileSignature(null);
             modelTaskRepository.save(task);
+            similarityIndexService.removeTask(task.getTaskId());
+            exactMatchCacheService.invalidateTask(task.getTaskId());
+            if (wasCached) {
+                inputHashFilterService.remove(task);
+            }
             
             logger.debug("成功淘汰缓存任务: taskId={}", task.getTaskId());
             return true;
@@ -3,6 +3,12 @@ package com.qiniu.model3d.service.impl;
 import com.qiniu.model3d.entity.ModelTask;
 import com.qiniu.model3d.repository.ModelTaskRepository;
 import com.qiniu.model3d.service.CacheMetricsService;
+import com.qiniu.model3d.service.CacheAccessRecorder;
+import com.qiniu.model3d.service.ExactMatchCacheService;
+import com.qiniu.model3d.service.InputHashFilterService;
+import com.qiniu.model3d.service.SimilarityIndexService;
+import com.qiniu.model3d.service.SimilarityService;
+import com.qiniu.model3d.service.SingleFlightService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +33,24 @@ public class CacheMetricsServiceImpl implements CacheMetricsService {
     @Autowired
     private ModelTaskRepository taskRepository;
 
+    @Autowired
+    private SimilarityIndexService similarityIndexService;
+
+    @Autowired
+    private SimilarityService similarityService;
+
+    @Autowired
+    private CacheAccessRecorder cacheAccessRecorder;
+
+    @Autowired
+    private ExactMatchCacheService exactMatchCacheService;
+
+    @Autowired
+    private InputHashFilterService inputHashFilterService;
+
+    @Autowired
+    private SingleFlightService singleFlightService;
+
     // 实时指标统计
     private final AtomicLong totalRequests = new AtomicLong(0);
     private final AtomicLong cacheHits = new AtomicLong(0);
@@ -240,6 +264,36 @@ public class CacheMetricsServiceImpl implements CacheMetricsService {
         logger.info("Cache metrics have been reset");
     }
 
+    @Override
+    public SimilarityIndexService.IndexStatistics getSimilarityIndexStatistics() {
+        return similarityIndexService.getStatistics();
+    }
+
+    @Override
+    public SimilarityService.CascadeStatistics getSimilarityCascadeStatistics() {
+        return similarityService.getCascadeStatistics();
+    }
+
+    @Override
+    public CacheAccessRecorder.AccessRecorderStatistics getAccessRecorderStatistics() {
+        return cacheAccessRecorder.getStatistics();
+    }
+
+    @Override
+    public ExactMatchCacheService.ExactMatchCacheStatistics getExactMatchCacheStatistics() {
+        return exactMatchCacheService.getStatistics();
+    }
+
+    @Override
+    public InputHashFilterService.FilterStatistics getInputHashFilterStatistics() {
+        return inputHashFilterService.getStatistics();
+    }
+
+    @Override
+    public SingleFlightService.SingleFlightStatistics getSingleFlightStatistics() {
+        return singleFlightService.getStatistics();
+    }
+
     // 私有辅助方法
 
     private double calculateAverageResponseTime() {
@@ -253,7 +307,8 @@ public class CacheMetricsServiceImpl implements CacheMetricsService {
     private long estimateMemoryUsage() {
         // 简化的内存使用估算
         long cachedTasks = taskRepository.countByCachedTrue();
-        return cachedTasks * 1024; // 假设每个缓存任务占用1KB
+        return cachedTasks * 1024 // 假设每个缓存任务占用1KB
+            + similarityIndexService.getStatistics().getEstimatedMemoryBytes();
     }
 
     private Map<String, Double> calculateHitRateByType(List<CacheMetrics> metrics) {
@@ -6,7 +6,10 @@ import com.qiniu.model3d.repository.ModelTaskRepository;
 import com.qiniu.model3d.service.CacheService;
 import com.qiniu.model3d.service.CacheEvictionService;
 import com.qiniu.model3d.service.CacheMetricsService;
+import com.qiniu.model3d.service.ExactMatchCacheService;
+import com.qiniu.model3d.service.InputHashFilterService;
 
+import com.qiniu.model3d.service.SimilarityIndexService;
 import com.qiniu.model3d.service.SimilarityService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,12 +20,18 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -37,12 +46,35 @@ public class CacheServiceImpl implements CacheService {
 
     private static final Logger logger = LoggerFactory.getLogger(CacheServiceImpl.class);
 
+    private static final int SIGNATURE_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_KNOWN_SIGNATURES = 1024;
+
+    /**
+     * 写文件时登记的签名，按文件绝对路径索引，只保留最近的条目
+     */
+    private final Map<String, KnownSignature> knownSignatures = Collections.synchronizedMap(
+        new LinkedHashMap<String, KnownSignature>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, KnownSignature> eldest) {
+                return size() > MAX_KNOWN_SIGNATURES;
+            }
+        });
+
     @Autowired
     private ModelTaskRepository taskRepository;
 
     @Autowired
     private SimilarityService similarityService;
 
+    @Autowired
+    private SimilarityIndexService similarityIndexService;
+
+    @Autowired
+    private ExactMatchCacheService exactMatchCacheService;
+
+    @Autowired
+    private InputHashFilterService inputHashFilterService;
+
     @Autowired
     private CacheEvictionService cacheEvictionService;
 
@@ -74,23 +106,44 @@ public class CacheServiceImpl implements CacheService {
         }
 
         try {
+            String requestKey = calculateRequestKey(inputText, taskType, complexity, outputFormat);
+
+            // 一级缓存命中时不访问数据库和文件系统
+            Optional<ModelTask> cached = exactMatchCacheService.get(requestKey);
+            if (cached.isPresent()) {
+                logger.debug("Found exact cache match in L1 for request key: {}, taskId: {}", 
+                           requestKey, cached.get().getTaskId());
+                return cached;
+            }
+
+            // 过滤器判定一定不存在时跳过数据库查询
+            if (inputHashFilterService.mightContain(requestKey)) {
+                Optional<ModelTask> match = findValidMatch(taskRepository.findByRequestKeyAndCompleted(requestKey));
+                if (match.isPresent()) {
+                    exactMatchCacheService.put(requestKey, match.get());
+                    logger.info("Found exact cache match for request key: {}, taskId: {}", 
+                              requestKey, match.get().getTaskId());
+                    return match;
+                }
+            }
+
+            // 尚未回填请求键的历史记录按原输入哈希查找，命中后回填
             String inputHash = calculateInputHash(inputText, taskType, complexity, outputFormat);
-            List<ModelTask> matches = taskRepository.findByInputHashAndCompleted(inputHash);
-            
-            if (!matches.isEmpty()) {
-                ModelTask bestMatch = matches.get(0); // 已按lastAccessed DESC排序
-                
-                // 验证文件是否存在
-                if (isCacheValid(bestMatch)) {
-                    updateCacheAccess(bestMatch.getTaskId());
+            if (inputHash != null && inputHashFilterService.mightContain(inputHash)) {
+                Optional<ModelTask> match = findValidMatch(taskRepository.findByInputHashAndCompleted(inputHash));
+                if (match.isPresent()) {
+                    ModelTask bestMatch = match.get();
+                    if (bestMatch.getRequestKey() == null
+                            && taskRepository.updateRequestKey(bestMatch.getTaskId(), requestKey) > 0) {
+                        bestMatch.setRequestKey(requestKey);
+                        if (!Boolean.FALSE.equals(bestMatch.getCached())) {
+                            inputHashFilterService.replace(inputHash, requestKey);
+                        }
+                    }
+                    exactMatchCacheService.put(requestKey, bestMatch);
                     logger.info("Found exact cache match for input hash: {}, taskId: {}", 
                               inputHash, bestMatch.getTaskId());
-                    return Optional.of(bestMatch);
-                } else {
-                    logger.warn("Cache file not found for task: {}, removing from cache", 
-                              bestMatch.getTaskId());
-                    // 文件不存在，标记为失效
-                    invalidateCache(bestMatch);
+                    return match;
                 }
             }
             
@@ -101,6 +154,23 @@ public class CacheServiceImpl implements CacheService {
         }
     }
 
+    /**
+     * 取按最近访问排序的第一个候选，模型文件不存在时使其失效
+     */
+    private Optional<ModelTask> findValidMatch(List<ModelTask> matches) {
+        if (matches.isEmpty()) {
+            return Optional.empty();
+        }
+        ModelTask bestMatch = matches.get(0); // 已按lastAccessed DESC排序
+        if (isCacheValid(bestMatch)) {
+            return Optional.of(bestMatch);
+        }
+        logger.warn("Cache file not found for task: {}, removing from cache", bestMatch.getTaskId());
+        // 文件不存在，标记为失效
+        invalidateCache(bestMatch);
+        return Optional.empty();
+    }
+
     @Override
     public List<CacheResult> findSimilarMatches(String inputText, ModelTask.TaskType taskType,
                                               String complexity, String outputFormat, double threshold) {
@@ -116,42 +186,18 @@ public class CacheServiceImpl implements CacheService {
             }
 
             // 获取相似度匹配候选
-            List<ModelTask> candidates = taskRepository.findSimilarityCandidates(
-                taskType, complexity, outputFormat, PageRequest.of(0, similarityCandidates));
+            List<ModelTask> candidates = findSimilarityCandidates(inputText, taskType, complexity, outputFormat);
 
             if (candidates.isEmpty()) {
                 return List.of();
             }
 
-            // 计算相似度并分类
-            return candidates.stream()
-                .map(task -> {
-                    double similarity = similarityService.calculateSimilarity(inputText, task.getInputText());
-                    String matchType = determineMatchType(similarity);
-                    return new CacheResult(task, similarity, matchType);
-                })
-                .filter(result -> result.getSimilarity() >= threshold)
+            // 批量打分并排序（相似度降序，相同时按最后访问时间降序），有效性按排序结果依次检查；
+            // 查找只读，访问计数由实际使用缓存的调用方通过 CacheAccessRecorder 记录
+            return similarityService.scoreBatch(inputText, candidates, threshold, candidates.size()).stream()
+                .map(scored -> new CacheResult(scored.getTask(), scored.getSimilarity(),
+                                               determineMatchType(scored.getSimilarity())))
                 .filter(result -> isCacheValid(result.getTask()))
-                .peek(result -> {
-                    // 更新访问统计
-                    updateCacheAccess(result.getTask().getTaskId());
-                    
-                    // 如果不是精确匹配，更新相似度使用计数
-                    if (!"EXACT".equals(result.getMatchType())) {
-                        updateSimilarityUsage(result.getTask().getTaskId());
-                    }
-                    
-                    logger.debug("Found similar match: taskId={}, similarity={}, type={}", 
-                               result.getTask().getTaskId(), result.getSimilarity(), result.getMatchType());
-                })
-                .sorted((r1, r2) -> {
-                    // 优先按相似度排序，相似度相同时按最后访问时间排序
-                    int similarityCompare = Double.compare(r2.getSimilarity(), r1.getSimilarity());
-                    if (similarityCompare != 0) {
-                        return similarityCompare;
-                    }
-                    return r2.getTask().getLastAccessed().compareTo(r1.getTask().getLastAccessed());
-                })
                 .limit(10) // 最多返回10个结果
                 .collect(Collectors.toList());
 
@@ -161,6 +207,27 @@ public class CacheServiceImpl implements CacheService {
         }
     }
 
+    /**
+     * 获取相似度匹配候选：优先通过LSH分桶召回Jaccard近邻，无同桶任务时再查倒排索引，
+     * 索引未就绪时回退到数据库
+     */
+    private List<ModelTask> findSimilarityCandidates(String inputText, ModelTask.TaskType taskType,
+                                                     String complexity, String outputFormat) {
+        if (!similarityIndexService.isReady()) {
+            return taskRepository.findSimilarityCandidates(
+                taskType, complexity, outputFormat, PageRequest.of(0, similarityCandidates));
+        }
+
+        List<ModelTask> candidates = similarityIndexService.isLshEnabled()
+            ? similarityService.findNearDuplicates(inputText, taskType, complexity, outputFormat, similarityCandidates)
+            : List.of();
+        if (candidates.isEmpty()) {
+            candidates = similarityIndexService.findCandidates(
+                inputText, taskType, complexity, outputFormat, similarityCandidates);
+        }
+        return candidates;
+    }
+
     /**
      * 根据相似度确定匹配类型
      */
@@ -196,6 +263,16 @@ public class CacheServiceImpl implements CacheService {
                                                 task.getComplexity() != null ? task.getComplexity().toString() : null, 
                                                 task.getOutputFormat() != null ? task.getOutputFormat().toString() : null);
             task.setInputHash(inputHash);
+            if (task.getRequestKey() == null) {
+                task.setRequestKey(calculateRequestKey(task.getInputText(), task.getType(),
+                                                       task.getComplexity() != null ? task.getComplexity().toString() : null,
+                                                       task.getOutputFormat() != null ? task.getOutputFormat().toString() : null));
+            }
+
+            // 计算MinHash签名，供LSH近邻召回使用
+            if (task.getInputText() != null) {
+                task.setMinhashSignature(MinHash.encode(similarityService.calculateMinHashSignature(task.getInputText())));
+            }
 
             // 计算文件签名
             if (task.getModelFilePath() != null) {
@@ -215,6 +292,7 @@ public class CacheServiceImpl implements CacheService {
             }
 
             // 设置新的缓存字段
+            boolean wasCached = Boolean.TRUE.equals(task.getCached());
             task.setCached(true);
             if (task.getCacheHitCount() == null) {
                 task.setCacheHitCount(0);
@@ -237,7 +315,11 @@ public class CacheServiceImpl implements CacheService {
             }
 
             taskRepository.save(task);
-            logger.info("Cached task: {}, inputHash: {}", task.getTaskId(), inputHash);
+            similarityIndexService.indexTask(task);
+            if (!wasCached) {
+                inputHashFilterService.add(task);
+            }
+            logger.info("Cached task: {}, inputHash: {}, requestKey: {}", task.getTaskId(), inputHash, task.getRequestKey());
             return true;
 
         } catch (Exception e) {
@@ -368,30 +450,42 @@ public class CacheServiceImpl implements CacheService {
     public String calculateInputHash(String inputText, ModelTask.TaskType taskType, 
                                     String complexity, String outputFormat) {
         try {
-            String combined = inputText + "|" + taskType + "|" + 
-                            (complexity != null ? complexity : "") + "|" + 
-                            (outputFormat != null ? outputFormat : "");
-            
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(combined.getBytes("UTF-8"));
-            
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
+            return RequestHashing.inputHash(inputText, taskType, complexity, outputFormat);
         } catch (Exception e) {
             logger.error("Error calculating input hash", e);
             return null;
         }
     }
 
+    @Override
+    public String calculateRequestKey(String inputText, ModelTask.TaskType taskType, 
+                                      String complexity, String outputFormat) {
+        return RequestHashing.requestKey(inputText,
+                                         taskType != null ? taskType.ordinal() : -1,
+                                         ordinalOf(ModelTask.Complexity.class, complexity),
+                                         ordinalOf(ModelTask.OutputFormat.class, outputFormat));
+    }
+
+    /**
+     * 枚举名称对应的序号，忽略大小写和首尾空白；未指定为 -1，无法识别的名称直接拒绝，
+     * 避免不同的非法取值与未指定共用同一个请求键
+     */
+    private static <E extends Enum<E>> int ordinalOf(Class<E> enumType, String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return -1;
+        }
+        String normalized = name.trim().toUpperCase(Locale.ROOT);
+        for (E constant : enumType.getEnumConstants()) {
+            if (constant.name().equals(normalized)) {
+                return constant.ordinal();
+            }
+        }
+        throw new IllegalArgumentException("无法识别的" + enumType.getSimpleName() + ": " + name);
+    }
+
     /**
      * 计算文件签名
+     * 优先使用写文件时登记的签名；否则按固定大小的缓冲区流式计算 MD5，不把整个文件读入内存
      */
     @Override
     public String calculateFileSignature(String filePath) {
@@ -400,11 +494,24 @@ public class CacheServiceImpl implements CacheService {
             if (!Files.exists(path)) {
                 return null;
             }
-            
+
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            String key = path.toAbsolutePath().normalize().toString();
+            KnownSignature known = knownSignatures.get(key);
+            if (known != null && known.matches(attributes)) {
+                return known.signature;
+            }
+
             MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] fileBytes = Files.readAllBytes(path);
-            byte[] hash = md.digest(fileBytes);
-            
+            try (InputStream in = Files.newInputStream(path)) {
+                byte[] buffer = new byte[SIGNATURE_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    md.update(buffer, 0, read);
+                }
+            }
+            byte[] hash = md.digest();
+
             StringBuilder hexString = new StringBuilder();
             for (byte b : hash) {
                 String hex = Integer.toHexString(0xff & b);
@@ -420,6 +527,23 @@ public class CacheServiceImpl implements CacheService {
         }
     }
 
+    /**
+     * 登记已知文件签名
+     */
+    @Override
+    public void recordFileSignature(String filePath, String signature) {
+        if (filePath == null || signature == null) {
+            return;
+        }
+        try {
+            Path path = Paths.get(filePath);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            knownSignatures.put(path.toAbsolutePath().normalize().toString(), new KnownSignature(attributes, signature));
+        } catch (Exception e) {
+            logger.debug("Unable to record file signature for {}: {}", filePath, e.getMessage());
+        }
+    }
+
     /**
      * 使缓存失效
      */
@@ -427,6 +551,8 @@ public class CacheServiceImpl implements CacheService {
         try {
             task.setReferenceCount(0);
             taskRepository.save(task);
+            similarityIndexService.removeTask(task.getTaskId());
+            exactMatchCacheService.invalidateTask(task.getTaskId());
         } catch (Exception e) {
             logger.error("Error invalidating cache for task: " + task.getTaskId(), e);
         }
@@ -444,6 +570,12 @@ public class CacheServiceImpl implements CacheService {
                 }
             }
             taskRepository.delete(task);
+            similarityIndexService.removeTask(task.getTaskId());
+            exactMatchCacheService.invalidateTask(task.getTaskId());
+            // 只有 cacheTask 会把 cached 置为 true 并加入过滤器，删除条件与之对应
+            if (task.getStatus() == ModelTask.TaskStatus.COMPLETED && Boolean.TRUE.equals(task.getCached())) {
+                inputHashFilterService.remove(task);
+            }
             return true;
         } catch (Exception e) {
             logger.error("Error cleaning up task: " + task.getTaskId(), e);
@@ -554,4 +686,23 @@ public class CacheServiceImpl implements CacheService {
                 0, 0, 0, 0, 0, null, 0);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 已知签名及登记时的文件大小、修改时间
+     */
+    private static final class KnownSignature {
+        final long size;
+        final long lastModified;
+        final String signature;
+
+        KnownSignature(BasicFileAttributes attributes, String signature) {
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.signature = signature;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+}
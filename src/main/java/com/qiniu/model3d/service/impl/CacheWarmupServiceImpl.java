@@ -315,8 +315,19 @@ public class CacheWarmupServiceImpl implements CacheWarmupService {
                 PageRequest.of(0, limit * 2)
             );
 
-            return candidates.stream()
+            List<ModelTask> others = candidates.stream()
                 .filter(task -> !task.getTaskId().equals(referenceTask.getTaskId()))
+                .collect(Collectors.toList());
+
+            // 文本任务批量打分取Top-K，图片任务按文件名逐一比较
+            if (referenceTask.getType() == ModelTask.TaskType.TEXT) {
+                return similarityService.scoreBatch(referenceTask.getInputText(), others, similarityThreshold, limit)
+                    .stream()
+                    .map(SimilarityService.ScoredTask::getTask)
+                    .collect(Collectors.toList());
+            }
+
+            return others.stream()
                 .filter(task -> {
                     double similarity = calculateSimilarity(referenceTask, task);
                     return similarity >= similarityThreshold;
@@ -0,0 +1,121 @@
+package com.qiniu.model3d.service.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 任务完成耗时的经验分布，用于安排上游任务的查询时间
+ * 查询间隔与完成风险率（尚未完成的任务在单位时间内完成的概率）的平方根成反比：
+ * 在"查询次数 + 发现延迟"的总代价下这是逐点最优的间隔。风险率最高处使用最密间隔；
+ * p10 之前风险率很低，间隔放大到上限，但不越过 p10
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class CompletionTimeModel {
+
+    private final double[] sortedSeconds;
+    private final double p10;
+    private final double p50;
+    private final double p90;
+    private final double peakHazard;
+
+    private CompletionTimeModel(double[] sortedSeconds) {
+        this.sortedSeconds = sortedSeconds;
+        this.p10 = quantile(0.1);
+        this.p50 = quantile(0.5);
+        this.p90 = quantile(0.9);
+
+        double peak = 0.0;
+        for (int i = 0; i <= 20; i++) {
+            peak = Math.max(peak, hazard(quantile(0.1 + 0.85 * i / 20)));
+        }
+        this.peakHazard = peak;
+    }
+
+    static CompletionTimeModel of(Collection<? extends Number> durations) {
+        double[] values = new double[durations.size()];
+        int i = 0;
+        for (Number duration : durations) {
+            values[i++] = duration.doubleValue();
+        }
+        Arrays.sort(values);
+        return new CompletionTimeModel(values);
+    }
+
+    int getSampleCount() {
+        return sortedSeconds.length;
+    }
+
+    double getP10() {
+        return p10;
+    }
+
+    double getP50() {
+        return p50;
+    }
+
+    double getP90() {
+        return p90;
+    }
+
+    /**
+     * 分位数（线性插值）
+     */
+    double quantile(double q) {
+        if (sortedSeconds.length == 0) {
+            return 0.0;
+        }
+        double position = q * (sortedSeconds.length - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Math.min(lower + 1, sortedSeconds.length - 1);
+        return sortedSeconds[lower] + (sortedSeconds[upper] - sortedSeconds[lower]) * (position - lower);
+    }
+
+    /**
+     * 经验分布函数：耗时不超过 seconds 的比例
+     */
+    double cdf(double seconds) {
+        int index = Arrays.binarySearch(sortedSeconds, seconds);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            while (index < sortedSeconds.length && sortedSeconds[index] <= seconds) {
+                index++;
+            }
+        }
+        return sortedSeconds.length > 0 ? (double) index / sortedSeconds.length : 0.0;
+    }
+
+    /**
+     * 计算下一次查询前的等待时间
+     *
+     * @param elapsedSeconds 任务已运行时间
+     * @param denseDelay 风险率最高处的间隔
+     * @param minDelay 最小间隔
+     * @param maxDelay 最大间隔
+     * @return 等待秒数
+     */
+    double nextDelaySeconds(double elapsedSeconds, double denseDelay, double minDelay, double maxDelay) {
+        double delay = denseDelay * Math.sqrt(peakHazard / Math.max(hazard(elapsedSeconds), 1e-9));
+        if (elapsedSeconds < p10) {
+            // 稀疏阶段不越过 p10，避免一步跨过完成概率开始上升的区间
+            delay = Math.min(delay, p10 - elapsedSeconds);
+        }
+        return Math.max(minDelay, Math.min(maxDelay, delay));
+    }
+
+    /**
+     * 风险率估计：h(t) = (F(t + w) - F(t)) / (w · (1 - F(t)))，窗口 w 取 p10~p90 跨度的 1/8；
+     * 超过 p95 的时间点样本稀少，按 p95 处估计
+     */
+    private double hazard(double seconds) {
+        double t = Math.min(seconds, quantile(0.95));
+        double window = Math.max(1.0, (p90 - p10) / 8.0);
+        double survival = 1.0 - cdf(t);
+        if (survival <= 0.0) {
+            return 0.0;
+        }
+        return (cdf(t + window) - cdf(t)) / (window * survival);
+    }
+}
@@ -0,0 +1,133 @@
+package com.qiniu.model3d.service.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 计数布隆过滤器
+ * 4位计数器（每个 long 16个），支持删除；计数器饱和（15）后不再增减，只会增加误判不会漏判。
+ * 计数器以CAS更新，读写均不加锁
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class CountingBloomFilter {
+
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final int MAX_COUNT = 15;
+
+    private final AtomicLongArray words;
+    private final long counterCount;
+    private final int hashCount;
+    private final AtomicLong entries = new AtomicLong(0);
+
+    /**
+     * @param expectedInsertions 预期元素数
+     * @param falsePositiveRate 目标误判率
+     */
+    CountingBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (m + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+        this.words = new AtomicLongArray(Math.max(1, wordCount));
+        this.counterCount = (long) words.length() * COUNTERS_PER_WORD;
+        this.hashCount = Math.max(1, (int) Math.round((double) counterCount / n * Math.log(2)));
+    }
+
+    boolean mightContain(CharSequence key) {
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            if (counterAt(index(h1, h2, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void add(CharSequence key) {
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            update(index(h1, h2, i), 1);
+        }
+        entries.incrementAndGet();
+    }
+
+    void remove(CharSequence key) {
+        if (!mightContain(key)) {
+            return;
+        }
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            update(index(h1, h2, i), -1);
+        }
+        entries.decrementAndGet();
+    }
+
+    long getEntries() {
+        return Math.max(0, entries.get());
+    }
+
+    long getCounterCount() {
+        return counterCount;
+    }
+
+    int getHashCount() {
+        return hashCount;
+    }
+
+    long getMemoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /**
+     * 按当前元素数估算的误判率 (1 - e^(-kn/m))^k
+     */
+    double expectedFalsePositiveRate() {
+        double n = getEntries();
+        return Math.pow(1.0 - Math.exp(-hashCount * n / counterCount), hashCount);
+    }
+
+    private long index(long h1, long h2, int i) {
+        return Long.remainderUnsigned(h1 + i * h2, counterCount);
+    }
+
+    private int counterAt(long index) {
+        long word = words.get((int) (index / COUNTERS_PER_WORD));
+        return (int) ((word >>> ((index % COUNTERS_PER_WORD) << 2)) & 0xF);
+    }
+
+    private void update(long index, int delta) {
+        int wordIndex = (int) (index / COUNTERS_PER_WORD);
+        int shift = (int) ((index % COUNTERS_PER_WORD) << 2);
+        while (true) {
+            long word = words.get(wordIndex);
+            int count = (int) ((word >>> shift) & 0xF);
+            // 饱和的计数器不再变化；为0时不再递减
+            if (count == MAX_COUNT || (delta < 0 && count == 0)) {
+                return;
+            }
+            long updated = word + ((long) delta << shift);
+            if (words.compareAndSet(wordIndex, word, updated)) {
+                return;
+            }
+        }
+    }
+
+    private static long hash(CharSequence key, long seed) {
+        long h = seed ^ key.length();
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+            h ^= h >>> 29;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
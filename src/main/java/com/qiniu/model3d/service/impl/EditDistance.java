@@ -0,0 +1,180 @@
+package com.qiniu.model3d.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * 带上界的Levenshtein编辑距离
+ * 采用Myers位并行算法（按64位分块），较短的字符串作为模式串，逐列推进长串；
+ * 每一列后用"剩余列数"给出最终距离的下界，一旦超过上界立即返回。
+ * 工作区按线程复用，只占用与模式串长度成正比的内存
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class EditDistance {
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private EditDistance() {
+    }
+
+    /**
+     * 计算编辑距离
+     *
+     * @param s1 字符串1
+     * @param s2 字符串2
+     * @param maxDistance 距离上界
+     * @return 编辑距离；超过 maxDistance 时返回 maxDistance + 1
+     */
+    static int bounded(String s1, String s2, int maxDistance) {
+        String pattern = s1.length() <= s2.length() ? s1 : s2;
+        String text = pattern == s1 ? s2 : s1;
+
+        // 去掉公共前缀和后缀，不影响编辑距离
+        int start = 0;
+        int patternEnd = pattern.length();
+        int textEnd = text.length();
+        while (start < patternEnd && pattern.charAt(start) == text.charAt(start)) {
+            start++;
+        }
+        while (patternEnd > start && pattern.charAt(patternEnd - 1) == text.charAt(textEnd - 1)) {
+            patternEnd--;
+            textEnd--;
+        }
+
+        int m = patternEnd - start;
+        int n = textEnd - start;
+        if (n - m > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (m == 0) {
+            return n;
+        }
+
+        Workspace workspace = WORKSPACE.get();
+        int blocks = (m + 63) >>> 6;
+        workspace.prepare(pattern, start, patternEnd, blocks);
+
+        long[] peq = workspace.peq;
+        long[] vp = workspace.vp;
+        long[] vn = workspace.vn;
+        long lastBit = 1L << ((m - 1) & 63);
+        int score = m;
+
+        try {
+            for (int j = 0; j < n; j++) {
+                int offset = workspace.offsetOf(text.charAt(start + j));
+                // 第0行 D[0][j] = j，水平增量恒为+1
+                int hin = 1;
+                for (int block = 0; block < blocks; block++) {
+                    long eq = offset < 0 ? 0L : peq[offset + block];
+                    long pv = vp[block];
+                    long mv = vn[block];
+
+                    long xv = eq | mv;
+                    if (hin < 0) {
+                        eq |= 1L;
+                    }
+                    long xh = (((eq & pv) + pv) ^ pv) | eq;
+                    long ph = mv | ~(xh | pv);
+                    long mh = pv & xh;
+
+                    long highBit = block == blocks - 1 ? lastBit : Long.MIN_VALUE;
+                    int hout = (ph & highBit) != 0 ? 1 : ((mh & highBit) != 0 ? -1 : 0);
+
+                    ph <<= 1;
+                    mh <<= 1;
+                    if (hin < 0) {
+                        mh |= 1L;
+                    } else if (hin > 0) {
+                        ph |= 1L;
+                    }
+                    vp[block] = mh | ~(xv | ph);
+                    vn[block] = ph & xv;
+                    hin = hout;
+                }
+                score += hin;
+
+                // 每推进一列，末行的值最多减少1
+                if (score - (n - 1 - j) > maxDistance) {
+                    return maxDistance + 1;
+                }
+            }
+            return score <= maxDistance ? score : maxDistance + 1;
+        } finally {
+            workspace.reset();
+        }
+    }
+
+    /**
+     * 线程内复用的工作区：模式串字符的位掩码表（开放寻址）和纵向增量向量
+     */
+    private static final class Workspace {
+        char[] keys = new char[256];
+        int[] offsets = new int[256];
+        int[] usedSlots = new int[128];
+        int usedCount;
+        long[] peq = new long[256];
+        long[] vp = new long[4];
+        long[] vn = new long[4];
+
+        Workspace() {
+            Arrays.fill(offsets, -1);
+        }
+
+        void prepare(String pattern, int start, int end, int blocks) {
+            int m = end - start;
+            int tableSize = Integer.highestOneBit(Math.max(16, m * 2 - 1)) << 1;
+            if (keys.length < tableSize) {
+                keys = new char[tableSize];
+                offsets = new int[tableSize];
+                Arrays.fill(offsets, -1);
+                usedSlots = new int[tableSize];
+            }
+            if (peq.length < m * blocks) {
+                peq = new long[m * blocks];
+            }
+            if (vp.length < blocks) {
+                vp = new long[blocks];
+                vn = new long[blocks];
+            }
+
+            int distinct = 0;
+            for (int i = 0; i < m; i++) {
+                char c = pattern.charAt(start + i);
+                int slot = slotOf(c);
+                if (offsets[slot] < 0) {
+                    keys[slot] = c;
+                    offsets[slot] = distinct * blocks;
+                    usedSlots[usedCount++] = slot;
+                    Arrays.fill(peq, distinct * blocks, (distinct + 1) * blocks, 0L);
+                    distinct++;
+                }
+                peq[offsets[slot] + (i >>> 6)] |= 1L << (i & 63);
+            }
+
+            Arrays.fill(vp, 0, blocks, -1L);
+            Arrays.fill(vn, 0, blocks, 0L);
+        }
+
+        int offsetOf(char c) {
+            return offsets[slotOf(c)];
+        }
+
+        void reset() {
+            for (int i = 0; i < usedCount; i++) {
+                offsets[usedSlots[i]] = -1;
+            }
+            usedCount = 0;
+        }
+
+        private int slotOf(char c) {
+            int mask = keys.length - 1;
+            int slot = (c * 0x9E3779B9) >>> 16 & mask;
+            while (offsets[slot] >= 0 && keys[slot] != c) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
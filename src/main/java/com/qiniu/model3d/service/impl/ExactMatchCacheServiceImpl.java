@@ -0,0 +1,133 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.service.ExactMatchCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 完全匹配一级缓存服务实现
+ * 输入哈希 → (任务, 模型文件路径, 最近一次文件校验时间)，W-TinyLFU 准入与淘汰；
+ * 文件校验结果在 revalidate-seconds 内复用，过期后命中时重新检查一次文件
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class ExactMatchCacheServiceImpl implements ExactMatchCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExactMatchCacheServiceImpl.class);
+
+    @Value("${cache.exact-match.l1.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.exact-match.l1.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${cache.exact-match.l1.revalidate-seconds:60}")
+    private long revalidateSeconds;
+
+    private WTinyLfuCache<String, Entry> cache;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong invalidations = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        cache = new WTinyLfuCache<>(maxEntries);
+        logger.info("Exact match L1 cache initialized: enabled={}, maxEntries={}", enabled, maxEntries);
+    }
+
+    @Override
+    public Optional<ModelTask> get(String inputHash) {
+        if (!enabled || inputHash == null) {
+            return Optional.empty();
+        }
+
+        Entry entry = cache.get(inputHash);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        long now = System.nanoTime();
+        if (now - entry.validatedAt > TimeUnit.SECONDS.toNanos(revalidateSeconds)) {
+            if (!isReadable(entry.modelPath)) {
+                cache.remove(inputHash);
+                invalidations.incrementAndGet();
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            entry.validatedAt = now;
+        }
+
+        hits.incrementAndGet();
+        return Optional.of(entry.task);
+    }
+
+    @Override
+    public void put(String inputHash, ModelTask task) {
+        if (!enabled || inputHash == null || task == null || task.getModelFilePath() == null) {
+            return;
+        }
+        cache.put(inputHash, new Entry(task, task.getModelFilePath(), System.nanoTime()));
+    }
+
+    @Override
+    public void invalidateTask(String taskId) {
+        if (taskId == null) {
+            return;
+        }
+        int removed = cache.removeIf(entry -> taskId.equals(entry.task.getTaskId()));
+        if (removed > 0) {
+            invalidations.addAndGet(removed);
+            logger.debug("Invalidated exact match L1 entries for task: {}", taskId);
+        }
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public ExactMatchCacheStatistics getStatistics() {
+        return new ExactMatchCacheStatistics(enabled, cache.size(), maxEntries, hits.get(), misses.get(),
+                                             cache.getEvictions(), cache.getRejections(), invalidations.get());
+    }
+
+    private boolean isReadable(String modelPath) {
+        try {
+            Path path = Paths.get(modelPath);
+            return Files.exists(path) && Files.isReadable(path);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 一级缓存条目
+     */
+    private static final class Entry {
+        final ModelTask task;
+        final String modelPath;
+        volatile long validatedAt;
+
+        Entry(ModelTask task, String modelPath, long validatedAt) {
+            this.task = task;
+            this.modelPath = modelPath;
+            this.validatedAt = validatedAt;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.service.GenerationExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 生成任务执行服务实现
+ * ThreadPoolExecutor + 有界队列：核心线程忙时任务排队，队列满时扩容到最大线程数，仍无法接收时拒绝。
+ * 排队等待时间和执行时间按指数滑动平均统计，用于估算 Retry-After
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class GenerationExecutorServiceImpl implements GenerationExecutorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationExecutorServiceImpl.class);
+
+    /** 滑动平均的新样本权重 */
+    private static final double EWMA_ALPHA = 0.2;
+    private static final long MAX_RETRY_AFTER_SECONDS = 600;
+
+    @Value("${cache.thread.pool.core.size:10}")
+    private int corePoolSize;
+
+    @Value("${cache.thread.pool.max.size:50}")
+    private int maxPoolSize;
+
+    @Value("${cache.thread.pool.queue.capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${cache.thread.pool.keep.alive.seconds:60}")
+    private long keepAliveSeconds;
+
+    /** 还没有执行记录时估算用的单任务时长 */
+    @Value("${cache.thread.pool.default-job-seconds:120}")
+    private long defaultJobSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicInteger runningJobs = new AtomicInteger(0);
+    private final AtomicLong submittedJobs = new AtomicLong(0);
+    private final AtomicLong startedJobs = new AtomicLong(0);
+    private final AtomicLong completedJobs = new AtomicLong(0);
+    private final AtomicLong rejectedJobs = new AtomicLong(0);
+    private final AtomicLong maxQueueWaitMillis = new AtomicLong(0);
+
+    private volatile double avgQueueWaitMillis;
+    private volatile double avgRunSeconds;
+
+    @PostConstruct
+    public void init() {
+        int core = Math.max(1, corePoolSize);
+        int max = Math.max(core, maxPoolSize);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(core, max, keepAliveSeconds, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread thread = new Thread(r, "model-generation-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Generation executor initialized: core={}, max={}, queueCapacity={}", core, max, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void submit(String taskId, Runnable job) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> run(taskId, job, enqueuedAt));
+            submittedJobs.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            rejectedJobs.incrementAndGet();
+            long retryAfter = estimateRetryAfterSeconds();
+            logger.warn("Generation queue full, rejecting task: taskId={}, queueDepth={}, retryAfter={}s",
+                        taskId, executor.getQueue().size(), retryAfter);
+            throw new QueueFullException("生成队列已满，请稍后重试", retryAfter);
+        }
+    }
+
+    @Override
+    public long estimateRetryAfterSeconds() {
+        double jobSeconds = completedJobs.get() > 0 ? avgRunSeconds : defaultJobSeconds;
+        int workers = Math.max(1, executor.getMaximumPoolSize());
+        // 排在队尾的任务要等前面的任务按并发度依次执行完
+        double waves = (double) executor.getQueue().size() / workers + 1.0;
+        long seconds = (long) Math.ceil(jobSeconds * waves);
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, seconds));
+    }
+
+    @Override
+    public ExecutorStatistics getStatistics() {
+        return new ExecutorStatistics(executor.getQueue().size(), queueCapacity, runningJobs.get(),
+                                      executor.getPoolSize(), executor.getMaximumPoolSize(),
+                                      submittedJobs.get(), completedJobs.get(), rejectedJobs.get(),
+                                      avgQueueWaitMillis, maxQueueWaitMillis.get(), avgRunSeconds);
+    }
+
+    private void run(String taskId, Runnable job, long enqueuedAt) {
+        long startedAt = System.nanoTime();
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(startedAt - enqueuedAt);
+        avgQueueWaitMillis = ewma(avgQueueWaitMillis, waitMillis, startedJobs.getAndIncrement() == 0);
+        maxQueueWaitMillis.accumulateAndGet(waitMillis, Math::max);
+        runningJobs.incrementAndGet();
+        try {
+            job.run();
+        } catch (Exception e) {
+            logger.error("Generation job failed: taskId={}", taskId, e);
+        } finally {
+            runningJobs.decrementAndGet();
+            double runSeconds = (System.nanoTime() - startedAt) / 1e9;
+            avgRunSeconds = ewma(avgRunSeconds, runSeconds, completedJobs.getAndIncrement() == 0);
+        }
+    }
+
+    private static double ewma(double current, double sample, boolean first) {
+        return first ? sample : current + EWMA_ALPHA * (sample - current);
+    }
+}
@@ -0,0 +1,358 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.entity.GenerationJob;
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.repository.GenerationJobRepository;
+import com.qiniu.model3d.repository.ModelTaskRepository;
+import com.qiniu.model3d.service.EvaluationService;
+import com.qiniu.model3d.service.GenerationExecutorService;
+import com.qiniu.model3d.service.GenerationJobQueueService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 持久化生成队列服务实现
+ * 认领为带版本号条件的单行 UPDATE，不依赖 SELECT ... FOR UPDATE SKIP LOCKED，H2 与 MySQL 行为一致；
+ * 多个节点同时认领同一作业时只有一个更新成功。后台线程负责认领、续约和清理：
+ * 本地生成线程池有空位时认领等待中或租约过期的作业，持有的作业按心跳间隔续约，
+ * 超时仍处于处理中且没有活动作业的任务（合并跟随任务、缓存复制任务等）标记为失败
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class GenerationJobQueueServiceImpl implements GenerationJobQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobQueueServiceImpl.class);
+
+    @Autowired
+    private GenerationJobRepository generationJobRepository;
+
+    @Autowired
+    private ModelTaskRepository modelTaskRepository;
+
+    @Autowired
+    private GenerationExecutorService generationExecutorService;
+
+    @Autowired
+    private EvaluationService evaluationService;
+
+    /** 节点标识，为空时使用主机名加随机后缀 */
+    @Value("${cache.job-queue.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${cache.job-queue.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${cache.job-queue.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${cache.job-queue.poll-interval-seconds:5}")
+    private long pollIntervalSeconds;
+
+    @Value("${cache.job-queue.claim-batch-size:10}")
+    private int claimBatchSize;
+
+    @Value("${cache.job-queue.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${cache.job-queue.task-timeout-minutes:30}")
+    private long taskTimeoutMinutes;
+
+    @Value("${cache.job-queue.retention-hours:24}")
+    private long retentionHours;
+
+    /** 全集群等待中作业的上限，超过后拒绝新任务；0 表示不限制 */
+    @Value("${cache.job-queue.max-pending:1000}")
+    private long maxPendingJobs;
+
+    private String nodeId;
+    private ScheduledExecutorService scheduler;
+    private volatile JobHandler jobHandler;
+
+    /** 本节点持有的作业：作业ID → 任务ID */
+    private final ConcurrentHashMap<Long, String> heldJobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong claimedJobs = new AtomicLong(0);
+    private final AtomicLong reclaimedJobs = new AtomicLong(0);
+    private final AtomicLong resumedJobs = new AtomicLong(0);
+    private final AtomicLong lostLeases = new AtomicLong(0);
+    private final AtomicLong abandonedJobs = new AtomicLong(0);
+    private final AtomicLong timedOutTasks = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        nodeId = StringUtils.hasText(configuredNodeId) ? configuredNodeId : defaultNodeId();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "generation-job-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::claimJobs, pollIntervalSeconds, pollIntervalSeconds, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::renewLeases, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::reapStaleTasks, 1, 5, TimeUnit.MINUTES);
+        logger.info("Generation job queue initialized: nodeId={}, leaseSeconds={}, heartbeatSeconds={}",
+                    nodeId, leaseSeconds, heartbeatSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        // 持有的作业不主动释放，租约过期后由其他节点接管并继续轮询已提交的上游任务
+    }
+
+    @Override
+    public void setJobHandler(JobHandler handler) {
+        this.jobHandler = handler;
+    }
+
+    @Override
+    public void enqueue(ModelTask task) {
+        GenerationJob job = new GenerationJob(task.getTaskId());
+        if (jobHandler == null || localSlots() <= 0) {
+            // 本地没有空位时作业保持等待状态，不指定持有节点，由任一有空位的节点认领
+            if (maxPendingJobs > 0
+                    && generationJobRepository.countByStatus(GenerationJob.JobStatus.PENDING) >= maxPendingJobs) {
+                throw new GenerationExecutorService.QueueFullException(
+                        "生成队列已满，请稍后重试", pollIntervalSeconds);
+            }
+            generationJobRepository.save(job);
+            logger.info("Local generation executor is full, job left pending: taskId={}", task.getTaskId());
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        job.setStatus(GenerationJob.JobStatus.RUNNING);
+        job.setOwnerId(nodeId);
+        job.setLeaseUntil(now.plusSeconds(leaseSeconds));
+        job.setAttempts(1);
+        job = generationJobRepository.save(job);
+        claimedJobs.incrementAndGet();
+
+        try {
+            submitLocally(job.getId(), task, null);
+        } catch (GenerationExecutorService.QueueFullException e) {
+            // 检查空位后线程池被其他提交占满，作业退回等待状态交给其他节点
+            generationJobRepository.release(job.getId(), nodeId, LocalDateTime.now());
+            logger.info("Local generation executor filled up, job released: taskId={}", task.getTaskId());
+        }
+    }
+
+    @Override
+    public boolean isHeldLocally(String taskId) {
+        return heldJobs.containsValue(taskId);
+    }
+
+    @Override
+    public JobQueueStatistics getStatistics() {
+        long pending = 0;
+        long running = 0;
+        try {
+            pending = generationJobRepository.countByStatus(GenerationJob.JobStatus.PENDING);
+            running = generationJobRepository.countByStatus(GenerationJob.JobStatus.RUNNING);
+        } catch (Exception e) {
+            logger.error("Failed to count generation jobs", e);
+        }
+        return new JobQueueStatistics(nodeId, pending, running, heldJobs.size(),
+                                      claimedJobs.get(), reclaimedJobs.get(), resumedJobs.get(),
+                                      lostLeases.get(), abandonedJobs.get(), timedOutTasks.get());
+    }
+
+    /**
+     * 认领等待中或租约过期的作业，数量不超过本地生成线程池的空闲容量
+     */
+    private void claimJobs() {
+        if (jobHandler == null) {
+            return;
+        }
+        try {
+            int slots = Math.min(claimBatchSize, localSlots());
+            if (slots <= 0) {
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<GenerationJob> candidates = generationJobRepository.findClaimable(now, PageRequest.of(0, slots));
+            for (GenerationJob job : candidates) {
+                if (!claim(job, now)) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to claim generation jobs", e);
+        }
+    }
+
+    /**
+     * 本地生成线程池的空闲容量
+     */
+    private int localSlots() {
+        GenerationExecutorService.ExecutorStatistics stats = generationExecutorService.getStatistics();
+        return stats.getMaxPoolSize() - stats.getRunningJobs() - stats.getQueueDepth();
+    }
+
+    /**
+     * 认领单个作业并提交到本地线程池
+     *
+     * @return false 表示本地线程池已满，停止本轮认领
+     */
+    private boolean claim(GenerationJob job, LocalDateTime now) {
+        boolean expired = job.getStatus() == GenerationJob.JobStatus.RUNNING;
+        if (generationJobRepository.claim(job.getId(), job.getVersion(), nodeId,
+                                          now.plusSeconds(leaseSeconds), now) == 0) {
+            // 被其他节点抢先认领
+            return true;
+        }
+        claimedJobs.incrementAndGet();
+        if (expired) {
+            reclaimedJobs.incrementAndGet();
+            logger.warn("Reclaimed generation job with expired lease: taskId={}, previousOwner={}, upstreamJobId={}",
+                        job.getTaskId(), job.getOwnerId(), job.getUpstreamJobId());
+        }
+
+        Optional<ModelTask> task = modelTaskRepository.findByTaskId(job.getTaskId());
+        if (!task.isPresent() || isTerminal(task.get().getStatus())) {
+            generationJobRepository.finish(job.getId(), nodeId, LocalDateTime.now());
+            return true;
+        }
+        if (job.getAttempts() + 1 > maxAttempts) {
+            abandonedJobs.incrementAndGet();
+            failTask(task.get(), "生成任务多次中断，已放弃");
+            generationJobRepository.finish(job.getId(), nodeId, LocalDateTime.now());
+            return true;
+        }
+        if (job.getUpstreamJobId() != null) {
+            resumedJobs.incrementAndGet();
+        }
+
+        try {
+            submitLocally(job.getId(), task.get(), job.getUpstreamJobId());
+            return true;
+        } catch (GenerationExecutorService.QueueFullException e) {
+            generationJobRepository.release(job.getId(), nodeId, LocalDateTime.now());
+            return false;
+        }
+    }
+
+    private void submitLocally(Long jobId, ModelTask task, String upstreamJobId) {
+        heldJobs.put(jobId, task.getTaskId());
+        try {
+            generationExecutorService.submit(task.getTaskId(), () -> runJob(jobId, task, upstreamJobId));
+        } catch (RuntimeException e) {
+            heldJobs.remove(jobId);
+            throw e;
+        }
+    }
+
+    private void runJob(Long jobId, ModelTask task, String upstreamJobId) {
+        try {
+            jobHandler.execute(task, upstreamJobId, id -> recordUpstreamJob(jobId, task.getTaskId(), id));
+        } finally {
+            heldJobs.remove(jobId);
+            if (generationJobRepository.finish(jobId, nodeId, LocalDateTime.now()) == 0) {
+                logger.warn("Generation job lease was lost before completion: taskId={}", task.getTaskId());
+            }
+        }
+    }
+
+    private void recordUpstreamJob(Long jobId, String taskId, String upstreamJobId) {
+        try {
+            generationJobRepository.updateUpstreamJobId(jobId, nodeId, upstreamJobId, LocalDateTime.now());
+        } catch (Exception e) {
+            logger.warn("Failed to record upstream job id: taskId={}, upstreamJobId={}", taskId, upstreamJobId, e);
+        }
+    }
+
+    /**
+     * 为本节点持有的作业续约；续约失败说明租约已过期并被其他节点接管
+     */
+    private void renewLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Long jobId : heldJobs.keySet()) {
+            try {
+                if (generationJobRepository.renewLease(jobId, nodeId, now.plusSeconds(leaseSeconds), now) == 0) {
+                    String taskId = heldJobs.remove(jobId);
+                    if (taskId != null) {
+                        lostLeases.incrementAndGet();
+                        logger.warn("Lost lease on generation job: taskId={}", taskId);
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("Failed to renew generation job lease: jobId={}", jobId, e);
+            }
+        }
+    }
+
+    /**
+     * 清理过期作业记录，并将超时且没有活动作业的处理中任务标记为失败
+     */
+    private void reapStaleTasks() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            generationJobRepository.deleteFinishedBefore(now.minusHours(retentionHours));
+
+            for (ModelTask task : modelTaskRepository.findTimeoutTasks(now.minusMinutes(taskTimeoutMinutes))) {
+                Optional<GenerationJob> job = generationJobRepository.findByTaskId(task.getTaskId());
+                if (job.isPresent() && job.get().getStatus() != GenerationJob.JobStatus.DONE) {
+                    // 仍在队列中，由租约机制接管
+                    continue;
+                }
+                timedOutTasks.incrementAndGet();
+                failTask(task, "任务处理超时");
+                logger.warn("Marked stale processing task as failed: taskId={}, updatedAt={}",
+                            task.getTaskId(), task.getUpdatedAt());
+            }
+        } catch (Exception e) {
+            logger.error("Failed to reap stale generation tasks", e);
+        }
+    }
+
+    private void failTask(ModelTask task, String reason) {
+        task.setStatus(ModelTask.TaskStatus.FAILED);
+        task.setErrorMessage(reason);
+        task.setUpdatedAt(LocalDateTime.now());
+        modelTaskRepository.save(task);
+
+        try {
+            evaluationService.updateTaskStatus(task.getTaskId(), "FAILED", LocalDateTime.now(), reason);
+        } catch (Exception e) {
+            logger.warn("更新TaskEvaluation状态失败: {}", task.getTaskId(), e);
+        }
+    }
+
+    private static boolean isTerminal(ModelTask.TaskStatus status) {
+        return status == ModelTask.TaskStatus.COMPLETED
+            || status == ModelTask.TaskStatus.FAILED
+            || status == ModelTask.TaskStatus.EXPIRED;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
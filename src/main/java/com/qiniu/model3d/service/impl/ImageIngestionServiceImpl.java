@@ -0,0 +1,153 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.service.ImageIngestionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+
+/**
+ * 上传图片接收服务实现
+ * 上传流按固定大小的缓冲区读入：第一块数据用于识别文件头，每块数据同时更新 MD5 并写入上传目录下的临时文件，
+ * 读完后按「MD5.扩展名」原子重命名。同一内容已存在时丢弃临时文件，复用已有文件。
+ * MD5 与之前按文件内容计算的图片哈希一致，缓存键保持不变
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class ImageIngestionServiceImpl implements ImageIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageIngestionServiceImpl.class);
+
+    /** 识别文件头需要的字节数 */
+    private static final int SNIFF_LENGTH = 12;
+
+    @Value("${app.file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${app.file.max-file-size}")
+    private long maxFileSize;
+
+    @Override
+    public IngestedImage ingest(MultipartFile image) {
+        if (image == null || image.isEmpty()) {
+            throw new IllegalArgumentException("请选择要上传的图片文件");
+        }
+        if (image.getSize() > maxFileSize) {
+            throw new IllegalArgumentException("图片文件大小不能超过" + (maxFileSize / 1024 / 1024) + "MB");
+        }
+
+        Path temp = null;
+        try {
+            Path uploadPath = Paths.get(uploadDir);
+            if (!Files.exists(uploadPath)) {
+                Files.createDirectories(uploadPath);
+            }
+            temp = Files.createTempFile(uploadPath, ".upload.", ".part");
+
+            MessageDigest digest = ModelFileDownloader.md5();
+            byte[] buffer = new byte[ModelFileDownloader.BUFFER_SIZE];
+            String imageType = null;
+            long size = 0;
+            try (InputStream in = image.getInputStream(); OutputStream out = Files.newOutputStream(temp)) {
+                // 先读满文件头再识别类型，不是图片时不再读取剩余内容
+                int head = readAtLeast(in, buffer, SNIFF_LENGTH);
+                imageType = sniffImageType(buffer, head);
+                if (imageType == null) {
+                    throw new IllegalArgumentException("不支持的图片格式，请上传JPG、PNG、GIF、BMP或WebP格式的图片");
+                }
+                int read = head;
+                while (read > 0) {
+                    size += read;
+                    if (size > maxFileSize) {
+                        throw new IllegalArgumentException("图片文件大小不能超过" + (maxFileSize / 1024 / 1024) + "MB");
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    read = in.read(buffer);
+                }
+            }
+
+            String contentHash = ModelFileDownloader.toHex(digest.digest());
+            Path target = uploadPath.resolve(contentHash + "." + imageType);
+            if (Files.exists(target)) {
+                logger.debug("相同内容的图片已存在，复用: {}", target);
+            } else {
+                // 并发上传相同内容时后到的覆盖先到的，内容一致
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                temp = null;
+            }
+            return new IngestedImage(target, contentHash, imageType, size);
+
+        } catch (IOException e) {
+            logger.error("保存上传图片失败", e);
+            throw new RuntimeException("图片保存失败", e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    logger.warn("删除上传临时文件失败: {}", temp, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取至少 minLength 个字节（流提前结束时读到多少算多少）
+     */
+    private static int readAtLeast(InputStream in, byte[] buffer, int minLength) throws IOException {
+        int total = 0;
+        while (total < minLength) {
+            int read = in.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * 按文件头识别图片类型
+     *
+     * @return jpg、png、gif、bmp、webp，无法识别时返回 null
+     */
+    static String sniffImageType(byte[] head, int length) {
+        if (length >= 3 && (head[0] & 0xff) == 0xFF && (head[1] & 0xff) == 0xD8 && (head[2] & 0xff) == 0xFF) {
+            return "jpg";
+        }
+        if (length >= 8 && (head[0] & 0xff) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G'
+                && head[4] == 0x0D && head[5] == 0x0A && head[6] == 0x1A && head[7] == 0x0A) {
+            return "png";
+        }
+        if (length >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8'
+                && (head[4] == '7' || head[4] == '9') && head[5] == 'a') {
+            return "gif";
+        }
+        if (length >= 2 && head[0] == 'B' && head[1] == 'M') {
+            return "bmp";
+        }
+        if (length >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "webp";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,523 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.dto.SubmitHunyuanTo3DJobRequest;
+import com.qiniu.model3d.dto.ViewImage;
+import com.qiniu.model3d.service.ImagePreprocessService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Node;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上游提交图片预处理服务实现
+ * 先只读图片头取得尺寸，已经是 JPEG 且不超过目标边长、或原图本来就很小时原样提交；
+ * 否则按整数倍源采样解码（只解出需要的像素），再缩放到最长边不超过目标边长，按设定质量编码为 JPEG。
+ * JPEG 按 EXIF Orientation 先旋转像素再缩放（输出不带元数据），方向标记无法读取时提交原图。
+ * 结果没有变小或解码失败时仍提交原图。
+ * 文件预处理结果保存在原图旁边（上传图片按内容哈希命名，相同图片只处理一次）；
+ * 不需要处理的图片记在有界登记表中，之后直接提交原图，不再重复解码
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class ImagePreprocessServiceImpl implements ImagePreprocessService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagePreprocessServiceImpl.class);
+
+    /** 滑动平均的新样本权重 */
+    private static final double EWMA_ALPHA = 0.2;
+    private static final String PREPARED_SUFFIX = ".upstream.jpg";
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final int APP1_MARKER = 0xE1;
+    private static final int ORIENTATION_TAG = 0x0112;
+    /** 方向标记无法读取 */
+    private static final int ORIENTATION_UNKNOWN = -1;
+
+    @Value("${app.image-preprocess.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.image-preprocess.max-edge:1024}")
+    private int maxEdge;
+
+    @Value("${app.image-preprocess.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    /** 原图不超过该大小时不处理 */
+    @Value("${app.image-preprocess.skip-below-bytes:262144}")
+    private long skipBelowBytes;
+
+    @Value("${app.image-preprocess.pool-size:0}")
+    private int poolSize;
+
+    @Value("${app.image-preprocess.queue-capacity:64}")
+    private int queueCapacity;
+
+    /** 记住不需要处理的图片数量上限 */
+    @Value("${app.image-preprocess.passthrough-cache-size:4096}")
+    private int passthroughCacheSize;
+
+    private ThreadPoolExecutor executor;
+
+    /** 不需要处理（或无法处理）的图片路径，按访问顺序淘汰 */
+    private final Object passthroughLock = new Object();
+    private Map<Path, Boolean> passthroughPaths;
+
+    private final AtomicLong processedImages = new AtomicLong(0);
+    private final AtomicLong passthroughImages = new AtomicLong(0);
+    private final AtomicLong failedImages = new AtomicLong(0);
+    private final AtomicLong originalBytes = new AtomicLong(0);
+    private final AtomicLong processedBytes = new AtomicLong(0);
+    private final AtomicLong submits = new AtomicLong(0);
+    private final AtomicLong maxSubmitMillis = new AtomicLong(0);
+
+    private volatile double avgProcessMillis;
+    private volatile double avgSubmitMillis;
+    private volatile double avgSubmitPayloadBytes;
+
+    @PostConstruct
+    public void init() {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列满时由提交线程自己处理，CPU 并发度仍受线程数和调用方数量限制
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread thread = new Thread(r, "image-preprocess-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        int capacity = Math.max(1, passthroughCacheSize);
+        passthroughPaths = new LinkedHashMap<Path, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+        logger.info("Image preprocess executor initialized: threads={}, maxEdge={}, quality={}, enabled={}",
+                    threads, maxEdge, jpegQuality, enabled);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public Path prepareFile(Path source) throws IOException {
+        long sourceSize = Files.size(source);
+        if (!enabled || sourceSize <= skipBelowBytes) {
+            passthroughImages.incrementAndGet();
+            return source;
+        }
+
+        String name = source.getFileName().toString();
+        int dotIndex = name.lastIndexOf('.');
+        Path prepared = source.resolveSibling((dotIndex > 0 ? name.substring(0, dotIndex) : name) + PREPARED_SUFFIX);
+        if (Files.exists(prepared)) {
+            return prepared;
+        }
+        synchronized (passthroughLock) {
+            if (passthroughPaths.get(source) != null) {
+                passthroughImages.incrementAndGet();
+                return source;
+            }
+        }
+
+        byte[] shrunk = await(executor.submit(() -> {
+            try (ImageInputStream in = new FileImageInputStream(source.toFile())) {
+                return shrink(in, sourceSize);
+            }
+        }));
+        if (shrunk == null) {
+            // 文件名即内容哈希，同一路径的结论不会变化
+            synchronized (passthroughLock) {
+                passthroughPaths.put(source, Boolean.TRUE);
+            }
+            return source;
+        }
+
+        Path temp = Files.createTempFile(source.getParent(), "." + name + ".", ".part");
+        try {
+            Files.write(temp, shrunk);
+            try {
+                Files.move(temp, prepared, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, prepared, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return prepared;
+    }
+
+    @Override
+    public void prepareRequest(SubmitHunyuanTo3DJobRequest request) {
+        if (!enabled || request == null) {
+            return;
+        }
+
+        // 主图和各视角图片同时提交，全部完成后再替换字段
+        Future<String> mainImage = null;
+        if (StringUtils.hasText(request.getImageBase64())) {
+            String imageBase64 = request.getImageBase64();
+            mainImage = executor.submit(() -> prepareBase64(imageBase64));
+        }
+        List<ViewImage> views = new ArrayList<>();
+        List<Future<String>> viewImages = new ArrayList<>();
+        if (request.getMultiViewImages() != null) {
+            for (ViewImage view : request.getMultiViewImages()) {
+                if (view != null && StringUtils.hasText(view.getImageBase64())) {
+                    String imageBase64 = view.getImageBase64();
+                    views.add(view);
+                    viewImages.add(executor.submit(() -> prepareBase64(imageBase64)));
+                }
+            }
+        }
+
+        try {
+            if (mainImage != null) {
+                request.setImageBase64(await(mainImage));
+            }
+            for (int i = 0; i < views.size(); i++) {
+                views.get(i).setImageBase64(await(viewImages.get(i)));
+            }
+        } catch (IOException e) {
+            // prepareBase64 自身不抛出异常，这里只可能是等待被中断
+            logger.warn("等待图片预处理被中断，提交剩余原图: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void recordSubmit(long payloadBytes, long latencyMillis) {
+        boolean first = submits.getAndIncrement() == 0;
+        avgSubmitMillis = ewma(avgSubmitMillis, latencyMillis, first);
+        avgSubmitPayloadBytes = ewma(avgSubmitPayloadBytes, payloadBytes, first);
+        maxSubmitMillis.accumulateAndGet(latencyMillis, Math::max);
+    }
+
+    @Override
+    public PreprocessStatistics getStatistics() {
+        return new PreprocessStatistics(processedImages.get(), passthroughImages.get(), failedImages.get(),
+                                        originalBytes.get(), processedBytes.get(), avgProcessMillis,
+                                        submits.get(), avgSubmitMillis, maxSubmitMillis.get(), avgSubmitPayloadBytes);
+    }
+
+    /**
+     * 预处理 Base64 图片；任何失败都返回原值
+     */
+    private String prepareBase64(String imageBase64) {
+        // Base64 每 4 个字符对应 3 个字节
+        if ((long) imageBase64.length() / 4 * 3 <= skipBelowBytes) {
+            passthroughImages.incrementAndGet();
+            return imageBase64;
+        }
+        byte[] original;
+        try {
+            original = Base64.getMimeDecoder().decode(imageBase64);
+        } catch (IllegalArgumentException e) {
+            passthroughImages.incrementAndGet();
+            return imageBase64;
+        }
+        try (ImageInputStream in = new MemoryCacheImageInputStream(new ByteArrayInputStream(original))) {
+            byte[] shrunk = shrink(in, original.length);
+            return shrunk != null ? Base64.getEncoder().encodeToString(shrunk) : imageBase64;
+        } catch (IOException e) {
+            return imageBase64;
+        }
+    }
+
+    /**
+     * 缩小并重新编码为 JPEG
+     *
+     * @return 处理后的 JPEG 字节；不需要处理、无法解码或没有变小时返回 null
+     */
+    byte[] shrink(ImageInputStream in, long sourceSize) {
+        long startedAt = System.nanoTime();
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            passthroughImages.incrementAndGet();
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            boolean jpeg = "jpeg".equalsIgnoreCase(reader.getFormatName()) || "jpg".equalsIgnoreCase(reader.getFormatName());
+            // 只有 JPEG 需要读取元数据（EXIF 方向）
+            reader.setInput(in, true, !jpeg);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            int longestEdge = Math.max(width, height);
+            if (jpeg && longestEdge <= maxEdge) {
+                passthroughImages.incrementAndGet();
+                return null;
+            }
+            int orientation = jpeg ? exifOrientation(reader) : 1;
+            if (orientation == ORIENTATION_UNKNOWN) {
+                passthroughImages.incrementAndGet();
+                return null;
+            }
+
+            // 整数倍源采样，采样后最长边仍不小于目标边长，最后一步缩放保证质量
+            int subsampling = Math.max(1, longestEdge / Math.max(1, maxEdge));
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            BufferedImage decoded = reader.read(0, param);
+
+            byte[] encoded = encodeJpeg(scaleToRgb(orient(decoded, orientation)));
+            if (encoded.length >= sourceSize) {
+                passthroughImages.incrementAndGet();
+                return null;
+            }
+
+            processedImages.incrementAndGet();
+            originalBytes.addAndGet(sourceSize);
+            processedBytes.addAndGet(encoded.length);
+            double millis = (System.nanoTime() - startedAt) / 1e6;
+            avgProcessMillis = ewma(avgProcessMillis, millis, processedImages.get() == 1);
+            logger.debug("图片预处理完成: {}x{} -> 最长边 {}, {} -> {} bytes, {} ms",
+                         width, height, Math.min(longestEdge, maxEdge), sourceSize, encoded.length, (long) millis);
+            return encoded;
+        } catch (IOException | RuntimeException e) {
+            // 例如 CMYK JPEG 等 ImageIO 无法解码的图片，交给上游处理原图
+            failedImages.incrementAndGet();
+            logger.warn("图片预处理失败，提交原图: {}", e.getMessage());
+            return null;
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * 读取 JPEG APP1 段中 EXIF 的 Orientation 标记
+     *
+     * @return 1-8；没有 EXIF 或没有该标记时返回 1，元数据无法解析时返回 ORIENTATION_UNKNOWN
+     */
+    private static int exifOrientation(ImageReader reader) {
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            if (metadata == null) {
+                return ORIENTATION_UNKNOWN;
+            }
+            Node root = metadata.getAsTree(JPEG_METADATA_FORMAT);
+            for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (!"markerSequence".equals(child.getNodeName())) {
+                    continue;
+                }
+                for (Node marker = child.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                    Node tag = marker.getAttributes() != null ? marker.getAttributes().getNamedItem("MarkerTag") : null;
+                    if ("unknown".equals(marker.getNodeName()) && tag != null
+                            && Integer.parseInt(tag.getNodeValue()) == APP1_MARKER) {
+                        Object data = ((IIOMetadataNode) marker).getUserObject();
+                        if (data instanceof byte[] && isExif((byte[]) data)) {
+                            return orientationFromExif((byte[]) data);
+                        }
+                    }
+                }
+            }
+            return 1;
+        } catch (IOException | RuntimeException e) {
+            return ORIENTATION_UNKNOWN;
+        }
+    }
+
+    private static boolean isExif(byte[] data) {
+        return data.length >= 6 && data[0] == 'E' && data[1] == 'x' && data[2] == 'i' && data[3] == 'f'
+            && data[4] == 0 && data[5] == 0;
+    }
+
+    /**
+     * 在 "Exif\0\0" 之后的 TIFF 结构中查找第一个 IFD 的 Orientation 项
+     */
+    private static int orientationFromExif(byte[] data) {
+        int tiff = 6;
+        if (data.length < tiff + 8) {
+            return ORIENTATION_UNKNOWN;
+        }
+        boolean littleEndian;
+        if (data[tiff] == 'I' && data[tiff + 1] == 'I') {
+            littleEndian = true;
+        } else if (data[tiff] == 'M' && data[tiff + 1] == 'M') {
+            littleEndian = false;
+        } else {
+            return ORIENTATION_UNKNOWN;
+        }
+        long ifd = tiff + readInt(data, tiff + 4, littleEndian);
+        if (ifd + 2 > data.length) {
+            return ORIENTATION_UNKNOWN;
+        }
+        int entries = readShort(data, (int) ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > data.length) {
+                return ORIENTATION_UNKNOWN;
+            }
+            if (readShort(data, entry, littleEndian) == ORIENTATION_TAG) {
+                int value = readShort(data, entry + 8, littleEndian);
+                return value >= 1 && value <= 8 ? value : ORIENTATION_UNKNOWN;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xff;
+        int b1 = data[offset + 1] & 0xff;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static long readInt(byte[] data, int offset, boolean littleEndian) {
+        long high = readShort(data, littleEndian ? offset + 2 : offset, littleEndian);
+        long low = readShort(data, littleEndian ? offset : offset + 2, littleEndian);
+        return (high << 16) | low;
+    }
+
+    /**
+     * 按 EXIF Orientation 旋转或翻转像素，得到正常显示方向的图片
+     */
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = orientation >= 5;
+        // 目标坐标 x' = m00·x + m01·y + m02，y' = m10·x + m11·y + m12
+        AffineTransform transform;
+        switch (orientation) {
+            case 2:
+                transform = new AffineTransform(-1, 0, 0, 1, width, 0);
+                break;
+            case 3:
+                transform = new AffineTransform(-1, 0, 0, -1, width, height);
+                break;
+            case 4:
+                transform = new AffineTransform(1, 0, 0, -1, 0, height);
+                break;
+            case 5:
+                transform = new AffineTransform(0, 1, 1, 0, 0, 0);
+                break;
+            case 6:
+                transform = new AffineTransform(0, 1, -1, 0, height, 0);
+                break;
+            case 7:
+                transform = new AffineTransform(0, -1, -1, 0, height, width);
+                break;
+            default:
+                transform = new AffineTransform(0, -1, 1, 0, 0, width);
+                break;
+        }
+        BufferedImage target = new BufferedImage(swap ? height : width, swap ? width : height,
+                                                 BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * 缩放到最长边不超过目标边长，并转为不透明 RGB（透明区域填白色）
+     */
+    private BufferedImage scaleToRgb(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, targetWidth, targetHeight);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(buffer)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Math.max(0.1f, Math.min(1.0f, jpegQuality)));
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return buffer.toByteArray();
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("图片预处理被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause
+                : new IOException("图片预处理失败: " + (cause != null ? cause.getMessage() : e.getMessage()), cause);
+        }
+    }
+
+    private static double ewma(double current, double sample, boolean first) {
+        return first ? sample : current + EWMA_ALPHA * (sample - current);
+    }
+}
@@ -0,0 +1,243 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.repository.ModelTaskRepository;
+import com.qiniu.model3d.service.InputHashFilterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 输入哈希过滤器服务实现
+ * 成员为已完成且未被淘汰（cached 不为 false）的任务的查找键。启动时在后台从数据库重建，
+ * 重建完成前 mightContain 始终返回 true；元素数超过容量时按当前规模在后台重建。
+ * 重建期间的增删会记录下来并回放到新过滤器。
+ * 在事务中调用的增删在提交后才生效：回滚的增加不会留下多余计数，回滚的删除也不会让仍存在的任务被判定为不存在
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class InputHashFilterServiceImpl implements InputHashFilterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InputHashFilterServiceImpl.class);
+
+    @Autowired
+    private ModelTaskRepository taskRepository;
+
+    @Value("${cache.bloom.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.bloom.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    @Value("${cache.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile CountingBloomFilter filter;
+    private volatile long capacity;
+    private volatile boolean ready;
+    private volatile Queue<Change> rebuildLog;
+
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+    private final AtomicLong queries = new AtomicLong(0);
+    private final AtomicLong negatives = new AtomicLong(0);
+
+    private ExecutorService rebuildExecutor;
+
+    @PostConstruct
+    public void init() {
+        capacity = Math.max(1, expectedInsertions);
+        filter = new CountingBloomFilter(capacity, falsePositiveRate);
+        if (!enabled) {
+            return;
+        }
+        rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "input-hash-filter-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean mightContain(String lookupKey) {
+        if (!enabled || !ready || lookupKey == null) {
+            return true;
+        }
+        queries.incrementAndGet();
+        if (filter.mightContain(lookupKey)) {
+            return true;
+        }
+        negatives.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void add(ModelTask task) {
+        if (task != null) {
+            String lookupKey = lookupKey(task);
+            afterCommit(() -> addKey(lookupKey));
+        }
+    }
+
+    @Override
+    public void remove(ModelTask task) {
+        if (task != null) {
+            String lookupKey = lookupKey(task);
+            afterCommit(() -> removeKey(lookupKey));
+        }
+    }
+
+    @Override
+    public void replace(String inputHash, String requestKey) {
+        afterCommit(() -> {
+            removeKey(inputHash);
+            addKey(requestKey);
+        });
+    }
+
+    /**
+     * 有活动事务时在提交后执行，否则立即执行
+     */
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    @Override
+    public synchronized int rebuild() {
+        if (!enabled) {
+            return 0;
+        }
+        Queue<Change> log = new ConcurrentLinkedQueue<>();
+        rebuildLog = log;
+        try {
+            List<String> keys = taskRepository.findCachedLookupKeys();
+            long newCapacity = Math.max(expectedInsertions, keys.size() * 2L);
+            CountingBloomFilter rebuilt = new CountingBloomFilter(newCapacity, falsePositiveRate);
+            for (String key : keys) {
+                rebuilt.add(key);
+            }
+            filter = rebuilt;
+            capacity = newCapacity;
+            rebuildLog = null;
+            // 回放重建期间的增删（可能与直接写入新过滤器重复，只会略增误判）
+            Change change;
+            while ((change = log.poll()) != null) {
+                if (change.added) {
+                    rebuilt.add(change.lookupKey);
+                } else {
+                    rebuilt.remove(change.lookupKey);
+                }
+            }
+            ready = true;
+            logger.info("Input hash filter rebuilt: entries={}, capacity={}, counters={}, hashFunctions={}, memory={} bytes",
+                        rebuilt.getEntries(), newCapacity, rebuilt.getCounterCount(),
+                        rebuilt.getHashCount(), rebuilt.getMemoryBytes());
+            return keys.size();
+        } catch (Exception e) {
+            rebuildLog = null;
+            logger.error("Error rebuilding input hash filter", e);
+            return -1;
+        }
+    }
+
+    @Override
+    public FilterStatistics getStatistics() {
+        CountingBloomFilter current = filter;
+        return new FilterStatistics(enabled, ready, current.getEntries(), capacity, current.getCounterCount(),
+                                    current.getHashCount(), current.expectedFalsePositiveRate(),
+                                    current.getMemoryBytes(), queries.get(), negatives.get());
+    }
+
+    private void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildExecutor.execute(() -> {
+                try {
+                    rebuild();
+                } finally {
+                    rebuildScheduled.set(false);
+                }
+            });
+        } catch (Exception e) {
+            rebuildScheduled.set(false);
+            logger.warn("Failed to schedule input hash filter rebuild: {}", e.getMessage());
+        }
+    }
+
+    private static String lookupKey(ModelTask task) {
+        return task.getRequestKey() != null ? task.getRequestKey() : task.getInputHash();
+    }
+
+    private void addKey(String lookupKey) {
+        if (!enabled || lookupKey == null) {
+            return;
+        }
+        Queue<Change> log = rebuildLog;
+        if (log != null) {
+            log.add(new Change(lookupKey, true));
+        }
+        CountingBloomFilter current = filter;
+        current.add(lookupKey);
+        if (ready && current.getEntries() > capacity) {
+            scheduleRebuild();
+        }
+    }
+
+    private void removeKey(String lookupKey) {
+        if (!enabled || lookupKey == null) {
+            return;
+        }
+        Queue<Change> log = rebuildLog;
+        if (log != null) {
+            log.add(new Change(lookupKey, false));
+        }
+        filter.remove(lookupKey);
+    }
+
+    /**
+     * 重建期间发生的增删
+     */
+    private static final class Change {
+        final String lookupKey;
+        final boolean added;
+
+        Change(String lookupKey, boolean added) {
+            this.lookupKey = lookupKey;
+            this.added = added;
+        }
+    }
+}
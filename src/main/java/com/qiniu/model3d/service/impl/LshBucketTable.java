@@ -0,0 +1,112 @@
+package com.qiniu.model3d.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * LSH分桶表
+ * (band, 桶哈希) 经开放寻址映射到链表头，链表节点以并行int数组保存，
+ * 避免为每个桶创建对象；调用方需自行加锁
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class LshBucketTable {
+
+    private static final int NONE = -1;
+
+    private long[] keys = new long[64];
+    private int[] heads = new int[64];
+    private int bucketCount;
+
+    private int[] entryDocs = new int[64];
+    private int[] entryNext = new int[64];
+    private int entryCount;
+
+    LshBucketTable() {
+        Arrays.fill(heads, NONE);
+    }
+
+    void add(int docId, int[] bandHashes) {
+        for (int band = 0; band < bandHashes.length; band++) {
+            if (bucketCount * 2 >= keys.length) {
+                resize();
+            }
+
+            long key = key(band, bandHashes[band]);
+            int slot = findSlot(keys, key);
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                bucketCount++;
+            }
+
+            if (entryCount == entryDocs.length) {
+                entryDocs = Arrays.copyOf(entryDocs, entryCount * 2);
+                entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+            }
+            entryDocs[entryCount] = docId;
+            entryNext[entryCount] = heads[slot];
+            heads[slot] = entryCount++;
+        }
+    }
+
+    /**
+     * 返回桶链表的首个节点，不存在时返回-1
+     */
+    int head(int band, int bandHash) {
+        long key = key(band, bandHash);
+        int slot = findSlot(keys, key);
+        return keys[slot] == key ? heads[slot] : NONE;
+    }
+
+    int doc(int entry) {
+        return entryDocs[entry];
+    }
+
+    int next(int entry) {
+        return entryNext[entry];
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(heads, NONE);
+        bucketCount = 0;
+        entryCount = 0;
+    }
+
+    int getBucketCount() {
+        return bucketCount;
+    }
+
+    long estimateMemoryBytes() {
+        return keys.length * 12L + entryDocs.length * 8L;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        keys = new long[oldKeys.length * 2];
+        heads = new int[oldKeys.length * 2];
+        Arrays.fill(heads, NONE);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = findSlot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    private static int findSlot(long[] table, long key) {
+        int mask = table.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (table[slot] != 0 && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long key(int band, int bandHash) {
+        // band从1开始编码，保证key不为0（0表示空槽）
+        return ((long) (band + 1) << 32) | (bandHash & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,137 @@
+package com.qiniu.model3d.service.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * MinHash签名工具
+ * 对字符二元组集合计算固定长度的MinHash签名，签名以Base64形式持久化在 model_tasks.minhash_signature 中，
+ * LSH分桶参数（bands × rows）只需不超过签名长度即可调整，无需重算已持久化的签名
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class MinHash {
+
+    /** 签名长度（哈希函数个数） */
+    static final int NUM_HASHES = 64;
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private static final long[] MULTIPLIERS = new long[NUM_HASHES];
+    private static final long[] ADDENDS = new long[NUM_HASHES];
+
+    static {
+        long state = SEED;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            MULTIPLIERS[i] = mix64(state) | 1L;
+            state += 0x9E3779B97F4A7C15L;
+            ADDENDS[i] = mix64(state);
+        }
+    }
+
+    private MinHash() {
+    }
+
+    /**
+     * 计算MinHash签名
+     *
+     * @param shingles 排序去重后的二元组编码
+     * @return 长度为 NUM_HASHES 的签名
+     */
+    static int[] signature(int[] shingles) {
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int shingle : shingles) {
+            long x = shingle & 0xFFFFFFFFL;
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int h = (int) ((MULTIPLIERS[i] * x + ADDENDS[i]) >>> 32);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * 以签名一致位的比例估计Jaccard相似度
+     */
+    static double estimateJaccard(int[] signature1, int[] signature2) {
+        if (signature1 == null || signature2 == null || signature1.length != signature2.length
+                || signature1.length == 0) {
+            return 0.0;
+        }
+
+        int equal = 0;
+        for (int i = 0; i < signature1.length; i++) {
+            if (signature1[i] == signature2[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / signature1.length;
+    }
+
+    /**
+     * 将签名划分为 bands 段，每段 rows 个值，计算各段的桶哈希
+     */
+    static int[] bandHashes(int[] signature, int bands, int rows) {
+        int[] hashes = new int[bands];
+        for (int band = 0; band < bands; band++) {
+            long h = band;
+            int offset = band * rows;
+            for (int row = 0; row < rows; row++) {
+                h = h * 0x100000001B3L + signature[offset + row];
+            }
+            hashes[band] = (int) mix64(h);
+        }
+        return hashes;
+    }
+
+    /**
+     * 签名在相似度为 jaccard 时至少落入同一个桶的概率：1 - (1 - s^r)^b
+     */
+    static double collisionProbability(double jaccard, int bands, int rows) {
+        return 1.0 - Math.pow(1.0 - Math.pow(jaccard, rows), bands);
+    }
+
+    static String encode(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * 4);
+        for (int value : signature) {
+            buffer.putInt(value);
+        }
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    /**
+     * 解码持久化的签名，格式或长度不符时返回null
+     */
+    static int[] decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return null;
+        }
+
+        try {
+            byte[] bytes = Base64.getDecoder().decode(encoded);
+            if (bytes.length != NUM_HASHES * 4) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int[] signature = new int[NUM_HASHES];
+            for (int i = 0; i < NUM_HASHES; i++) {
+                signature[i] = buffer.getInt();
+            }
+            return signature;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,218 @@
+package com.qiniu.model3d.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 模型文件流式下载
+ * 响应体经通道按固定大小的缓冲区写入目标目录下的临时文件，同一遍读取中计算 MD5 和字节数，
+ * 写完后原子重命名为目标文件；失败时删除临时文件，目标路径上不会出现不完整的文件。
+ * MD5 与 CacheService.calculateFileSignature 的文件签名一致。
+ * 可选的 ProgressListener 在临时文件创建和每次写盘后收到通知，其他线程可以边下载边读取临时文件，下载不等待读取方
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class ModelFileDownloader {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int CONNECT_TIMEOUT_MS = 30000;
+    private static final int READ_TIMEOUT_MS = 60000;
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private ModelFileDownloader() {
+    }
+
+    /**
+     * 下载文件到目标目录
+     *
+     * @param fileUrl 文件URL
+     * @param targetDir 目标目录，临时文件也建在这里，保证重命名不跨文件系统
+     * @param filename 目标文件名
+     * @param maxBytes 允许的最大字节数，小于等于0表示不限制
+     * @return 下载结果
+     */
+    static DownloadedFile download(String fileUrl, Path targetDir, String filename, long maxBytes) throws IOException {
+        return download(fileUrl, targetDir, filename, maxBytes, null);
+    }
+
+    /**
+     * 下载文件到目标目录，写盘进度通知 listener
+     *
+     * @param listener 下载进度监听，可以为 null；回调在下载线程中执行，不能阻塞
+     */
+    static DownloadedFile download(String fileUrl, Path targetDir, String filename, long maxBytes,
+                                   ProgressListener listener) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(fileUrl).openConnection();
+        try {
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            // 设置User-Agent，避免某些服务器拒绝请求
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new HttpStatusException(responseCode);
+            }
+            long declaredLength = connection.getContentLengthLong();
+            if (maxBytes > 0 && declaredLength > maxBytes) {
+                throw new FileTooLargeException("文件过大: " + declaredLength + " bytes，上限 " + maxBytes + " bytes");
+            }
+
+            try (InputStream inputStream = connection.getInputStream()) {
+                return save(inputStream, targetDir, filename, maxBytes, declaredLength, listener);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * 将输入流写入目标目录：临时文件 + 原子重命名，同时计算 MD5 和字节数
+     */
+    static DownloadedFile save(InputStream inputStream, Path targetDir, String filename, long maxBytes) throws IOException {
+        return save(inputStream, targetDir, filename, maxBytes, -1, null);
+    }
+
+    private static DownloadedFile save(InputStream inputStream, Path targetDir, String filename, long maxBytes,
+                                       long declaredLength, ProgressListener listener) throws IOException {
+        Path target = targetDir.resolve(filename);
+        Path temp = Files.createTempFile(targetDir, "." + filename + ".", ".part");
+        boolean moved = false;
+        try {
+            if (listener != null) {
+                listener.started(temp, declaredLength);
+            }
+            MessageDigest digest = md5();
+            long size = 0;
+            ReadableByteChannel source = Channels.newChannel(inputStream);
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    if (maxBytes > 0 && size > maxBytes) {
+                        throw new FileTooLargeException("文件过大，超过上限 " + maxBytes + " bytes");
+                    }
+                    digest.update(buffer.array(), 0, buffer.limit());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                    if (listener != null) {
+                        listener.written(size);
+                    }
+                }
+                out.force(false);
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+            return new DownloadedFile(target, size, toHex(digest.digest()));
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 下载进度监听，例如边下载边读取临时文件回传给客户端的一方
+     */
+    interface ProgressListener {
+
+        /**
+         * 临时文件创建后、写入响应体之前调用一次；下载成功后临时文件重命名为目标文件，失败时删除
+         *
+         * @param tempFile 临时文件
+         * @param contentLength 响应声明的长度，未知时为 -1
+         */
+        void started(Path tempFile, long contentLength);
+
+        /**
+         * 每次写盘后调用
+         *
+         * @param bytesOnDisk 已写入临时文件的字节数
+         */
+        void written(long bytesOnDisk);
+    }
+
+    /**
+     * 服务端返回非 200 响应码
+     */
+    static final class HttpStatusException extends IOException {
+        private final int statusCode;
+
+        HttpStatusException(int statusCode) {
+            super("下载文件失败，HTTP响应码: " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        int getStatusCode() { return statusCode; }
+    }
+
+    /**
+     * 文件超过允许的最大字节数
+     */
+    static final class FileTooLargeException extends IOException {
+        FileTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 下载结果
+     */
+    static final class DownloadedFile {
+        private final Path path;
+        private final long size;
+        private final String signature;
+
+        DownloadedFile(Path path, long size, String signature) {
+            this.path = path;
+            this.size = size;
+            this.signature = signature;
+        }
+
+        Path getPath() { return path; }
+        long getSize() { return size; }
+        String getSignature() { return signature; }
+    }
+}
@@ -0,0 +1,290 @@
+package com.qiniu.model3d.service.impl;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 请求哈希计算
+ * <ul>
+ *   <li>输入哈希：inputText|type|complexity|format 的 SHA-256 十六进制串，与历史记录保持一致；
+ *       复用线程内的摘要和缓冲区，按字符直接编码 UTF-8，不拼接中间字符串</li>
+ *   <li>规范请求键：小写并合并空白、去掉首尾空白后的文本，加上类型、复杂度、格式的枚举序号，
+ *       以 128 位 MurmurHash3 直接按字符计算，输出32位十六进制串</li>
+ * </ul>
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class RequestHashing {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<DigestWorkspace> DIGEST = ThreadLocal.withInitial(DigestWorkspace::new);
+    private static final ThreadLocal<Murmur3> MURMUR = ThreadLocal.withInitial(Murmur3::new);
+
+    private RequestHashing() {
+    }
+
+    /**
+     * 输入哈希（SHA-256），结果与 (inputText + "|" + type + "|" + complexity + "|" + format) 的摘要相同
+     */
+    static String inputHash(String inputText, Object taskType, String complexity, String outputFormat) {
+        DigestWorkspace workspace = DIGEST.get();
+        workspace.reset();
+        workspace.append(String.valueOf(inputText));
+        workspace.append('|');
+        workspace.append(String.valueOf(taskType));
+        workspace.append('|');
+        if (complexity != null) {
+            workspace.append(complexity);
+        }
+        workspace.append('|');
+        if (outputFormat != null) {
+            workspace.append(outputFormat);
+        }
+        return workspace.finish();
+    }
+
+    /**
+     * 规范请求键
+     *
+     * @param inputText 输入文本，null 视为空文本
+     * @param typeOrdinal 任务类型序号，未知为 -1
+     * @param complexityOrdinal 复杂度序号，未知为 -1
+     * @param formatOrdinal 输出格式序号，未知为 -1
+     */
+    static String requestKey(String inputText, int typeOrdinal, int complexityOrdinal, int formatOrdinal) {
+        Murmur3 hasher = MURMUR.get();
+        hasher.reset();
+
+        int length = inputText != null ? inputText.length() : 0;
+        boolean pendingSpace = false;
+        boolean started = false;
+        for (int i = 0; i < length; i++) {
+            char c = inputText.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            if (pendingSpace) {
+                hasher.putChar(' ');
+                pendingSpace = false;
+            }
+            hasher.putChar(Character.toLowerCase(c));
+            started = true;
+        }
+
+        // 文本与枚举之间以 U+FFFF（Unicode 非字符，正常文本中不出现）分隔
+        hasher.putChar('\uffff');
+        hasher.putInt(typeOrdinal);
+        hasher.putInt(complexityOrdinal);
+        hasher.putInt(formatOrdinal);
+        return hasher.finishHex();
+    }
+
+    /**
+     * 线程内复用的 SHA-256 摘要和 UTF-8 编码缓冲区
+     */
+    private static final class DigestWorkspace {
+
+        private final MessageDigest digest;
+        private final byte[] buffer = new byte[1024];
+        private final char[] hex = new char[64];
+        private int position;
+        private char highSurrogate;
+
+        DigestWorkspace() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        void reset() {
+            digest.reset();
+            position = 0;
+            highSurrogate = 0;
+        }
+
+        void append(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                append(text.charAt(i));
+            }
+        }
+
+        /**
+         * 按 String.getBytes(UTF_8) 的规则编码：不成对的代理字符编码为 '?'
+         */
+        void append(char c) {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    ensure(4);
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                    return;
+                }
+                put((byte) '?');
+            }
+
+            if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                put((byte) '?');
+            } else {
+                ensure(3);
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        String finish() {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                put((byte) '?');
+            }
+            digest.update(buffer, 0, position);
+            position = 0;
+            byte[] hash = digest.digest();
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+            }
+            return new String(hex);
+        }
+
+        private void put(byte b) {
+            ensure(1);
+            buffer[position++] = b;
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                digest.update(buffer, 0, position);
+                position = 0;
+            }
+        }
+    }
+
+    /**
+     * 流式 MurmurHash3 x64 128位，每个字符按小端两字节输入
+     */
+    private static final class Murmur3 {
+
+        private static final long C1 = 0x87C37B91114253D5L;
+        private static final long C2 = 0x4CF5AD432745937FL;
+
+        private final char[] hex = new char[32];
+        private long h1;
+        private long h2;
+        private long k1;
+        private long k2;
+        private int charsInBlock;
+        private long totalChars;
+
+        void reset() {
+            h1 = 0;
+            h2 = 0;
+            k1 = 0;
+            k2 = 0;
+            charsInBlock = 0;
+            totalChars = 0;
+        }
+
+        void putInt(int value) {
+            putChar((char) value);
+            putChar((char) (value >>> 16));
+        }
+
+        void putChar(char c) {
+            if (charsInBlock < 4) {
+                k1 |= (long) c << (charsInBlock << 4);
+            } else {
+                k2 |= (long) c << ((charsInBlock - 4) << 4);
+            }
+            totalChars++;
+            if (++charsInBlock == 8) {
+                mixBlock();
+            }
+        }
+
+        String finishHex() {
+            if (charsInBlock > 0) {
+                if (charsInBlock > 4) {
+                    k2 *= C2;
+                    k2 = Long.rotateLeft(k2, 33);
+                    k2 *= C1;
+                    h2 ^= k2;
+                }
+                k1 *= C1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= C2;
+                h1 ^= k1;
+            }
+
+            long byteLength = totalChars * 2;
+            h1 ^= byteLength;
+            h2 ^= byteLength;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+
+            writeHex(h1, 0);
+            writeHex(h2, 16);
+            return new String(hex);
+        }
+
+        private void mixBlock() {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52DCE729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495AB5;
+
+            k1 = 0;
+            k2 = 0;
+            charsInBlock = 0;
+        }
+
+        private void writeHex(long value, int offset) {
+            for (int i = 15; i >= 0; i--) {
+                hex[offset + i] = HEX[(int) (value & 0xF)];
+                value >>>= 4;
+            }
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xFF51AFD7ED558CCDL;
+            k ^= k >>> 33;
+            k *= 0xC4CEB9FE1A85EC53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.dto.File3D;
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.service.CacheService;
+import com.qiniu.model3d.service.ResultFileFetchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上游结果文件拉取服务实现
+ * 每个文件一个下载任务，提交到固定大小的 I/O 线程池；同一主机的并发连接数用信号量限制。
+ * 5xx、429 和网络错误按指数退避重试，4xx 和超过大小上限不重试。
+ * 拉取结果保存在按访问顺序淘汰的有界登记表中
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class ResultFileFetchServiceImpl implements ResultFileFetchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultFileFetchServiceImpl.class);
+
+    private static final String DEFAULT_PREVIEW_EXTENSION = "png";
+
+    @Autowired
+    private CacheService cacheService;
+
+    @Value("${app.file.model-dir}")
+    private String modelDir;
+
+    @Value("${app.file.preview-dir}")
+    private String previewDir;
+
+    @Value("${app.file.max-model-download-size:536870912}")
+    private long maxModelDownloadSize;
+
+    @Value("${app.result-fetch.pool-size:8}")
+    private int poolSize;
+
+    @Value("${app.result-fetch.max-connections-per-host:4}")
+    private int maxConnectionsPerHost;
+
+    @Value("${app.result-fetch.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.result-fetch.retry-backoff-millis:500}")
+    private long retryBackoffMillis;
+
+    @Value("${app.result-fetch.max-preview-size:20971520}")
+    private long maxPreviewSize;
+
+    @Value("${app.result-fetch.registry-capacity:1024}")
+    private int registryCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    private final Object registryLock = new Object();
+    private Map<String, FetchedResult> resultsByJob;
+    private final Map<String, String> jobByModelPath = new HashMap<>();
+
+    private final AtomicInteger activeDownloads = new AtomicInteger(0);
+    private final AtomicLong completedDownloads = new AtomicLong(0);
+    private final AtomicLong failedDownloads = new AtomicLong(0);
+    private final AtomicLong retries = new AtomicLong(0);
+    private final AtomicLong downloadedBytes = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, poolSize);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "result-fetch-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        int capacity = Math.max(1, registryCapacity);
+        resultsByJob = new LinkedHashMap<String, FetchedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FetchedResult> eldest) {
+                if (size() > capacity) {
+                    jobByModelPath.remove(eldest.getValue().getPrimaryPath());
+                    return true;
+                }
+                return false;
+            }
+        };
+        logger.info("Result fetch executor initialized: threads={}, maxConnectionsPerHost={}, maxAttempts={}",
+                    threads, maxConnectionsPerHost, maxAttempts);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public FetchedResult fetchAll(String jobId, List<File3D> files, ModelTask.OutputFormat primaryFormat) throws IOException {
+        if (files == null || files.isEmpty()) {
+            throw new IOException("上游任务没有结果文件: " + jobId);
+        }
+
+        Path modelDirPath = createDirectories(modelDir);
+        Path previewDirPath = createDirectories(previewDir);
+
+        File3D primaryFile = selectPrimaryFile(files, primaryFormat);
+        // 上游没有主格式时退回其他格式，文件扩展名按实际类型，无法识别时按主格式
+        ModelTask.OutputFormat primaryType = parseFormat(primaryFile.getType());
+        String primaryExtension = (primaryType != null ? primaryType : primaryFormat).name().toLowerCase(Locale.ROOT);
+        CompletableFuture<ModelFileDownloader.DownloadedFile> primaryFuture = submit(
+            primaryFile.getUrl(), modelDirPath, "model_" + UUID.randomUUID() + "." + primaryExtension, maxModelDownloadSize);
+
+        // 其他格式：每种格式只取第一个，无法识别的类型不下载
+        Map<ModelTask.OutputFormat, CompletableFuture<ModelFileDownloader.DownloadedFile>> formatFutures =
+            new EnumMap<>(ModelTask.OutputFormat.class);
+        for (File3D file : files) {
+            ModelTask.OutputFormat type = parseFormat(file.getType());
+            if (file == primaryFile || type == null || type == primaryType || formatFutures.containsKey(type)
+                    || !StringUtils.hasText(file.getUrl())) {
+                continue;
+            }
+            String filename = "model_" + UUID.randomUUID() + "." + type.name().toLowerCase(Locale.ROOT);
+            formatFutures.put(type, submit(file.getUrl(), modelDirPath, filename, maxModelDownloadSize));
+        }
+
+        // 预览图：多个结果文件可能共用同一张预览图
+        Set<String> previewUrls = new LinkedHashSet<>();
+        for (File3D file : files) {
+            if (StringUtils.hasText(file.getPreviewImageUrl())) {
+                previewUrls.add(file.getPreviewImageUrl());
+            }
+        }
+        List<CompletableFuture<ModelFileDownloader.DownloadedFile>> previewFutures = new ArrayList<>();
+        for (String previewUrl : previewUrls) {
+            String filename = "preview_" + UUID.randomUUID() + "." + previewExtension(previewUrl);
+            previewFutures.add(submit(previewUrl, previewDirPath, filename, maxPreviewSize));
+        }
+
+        ModelFileDownloader.DownloadedFile primary;
+        try {
+            primary = primaryFuture.join();
+        } catch (CompletionException e) {
+            // 主文件失败时整个结果不可用，其他已下载的文件一并删除
+            formatFutures.values().forEach(ResultFileFetchServiceImpl::discard);
+            previewFutures.forEach(ResultFileFetchServiceImpl::discard);
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        }
+        cacheService.recordFileSignature(primary.getPath().toString(), primary.getSignature());
+
+        Map<ModelTask.OutputFormat, String> modelFiles = new EnumMap<>(ModelTask.OutputFormat.class);
+        modelFiles.put(primaryType != null ? primaryType : primaryFormat, primary.getPath().toString());
+        for (Map.Entry<ModelTask.OutputFormat, CompletableFuture<ModelFileDownloader.DownloadedFile>> entry
+                : formatFutures.entrySet()) {
+            ModelFileDownloader.DownloadedFile downloaded = joinQuietly(jobId, entry.getValue());
+            if (downloaded != null) {
+                cacheService.recordFileSignature(downloaded.getPath().toString(), downloaded.getSignature());
+                modelFiles.put(entry.getKey(), downloaded.getPath().toString());
+            }
+        }
+        List<String> previewPaths = new ArrayList<>();
+        for (CompletableFuture<ModelFileDownloader.DownloadedFile> future : previewFutures) {
+            ModelFileDownloader.DownloadedFile downloaded = joinQuietly(jobId, future);
+            if (downloaded != null) {
+                previewPaths.add(downloaded.getPath().toString());
+            }
+        }
+
+        FetchedResult result = new FetchedResult(jobId, primary.getPath().toString(), primary.getSignature(),
+                                                 modelFiles, previewPaths);
+        synchronized (registryLock) {
+            resultsByJob.put(jobId, result);
+            jobByModelPath.put(result.getPrimaryPath(), jobId);
+        }
+        logger.info("上游结果文件拉取完成: jobId={}, formats={}, previews={}",
+                    jobId, modelFiles.keySet(), previewPaths.size());
+        return result;
+    }
+
+    @Override
+    public FetchedResult getByJobId(String jobId) {
+        if (jobId == null) {
+            return null;
+        }
+        synchronized (registryLock) {
+            return resultsByJob.get(jobId);
+        }
+    }
+
+    @Override
+    public FetchedResult getByModelPath(String modelPath) {
+        if (modelPath == null) {
+            return null;
+        }
+        synchronized (registryLock) {
+            String jobId = jobByModelPath.get(modelPath);
+            return jobId != null ? resultsByJob.get(jobId) : null;
+        }
+    }
+
+    @Override
+    public FetchStatistics getStatistics() {
+        return new FetchStatistics(activeDownloads.get(), executor.getQueue().size(), completedDownloads.get(),
+                                   failedDownloads.get(), retries.get(), downloadedBytes.get());
+    }
+
+    private CompletableFuture<ModelFileDownloader.DownloadedFile> submit(String url, Path targetDir,
+                                                                         String filename, long maxBytes) {
+        CompletableFuture<ModelFileDownloader.DownloadedFile> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(downloadWithRetry(url, targetDir, filename, maxBytes));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    private ModelFileDownloader.DownloadedFile downloadWithRetry(String url, Path targetDir,
+                                                                 String filename, long maxBytes) throws IOException {
+        Semaphore permits = hostPermits.computeIfAbsent(hostOf(url), host -> new Semaphore(Math.max(1, maxConnectionsPerHost)));
+        int attempts = Math.max(1, maxAttempts);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("下载被中断: " + url);
+            }
+            activeDownloads.incrementAndGet();
+            try {
+                ModelFileDownloader.DownloadedFile downloaded =
+                    ModelFileDownloader.download(url, targetDir, filename, maxBytes);
+                completedDownloads.incrementAndGet();
+                downloadedBytes.addAndGet(downloaded.getSize());
+                return downloaded;
+            } catch (IOException e) {
+                if (attempt >= attempts || !isRetryable(e)) {
+                    failedDownloads.incrementAndGet();
+                    logger.warn("下载结果文件失败: url={}, attempts={}, error={}", url, attempt, e.getMessage());
+                    throw e;
+                }
+                logger.info("下载结果文件失败，准备重试: url={}, attempt={}, error={}", url, attempt, e.getMessage());
+            } finally {
+                activeDownloads.decrementAndGet();
+                permits.release();
+            }
+
+            retries.incrementAndGet();
+            try {
+                // 退避期间不占用主机连接名额
+                Thread.sleep(retryBackoffMillis << (attempt - 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("下载被中断: " + url);
+            }
+        }
+    }
+
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof SocketTimeoutException) {
+            return true;
+        }
+        if (e instanceof ModelFileDownloader.FileTooLargeException || e instanceof InterruptedIOException) {
+            return false;
+        }
+        if (e instanceof ModelFileDownloader.HttpStatusException) {
+            int status = ((ModelFileDownloader.HttpStatusException) e).getStatusCode();
+            return status == 429 || status >= 500;
+        }
+        return true;
+    }
+
+    private ModelFileDownloader.DownloadedFile joinQuietly(String jobId,
+                                                           CompletableFuture<ModelFileDownloader.DownloadedFile> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            logger.warn("上游结果附加文件下载失败，已跳过: jobId={}, error={}", jobId,
+                        e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return null;
+        }
+    }
+
+    private static void discard(CompletableFuture<ModelFileDownloader.DownloadedFile> future) {
+        future.thenAccept(downloaded -> {
+            try {
+                Files.deleteIfExists(downloaded.getPath());
+            } catch (IOException e) {
+                logger.warn("删除结果文件失败: {}", downloaded.getPath(), e);
+            }
+        });
+    }
+
+    private static File3D selectPrimaryFile(List<File3D> files, ModelTask.OutputFormat format) {
+        for (File3D file : files) {
+            if (file.getType() != null && file.getType().equalsIgnoreCase(format.name())
+                    && StringUtils.hasText(file.getUrl())) {
+                return file;
+            }
+        }
+        for (File3D file : files) {
+            if (StringUtils.hasText(file.getUrl())) {
+                logger.warn("未找到格式为 {} 的文件，使用第一个文件: {}", format, file.getType());
+                return file;
+            }
+        }
+        throw new IllegalArgumentException("上游结果文件没有下载地址");
+    }
+
+    private static ModelTask.OutputFormat parseFormat(String type) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return ModelTask.OutputFormat.valueOf(type.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String previewExtension(String url) {
+        String path = url;
+        int queryIndex = path.indexOf('?');
+        if (queryIndex >= 0) {
+            path = path.substring(0, queryIndex);
+        }
+        int dotIndex = path.lastIndexOf('.');
+        if (dotIndex > path.lastIndexOf('/') && dotIndex < path.length() - 1) {
+            String extension = path.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+            if (extension.matches("[a-z0-9]{1,5}")) {
+                return extension;
+            }
+        }
+        return DEFAULT_PREVIEW_EXTENSION;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static Path createDirectories(String dir) throws IOException {
+        Path path = Paths.get(dir);
+        if (!Files.exists(path)) {
+            Files.createDirectories(path);
+        }
+        return path;
+    }
+}
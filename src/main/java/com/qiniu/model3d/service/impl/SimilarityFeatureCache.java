@@ -0,0 +1,140 @@
+package com.qiniu.model3d.service.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 相似度特征缓存
+ * 按任务ID保存已缓存任务的 {@link SimilarityFeatures}。读写不加锁，并行打分的各线程互不阻塞；
+ * 每个条目记录最后访问序号，超过容量一定比例后由一个线程批量淘汰最久未访问的条目（近似LRU）
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class SimilarityFeatureCache {
+
+    /** 超过容量的比例达到该值时批量淘汰，淘汰到容量以内 */
+    private static final double EVICTION_SLACK = 0.1;
+
+    private final int maxEntries;
+    private final int evictionThreshold;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    SimilarityFeatureCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.evictionThreshold = this.maxEntries + Math.max(1, (int) (this.maxEntries * EVICTION_SLACK));
+    }
+
+    /**
+     * 获取特征，缓存的原始文本与当前文本不一致时视为未命中
+     */
+    SimilarityFeatures get(String taskId, String text) {
+        Entry entry = entries.get(taskId);
+        if (entry != null && entry.features.text.equals(text)) {
+            entry.lastAccess = clock.incrementAndGet();
+            hits.increment();
+            return entry.features;
+        }
+        misses.increment();
+        return null;
+    }
+
+    void put(String taskId, SimilarityFeatures features) {
+        Entry entry = new Entry(features, clock.incrementAndGet());
+        Entry previous = entries.put(taskId, entry);
+        if (previous != null) {
+            estimatedBytes.addAndGet(-previous.features.estimateBytes());
+        }
+        estimatedBytes.addAndGet(features.estimateBytes());
+
+        if (entries.size() > evictionThreshold) {
+            evict();
+        }
+    }
+
+    void remove(String taskId) {
+        Entry removed = entries.remove(taskId);
+        if (removed != null) {
+            estimatedBytes.addAndGet(-removed.features.estimateBytes());
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 淘汰最久未访问的条目直到容量以内；同时只有一个线程执行，其他线程直接返回
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int excess = entries.size() - maxEntries;
+            if (excess <= 0) {
+                return;
+            }
+            // 先固定访问序号再排序，排序期间的并发访问不影响比较结果
+            List<Candidate> snapshot = new ArrayList<>(entries.size());
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                snapshot.add(new Candidate(e.getKey(), e.getValue(), e.getValue().lastAccess));
+            }
+            snapshot.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+            for (int i = 0; i < excess && i < snapshot.size(); i++) {
+                Candidate eldest = snapshot.get(i);
+                // 只删除快照中的那个条目，期间被替换的新条目保留
+                if (entries.remove(eldest.taskId, eldest.entry)) {
+                    estimatedBytes.addAndGet(-eldest.entry.features.estimateBytes());
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static final class Entry {
+        final SimilarityFeatures features;
+        volatile long lastAccess;
+
+        Entry(SimilarityFeatures features, long lastAccess) {
+            this.features = features;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Candidate {
+        final String taskId;
+        final Entry entry;
+        final long lastAccess;
+
+        Candidate(String taskId, Entry entry, long lastAccess) {
+            this.taskId = taskId;
+            this.entry = entry;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.qiniu.model3d.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * 文本相似度特征
+ * 一次性保存语义相似度所需的全部中间结果（规范化文本、词哈希及词频、二元组编码、长度），
+ * 均为排序后的基本类型数组，比较时只需归并扫描，不再创建集合或映射
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class SimilarityFeatures {
+
+    /** 原始文本，编辑距离使用 */
+    final String text;
+
+    /** 规范化文本 */
+    final String normalized;
+
+    /** 排序去重后的词哈希（Jaccard与余弦共用），中文按相邻两字成词 */
+    final long[] words;
+
+    /** 与 words 对齐的词频 */
+    final int[] wordCounts;
+
+    /** 词频向量的平方和 */
+    final double wordNormSquared;
+
+    /** 排序去重后的字符二元组编码 */
+    final int[] grams;
+
+    SimilarityFeatures(String text, String normalized, long[] words, int[] wordCounts,
+                       double wordNormSquared, int[] grams) {
+        this.text = text;
+        this.normalized = normalized;
+        this.words = words;
+        this.wordCounts = wordCounts;
+        this.wordNormSquared = wordNormSquared;
+        this.grams = grams;
+    }
+
+    int normalizedLength() {
+        return normalized.length();
+    }
+
+    /**
+     * 估算占用的堆内存（字节）
+     */
+    long estimateBytes() {
+        return 64L + text.length() * 2L + normalized.length() * 2L
+            + words.length * 8L + wordCounts.length * 4L + grams.length * 4L;
+    }
+
+    /**
+     * 由原始文本构建特征，规范化、分词和二元组都来自 {@link TextTokenizer} 的一次扫描
+     *
+     * @param text 原始文本
+     */
+    static SimilarityFeatures build(String text) {
+        TextTokenizer.Tokens tokens = TextTokenizer.tokenize(text);
+
+        // 词哈希排序后统计词频
+        tokens.sortTokens();
+        long[] occurrences = tokens.tokens;
+        int unique = 0;
+        for (int i = 0; i < tokens.tokenCount; i++) {
+            if (i == 0 || occurrences[i] != occurrences[i - 1]) {
+                unique++;
+            }
+        }
+
+        long[] words = new long[unique];
+        int[] counts = new int[unique];
+        int index = -1;
+        for (int i = 0; i < tokens.tokenCount; i++) {
+            if (i == 0 || occurrences[i] != occurrences[i - 1]) {
+                words[++index] = occurrences[i];
+            }
+            counts[index]++;
+        }
+
+        double normSquared = 0.0;
+        for (int count : counts) {
+            normSquared += count * count;
+        }
+
+        return new SimilarityFeatures(text, tokens.normalizedText(), words, counts, normSquared, grams(tokens));
+    }
+
+    /**
+     * 排序去重的字符二元组；文本短于2时整体作为一个gram，
+     * 单字符编码为 0xFFFF0000 | c，空文本编码为 -1（规范化后不会出现 U+FFFF，不会与二元组冲突）
+     */
+    private static int[] grams(TextTokenizer.Tokens tokens) {
+        if (tokens.length < 2) {
+            return new int[] { tokens.length == 0 ? -1 : 0xFFFF0000 | tokens.normalized[0] };
+        }
+        return Arrays.copyOf(tokens.grams, tokens.sortUniqueGrams());
+    }
+}
@@ -0,0 +1,584 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.repository.ModelTaskRepository;
+import com.qiniu.model3d.service.SimilarityIndexService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 相似度候选索引服务实现
+ * 以字符二元组（与n-gram相似度使用的分词一致）为词项建立倒排表，
+ * 每个 类型/复杂度/格式 组合一个分区，查询时按Jaccard重叠度取前K个候选；
+ * 同一分区内另维护MinHash LSH分桶表，用于只访问同桶任务的近邻召回
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class SimilarityIndexServiceImpl implements SimilarityIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityIndexServiceImpl.class);
+
+    /** 已删除文档占比超过该值时压缩分区 */
+    private static final double COMPACT_RATIO = 0.5;
+
+    private static final int[] EMPTY_GRAMS = new int[0];
+
+    private static final ThreadLocal<int[]> OVERLAP_BUFFER = ThreadLocal.withInitial(() -> new int[1024]);
+
+    @Autowired
+    private ModelTaskRepository taskRepository;
+
+    @Value("${cache.similarity.index.enabled:true}")
+    private boolean indexEnabled;
+
+    @Value("${cache.similarity.lsh.enabled:true}")
+    private boolean lshEnabled;
+
+    @Value("${cache.similarity.lsh.bands:0}")
+    private int configuredBands;
+
+    @Value("${cache.similarity.lsh.rows:0}")
+    private int configuredRows;
+
+    @Value("${cache.similarity.high-threshold:0.8}")
+    private double highThreshold;
+
+    @Value("${cache.similarity.lsh.jaccard-margin:0.3}")
+    private double jaccardMargin;
+
+    @Value("${cache.similarity.lsh.target-recall:0.9}")
+    private double targetRecall;
+
+    private int lshBands;
+    private int lshRows;
+
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final Map<String, Partition> taskPartitions = new ConcurrentHashMap<>();
+
+    private final AtomicLong queryCount = new AtomicLong(0);
+    private final AtomicLong queryNanos = new AtomicLong(0);
+    private final AtomicLong lshQueryCount = new AtomicLong(0);
+    private final AtomicLong lshQueryNanos = new AtomicLong(0);
+
+    private volatile boolean ready = false;
+    private volatile LocalDateTime lastRebuildTime;
+
+    @PostConstruct
+    public void init() {
+        if (lshEnabled) {
+            configureLsh();
+        }
+        if (indexEnabled) {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * 确定LSH分桶参数：显式配置优先；否则以 high-threshold 减去余量作为目标Jaccard，
+     * 在签名长度内选择满足目标召回率的最大 rows（选择性最高）
+     */
+    private void configureLsh() {
+        if (configuredBands > 0 && configuredRows > 0 && configuredBands * configuredRows <= MinHash.NUM_HASHES) {
+            lshBands = configuredBands;
+            lshRows = configuredRows;
+        } else {
+            double targetJaccard = Math.min(1.0, Math.max(0.05, highThreshold - jaccardMargin));
+            lshRows = 1;
+            lshBands = MinHash.NUM_HASHES;
+            for (int rows = MinHash.NUM_HASHES; rows >= 1; rows--) {
+                int bands = MinHash.NUM_HASHES / rows;
+                if (MinHash.collisionProbability(targetJaccard, bands, rows) >= targetRecall) {
+                    lshRows = rows;
+                    lshBands = bands;
+                    break;
+                }
+            }
+        }
+
+        logger.info("Similarity LSH configured: bands={}, rows={}, threshold~{}",
+                  lshBands, lshRows, String.format("%.3f", Math.pow(1.0 / lshBands, 1.0 / lshRows)));
+    }
+
+    @Override
+    public void indexTask(ModelTask task) {
+        if (!indexEnabled || task == null || task.getTaskId() == null || task.getType() == null) {
+            return;
+        }
+
+        try {
+            removeTask(task.getTaskId());
+
+            String key = partitionKey(task.getType(), enumName(task.getComplexity()), enumName(task.getOutputFormat()));
+            Partition partition = partitions.computeIfAbsent(key, k -> new Partition(
+                task.getType(), enumName(task.getComplexity()), enumName(task.getOutputFormat())));
+            int[] grams = extractGrams(task.getInputText());
+            partition.add(task, grams, lshEnabled ? bandHashes(task.getMinhashSignature(), grams) : null);
+            taskPartitions.put(task.getTaskId(), partition);
+        } catch (Exception e) {
+            logger.error("Error indexing task: " + task.getTaskId(), e);
+        }
+    }
+
+    @Override
+    public void removeTask(String taskId) {
+        if (taskId == null) {
+            return;
+        }
+
+        Partition partition = taskPartitions.remove(taskId);
+        if (partition != null) {
+            partition.remove(taskId);
+        }
+    }
+
+    @Override
+    public List<ModelTask> findCandidates(String inputText, ModelTask.TaskType taskType,
+                                          String complexity, String outputFormat, int topK) {
+        if (!ready || inputText == null || taskType == null || topK <= 0) {
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        try {
+            int[] queryGrams = extractGrams(inputText);
+            if (queryGrams.length == 0) {
+                return List.of();
+            }
+
+            PriorityQueue<Candidate> heap = new PriorityQueue<>(topK + 1);
+            for (Partition partition : partitions.values()) {
+                if (partition.matches(taskType, complexity, outputFormat)) {
+                    partition.collect(queryGrams, topK, heap);
+                }
+            }
+
+            return toRankedList(heap);
+        } catch (Exception e) {
+            logger.error("Error querying similarity index", e);
+            return List.of();
+        } finally {
+            queryCount.incrementAndGet();
+            queryNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<ModelTask> findNearDuplicates(String inputText, ModelTask.TaskType taskType,
+                                              String complexity, String outputFormat, int topK) {
+        if (!ready || !lshEnabled || inputText == null || taskType == null || topK <= 0) {
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        try {
+            int[] queryGrams = extractGrams(inputText);
+            if (queryGrams.length == 0) {
+                return List.of();
+            }
+            int[] queryBands = MinHash.bandHashes(MinHash.signature(queryGrams), lshBands, lshRows);
+
+            PriorityQueue<Candidate> heap = new PriorityQueue<>(topK + 1);
+            for (Partition partition : partitions.values()) {
+                if (partition.matches(taskType, complexity, outputFormat)) {
+                    partition.collectNearDuplicates(queryGrams, queryBands, topK, heap);
+                }
+            }
+            return toRankedList(heap);
+        } catch (Exception e) {
+            logger.error("Error querying similarity LSH index", e);
+            return List.of();
+        } finally {
+            lshQueryCount.incrementAndGet();
+            lshQueryNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean isLshEnabled() {
+        return lshEnabled;
+    }
+
+    @Override
+    public synchronized int rebuildIndex() {
+        ready = false;
+        try {
+            long start = System.currentTimeMillis();
+            partitions.clear();
+            taskPartitions.clear();
+
+            List<ModelTask> cachedTasks = taskRepository.findCachedTasks();
+            for (ModelTask task : cachedTasks) {
+                indexTask(task);
+            }
+
+            lastRebuildTime = LocalDateTime.now();
+            ready = true;
+            logger.info("Similarity index rebuilt: {} tasks, {} partitions, {}ms",
+                      taskPartitions.size(), partitions.size(), System.currentTimeMillis() - start);
+            return taskPartitions.size();
+        } catch (Exception e) {
+            logger.error("Error rebuilding similarity index", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public IndexStatistics getStatistics() {
+        long terms = 0;
+        long postings = 0;
+        long buckets = 0;
+        long memory = 0;
+        for (Partition partition : partitions.values()) {
+            ReentrantReadWriteLock.ReadLock lock = partition.lock.readLock();
+            lock.lock();
+            try {
+                terms += partition.postings.size();
+                postings += partition.postingCount;
+                buckets += partition.lsh.getBucketCount();
+                memory += partition.estimateMemoryBytes();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long queries = queryCount.get();
+        double avgMicros = queries > 0 ? queryNanos.get() / 1000.0 / queries : 0.0;
+        long lshQueries = lshQueryCount.get();
+        double avgLshMicros = lshQueries > 0 ? lshQueryNanos.get() / 1000.0 / lshQueries : 0.0;
+        return new IndexStatistics(taskPartitions.size(), partitions.size(), terms, postings,
+                                   memory, queries, avgMicros, lshBands, lshRows, buckets,
+                                   lshQueries, avgLshMicros, lastRebuildTime);
+    }
+
+    /**
+     * 计算任务的LSH分桶哈希，优先使用已持久化的签名，缺失时（历史数据）按二元组现算
+     */
+    private int[] bandHashes(String encodedSignature, int[] grams) {
+        int[] signature = MinHash.decode(encodedSignature);
+        if (signature == null) {
+            signature = MinHash.signature(grams);
+        }
+        return MinHash.bandHashes(signature, lshBands, lshRows);
+    }
+
+    private static List<ModelTask> toRankedList(PriorityQueue<Candidate> heap) {
+        Candidate[] ranked = heap.toArray(new Candidate[0]);
+        Arrays.sort(ranked, (c1, c2) -> Double.compare(c2.score, c1.score));
+        List<ModelTask> result = new ArrayList<>(ranked.length);
+        for (Candidate candidate : ranked) {
+            result.add(candidate.task);
+        }
+        return result;
+    }
+
+    /**
+     * 两个排序去重二元组数组的Jaccard相似度
+     */
+    static double gramJaccard(int[] grams1, int[] grams2) {
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < grams1.length && j < grams2.length) {
+            if (grams1[i] == grams2[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (grams1[i] < grams2[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = grams1.length + grams2.length - shared;
+        return union > 0 ? (double) shared / union : 0.0;
+    }
+
+    /**
+     * 提取与n-gram相似度一致的字符二元组，返回排序去重后的编码
+     * 与 SimilarityFeatures 共用 {@link TextTokenizer} 的规范化规则
+     */
+    static int[] extractGrams(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY_GRAMS;
+        }
+
+        TextTokenizer.Tokens tokens = TextTokenizer.tokenize(text);
+        if (tokens.length == 0) {
+            return EMPTY_GRAMS;
+        }
+        if (tokens.length == 1) {
+            return new int[] { 0xFFFF0000 | tokens.normalized[0] };
+        }
+        return Arrays.copyOf(tokens.grams, tokens.sortUniqueGrams());
+    }
+
+    private static String partitionKey(ModelTask.TaskType type, String complexity, String outputFormat) {
+        return type + "|" + (complexity != null ? complexity : "") + "|" + (outputFormat != null ? outputFormat : "");
+    }
+
+    private static String enumName(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    /**
+     * 单个分区：文档表 + 倒排表，读写锁保护
+     */
+    private static final class Partition {
+        final ModelTask.TaskType type;
+        final String complexity;
+        final String outputFormat;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<Integer, PostingList> postings = new HashMap<>();
+        final List<IndexedTask> docs = new ArrayList<>();
+        final Map<String, Integer> docIds = new HashMap<>();
+        final LshBucketTable lsh = new LshBucketTable();
+        int liveCount;
+        long postingCount;
+
+        Partition(ModelTask.TaskType type, String complexity, String outputFormat) {
+            this.type = type;
+            this.complexity = complexity;
+            this.outputFormat = outputFormat;
+        }
+
+        boolean matches(ModelTask.TaskType taskType, String queryComplexity, String queryFormat) {
+            return type == taskType
+                && (queryComplexity == null || queryComplexity.equals(complexity))
+                && (queryFormat == null || queryFormat.equals(outputFormat));
+        }
+
+        void add(ModelTask task, int[] grams, int[] bandHashes) {
+            lock.writeLock().lock();
+            try {
+                int docId = docs.size();
+                docs.add(new IndexedTask(task, grams, bandHashes));
+                docIds.put(task.getTaskId(), docId);
+                liveCount++;
+                addPostings(docId, grams, bandHashes);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String taskId) {
+            lock.writeLock().lock();
+            try {
+                Integer docId = docIds.remove(taskId);
+                if (docId == null) {
+                    return;
+                }
+                docs.set(docId, null);
+                liveCount--;
+                if (docs.size() - liveCount > docs.size() * COMPACT_RATIO) {
+                    compact();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * 累加查询二元组在各文档上的命中数，并将得分写入全局Top-K堆
+         */
+        void collect(int[] queryGrams, int topK, PriorityQueue<Candidate> heap) {
+            lock.readLock().lock();
+            try {
+                int docCount = docs.size();
+                int[] overlap = OVERLAP_BUFFER.get();
+                if (overlap.length < docCount) {
+                    overlap = new int[Math.max(docCount, overlap.length * 2)];
+                    OVERLAP_BUFFER.set(overlap);
+                }
+
+                int[] touched = new int[Math.min(docCount, 1024)];
+                int touchedCount = 0;
+                for (int gram : queryGrams) {
+                    PostingList list = postings.get(gram);
+                    if (list == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < list.size; i++) {
+                        int docId = list.docs[i];
+                        if (overlap[docId]++ == 0) {
+                            if (touchedCount == touched.length) {
+                                touched = Arrays.copyOf(touched, touched.length * 2);
+                            }
+                            touched[touchedCount++] = docId;
+                        }
+                    }
+                }
+
+                for (int i = 0; i < touchedCount; i++) {
+                    int docId = touched[i];
+                    int shared = overlap[docId];
+                    overlap[docId] = 0;
+
+                    IndexedTask doc = docs.get(docId);
+                    if (doc == null) {
+                        continue;
+                    }
+                    double score = (double) shared / (queryGrams.length + doc.grams.length - shared);
+                    offer(heap, topK, doc.task, score);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 遍历与查询同桶的任务（每个任务只计一次），按二元组Jaccard写入全局Top-K堆
+         */
+        void collectNearDuplicates(int[] queryGrams, int[] queryBands, int topK, PriorityQueue<Candidate> heap) {
+            lock.readLock().lock();
+            try {
+                int docCount = docs.size();
+                int[] visited = OVERLAP_BUFFER.get();
+                if (visited.length < docCount) {
+                    visited = new int[Math.max(docCount, visited.length * 2)];
+                    OVERLAP_BUFFER.set(visited);
+                }
+
+                int[] touched = new int[16];
+                int touchedCount = 0;
+                for (int band = 0; band < queryBands.length; band++) {
+                    for (int entry = lsh.head(band, queryBands[band]); entry >= 0; entry = lsh.next(entry)) {
+                        int docId = lsh.doc(entry);
+                        if (visited[docId] == 0) {
+                            visited[docId] = 1;
+                            if (touchedCount == touched.length) {
+                                touched = Arrays.copyOf(touched, touched.length * 2);
+                            }
+                            touched[touchedCount++] = docId;
+                        }
+                    }
+                }
+
+                for (int i = 0; i < touchedCount; i++) {
+                    int docId = touched[i];
+                    visited[docId] = 0;
+
+                    IndexedTask doc = docs.get(docId);
+                    if (doc == null) {
+                        continue;
+                    }
+                    offer(heap, topK, doc.task, gramJaccard(queryGrams, doc.grams));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        long estimateMemoryBytes() {
+            // 词项条目约64字节，倒排与文档二元组按int计，文档条目约96字节
+            long docInts = 0;
+            for (IndexedTask doc : docs) {
+                if (doc != null) {
+                    docInts += doc.grams.length + (doc.bandHashes != null ? doc.bandHashes.length : 0);
+                }
+            }
+            return postings.size() * 64L + postingCount * 4L + docInts * 4L + docs.size() * 96L
+                + lsh.estimateMemoryBytes();
+        }
+
+        private static void offer(PriorityQueue<Candidate> heap, int topK, ModelTask task, double score) {
+            if (heap.size() < topK) {
+                heap.add(new Candidate(task, score));
+            } else if (score > heap.peek().score) {
+                heap.poll();
+                heap.add(new Candidate(task, score));
+            }
+        }
+
+        private void addPostings(int docId, int[] grams, int[] bandHashes) {
+            for (int gram : grams) {
+                postings.computeIfAbsent(gram, g -> new PostingList()).add(docId);
+            }
+            postingCount += grams.length;
+            if (bandHashes != null) {
+                lsh.add(docId, bandHashes);
+            }
+        }
+
+        private void compact() {
+            List<IndexedTask> live = new ArrayList<>(liveCount);
+            for (IndexedTask doc : docs) {
+                if (doc != null) {
+                    live.add(doc);
+                }
+            }
+
+            docs.clear();
+            docIds.clear();
+            postings.clear();
+            lsh.clear();
+            postingCount = 0;
+            for (IndexedTask doc : live) {
+                int docId = docs.size();
+                docs.add(doc);
+                docIds.put(doc.task.getTaskId(), docId);
+                addPostings(docId, doc.grams, doc.bandHashes);
+            }
+        }
+    }
+
+    private static final class IndexedTask {
+        final ModelTask task;
+        final int[] grams;
+        final int[] bandHashes;
+
+        IndexedTask(ModelTask task, int[] grams, int[] bandHashes) {
+            this.task = task;
+            this.grams = grams;
+            this.bandHashes = bandHashes;
+        }
+    }
+
+    private static final class PostingList {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int docId) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = docId;
+        }
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+        final ModelTask task;
+        final double score;
+
+        Candidate(ModelTask task, double score) {
+            this.task = task;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(score, other.score);
+        }
+    }
+}
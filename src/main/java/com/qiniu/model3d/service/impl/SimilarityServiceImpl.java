@@ -1,11 +1,23 @@
 package com.qiniu.model3d.service.impl;
 
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.service.SimilarityIndexService;
 import com.qiniu.model3d.service.SimilarityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 相似度计算服务实现类
@@ -16,6 +28,11 @@ import java.util.regex.Pattern;
 @Service
 public class SimilarityServiceImpl implements SimilarityService {
 
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityServiceImpl.class);
+
+    @Autowired
+    private SimilarityIndexService similarityIndexService;
+
     // 权重配置
     @Value("${cache.similarity.semantic-weight:0.7}")
     private double semanticWeight;
@@ -49,10 +66,68 @@ public class SimilarityServiceImpl implements SimilarityService {
     @Value("${cache.similarity.ngram-weight:0.1}")
     private double ngramWeight;
 
-    // 常量
-    private static final Pattern WORD_PATTERN = Pattern.compile("\\s+");
-    private static final Pattern NORMALIZE_PATTERN = Pattern.compile("[^a-zA-Z0-9\\u4e00-\\u9fa5\\s]");
-    private static final int DEFAULT_NGRAM_SIZE = 2;
+    @Value("${cache.similarity.feature-cache.max-entries:10000}")
+    private int featureCacheMaxEntries;
+
+    // 并行配置
+    @Value("${cache.similarity.enable-parallel:true}")
+    private boolean enableParallel;
+
+    @Value("${cache.similarity.parallel.min-candidates:32}")
+    private int parallelMinCandidates;
+
+    @Value("${cache.similarity.parallel.threads:0}")
+    private int parallelThreads;
+
+    // 上界比较的容差，抵消浮点舍入（如余弦值略大于1）
+    private static final double PRUNE_TOLERANCE = 1e-9;
+
+    // 并行打分时每个子任务的最小候选数（默认 50 个候选时拆成 4 个子任务）
+    private static final int PARALLEL_LEAF_SIZE = 16;
+
+    // 相似度降序，相同时按最后访问时间降序
+    private static final Comparator<ScoredTask> RANKING = Comparator
+        .comparingDouble(ScoredTask::getSimilarity).reversed()
+        .thenComparing(scored -> scored.getTask().getLastAccessed(),
+                       Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()));
+
+    // 批量打分线程池，enable-parallel 关闭时为 null
+    private ForkJoinPool scoringPool;
+
+    // 已缓存任务的特征缓存，缓存的提示词不会变化，特征只需计算一次
+    private SimilarityFeatureCache featureCache;
+
+    // 级联打分各阶段计数
+    private final AtomicLong cascadeCandidates = new AtomicLong(0);
+    private final AtomicLong sizeBoundPruned = new AtomicLong(0);
+    private final AtomicLong overlapPruned = new AtomicLong(0);
+    private final AtomicLong editDistancePruned = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        featureCache = new SimilarityFeatureCache(featureCacheMaxEntries);
+
+        if (enableParallel) {
+            int threads = parallelThreads > 0
+                ? parallelThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            scoringPool = new ForkJoinPool(threads, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("similarity-scoring-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+            logger.info("Similarity batch scoring pool started: threads={}, minCandidates={}",
+                        threads, parallelMinCandidates);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scoringPool != null) {
+            scoringPool.shutdownNow();
+        }
+    }
 
     @Override
     public double calculateSimilarity(String text1, String text2) {
@@ -64,11 +139,61 @@ public class SimilarityServiceImpl implements SimilarityService {
             return 1.0;
         }
 
-        // 组合语义相似度和基础相似度
-        double semanticSim = calculateSemanticSimilarity(text1, text2);
-        double basicSim = calculateBasicSimilarity(text1, text2);
+        return calculateSimilarity(extractFeatures(text1), extractFeatures(text2));
+    }
 
-        return semanticSim * semanticWeight + basicSim * basicWeight;
+    @Override
+    public List<ScoredTask> scoreBatch(String query, List<ModelTask> candidates, double threshold, int topK) {
+        if (query == null || candidates == null || candidates.isEmpty() || topK <= 0) {
+            return List.of();
+        }
+
+        SimilarityFeatures queryFeatures = extractFeatures(query);
+        double[] scores = new double[candidates.size()];
+        BatchScoringTask task = new BatchScoringTask(query, queryFeatures, candidates, threshold, scores,
+                                                     0, candidates.size());
+        if (scoringPool != null && candidates.size() >= parallelMinCandidates) {
+            try {
+                scoringPool.invoke(task);
+            } catch (RejectedExecutionException e) {
+                logger.warn("Similarity scoring pool rejected batch, scoring serially");
+                task.scoreRange(0, candidates.size());
+            }
+        } else {
+            task.scoreRange(0, candidates.size());
+        }
+
+        // 小顶堆保留得分最高的 topK 个
+        PriorityQueue<ScoredTask> heap = new PriorityQueue<>(Math.min(topK, scores.length) + 1, RANKING.reversed());
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] < threshold || candidates.get(i).getInputText() == null) {
+                continue;
+            }
+            ScoredTask scored = new ScoredTask(candidates.get(i), scores[i]);
+            if (heap.size() < topK) {
+                heap.offer(scored);
+            } else if (RANKING.compare(scored, heap.peek()) < 0) {
+                heap.poll();
+                heap.offer(scored);
+            }
+        }
+
+        List<ScoredTask> ranked = new ArrayList<>(heap);
+        ranked.sort(RANKING);
+        return ranked;
+    }
+
+    /**
+     * 计算单个候选的分数（原文相同时为1.0）
+     */
+    private double scoreCandidate(String query, SimilarityFeatures queryFeatures, ModelTask candidate, double threshold) {
+        if (candidate.getInputText() == null) {
+            return 0.0;
+        }
+        if (query.equals(candidate.getInputText())) {
+            return 1.0;
+        }
+        return cascadeSimilarity(queryFeatures, getTaskFeatures(candidate), threshold);
     }
 
     @Override
@@ -80,29 +205,16 @@ public class SimilarityServiceImpl implements SimilarityService {
             return 0.0;
         }
 
-        // 标准化文本
-        String norm1 = normalizeText(text1);
-        String norm2 = normalizeText(text2);
-
-        if (norm1.equals(norm2)) {
-            return 1.0;
-        }
-
-        // 计算多种相似度指标
-        double jaccardSim = calculateJaccardSimilarity(norm1, norm2);
-        double cosineSim = calculateCosineSimilarity(norm1, norm2);
-        double lengthSim = calculateLengthSimilarity(norm1, norm2);
-        double ngramSim = calculateNGramSimilarity(norm1, norm2);
-        
-        // 加权组合多种算法
-        return jaccardSim * jaccardWeight + 
-               cosineSim * cosineWeight + 
-               lengthSim * lengthWeight + 
-               ngramSim * ngramWeight;
+        return calculateSemanticSimilarity(extractFeatures(text1), extractFeatures(text2));
     }
 
     @Override
     public double calculateBasicSimilarity(String text1, String text2) {
+        return calculateBasicSimilarity(text1, text2, 0.0);
+    }
+
+    @Override
+    public double calculateBasicSimilarity(String text1, String text2, double minSimilarity) {
         if (text1 == null || text2 == null) {
             return 0.0;
         }
@@ -111,151 +223,243 @@ public class SimilarityServiceImpl implements SimilarityService {
             return 1.0;
         }
 
-        // 使用编辑距离计算基础相似度
-        int editDistance = calculateEditDistance(text1, text2);
         int maxLength = Math.max(text1.length(), text2.length());
 
         if (maxLength == 0) {
             return 1.0;
         }
 
+        // 由最低相似度换算编辑距离上界，超过上界时编辑距离计算提前终止
+        int maxDistance = maxLength;
+        if (minSimilarity > 0.0) {
+            maxDistance = (int) Math.max(0, Math.min(maxLength, Math.ceil((1.0 - minSimilarity) * maxLength)));
+        }
+
+        // 使用编辑距离计算基础相似度；超过上界时返回值为 1 - (上界 + 1) / 最大长度，低于 minSimilarity
+        int editDistance = EditDistance.bounded(text1, text2, maxDistance);
+
         return 1.0 - (double) editDistance / maxLength;
     }
 
     /**
-     * 标准化文本
+     * 基于特征计算综合相似度（调用方已处理原文相同的情况）
      */
-    private String normalizeText(String text) {
-        if (text == null) {
-            return "";
-        }
-        
-        return text.toLowerCase()
-                  .replaceAll(NORMALIZE_PATTERN.pattern(), " ") // 保留字母、数字、中文和空格
-                  .replaceAll("\\s+", " ") // 合并多个空格
-                  .trim();
+    private double calculateSimilarity(SimilarityFeatures features1, SimilarityFeatures features2) {
+        // 组合语义相似度和基础相似度
+        double semanticSim = calculateSemanticSimilarity(features1, features2);
+        double basicSim = calculateBasicSimilarity(features1.text, features2.text);
+
+        return semanticSim * semanticWeight + basicSim * basicWeight;
     }
 
     /**
-     * 计算Jaccard相似度
+     * 级联计算综合相似度（调用方已处理原文相同的情况）
+     * 1. 长度/集合大小上界：Jaccard与n-gram不超过两侧数量之比，余弦不超过1，长度相似度直接精确计算，
+     *    基础相似度不超过 1 - 长度差 / 最大长度
+     * 2. 集合重叠：精确计算语义相似度，基础相似度仍取长度上界
+     * 3. 编辑距离：按剩余差额换算编辑距离上界，超过即终止
+     * 任一阶段的上界低于阈值即返回该上界；到达阈值的候选与 calculateSimilarity 结果一致
      */
-    private double calculateJaccardSimilarity(String text1, String text2) {
-        Set<String> words1 = new HashSet<>(Arrays.asList(WORD_PATTERN.split(text1)));
-        Set<String> words2 = new HashSet<>(Arrays.asList(WORD_PATTERN.split(text2)));
+    private double cascadeSimilarity(SimilarityFeatures features1, SimilarityFeatures features2, double threshold) {
+        cascadeCandidates.incrementAndGet();
+        double basicBound = calculateBasicSimilarityBound(features1.text.length(), features2.text.length());
+
+        // 阶段1：长度与集合大小上界（规范化文本相同时语义相似度为1，直接进入下一阶段）
+        if (!features1.normalized.equals(features2.normalized)) {
+            double jaccardBound = calculateSizeRatio(features1.words.length, features2.words.length, 0.0);
+            double cosineBound = features1.wordNormSquared == 0.0 || features2.wordNormSquared == 0.0 ? 0.0 : 1.0;
+            double lengthSim = calculateLengthSimilarity(features1.normalizedLength(), features2.normalizedLength());
+            double ngramBound = calculateSizeRatio(features1.grams.length, features2.grams.length, 1.0);
+
+            double semanticBound = jaccardBound * jaccardWeight +
+                                   cosineBound * cosineWeight +
+                                   lengthSim * lengthWeight +
+                                   ngramBound * ngramWeight;
+            double upperBound = semanticBound * semanticWeight + basicBound * basicWeight;
+            if (upperBound + PRUNE_TOLERANCE < threshold) {
+                sizeBoundPruned.incrementAndGet();
+                return upperBound;
+            }
+        }
 
-        Set<String> intersection = new HashSet<>(words1);
-        intersection.retainAll(words2);
+        // 阶段2：精确的集合重叠指标
+        double semanticScore = calculateSemanticSimilarity(features1, features2) * semanticWeight;
+        double upperBound = semanticScore + basicBound * basicWeight;
+        if (upperBound + PRUNE_TOLERANCE < threshold) {
+            overlapPruned.incrementAndGet();
+            return upperBound;
+        }
 
-        Set<String> union = new HashSet<>(words1);
-        union.addAll(words2);
+        // 阶段3：基础相似度至少达到 minBasic 才可能到达阈值
+        double minBasic = basicWeight > 0.0 ? (threshold - semanticScore) / basicWeight : 0.0;
+        double basicSim = calculateBasicSimilarity(features1.text, features2.text,
+                                                   Math.min(1.0, Math.max(0.0, minBasic - PRUNE_TOLERANCE)));
 
-        if (union.isEmpty()) {
-            return 0.0;
+        double score = semanticScore + basicSim * basicWeight;
+        if (score < threshold) {
+            editDistancePruned.incrementAndGet();
         }
-
-        return (double) intersection.size() / union.size();
+        return score;
     }
 
     /**
-     * 计算余弦相似度
+     * 基础相似度上界：编辑距离不小于长度差
      */
-    private double calculateCosineSimilarity(String text1, String text2) {
-        Map<String, Integer> freq1 = getWordFrequency(text1);
-        Map<String, Integer> freq2 = getWordFrequency(text2);
-
-        Set<String> allWords = new HashSet<>();
-        allWords.addAll(freq1.keySet());
-        allWords.addAll(freq2.keySet());
-
-        if (allWords.isEmpty()) {
-            return 0.0;
+    private double calculateBasicSimilarityBound(int len1, int len2) {
+        int maxLength = Math.max(len1, len2);
+        if (maxLength == 0) {
+            return 1.0;
         }
+        return 1.0 - (double) Math.abs(len1 - len2) / maxLength;
+    }
 
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
-
-        for (String word : allWords) {
-            int count1 = freq1.getOrDefault(word, 0);
-            int count2 = freq2.getOrDefault(word, 0);
-
-            dotProduct += count1 * count2;
-            norm1 += count1 * count1;
-            norm2 += count2 * count2;
+    /**
+     * 集合相似度上界：交集不超过较小集合，并集不小于较大集合
+     */
+    private double calculateSizeRatio(int size1, int size2, double emptyValue) {
+        int max = Math.max(size1, size2);
+        if (max == 0) {
+            return emptyValue;
         }
+        return (double) Math.min(size1, size2) / max;
+    }
 
-        if (norm1 == 0.0 || norm2 == 0.0) {
-            return 0.0;
+    /**
+     * 基于特征计算语义相似度
+     */
+    private double calculateSemanticSimilarity(SimilarityFeatures features1, SimilarityFeatures features2) {
+        if (features1.normalized.equals(features2.normalized)) {
+            return 1.0;
         }
 
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+        // 计算多种相似度指标
+        double jaccardSim = calculateJaccardSimilarity(features1, features2);
+        double cosineSim = calculateCosineSimilarity(features1, features2);
+        double lengthSim = calculateLengthSimilarity(features1.normalizedLength(), features2.normalizedLength());
+        double ngramSim = calculateNGramSimilarity(features1.grams, features2.grams);
+        
+        // 加权组合多种算法
+        return jaccardSim * jaccardWeight + 
+               cosineSim * cosineWeight + 
+               lengthSim * lengthWeight + 
+               ngramSim * ngramWeight;
     }
 
     /**
-     * 计算N-gram相似度
+     * 提取文本特征
      */
-    private double calculateNGramSimilarity(String text1, String text2) {
-        Set<String> ngrams1 = generateNGrams(text1, DEFAULT_NGRAM_SIZE);
-        Set<String> ngrams2 = generateNGrams(text2, DEFAULT_NGRAM_SIZE);
+    private SimilarityFeatures extractFeatures(String text) {
+        return SimilarityFeatures.build(text);
+    }
 
-        if (ngrams1.isEmpty() && ngrams2.isEmpty()) {
-            return 1.0;
+    /**
+     * 获取缓存任务的特征，未命中时计算并放入特征缓存
+     */
+    private SimilarityFeatures getTaskFeatures(ModelTask task) {
+        if (task.getTaskId() == null) {
+            return extractFeatures(task.getInputText());
         }
 
-        Set<String> intersection = new HashSet<>(ngrams1);
-        intersection.retainAll(ngrams2);
+        SimilarityFeatures features = featureCache.get(task.getTaskId(), task.getInputText());
+        if (features == null) {
+            features = extractFeatures(task.getInputText());
+            featureCache.put(task.getTaskId(), features);
+        }
+        return features;
+    }
 
-        Set<String> union = new HashSet<>(ngrams1);
-        union.addAll(ngrams2);
+    /**
+     * 计算Jaccard相似度（排序词哈希归并）
+     */
+    private double calculateJaccardSimilarity(SimilarityFeatures features1, SimilarityFeatures features2) {
+        long[] words1 = features1.words;
+        long[] words2 = features2.words;
+        int i = 0;
+        int j = 0;
+        int intersection = 0;
+        while (i < words1.length && j < words2.length) {
+            if (words1[i] == words2[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (words1[i] < words2[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
 
-        if (union.isEmpty()) {
+        int union = words1.length + words2.length - intersection;
+        if (union == 0) {
             return 0.0;
         }
 
-        return (double) intersection.size() / union.size();
+        return (double) intersection / union;
     }
 
     /**
-     * 获取词频统计
+     * 计算余弦相似度（排序词频向量点积）
      */
-    private Map<String, Integer> getWordFrequency(String text) {
-        Map<String, Integer> frequency = new HashMap<>();
-        String[] words = WORD_PATTERN.split(text);
+    private double calculateCosineSimilarity(SimilarityFeatures features1, SimilarityFeatures features2) {
+        if (features1.wordNormSquared == 0.0 || features2.wordNormSquared == 0.0) {
+            return 0.0;
+        }
 
-        for (String word : words) {
-            if (!word.isEmpty()) {
-                frequency.put(word, frequency.getOrDefault(word, 0) + 1);
+        long[] words1 = features1.words;
+        long[] words2 = features2.words;
+        int i = 0;
+        int j = 0;
+        double dotProduct = 0.0;
+        while (i < words1.length && j < words2.length) {
+            if (words1[i] == words2[j]) {
+                dotProduct += features1.wordCounts[i] * features2.wordCounts[j];
+                i++;
+                j++;
+            } else if (words1[i] < words2[j]) {
+                i++;
+            } else {
+                j++;
             }
         }
 
-        return frequency;
+        return dotProduct / (Math.sqrt(features1.wordNormSquared) * Math.sqrt(features2.wordNormSquared));
     }
 
     /**
-     * 生成N-gram
+     * 计算N-gram相似度（排序二元组编码归并）
      */
-    private Set<String> generateNGrams(String text, int n) {
-        Set<String> ngrams = new HashSet<>();
-        
-        if (text.length() < n) {
-            ngrams.add(text);
-            return ngrams;
+    private double calculateNGramSimilarity(int[] ngrams1, int[] ngrams2) {
+        if (ngrams1.length == 0 && ngrams2.length == 0) {
+            return 1.0;
         }
 
-        for (int i = 0; i <= text.length() - n; i++) {
-            ngrams.add(text.substring(i, i + n));
+        int i = 0;
+        int j = 0;
+        int intersection = 0;
+        while (i < ngrams1.length && j < ngrams2.length) {
+            if (ngrams1[i] == ngrams2[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (ngrams1[i] < ngrams2[j]) {
+                i++;
+            } else {
+                j++;
+            }
         }
 
-        return ngrams;
+        int union = ngrams1.length + ngrams2.length - intersection;
+        if (union == 0) {
+            return 0.0;
+        }
+
+        return (double) intersection / union;
     }
 
     /**
      * 计算长度相似性
      */
-    private double calculateLengthSimilarity(String text1, String text2) {
-        int len1 = text1.length();
-        int len2 = text2.length();
-        
+    private double calculateLengthSimilarity(int len1, int len2) {
         if (len1 == 0 && len2 == 0) {
             return 1.0;
         }
@@ -266,41 +470,6 @@ public class SimilarityServiceImpl implements SimilarityService {
         return (double) minLen / maxLen;
     }
 
-    /**
-     * 计算编辑距离（Levenshtein距离）
-     */
-    private int calculateEditDistance(String str1, String str2) {
-        int len1 = str1.length();
-        int len2 = str2.length();
-
-        // 创建动态规划表
-        int[][] dp = new int[len1 + 1][len2 + 1];
-
-        // 初始化边界条件
-        for (int i = 0; i <= len1; i++) {
-            dp[i][0] = i;
-        }
-        for (int j = 0; j <= len2; j++) {
-            dp[0][j] = j;
-        }
-
-        // 填充动态规划表
-        for (int i = 1; i <= len1; i++) {
-            for (int j = 1; j <= len2; j++) {
-                if (str1.charAt(i - 1) == str2.charAt(j - 1)) {
-                    dp[i][j] = dp[i - 1][j - 1];
-                } else {
-                    dp[i][j] = 1 + Math.min(
-                        Math.min(dp[i - 1][j], dp[i][j - 1]),
-                        dp[i - 1][j - 1]
-                    );
-                }
-            }
-        }
-
-        return dp[len1][len2];
-    }
-
     @Override
     public boolean isExactMatch(double similarity) {
         return similarity >= exactThreshold;
@@ -362,6 +531,69 @@ public class SimilarityServiceImpl implements SimilarityService {
         return calculateSimilarity(fileName1, fileName2);
     }
 
+    @Override
+    public int[] calculateMinHashSignature(String text) {
+        return MinHash.signature(SimilarityIndexServiceImpl.extractGrams(text));
+    }
+
+    @Override
+    public double estimateJaccardSimilarity(int[] signature1, int[] signature2) {
+        return MinHash.estimateJaccard(signature1, signature2);
+    }
+
+    @Override
+    public List<ModelTask> findNearDuplicates(String text, ModelTask.TaskType taskType,
+                                              String complexity, String outputFormat, int limit) {
+        return similarityIndexService.findNearDuplicates(text, taskType, complexity, outputFormat, limit);
+    }
+
+    @Override
+    public CascadeStatistics getCascadeStatistics() {
+        return new CascadeStatistics(cascadeCandidates.get(), sizeBoundPruned.get(),
+                                     overlapPruned.get(), editDistancePruned.get());
+    }
+
+    /**
+     * 批量打分子任务：候选数超过 PARALLEL_LEAF_SIZE 时二分，各自写入 scores 的不同区间
+     */
+    private final class BatchScoringTask extends RecursiveAction {
+        private final String query;
+        private final SimilarityFeatures queryFeatures;
+        private final List<ModelTask> candidates;
+        private final double threshold;
+        private final double[] scores;
+        private final int from;
+        private final int to;
+
+        BatchScoringTask(String query, SimilarityFeatures queryFeatures, List<ModelTask> candidates,
+                         double threshold, double[] scores, int from, int to) {
+            this.query = query;
+            this.queryFeatures = queryFeatures;
+            this.candidates = candidates;
+            this.threshold = threshold;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_LEAF_SIZE) {
+                scoreRange(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BatchScoringTask(query, queryFeatures, candidates, threshold, scores, from, middle),
+                      new BatchScoringTask(query, queryFeatures, candidates, threshold, scores, middle, to));
+        }
+
+        void scoreRange(int start, int end) {
+            for (int i = start; i < end; i++) {
+                scores[i] = scoreCandidate(query, queryFeatures, candidates.get(i), threshold);
+            }
+        }
+    }
+
     /**
      * 从文件路径中提取文件名
      */
@@ -0,0 +1,112 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.service.SingleFlightService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 生成请求合并服务实现
+ * 请求键 → 进行中的生成；领导任务完成或失败时移除登记并完成结果 Future，
+ * 跟随任务通过 whenComplete 挂接，Future 已完成时立即回调，不会丢失通知。
+ * 超过 max-age 仍未完成的登记不再接收跟随任务，由新请求重新发起生成
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class SingleFlightServiceImpl implements SingleFlightService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlightServiceImpl.class);
+
+    @Value("${cache.single-flight.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.single-flight.max-age-minutes:30}")
+    private long maxAgeMinutes;
+
+    private final ConcurrentHashMap<String, Flight> flightsByKey = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Flight> flightsByLeader = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong(0);
+    private final AtomicLong coalescedRequests = new AtomicLong(0);
+    private final AtomicLong failedFlights = new AtomicLong(0);
+    private final AtomicLong expiredFlights = new AtomicLong(0);
+
+    @Override
+    public Flight begin(String requestKey, String taskId) {
+        if (!enabled || requestKey == null) {
+            leaders.incrementAndGet();
+            return new Flight(taskId, System.nanoTime());
+        }
+
+        long now = System.nanoTime();
+        long maxAgeNanos = TimeUnit.MINUTES.toNanos(maxAgeMinutes);
+        Flight flight = flightsByKey.compute(requestKey, (key, existing) -> {
+            if (existing != null && now - existing.getStartedAt() <= maxAgeNanos) {
+                existing.getFollowerTaskIds().add(taskId);
+                return existing;
+            }
+            if (existing != null) {
+                expiredFlights.incrementAndGet();
+                logger.warn("In-flight generation expired, starting a new one: key={}, leader={}",
+                            key, existing.getLeaderTaskId());
+            }
+            return new Flight(taskId, now);
+        });
+
+        if (flight.isLeader(taskId)) {
+            flightsByLeader.put(taskId, flight);
+            leaders.incrementAndGet();
+        } else {
+            coalescedRequests.incrementAndGet();
+            logger.debug("Coalesced generation request: taskId={}, leaderTaskId={}", taskId, flight.getLeaderTaskId());
+        }
+        return flight;
+    }
+
+    @Override
+    public void complete(String requestKey, ModelTask leaderTask) {
+        Flight flight = remove(requestKey, leaderTask.getTaskId());
+        if (flight != null) {
+            flight.getResult().complete(leaderTask);
+        }
+    }
+
+    @Override
+    public void fail(String requestKey, String leaderTaskId, Throwable error) {
+        Flight flight = remove(requestKey, leaderTaskId);
+        if (flight != null) {
+            failedFlights.incrementAndGet();
+            flight.getResult().completeExceptionally(error);
+        }
+    }
+
+    @Override
+    public List<String> getFollowers(String leaderTaskId) {
+        Flight flight = leaderTaskId != null ? flightsByLeader.get(leaderTaskId) : null;
+        return flight != null ? flight.getFollowerTaskIds() : Collections.emptyList();
+    }
+
+    @Override
+    public SingleFlightStatistics getStatistics() {
+        return new SingleFlightStatistics(flightsByKey.size(), leaders.get(), coalescedRequests.get(),
+                                          failedFlights.get(), expiredFlights.get());
+    }
+
+    private Flight remove(String requestKey, String leaderTaskId) {
+        Flight flight = leaderTaskId != null ? flightsByLeader.remove(leaderTaskId) : null;
+        if (flight != null && requestKey != null) {
+            flightsByKey.remove(requestKey, flight);
+        }
+        return flight;
+    }
+}
@@ -0,0 +1,149 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.service.TaskEventHub;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 任务状态事件发布/订阅服务实现
+ * 订阅按任务ID登记；有订阅方的事件交给单个分发线程按发布顺序回调，同一任务的事件不会乱序。
+ * 分发线程只做回调，订阅方在回调中入队后立即返回，推送由订阅方自己的线程完成
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class TaskEventHubImpl implements TaskEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskEventHubImpl.class);
+
+    private final ConcurrentHashMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriptions = new AtomicInteger(0);
+
+    private final AtomicLong publishedEvents = new AtomicLong(0);
+    private final AtomicLong deliveredEvents = new AtomicLong(0);
+    private final AtomicLong listenerErrors = new AtomicLong(0);
+
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    public void init() {
+        dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-event-hub");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    @Override
+    public void publish(TaskStatusEvent event) {
+        if (event == null || event.getTaskId() == null) {
+            return;
+        }
+        publishedEvents.incrementAndGet();
+        Set<Subscriber> targets = subscribers.get(event.getTaskId());
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> deliver(event));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Task event hub is shut down, dropping event for {}", event.getTaskId());
+        }
+    }
+
+    @Override
+    public Subscription subscribe(Collection<String> taskIds, Consumer<TaskStatusEvent> listener) {
+        Subscriber subscriber = new Subscriber(new ArrayList<>(taskIds), listener);
+        for (String taskId : subscriber.taskIds) {
+            subscribers.compute(taskId, (key, set) -> {
+                Set<Subscriber> current = set != null ? set : new CopyOnWriteArraySet<>();
+                current.add(subscriber);
+                return current;
+            });
+        }
+        subscriptions.incrementAndGet();
+        return subscriber;
+    }
+
+    @Override
+    public Set<String> getWatchedTaskIds() {
+        return new HashSet<>(subscribers.keySet());
+    }
+
+    @Override
+    public HubStatistics getStatistics() {
+        return new HubStatistics(subscriptions.get(), subscribers.size(), publishedEvents.get(),
+                                 deliveredEvents.get(), listenerErrors.get());
+    }
+
+    private void deliver(TaskStatusEvent event) {
+        Set<Subscriber> targets = subscribers.get(event.getTaskId());
+        if (targets == null) {
+            return;
+        }
+        for (Subscriber subscriber : targets) {
+            if (subscriber.closed.get()) {
+                continue;
+            }
+            try {
+                subscriber.listener.accept(event);
+                deliveredEvents.incrementAndGet();
+            } catch (Exception e) {
+                listenerErrors.incrementAndGet();
+                logger.warn("Task event listener failed: taskId={}", event.getTaskId(), e);
+            }
+        }
+    }
+
+    /**
+     * 一个订阅方
+     */
+    private final class Subscriber implements Subscription {
+        final List<String> taskIds;
+        final Consumer<TaskStatusEvent> listener;
+        final AtomicBoolean closed = new AtomicBoolean(false);
+
+        Subscriber(List<String> taskIds, Consumer<TaskStatusEvent> listener) {
+            this.taskIds = taskIds;
+            this.listener = listener;
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            for (String taskId : taskIds) {
+                subscribers.computeIfPresent(taskId, (key, set) -> {
+                    set.remove(this);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+            subscriptions.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.service.TaskProgressBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务进度写缓冲服务实现
+ * 每个任务只保留最新一次进度，单独的线程定期（或待写入任务过多时）把变化过的进度用一个 JDBC 批量更新写入。
+ * 更新只作用于仍在 PENDING/PROCESSING 的任务，刷新晚于终态写入时不会覆盖终态；
+ * 进度在写入成功前一直保留在内存中，期间的状态查询读取内存中的值
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class TaskProgressBufferImpl implements TaskProgressBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskProgressBufferImpl.class);
+
+    private static final String UPDATE_PROGRESS_SQL =
+        "UPDATE model_tasks SET progress = ?, updated_at = ? " +
+        "WHERE task_id = ? AND status IN ('PENDING', 'PROCESSING')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${cache.progress.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${cache.progress.max-pending:10000}")
+    private int maxPending;
+
+    private final Map<String, PendingProgress> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong recordedUpdates = new AtomicLong(0);
+    private final AtomicLong writtenRows = new AtomicLong(0);
+    private final AtomicLong flushCount = new AtomicLong(0);
+    private final AtomicLong failedFlushes = new AtomicLong(0);
+    private final AtomicLong servedFromBuffer = new AtomicLong(0);
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-progress-buffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    @Override
+    public void record(String taskId, int progress) {
+        if (taskId == null) {
+            return;
+        }
+
+        pending.put(taskId, new PendingProgress(progress, LocalDateTime.now()));
+        recordedUpdates.incrementAndGet();
+
+        // 待写入任务过多时提前刷新
+        if (pending.size() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    @Override
+    public ModelTask applyPending(ModelTask task) {
+        if (task == null || !isActive(task.getStatus())) {
+            return task;
+        }
+        PendingProgress progress = pending.get(task.getTaskId());
+        if (progress != null) {
+            task.setProgress(progress.progress);
+            task.setUpdatedAt(progress.updatedAt);
+            servedFromBuffer.incrementAndGet();
+        }
+        return task;
+    }
+
+    @Override
+    public synchronized int flush() {
+        flushScheduled.set(false);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Map.Entry<String, PendingProgress>> batch = new ArrayList<>(pending.entrySet());
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (Map.Entry<String, PendingProgress> entry : batch) {
+            PendingProgress progress = entry.getValue();
+            args.add(new Object[] {progress.progress, Timestamp.valueOf(progress.updatedAt), entry.getKey()});
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_PROGRESS_SQL, args);
+        } catch (Exception e) {
+            // 写入失败时保留在内存中，下次刷新重试
+            failedFlushes.incrementAndGet();
+            logger.error("Error flushing task progress, {} tasks kept pending", batch.size(), e);
+            return 0;
+        }
+
+        // 只移除已写入的值，刷新期间记录的新进度留到下次
+        for (Map.Entry<String, PendingProgress> entry : batch) {
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+        writtenRows.addAndGet(batch.size());
+        flushCount.incrementAndGet();
+        logger.debug("Flushed progress for {} tasks", batch.size());
+        return batch.size();
+    }
+
+    @Override
+    public ProgressBufferStatistics getStatistics() {
+        return new ProgressBufferStatistics(recordedUpdates.get(), writtenRows.get(), flushCount.get(),
+                                            failedFlushes.get(), servedFromBuffer.get(), pending.size());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Unexpected error flushing task progress", e);
+        }
+    }
+
+    private static boolean isActive(ModelTask.TaskStatus status) {
+        return status == ModelTask.TaskStatus.PENDING || status == ModelTask.TaskStatus.PROCESSING;
+    }
+
+    /**
+     * 单个任务待写入的进度，不可变，刷新后按实例比较移除
+     */
+    private static final class PendingProgress {
+        final int progress;
+        final LocalDateTime updatedAt;
+
+        PendingProgress(int progress, LocalDateTime updatedAt) {
+            this.progress = progress;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.service.TaskStatusRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进行中任务状态登记服务实现
+ * 快照由 ModelTask 的实体监听器在每次写入后更新，进度由生成流程直接更新。
+ * 超过 max-idle-seconds 没有更新的快照视为过期（例如作业已被其他节点接管），查询回到数据库，并由后台线程清理
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class TaskStatusRegistryImpl implements TaskStatusRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusRegistryImpl.class);
+
+    @Value("${cache.status-registry.max-idle-seconds:120}")
+    private long maxIdleSeconds;
+
+    private final ConcurrentHashMap<String, StatusSnapshot> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong expiredEntries = new AtomicLong(0);
+
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void init() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-status-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, maxIdleSeconds / 2);
+        sweeper.scheduleWithFixedDelay(this::sweepIdle, period, period, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    @Override
+    public void onTaskSaved(ModelTask task) {
+        if (task == null || task.getTaskId() == null) {
+            return;
+        }
+        if (isActive(task.getStatus())) {
+            entries.put(task.getTaskId(), new StatusSnapshot(task.getTaskId(), task.getStatus(),
+                task.getProgress(), task.getCreatedAt(), task.getUpdatedAt(), System.nanoTime()));
+        } else {
+            entries.remove(task.getTaskId());
+        }
+    }
+
+    @Override
+    public ModelTask updateProgress(String taskId, int progress) {
+        if (taskId == null) {
+            return null;
+        }
+        StatusSnapshot previous = entries.get(taskId);
+        StatusSnapshot updated = entries.computeIfPresent(taskId,
+            (id, snapshot) -> snapshot.withProgress(progress, LocalDateTime.now()));
+        if (updated == null || (previous != null && previous.updatedAt == updated.updatedAt)) {
+            return null;
+        }
+        return updated.toTask();
+    }
+
+    @Override
+    public ModelTask find(String taskId) {
+        StatusSnapshot snapshot = taskId != null ? entries.get(taskId) : null;
+        if (snapshot == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (isIdle(snapshot, System.nanoTime())) {
+            if (entries.remove(taskId, snapshot)) {
+                expiredEntries.incrementAndGet();
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return snapshot.toTask();
+    }
+
+    @Override
+    public RegistryStatistics getStatistics() {
+        return new RegistryStatistics(entries.size(), hits.get(), misses.get(), expiredEntries.get());
+    }
+
+    private void sweepIdle() {
+        try {
+            long now = System.nanoTime();
+            entries.forEach((taskId, snapshot) -> {
+                if (isIdle(snapshot, now) && entries.remove(taskId, snapshot)) {
+                    expiredEntries.incrementAndGet();
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("Failed to sweep idle task status entries", e);
+        }
+    }
+
+    private boolean isIdle(StatusSnapshot snapshot, long now) {
+        return now - snapshot.touchedAt > TimeUnit.SECONDS.toNanos(maxIdleSeconds);
+    }
+
+    private static boolean isActive(ModelTask.TaskStatus status) {
+        return status == ModelTask.TaskStatus.PENDING || status == ModelTask.TaskStatus.PROCESSING;
+    }
+
+    /**
+     * 任务状态快照，不可变
+     */
+    private static final class StatusSnapshot {
+        final String taskId;
+        final ModelTask.TaskStatus status;
+        final Integer progress;
+        final LocalDateTime createdAt;
+        final LocalDateTime updatedAt;
+        final long touchedAt;
+
+        StatusSnapshot(String taskId, ModelTask.TaskStatus status, Integer progress,
+                       LocalDateTime createdAt, LocalDateTime updatedAt, long touchedAt) {
+            this.taskId = taskId;
+            this.status = status;
+            this.progress = progress;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.touchedAt = touchedAt;
+        }
+
+        StatusSnapshot withProgress(int newProgress, LocalDateTime now) {
+            // 进度未变化时保留更新时间，状态查询的 ETag 不变
+            LocalDateTime changedAt = progress != null && progress == newProgress ? updatedAt : now;
+            return new StatusSnapshot(taskId, status, newProgress, createdAt, changedAt, System.nanoTime());
+        }
+
+        ModelTask toTask() {
+            ModelTask task = new ModelTask();
+            task.setTaskId(taskId);
+            task.setStatus(status);
+            task.setProgress(progress);
+            task.setCreatedAt(createdAt);
+            task.setUpdatedAt(updatedAt);
+            return task;
+        }
+    }
+}
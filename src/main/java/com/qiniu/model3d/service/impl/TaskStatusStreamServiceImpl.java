@@ -0,0 +1,488 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.dto.ApiResponse;
+import com.qiniu.model3d.dto.TaskStatusResponse;
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.repository.ModelTaskRepository;
+import com.qiniu.model3d.service.GenerationJobQueueService;
+import com.qiniu.model3d.service.TaskEventHub;
+import com.qiniu.model3d.service.TaskProgressBuffer;
+import com.qiniu.model3d.service.TaskStatusRegistry;
+import com.qiniu.model3d.service.TaskStatusStreamService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 任务状态推送服务实现
+ * SSE 连接和长轮询都订阅 TaskEventHub：进度事件直接由事件内容组装响应，终态事件在只读事务中重新加载任务以带上结果信息。
+ * 事件回调只入队：每个 SSE 连接按任务保留最新一个待推送事件，由推送线程池串行发送，
+ * 慢客户端只占用一个推送线程，不阻塞事件分发；终态加载同样在推送线程池中执行。
+ * SSE 连接定期发送注释行保活；长轮询挂起期间只登记订阅，不占用线程。
+ * 事件只在执行任务的节点发布，不由本节点执行的任务定期批量查询数据库，状态变化时补发事件
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class TaskStatusStreamServiceImpl implements TaskStatusStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusStreamServiceImpl.class);
+
+    @Autowired
+    private ModelTaskRepository modelTaskRepository;
+
+    @Autowired
+    private TaskStatusRegistry taskStatusRegistry;
+
+    @Autowired
+    private TaskProgressBuffer taskProgressBuffer;
+
+    @Autowired
+    private TaskEventHub taskEventHub;
+
+    @Autowired
+    private GenerationJobQueueService generationJobQueueService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.status-stream.sse-timeout-seconds:600}")
+    private long sseTimeoutSeconds;
+
+    @Value("${app.status-stream.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${app.status-stream.max-task-ids:50}")
+    private int maxTaskIds;
+
+    @Value("${app.status-stream.max-long-poll-seconds:60}")
+    private long maxLongPollSeconds;
+
+    @Value("${app.status-stream.worker-threads:4}")
+    private int workerThreads;
+
+    /** 查询其他节点执行的任务状态的间隔，0 表示不查询 */
+    @Value("${app.status-stream.remote-poll-seconds:5}")
+    private long remotePollSeconds;
+
+    /** 单次批量查询的任务数 */
+    private static final int REMOTE_POLL_BATCH = 500;
+
+    private final Set<StatusStream> openStreams = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger parkedRequests = new AtomicInteger(0);
+    /** 其他节点执行的任务最近一次查询到的版本 */
+    private final Map<String, String> polledVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong sentEvents = new AtomicLong(0);
+    private final AtomicLong completedLongPolls = new AtomicLong(0);
+    private final AtomicLong timedOutLongPolls = new AtomicLong(0);
+
+    private TransactionTemplate readOnlyTransaction;
+    private ScheduledExecutorService heartbeat;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-status-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 每个连接同时最多一个推送任务排队，队列长度不超过连接数
+        AtomicInteger workerIndex = new AtomicInteger(0);
+        workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), runnable -> {
+            Thread thread = new Thread(runnable, "task-status-push-" + workerIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        if (remotePollSeconds > 0) {
+            heartbeat.scheduleWithFixedDelay(this::pollRemoteTasks, remotePollSeconds, remotePollSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        workers.shutdownNow();
+        for (StatusStream stream : openStreams) {
+            stream.complete();
+        }
+    }
+
+    @Override
+    public SseEmitter openStream(List<String> taskIds) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (taskIds != null) {
+            for (String taskId : taskIds) {
+                if (taskId != null && !taskId.trim().isEmpty()) {
+                    ids.add(taskId.trim());
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("任务ID不能为空");
+        }
+        if (ids.size() > maxTaskIds) {
+            throw new IllegalArgumentException("一次最多订阅" + maxTaskIds + "个任务");
+        }
+
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(sseTimeoutSeconds));
+        StatusStream stream = new StatusStream(emitter, ids);
+        emitter.onCompletion(stream::close);
+        emitter.onTimeout(stream::complete);
+        emitter.onError(error -> stream.close());
+
+        // 先订阅再推送当前状态，期间发生的变化不会丢失；重复的版本不会推送两次
+        stream.subscription = taskEventHub.subscribe(ids, stream::onEvent);
+        openStreams.add(stream);
+        for (String taskId : ids) {
+            stream.send(taskId, loadStatus(taskId));
+        }
+        return emitter;
+    }
+
+    @Override
+    public DeferredResult<ResponseEntity<ApiResponse<TaskStatusResponse>>> awaitChange(String taskId, String version,
+                                                                                        long timeoutSeconds) {
+        long timeout = Math.max(1, Math.min(timeoutSeconds, maxLongPollSeconds));
+        DeferredResult<ResponseEntity<ApiResponse<TaskStatusResponse>>> result =
+            new DeferredResult<>(TimeUnit.SECONDS.toMillis(timeout));
+        String knownVersion = normalizeVersion(version);
+        AtomicBoolean parked = new AtomicBoolean(false);
+        AtomicReference<TaskEventHub.Subscription> subscription = new AtomicReference<>();
+        Runnable release = () -> {
+            if (parked.compareAndSet(true, false)) {
+                parkedRequests.decrementAndGet();
+            }
+            TaskEventHub.Subscription current = subscription.get();
+            if (current != null) {
+                current.close();
+            }
+        };
+
+        Consumer<StatusView> complete = view -> {
+            if (result.setResult(toResponse(view))) {
+                completedLongPolls.incrementAndGet();
+                release.run();
+            }
+        };
+        AtomicBoolean loadingTerminal = new AtomicBoolean(false);
+        subscription.set(taskEventHub.subscribe(Collections.singletonList(taskId), event -> {
+            if (result.isSetOrExpired() || event.getVersion().equals(knownVersion)) {
+                return;
+            }
+            if (!event.isTerminal()) {
+                complete.accept(StatusView.of(event));
+            } else if (loadingTerminal.compareAndSet(false, true)) {
+                // 终态需要查询数据库，不在分发线程中执行；线程池已关闭时由超时返回
+                try {
+                    workers.execute(() -> complete.accept(loadStatus(taskId)));
+                } catch (RejectedExecutionException e) {
+                    logger.debug("推送线程池已关闭，长轮询等待超时: {}", taskId);
+                }
+            }
+        }));
+        result.onTimeout(() -> {
+            timedOutLongPolls.incrementAndGet();
+            release.run();
+            result.setResult(toResponse(loadStatus(taskId)));
+        });
+        result.onCompletion(release);
+
+        StatusView current = loadStatus(taskId);
+        if (current == null || knownVersion == null || !knownVersion.equals(current.version)) {
+            result.setResult(toResponse(current));
+            release.run();
+        } else {
+            parked.set(true);
+            parkedRequests.incrementAndGet();
+            // 登记挂起之前结果可能已经被事件设置
+            if (result.isSetOrExpired()) {
+                release.run();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public StreamStatistics getStatistics() {
+        return new StreamStatistics(openStreams.size(), parkedRequests.get(), sentEvents.get(),
+                                    completedLongPolls.get(), timedOutLongPolls.get(), taskEventHub.getStatistics());
+    }
+
+    /**
+     * 加载任务当前状态：登记中的进行中任务直接取快照，
+     * 其余任务在只读事务中查询，已完成任务的预览图等关联数据可以正常读取
+     */
+    private StatusView loadStatus(String taskId) {
+        ModelTask registered = taskStatusRegistry.find(taskId);
+        if (registered != null) {
+            return StatusView.of(registered);
+        }
+        try {
+            return readOnlyTransaction.execute(status -> {
+                ModelTask task = taskProgressBuffer.applyPending(modelTaskRepository.findByTaskId(taskId).orElse(null));
+                return task != null ? StatusView.of(task) : null;
+            });
+        } catch (Exception e) {
+            logger.warn("加载任务状态失败: taskId={}", taskId, e);
+            return null;
+        }
+    }
+
+    private ResponseEntity<ApiResponse<TaskStatusResponse>> toResponse(StatusView view) {
+        if (view == null) {
+            return ResponseEntity.ok(ApiResponse.notFound("任务不存在"));
+        }
+        return ResponseEntity.ok().eTag(view.version).body(ApiResponse.success("查询成功", view.response));
+    }
+
+    private static String normalizeVersion(String version) {
+        if (version == null) {
+            return null;
+        }
+        String normalized = version.trim();
+        if (normalized.startsWith("W/")) {
+            normalized = normalized.substring(2);
+        }
+        if (normalized.length() >= 2 && normalized.startsWith("\"") && normalized.endsWith("\"")) {
+            normalized = normalized.substring(1, normalized.length() - 1);
+        }
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    private void sendHeartbeats() {
+        for (StatusStream stream : openStreams) {
+            stream.requestHeartbeat();
+        }
+    }
+
+    /**
+     * 批量查询有订阅方但不由本节点执行的任务，版本变化时发布事件；
+     * 本节点执行的任务和版本未变化的任务不重复发布
+     */
+    private void pollRemoteTasks() {
+        try {
+            List<String> remoteTaskIds = new ArrayList<>();
+            for (String taskId : taskEventHub.getWatchedTaskIds()) {
+                if (!generationJobQueueService.isHeldLocally(taskId)) {
+                    remoteTaskIds.add(taskId);
+                }
+            }
+            polledVersions.keySet().retainAll(remoteTaskIds);
+            for (int from = 0; from < remoteTaskIds.size(); from += REMOTE_POLL_BATCH) {
+                List<String> batch = remoteTaskIds.subList(from, Math.min(from + REMOTE_POLL_BATCH, remoteTaskIds.size()));
+                for (ModelTask task : modelTaskRepository.findByTaskIdIn(batch)) {
+                    TaskEventHub.TaskStatusEvent event = TaskEventHub.TaskStatusEvent.of(task);
+                    if (!event.getVersion().equals(polledVersions.put(task.getTaskId(), event.getVersion()))) {
+                        taskEventHub.publish(event);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("查询其他节点任务状态失败", e);
+        }
+    }
+
+    /**
+     * 状态视图：响应内容和版本
+     */
+    private static final class StatusView {
+        final TaskStatusResponse response;
+        final String version;
+        final boolean terminal;
+
+        StatusView(TaskStatusResponse response, String version, boolean terminal) {
+            this.response = response;
+            this.version = version;
+            this.terminal = terminal;
+        }
+
+        static StatusView of(ModelTask task) {
+            TaskEventHub.TaskStatusEvent event = TaskEventHub.TaskStatusEvent.of(task);
+            return new StatusView(new TaskStatusResponse(task), event.getVersion(), event.isTerminal());
+        }
+
+        static StatusView of(TaskEventHub.TaskStatusEvent event) {
+            TaskStatusResponse response = new TaskStatusResponse();
+            response.setTaskId(event.getTaskId());
+            response.setStatus(event.getStatus());
+            response.setProgress(event.getProgress());
+            return new StatusView(response, event.getVersion(), event.isTerminal());
+        }
+    }
+
+    /**
+     * 一个 SSE 连接
+     * 事件按任务合并到待推送表（每个任务只保留最新事件，终态事件不被覆盖），表的大小不超过订阅的任务数；
+     * 同一连接同时只有一个推送任务在线程池中执行
+     */
+    private final class StatusStream {
+        final SseEmitter emitter;
+        final Set<String> remaining;
+        final Map<String, String> sentVersions = new ConcurrentHashMap<>();
+        final Map<String, TaskEventHub.TaskStatusEvent> pendingEvents = new ConcurrentHashMap<>();
+        final AtomicBoolean closed = new AtomicBoolean(false);
+        final AtomicBoolean draining = new AtomicBoolean(false);
+        volatile boolean heartbeatDue;
+        volatile TaskEventHub.Subscription subscription;
+
+        StatusStream(SseEmitter emitter, Set<String> taskIds) {
+            this.emitter = emitter;
+            this.remaining = ConcurrentHashMap.newKeySet();
+            this.remaining.addAll(taskIds);
+        }
+
+        /**
+         * 在分发线程中调用，只入队不推送
+         */
+        void onEvent(TaskEventHub.TaskStatusEvent event) {
+            if (closed.get() || event.getVersion().equals(sentVersions.get(event.getTaskId()))) {
+                return;
+            }
+            pendingEvents.merge(event.getTaskId(), event, (queued, latest) -> queued.isTerminal() ? queued : latest);
+            scheduleDrain();
+        }
+
+        void requestHeartbeat() {
+            heartbeatDue = true;
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (closed.get() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                workers.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                close();
+            }
+        }
+
+        /**
+         * 在推送线程池中发送待推送事件，终态事件在这里加载完整状态
+         */
+        private void drain() {
+            try {
+                boolean sent = false;
+                for (String taskId : pendingEvents.keySet()) {
+                    TaskEventHub.TaskStatusEvent event = pendingEvents.remove(taskId);
+                    if (event == null || closed.get() || event.getVersion().equals(sentVersions.get(taskId))) {
+                        continue;
+                    }
+                    send(taskId, event.isTerminal() ? loadStatus(taskId) : StatusView.of(event));
+                    sent = true;
+                }
+                if (heartbeatDue) {
+                    heartbeatDue = false;
+                    if (!sent) {
+                        heartbeat();
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            // 推送期间新到的事件
+            if (!pendingEvents.isEmpty() || heartbeatDue) {
+                scheduleDrain();
+            }
+        }
+
+        synchronized void send(String taskId, StatusView view) {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                if (view == null) {
+                    emitter.send(SseEmitter.event().name("not-found").data(taskId));
+                    finishTask(taskId);
+                    return;
+                }
+                if (view.version.equals(sentVersions.put(taskId, view.version))) {
+                    return;
+                }
+                emitter.send(SseEmitter.event()
+                    .name("status")
+                    .id(taskId + ":" + view.version)
+                    .data(view.response, MediaType.APPLICATION_JSON));
+                sentEvents.incrementAndGet();
+                if (view.terminal) {
+                    finishTask(taskId);
+                }
+            } catch (Exception e) {
+                logger.debug("SSE 推送失败，关闭连接: {}", e.getMessage());
+                close();
+            }
+        }
+
+        synchronized void heartbeat() {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().comment("keepalive"));
+            } catch (Exception e) {
+                close();
+            }
+        }
+
+        private void finishTask(String taskId) {
+            remaining.remove(taskId);
+            if (remaining.isEmpty()) {
+                complete();
+            }
+        }
+
+        void complete() {
+            if (!closed.get()) {
+                close();
+                emitter.complete();
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                openStreams.remove(this);
+                pendingEvents.clear();
+                TaskEventHub.Subscription current = subscription;
+                if (current != null) {
+                    current.close();
+                }
+            }
+        }
+    }
+}
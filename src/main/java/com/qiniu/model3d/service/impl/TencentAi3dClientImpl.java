@@ -2,6 +2,7 @@ package com.qiniu.model3d.service.impl;
 
 import com.qiniu.model3d.config.TencentCloudConfig;
 import com.qiniu.model3d.dto.*;
+import com.qiniu.model3d.service.ImagePreprocessService;
 import com.qiniu.model3d.service.TencentAi3dClient;
 import com.tencentcloudapi.ai3d.v20250513.Ai3dClient;
 import com.tencentcloudapi.common.Credential;
@@ -33,6 +34,9 @@ public class TencentAi3dClientImpl implements TencentAi3dClient {
     @Autowired
     private TencentCloudConfig tencentCloudConfig;
 
+    @Autowired
+    private ImagePreprocessService imagePreprocessService;
+
     private Ai3dClient ai3dClient;
 
     /**
@@ -69,11 +73,23 @@ public class TencentAi3dClientImpl implements TencentAi3dClient {
 
     @Override
     public SubmitHunyuanTo3DJobResponse submitHunyuanTo3DJob(SubmitHunyuanTo3DJobRequest request) throws Exception {
+        return submit(request, true);
+    }
+
+    /**
+     * 提交任务；prepareImages 为 false 时图片已由调用方预处理，不再重复解码
+     */
+    private SubmitHunyuanTo3DJobResponse submit(SubmitHunyuanTo3DJobRequest request, boolean prepareImages) throws Exception {
         if (request == null) {
             throw new IllegalArgumentException("请求参数不能为空");
         }
 
         try {
+            // 提交前缩小并重新编码图片，减小请求体
+            if (prepareImages) {
+                imagePreprocessService.prepareRequest(request);
+            }
+
             // 创建官方SDK请求对象
             com.tencentcloudapi.ai3d.v20250513.models.SubmitHunyuanTo3DJobRequest sdkRequest = 
                 new com.tencentcloudapi.ai3d.v20250513.models.SubmitHunyuanTo3DJobRequest();
@@ -128,8 +144,10 @@ public class TencentAi3dClientImpl implements TencentAi3dClient {
             }
 
             // 调用官方SDK
+            long submitStartedAt = System.currentTimeMillis();
             com.tencentcloudapi.ai3d.v20250513.models.SubmitHunyuanTo3DJobResponse sdkResponse = 
                 ai3dClient.SubmitHunyuanTo3DJob(sdkRequest);
+            imagePreprocessService.recordSubmit(imagePayloadBytes(request), System.currentTimeMillis() - submitStartedAt);
 
             // 转换响应
             SubmitHunyuanTo3DJobResponse response = new SubmitHunyuanTo3DJobResponse();
@@ -235,6 +253,15 @@ public class TencentAi3dClientImpl implements TencentAi3dClient {
 
     @Override
     public SubmitHunyuanTo3DJobResponse submitImageBase64To3DJob(String imageBase64, String resultFormat, Boolean enablePBR) throws Exception {
+        return submit(imageBase64Request(imageBase64, resultFormat, enablePBR), true);
+    }
+
+    @Override
+    public SubmitHunyuanTo3DJobResponse submitPreparedImageBase64To3DJob(String imageBase64, String resultFormat, Boolean enablePBR) throws Exception {
+        return submit(imageBase64Request(imageBase64, resultFormat, enablePBR), false);
+    }
+
+    private static SubmitHunyuanTo3DJobRequest imageBase64Request(String imageBase64, String resultFormat, Boolean enablePBR) {
         if (!StringUtils.hasText(imageBase64)) {
             throw new IllegalArgumentException("图片Base64数据不能为空");
         }
@@ -247,8 +274,7 @@ public class TencentAi3dClientImpl implements TencentAi3dClient {
         if (enablePBR != null) {
             request.setEnablePBR(enablePBR);
         }
-
-        return submitHunyuanTo3DJob(request);
+        return request;
     }
 
     @Override
@@ -318,4 +344,19 @@ public class TencentAi3dClientImpl implements TencentAi3dClient {
         return String.format("TencentAi3dClient - Region: %s, Endpoint: ai3d.tencentcloudapi.com, Version: 2025-05-13", 
                            tencentCloudConfig.getRegion());
     }
-}
\ No newline at end of file
+
+    /**
+     * 请求中图片 Base64 的总字节数
+     */
+    private static long imagePayloadBytes(SubmitHunyuanTo3DJobRequest request) {
+        long bytes = request.getImageBase64() != null ? request.getImageBase64().length() : 0;
+        if (request.getMultiViewImages() != null) {
+            for (ViewImage viewImage : request.getMultiViewImages()) {
+                if (viewImage != null && viewImage.getImageBase64() != null) {
+                    bytes += viewImage.getImageBase64().length();
+                }
+            }
+        }
+        return bytes;
+    }
+}
@@ -4,7 +4,10 @@ import com.qiniu.model3d.dto.QueryHunyuanTo3DJobResponse;
 import com.qiniu.model3d.dto.SubmitHunyuanTo3DJobResponse;
 import com.qiniu.model3d.entity.ModelTask;
 import com.qiniu.model3d.service.AIModelService;
+import com.qiniu.model3d.service.ImagePreprocessService;
+import com.qiniu.model3d.service.ResultFileFetchService;
 import com.qiniu.model3d.service.TencentAi3dClient;
+import com.qiniu.model3d.service.UpstreamJobPollerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,14 +17,19 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Base64;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 /**
@@ -40,6 +48,15 @@ public class TencentHunyuanServiceImpl implements AIModelService {
     @Autowired
     private TencentAi3dClient tencentAi3dClient;
 
+    @Autowired
+    private UpstreamJobPollerService upstreamJobPollerService;
+
+    @Autowired
+    private ResultFileFetchService resultFileFetchService;
+
+    @Autowired
+    private ImagePreprocessService imagePreprocessService;
+
     @Value("${app.file.model-dir}")
     private String modelDir;
 
@@ -57,6 +74,15 @@ public class TencentHunyuanServiceImpl implements AIModelService {
                                       ModelTask.Complexity complexity, 
                                       ModelTask.OutputFormat format,
                                       Consumer<Integer> progressCallback) throws Exception {
+        return generateModelFromText(text, complexity, format, progressCallback, jobId -> { });
+    }
+
+    @Override
+    public String generateModelFromText(String text, 
+                                      ModelTask.Complexity complexity, 
+                                      ModelTask.OutputFormat format,
+                                      Consumer<Integer> progressCallback,
+                                      Consumer<String> upstreamJobCallback) throws Exception {
         
         logger.info("开始使用腾讯混元服务根据文本生成3D模型: text={}, complexity={}, format={}", 
                    text, complexity, format);
@@ -81,12 +107,13 @@ public class TencentHunyuanServiceImpl implements AIModelService {
 
             String jobId = submitResponse.getJobId();
             logger.info("腾讯混元3D生成任务已提交，任务ID: {}", jobId);
+            upstreamJobCallback.accept(jobId);
             
             progressCallback.accept(20);
 
             // 轮询任务状态直到完成
             QueryHunyuanTo3DJobResponse queryResponse = pollJobWithProgress(
-                jobId, maxRetryCount * pollIntervalSeconds, pollIntervalSeconds, progressCallback
+                jobId, null, format, maxRetryCount * pollIntervalSeconds, pollIntervalSeconds, progressCallback
             );
 
             if (queryResponse == null || !queryResponse.isCompleted()) {
@@ -95,7 +122,7 @@ public class TencentHunyuanServiceImpl implements AIModelService {
             }
 
             // 下载并保存模型文件
-            String modelPath = downloadAndSaveModel(queryResponse, format, text);
+            String modelPath = downloadAndSaveModel(jobId, queryResponse, format, text);
             
             progressCallback.accept(100);
             logger.info("腾讯混元文本生成3D模型完成: {}", modelPath);
@@ -113,6 +140,16 @@ public class TencentHunyuanServiceImpl implements AIModelService {
                                        ModelTask.Complexity complexity,
                                        ModelTask.OutputFormat format,
                                        Consumer<Integer> progressCallback) throws Exception {
+        return generateModelFromImage(imagePath, description, complexity, format, progressCallback, jobId -> { });
+    }
+
+    @Override
+    public String generateModelFromImage(String imagePath,
+                                       String description,
+                                       ModelTask.Complexity complexity,
+                                       ModelTask.OutputFormat format,
+                                       Consumer<Integer> progressCallback,
+                                       Consumer<String> upstreamJobCallback) throws Exception {
         
         logger.info("开始使用腾讯混元服务根据图片生成3D模型: imagePath={}, description={}, complexity={}, format={}", 
                    imagePath, description, complexity, format);
@@ -125,14 +162,14 @@ public class TencentHunyuanServiceImpl implements AIModelService {
             // 设置初始进度
             progressCallback.accept(10);
 
-            // 读取图片并转换为Base64
+            // 读取图片并转换为Base64（图片已在此预处理，提交时不再重复处理）
             String imageBase64 = convertImageToBase64(imagePath);
             
             progressCallback.accept(15);
 
             // 提交3D生成任务
             String resultFormat = convertToTencentFormat(format);
-            SubmitHunyuanTo3DJobResponse submitResponse = tencentAi3dClient.submitImageBase64To3DJob(
+            SubmitHunyuanTo3DJobResponse submitResponse = tencentAi3dClient.submitPreparedImageBase64To3DJob(
                 imageBase64, resultFormat, true
             );
 
@@ -142,12 +179,13 @@ public class TencentHunyuanServiceImpl implements AIModelService {
 
             String jobId = submitResponse.getJobId();
             logger.info("腾讯混元3D生成任务已提交，任务ID: {}", jobId);
+            upstreamJobCallback.accept(jobId);
             
             progressCallback.accept(25);
 
             // 轮询任务状态直到完成
             QueryHunyuanTo3DJobResponse queryResponse = pollJobWithProgress(
-                jobId, maxRetryCount * pollIntervalSeconds, pollIntervalSeconds, progressCallback
+                jobId, null, format, maxRetryCount * pollIntervalSeconds, pollIntervalSeconds, progressCallback
             );
 
             if (queryResponse == null || !queryResponse.isCompleted()) {
@@ -157,7 +195,7 @@ public class TencentHunyuanServiceImpl implements AIModelService {
 
             // 下载并保存模型文件
             String baseName = description != null ? description : "image_model";
-            String modelPath = downloadAndSaveModel(queryResponse, format, baseName);
+            String modelPath = downloadAndSaveModel(jobId, queryResponse, format, baseName);
             
             progressCallback.accept(100);
             logger.info("腾讯混元图片生成3D模型完成: {}", modelPath);
@@ -169,6 +207,47 @@ public class TencentHunyuanServiceImpl implements AIModelService {
         }
     }
 
+    @Override
+    public boolean supportsResume() {
+        return true;
+    }
+
+    @Override
+    public String resumeModelGeneration(String upstreamJobId,
+                                        LocalDateTime startedAt,
+                                        ModelTask.OutputFormat format,
+                                        String baseName,
+                                        Consumer<Integer> progressCallback) throws Exception {
+        
+        logger.info("继续轮询已提交的腾讯混元3D生成任务: jobId={}, format={}", upstreamJobId, format);
+        
+        try {
+            // 从已耗时对应的进度继续，不回退到刚提交时的进度
+            progressCallback.accept(waitProgress(startedAt, maxRetryCount * pollIntervalSeconds));
+
+            // 轮询任务状态直到完成
+            QueryHunyuanTo3DJobResponse queryResponse = pollJobWithProgress(
+                upstreamJobId, startedAt, format, maxRetryCount * pollIntervalSeconds, pollIntervalSeconds, progressCallback
+            );
+
+            if (queryResponse == null || !queryResponse.isCompleted()) {
+                String errorMsg = queryResponse != null ? queryResponse.getErrorMessage() : "未知错误";
+                throw new RuntimeException("腾讯混元3D生成失败: " + errorMsg);
+            }
+
+            // 下载并保存模型文件
+            String modelPath = downloadAndSaveModel(upstreamJobId, queryResponse, format, baseName != null ? baseName : "model");
+            
+            progressCallback.accept(100);
+            logger.info("腾讯混元3D生成任务继续完成: {}", modelPath);
+            return modelPath;
+
+        } catch (Exception e) {
+            logger.error("腾讯混元API调用失败", e);
+            throw new Exception("腾讯混元3D模型生成失败: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public String generatePreviewImage(String modelPath) throws Exception {
         logger.info("生成模型预览图: {}", modelPath);
@@ -191,6 +270,33 @@ public class TencentHunyuanServiceImpl implements AIModelService {
         return previewPath.toString();
     }
 
+    /**
+     * 优先使用上游返回并已下载到本地的预览图，不足的数量再用占位预览图补齐
+     */
+    @Override
+    public List<String> generateMultiplePreviewImages(String modelPath, int count) throws Exception {
+        List<String> previewPaths = new ArrayList<>();
+        ResultFileFetchService.FetchedResult fetched = resultFileFetchService.getByModelPath(modelPath);
+        if (fetched != null) {
+            for (String previewPath : fetched.getPreviewPaths()) {
+                if (previewPaths.size() >= count) {
+                    break;
+                }
+                previewPaths.add(previewPath);
+            }
+        }
+        while (previewPaths.size() < count) {
+            previewPaths.add(generatePreviewImage(modelPath));
+        }
+        return previewPaths;
+    }
+
+    @Override
+    public Map<ModelTask.OutputFormat, String> getResultFiles(String modelPath) {
+        ResultFileFetchService.FetchedResult fetched = resultFileFetchService.getByModelPath(modelPath);
+        return fetched != null ? fetched.getModelFiles() : Collections.emptyMap();
+    }
+
     @Override
     public boolean isServiceAvailable() {
         try {
@@ -202,160 +308,104 @@ public class TencentHunyuanServiceImpl implements AIModelService {
     }
 
     /**
-     * 轮询任务状态并更新进度
+     * 按已等待时间计算进度 (25% - 90%)
      */
-    private QueryHunyuanTo3DJobResponse pollJobWithProgress(String jobId, int maxWaitTimeSeconds, 
+    private static int waitProgress(LocalDateTime startedAt, int maxWaitTimeSeconds) {
+        if (startedAt == null || maxWaitTimeSeconds <= 0) {
+            return 25;
+        }
+        double elapsedSeconds = Math.max(0, Duration.between(startedAt, LocalDateTime.now()).toMillis()) / 1e3;
+        return Math.min(25 + (int) (elapsedSeconds / maxWaitTimeSeconds * 65), 90);
+    }
+
+    /**
+     * 等待任务完成并更新进度（由上游任务轮询服务统一查询，本线程只等待结果）
+     * startedAt 为任务开始时间，接管之前提交的任务时按实际已耗时计算轮询间隔和进度；为 null 时从现在开始计算
+     */
+    private QueryHunyuanTo3DJobResponse pollJobWithProgress(String jobId, LocalDateTime startedAt,
+                                                          ModelTask.OutputFormat format,
+                                                          int maxWaitTimeSeconds, 
                                                           int pollIntervalSeconds, 
                                                           Consumer<Integer> progressCallback) throws Exception {
         
-        int totalPolls = maxWaitTimeSeconds / pollIntervalSeconds;
-        int currentPoll = 0;
+        LocalDateTime progressFrom = startedAt != null ? startedAt : LocalDateTime.now();
+        CompletableFuture<QueryHunyuanTo3DJobResponse> future = upstreamJobPollerService.watch(
+            jobId, format != null ? format.name() : null, startedAt, pollIntervalSeconds, maxWaitTimeSeconds,
+            response -> progressCallback.accept(waitProgress(progressFrom, maxWaitTimeSeconds))
+        );
         
-        while (currentPoll < totalPolls) {
-            Thread.sleep(pollIntervalSeconds * 1000);
-            currentPoll++;
-            
-            QueryHunyuanTo3DJobResponse response = tencentAi3dClient.queryHunyuanTo3DJob(jobId);
-            
-            if (response != null) {
-                String status = response.getStatus();
-                logger.debug("任务状态查询 - JobId: {}, Status: {}, Poll: {}/{}", 
-                           jobId, status, currentPoll, totalPolls);
-                
-                // 计算进度 (25% - 90%)
-                int progress = 25 + (int) ((double) currentPoll / totalPolls * 65);
-                progressCallback.accept(Math.min(progress, 90));
-                
-                if (response.isCompleted()) {
-                    progressCallback.accept(95);
-                    return response;
-                } else if (response.isFailed()) {
-                    throw new RuntimeException("任务执行失败: " + response.getErrorMessage());
-                }
-                // 继续轮询其他状态（RUN, WAIT等）
+        QueryHunyuanTo3DJobResponse response;
+        try {
+            response = future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new RuntimeException("任务执行超时，JobId: " + jobId);
             }
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
         }
         
-        throw new RuntimeException("任务执行超时，JobId: " + jobId);
+        if (response.isFailed()) {
+            throw new RuntimeException("任务执行失败: " + response.getErrorMessage());
+        }
+        progressCallback.accept(95);
+        return response;
     }
 
     /**
      * 下载并保存模型文件
+     * 全部结果文件和预览图由结果拉取服务并发下载到本地，返回主格式文件路径
      */
-    private String downloadAndSaveModel(QueryHunyuanTo3DJobResponse response, 
+    private String downloadAndSaveModel(String jobId,
+                                      QueryHunyuanTo3DJobResponse response, 
                                       ModelTask.OutputFormat format, 
                                       String baseName) throws IOException {
         
-        // 创建模型目录
-        Path modelDirPath = Paths.get(modelDir);
-        if (!Files.exists(modelDirPath)) {
-            Files.createDirectories(modelDirPath);
-        }
-        
-        // 生成文件名
-        String filename = "model_" + UUID.randomUUID().toString() + "." + format.name().toLowerCase();
-        Path modelPath = modelDirPath.resolve(filename);
-        
-        // 从响应中获取模型数据
-        String modelData;
-        try {
-            modelData = getModelDataFromResponse(response, format);
-        } catch (IOException e) {
-            logger.error("获取模型数据失败", e);
-            throw new IOException("获取模型数据失败: " + e.getMessage(), e);
-        }
-        
-        if (StringUtils.hasText(modelData)) {
-            // 如果是Base64编码的数据，需要解码
-            if (isBase64Encoded(modelData)) {
-                byte[] decodedData = Base64.getDecoder().decode(modelData);
-                Files.write(modelPath, decodedData);
-            } else {
-                // 直接保存文本数据
-                Files.write(modelPath, modelData.getBytes());
-            }
-        } else {
+        if (!hasDownloadableFile(response)) {
             // 如果没有模型数据，创建一个占位文件
+            Path modelDirPath = Paths.get(modelDir);
+            if (!Files.exists(modelDirPath)) {
+                Files.createDirectories(modelDirPath);
+            }
+            String filename = "model_" + UUID.randomUUID().toString() + "." + format.name().toLowerCase();
+            Path modelPath = modelDirPath.resolve(filename);
             String placeholderContent = "# 腾讯混元生成的3D模型\n# 模型名称: " + baseName + "\n# 格式: " + format;
             Files.write(modelPath, placeholderContent.getBytes());
+            return modelPath.toString();
         }
         
-        return modelPath.toString();
-    }
-
-    /**
-     * 从响应中获取模型数据
-     */
-    private String getModelDataFromResponse(QueryHunyuanTo3DJobResponse response, ModelTask.OutputFormat format) throws IOException {
-        // 根据格式获取相应的模型数据
-        if (response.getResultFile3Ds() != null && !response.getResultFile3Ds().isEmpty()) {
-            // 查找匹配格式的文件
-            String targetFormat = format.name();
-            for (var file3D : response.getResultFile3Ds()) {
-                if (file3D.getType() != null && file3D.getType().equalsIgnoreCase(targetFormat)) {
-                    // 找到匹配格式的文件，下载文件内容
-                    return downloadFileFromUrl(file3D.getUrl());
-                }
-            }
-            
-            // 如果没有找到匹配格式的文件，使用第一个文件
-            if (!response.getResultFile3Ds().isEmpty()) {
-                var firstFile = response.getResultFile3Ds().get(0);
-                logger.warn("未找到格式为 {} 的文件，使用第一个文件: {}", targetFormat, firstFile.getType());
-                return downloadFileFromUrl(firstFile.getUrl());
-            }
+        logger.info("开始拉取上游结果文件: jobId={}, files={}", jobId, response.getResultFile3Ds().size());
+        try {
+            ResultFileFetchService.FetchedResult fetched =
+                resultFileFetchService.fetchAll(jobId, response.getResultFile3Ds(), format);
+            return fetched.getPrimaryPath();
+        } catch (Exception e) {
+            logger.error("拉取上游结果文件失败: jobId={}", jobId, e);
+            throw new IOException("获取模型数据失败: 下载文件失败: " + e.getMessage(), e);
         }
-        
-        return null;
     }
-    
+
     /**
-     * 从URL下载文件内容
+     * 响应中是否有可下载的模型文件
      */
-    private String downloadFileFromUrl(String fileUrl) throws IOException {
-        if (!StringUtils.hasText(fileUrl)) {
-            throw new IllegalArgumentException("文件URL不能为空");
+    private boolean hasDownloadableFile(QueryHunyuanTo3DJobResponse response) {
+        if (response.getResultFile3Ds() == null) {
+            return false;
         }
-        
-        logger.info("开始从URL下载文件: {}", fileUrl);
-        
-        try {
-            URL url = new URL(fileUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(30000); // 30秒连接超时
-            connection.setReadTimeout(60000);    // 60秒读取超时
-            
-            // 设置User-Agent，避免某些服务器拒绝请求
-            connection.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36");
-            
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                try (InputStream inputStream = connection.getInputStream()) {
-                    // 使用ByteArrayOutputStream替代readAllBytes()以避免过时API警告
-                    java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
-                    byte[] data = new byte[1024];
-                    int nRead;
-                    while ((nRead = inputStream.read(data, 0, data.length)) != -1) {
-                        buffer.write(data, 0, nRead);
-                    }
-                    byte[] fileData = buffer.toByteArray();
-                    logger.info("文件下载成功，大小: {} bytes", fileData.length);
-                    
-                    // 将文件数据转换为Base64编码返回
-                    return Base64.getEncoder().encodeToString(fileData);
-                }
-            } else {
-                throw new IOException("下载文件失败，HTTP响应码: " + responseCode);
+        for (var file3D : response.getResultFile3Ds()) {
+            if (StringUtils.hasText(file3D.getUrl())) {
+                return true;
             }
-        } catch (Exception e) {
-            logger.error("从URL下载文件失败: {}", fileUrl, e);
-            throw new IOException("下载文件失败: " + e.getMessage(), e);
         }
+        return false;
     }
 
     /**
-     * 将图片转换为Base64编码
+     * 将图片转换为Base64编码（从文件流式编码，不读入整个图片）
+     * 编码前先按上游可用的分辨率缩小图片，原图保持不变
      */
     private String convertImageToBase64(String imagePath) throws IOException {
         Path path = Paths.get(imagePath);
@@ -363,8 +413,7 @@ public class TencentHunyuanServiceImpl implements AIModelService {
             throw new IOException("图片文件不存在: " + imagePath);
         }
         
-        byte[] imageBytes = Files.readAllBytes(path);
-        return Base64.getEncoder().encodeToString(imageBytes);
+        return Base64Files.encode(imagePreprocessService.prepareFile(path));
     }
 
     /**
@@ -391,18 +440,6 @@ public class TencentHunyuanServiceImpl implements AIModelService {
         }
     }
 
-    /**
-     * 检查字符串是否为Base64编码
-     */
-    private boolean isBase64Encoded(String str) {
-        try {
-            Base64.getDecoder().decode(str);
-            return true;
-        } catch (IllegalArgumentException e) {
-            return false;
-        }
-    }
-
     /**
      * 创建模拟PNG数据
      */
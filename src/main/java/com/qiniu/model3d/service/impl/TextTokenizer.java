@@ -0,0 +1,187 @@
+package com.qiniu.model3d.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * 相似度文本分词器
+ * 按字符类别表单遍扫描文本，同时产出规范化文本、词哈希和字符二元组：
+ * <ul>
+ *   <li>规范化：小写，只保留字母、数字和中文，其余字符合并为单个空格，首尾无空格</li>
+ *   <li>词：连续字母数字为一个词；中文没有空格分词，按相邻两字组成词，单个汉字单独成词；
+ *       字母数字与中文相接处也视为词边界</li>
+ *   <li>二元组：规范化文本中相邻两个字符（含空格）编码为 (c1 &lt;&lt; 16) | c2</li>
+ * </ul>
+ * 结果写入线程内复用的基本类型缓冲区，下一次在同一线程调用 {@link #tokenize(String)} 前必须用完
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class TextTokenizer {
+
+    private static final byte SEPARATOR = 0;
+    private static final byte ALNUM = 1;
+    private static final byte CJK = 2;
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    /** 字符类别表，按 Character.toLowerCase 之后的字符判定 */
+    private static final byte[] CHAR_CLASS = new byte[Character.MAX_VALUE + 1];
+
+    private static final ThreadLocal<Tokens> WORKSPACE = ThreadLocal.withInitial(Tokens::new);
+
+    static {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            char lower = Character.toLowerCase((char) c);
+            if ((lower >= 'a' && lower <= 'z') || (lower >= '0' && lower <= '9')) {
+                CHAR_CLASS[c] = ALNUM;
+            } else if (lower >= '\u4e00' && lower <= '\u9fa5') {
+                CHAR_CLASS[c] = CJK;
+            }
+        }
+    }
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * 分词，返回当前线程的复用缓冲区
+     *
+     * @param text 原始文本，null 视为空文本
+     */
+    static Tokens tokenize(String text) {
+        Tokens tokens = WORKSPACE.get();
+        int length = text != null ? text.length() : 0;
+        tokens.reset(length);
+
+        byte runClass = SEPARATOR;
+        long wordHash = FNV_OFFSET;
+        char previousCjk = 0;
+        int cjkRun = 0;
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < length; i++) {
+            char raw = text.charAt(i);
+            byte charClass = CHAR_CLASS[raw];
+
+            if (charClass != runClass) {
+                // 结束上一段：字母数字词或只有一个汉字的中文段
+                if (runClass == ALNUM) {
+                    tokens.addToken(wordHash);
+                } else if (runClass == CJK && cjkRun == 1) {
+                    tokens.addToken(hashPair(FNV_OFFSET, previousCjk));
+                }
+                runClass = charClass;
+                wordHash = FNV_OFFSET;
+                cjkRun = 0;
+            }
+
+            if (charClass == SEPARATOR) {
+                pendingSpace = true;
+                continue;
+            }
+
+            char c = Character.toLowerCase(raw);
+            if (pendingSpace && tokens.length > 0) {
+                tokens.append(' ');
+            }
+            pendingSpace = false;
+            tokens.append(c);
+
+            if (charClass == ALNUM) {
+                wordHash = (wordHash ^ c) * FNV_PRIME;
+            } else {
+                if (cjkRun > 0) {
+                    tokens.addToken(hashPair(hashPair(FNV_OFFSET, previousCjk), c));
+                }
+                previousCjk = c;
+                cjkRun++;
+            }
+        }
+
+        if (runClass == ALNUM) {
+            tokens.addToken(wordHash);
+        } else if (runClass == CJK && cjkRun == 1) {
+            tokens.addToken(hashPair(FNV_OFFSET, previousCjk));
+        }
+        return tokens;
+    }
+
+    private static long hashPair(long hash, char c) {
+        return (hash ^ c) * FNV_PRIME;
+    }
+
+    /**
+     * 分词结果缓冲区
+     */
+    static final class Tokens {
+
+        /** 规范化文本字符，有效长度为 length */
+        char[] normalized = new char[256];
+        int length;
+
+        /** 词哈希（按出现顺序，含重复），有效长度为 tokenCount */
+        long[] tokens = new long[64];
+        int tokenCount;
+
+        /** 字符二元组编码（按出现顺序，含重复），有效长度为 gramCount */
+        int[] grams = new int[256];
+        int gramCount;
+
+        private Tokens() {
+        }
+
+        String normalizedText() {
+            return new String(normalized, 0, length);
+        }
+
+        /**
+         * 将词哈希原地排序
+         */
+        void sortTokens() {
+            Arrays.sort(tokens, 0, tokenCount);
+        }
+
+        /**
+         * 将二元组原地排序去重，返回去重后的数量
+         */
+        int sortUniqueGrams() {
+            if (gramCount < 2) {
+                return gramCount;
+            }
+            Arrays.sort(grams, 0, gramCount);
+            int unique = 1;
+            for (int i = 1; i < gramCount; i++) {
+                if (grams[i] != grams[unique - 1]) {
+                    grams[unique++] = grams[i];
+                }
+            }
+            gramCount = unique;
+            return unique;
+        }
+
+        private void reset(int capacity) {
+            if (normalized.length < capacity) {
+                normalized = new char[capacity];
+                grams = new int[capacity];
+            }
+            if (tokens.length < capacity) {
+                tokens = new long[capacity];
+            }
+            length = 0;
+            tokenCount = 0;
+            gramCount = 0;
+        }
+
+        private void append(char c) {
+            if (length > 0) {
+                grams[gramCount++] = (normalized[length - 1] << 16) | c;
+            }
+            normalized[length++] = c;
+        }
+
+        private void addToken(long hash) {
+            tokens[tokenCount++] = hash;
+        }
+    }
+}
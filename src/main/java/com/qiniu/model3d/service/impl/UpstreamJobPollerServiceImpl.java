@@ -0,0 +1,508 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.dto.QueryHunyuanTo3DJobResponse;
+import com.qiniu.model3d.repository.TaskEvaluationRepository;
+import com.qiniu.model3d.service.TencentAi3dClient;
+import com.qiniu.model3d.service.UpstreamJobPollerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 上游任务轮询服务实现
+ * 单个调度线程按固定节拍扫描所有未完成任务，到期的任务按到期先后交给固定大小的查询线程池执行，
+ * 同时进行的查询数不超过 max-concurrent-queries，每秒查询数不超过 max-queries-per-second（令牌桶）。
+ * 任务结束（完成/失败/连续出错）时完成所有关注方的 Future，关注方各自超时，全部关注方离开后停止轮询该任务。
+ * 下次查询时间由 TaskEvaluation 中同一结果格式的历史耗时分布决定（见 CompletionTimeModel），
+ * 样本不足时退回按固定间隔查询。外部客户端的关注按客户端计数，超过 max-polls-per-client 时拒绝
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+@Service
+public class UpstreamJobPollerServiceImpl implements UpstreamJobPollerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamJobPollerServiceImpl.class);
+
+    private static final int DEFAULT_POLL_INTERVAL_SECONDS = 5;
+    private static final int DEFAULT_MAX_WAIT_SECONDS = 300;
+
+    /** 不区分结果格式的整体耗时分布 */
+    private static final String ALL_CLASSES = "*";
+
+    @Autowired
+    private TencentAi3dClient tencentAi3dClient;
+
+    @Autowired
+    private TaskEvaluationRepository taskEvaluationRepository;
+
+    @Value("${tencent.cloud.ai3d.poller.max-concurrent-queries:8}")
+    private int maxConcurrentQueries;
+
+    @Value("${tencent.cloud.ai3d.poller.tick-millis:200}")
+    private long tickMillis;
+
+    @Value("${tencent.cloud.ai3d.poller.max-consecutive-errors:3}")
+    private int maxConsecutiveErrors;
+
+    @Value("${tencent.cloud.ai3d.poller.max-polls-per-client:4}")
+    private int maxPollsPerClient;
+
+    @Value("${tencent.cloud.ai3d.poller.max-queries-per-second:10}")
+    private double maxQueriesPerSecond;
+
+    @Value("${tencent.cloud.ai3d.poller.adaptive.enabled:true}")
+    private boolean adaptiveEnabled;
+
+    @Value("${tencent.cloud.ai3d.poller.adaptive.dense-interval-seconds:3}")
+    private double denseIntervalSeconds;
+
+    @Value("${tencent.cloud.ai3d.poller.adaptive.min-interval-seconds:1}")
+    private double minIntervalSeconds;
+
+    @Value("${tencent.cloud.ai3d.poller.adaptive.max-interval-seconds:30}")
+    private double maxIntervalSeconds;
+
+    @Value("${tencent.cloud.ai3d.poller.adaptive.min-samples:20}")
+    private int minSamples;
+
+    @Value("${tencent.cloud.ai3d.poller.adaptive.history-days:7}")
+    private int historyDays;
+
+    @Value("${tencent.cloud.ai3d.poller.adaptive.max-samples:5000}")
+    private int maxSamples;
+
+    @Value("${tencent.cloud.ai3d.poller.adaptive.refresh-minutes:10}")
+    private long refreshMinutes;
+
+    private final ConcurrentHashMap<String, PolledJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlightQueries = new AtomicInteger(0);
+
+    private final AtomicLong queriesIssued = new AtomicLong(0);
+    private final AtomicLong queryErrors = new AtomicLong(0);
+    private final AtomicLong finishedJobs = new AtomicLong(0);
+    private final AtomicLong timedOutWatchers = new AtomicLong(0);
+    private final AtomicLong throttledPolls = new AtomicLong(0);
+    private final AtomicLong rejectedClientPolls = new AtomicLong(0);
+    /** 客户端标识 → 进行中的关注数 */
+    private final ConcurrentHashMap<String, AtomicInteger> clientPolls = new ConcurrentHashMap<>();
+    private final AtomicInteger parkedClientPolls = new AtomicInteger(0);
+    private final ScheduleCounters adaptiveCounters = new ScheduleCounters();
+    private final ScheduleCounters fixedCounters = new ScheduleCounters();
+
+    /** 结果格式（大写）→ 历史耗时分布，定期整体替换 */
+    private volatile Map<String, CompletionTimeModel> models = Collections.emptyMap();
+
+    /** 令牌桶，仅在调度线程中访问 */
+    private double tokens;
+    private long lastRefillAt;
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService queryExecutor;
+
+    @PostConstruct
+    public void init() {
+        int concurrency = Math.max(1, maxConcurrentQueries);
+        AtomicInteger threadIndex = new AtomicInteger();
+        queryExecutor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "upstream-job-query-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "upstream-job-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastRefillAt = System.nanoTime();
+        tokens = Math.max(1.0, maxQueriesPerSecond);
+        if (adaptiveEnabled) {
+            scheduler.scheduleWithFixedDelay(this::refreshModels, 0, refreshMinutes, TimeUnit.MINUTES);
+        }
+        scheduler.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        logger.info("Upstream job poller initialized: maxConcurrentQueries={}, maxQueriesPerSecond={}, tickMillis={}, adaptive={}",
+                    concurrency, maxQueriesPerSecond, tickMillis, adaptiveEnabled);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (queryExecutor != null) {
+            queryExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public CompletableFuture<QueryHunyuanTo3DJobResponse> watch(String jobId,
+                                                                String jobClass,
+                                                                LocalDateTime startedAt,
+                                                                int pollIntervalSeconds,
+                                                                int maxWaitSeconds,
+                                                                Consumer<QueryHunyuanTo3DJobResponse> statusListener) {
+        CompletableFuture<QueryHunyuanTo3DJobResponse> future = new CompletableFuture<>();
+        if (!StringUtils.hasText(jobId)) {
+            future.completeExceptionally(new IllegalArgumentException("任务ID不能为空"));
+            return future;
+        }
+
+        long now = System.nanoTime();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(pollIntervalSeconds > 0 ? pollIntervalSeconds : DEFAULT_POLL_INTERVAL_SECONDS);
+        long deadline = now + TimeUnit.SECONDS.toNanos(maxWaitSeconds > 0 ? maxWaitSeconds : DEFAULT_MAX_WAIT_SECONDS);
+        long startedAtNanos = now - elapsedNanosSince(startedAt);
+        Watcher watcher = new Watcher(future, deadline, statusListener);
+
+        jobs.compute(jobId, (key, job) -> {
+            if (job == null) {
+                job = new PolledJob(key, normalizeClass(jobClass), intervalNanos, startedAtNanos, now);
+                scheduleNext(job, now);
+            } else if (startedAtNanos - job.startedAt < 0) {
+                // 已在轮询的任务按更早的开始时间计算耗时，下次查询时生效
+                job.startedAt = startedAtNanos;
+            }
+            job.watchers.add(watcher);
+            job.intervalNanos = Math.min(job.intervalNanos, intervalNanos);
+            return job;
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<QueryHunyuanTo3DJobResponse> watchForClient(String clientId,
+                                                                         String jobId,
+                                                                         int pollIntervalSeconds,
+                                                                         int maxWaitSeconds) {
+        String client = clientId != null ? clientId : "unknown";
+        AtomicInteger outstanding = clientPolls.compute(client, (key, count) -> {
+            AtomicInteger current = count != null ? count : new AtomicInteger(0);
+            current.incrementAndGet();
+            return current;
+        });
+        if (outstanding.get() > maxPollsPerClient) {
+            releaseClientPoll(client);
+            rejectedClientPolls.incrementAndGet();
+            throw new TooManyPollsException("同时轮询的任务过多，请稍后重试", DEFAULT_POLL_INTERVAL_SECONDS);
+        }
+        parkedClientPolls.incrementAndGet();
+
+        CompletableFuture<QueryHunyuanTo3DJobResponse> future =
+            watch(jobId, null, pollIntervalSeconds, maxWaitSeconds, null);
+        future.whenComplete((response, error) -> {
+            parkedClientPolls.decrementAndGet();
+            releaseClientPoll(client);
+        });
+        return future;
+    }
+
+    private void releaseClientPoll(String client) {
+        clientPolls.computeIfPresent(client, (key, count) -> count.decrementAndGet() <= 0 ? null : count);
+    }
+
+    @Override
+    public PollerStatistics getStatistics() {
+        int watchers = 0;
+        for (PolledJob job : jobs.values()) {
+            watchers += job.watchers.size();
+        }
+        return new PollerStatistics(jobs.size(), watchers, inFlightQueries.get(), Math.max(1, maxConcurrentQueries),
+                                    maxQueriesPerSecond, models.size(),
+                                    queriesIssued.get(), queryErrors.get(), throttledPolls.get(),
+                                    finishedJobs.get(), timedOutWatchers.get(),
+                                    parkedClientPolls.get(), maxPollsPerClient, rejectedClientPolls.get(),
+                                    adaptiveCounters.snapshot(), fixedCounters.snapshot());
+    }
+
+    /**
+     * 调度节拍：清理超时的关注方，把到期的任务按到期先后交给查询线程池，受并发数和每秒查询预算限制
+     */
+    private void tick() {
+        try {
+            long now = System.nanoTime();
+            refillTokens(now);
+
+            List<PolledJob> due = new ArrayList<>();
+            for (PolledJob job : jobs.values()) {
+                expireWatchers(job, now);
+                if (job.watchers.isEmpty()) {
+                    jobs.computeIfPresent(job.jobId, (key, existing) -> existing.watchers.isEmpty() ? null : existing);
+                    continue;
+                }
+                if (!job.inFlight && now - job.nextPollAt >= 0) {
+                    due.add(job);
+                }
+            }
+            due.sort(Comparator.comparingLong(job -> job.nextPollAt - now));
+
+            for (int i = 0; i < due.size(); i++) {
+                if (inFlightQueries.get() >= maxConcurrentQueries) {
+                    break;
+                }
+                if (tokens < 1.0) {
+                    throttledPolls.addAndGet(due.size() - i);
+                    break;
+                }
+                tokens -= 1.0;
+                PolledJob job = due.get(i);
+                job.inFlight = true;
+                inFlightQueries.incrementAndGet();
+                queryExecutor.execute(() -> query(job));
+            }
+        } catch (Exception e) {
+            logger.error("Upstream job poller tick failed", e);
+        }
+    }
+
+    private void refillTokens(long now) {
+        double capacity = Math.max(1.0, maxQueriesPerSecond);
+        tokens = Math.min(capacity, tokens + (now - lastRefillAt) / 1e9 * maxQueriesPerSecond);
+        lastRefillAt = now;
+    }
+
+    private void query(PolledJob job) {
+        try {
+            queriesIssued.incrementAndGet();
+            job.queries++;
+            QueryHunyuanTo3DJobResponse response = tencentAi3dClient.queryHunyuanTo3DJob(job.jobId);
+            job.consecutiveErrors = 0;
+            if (response == null) {
+                return;
+            }
+            logger.debug("任务状态查询 - JobId: {}, Status: {}", job.jobId, response.getStatus());
+
+            if (response.isCompleted() || response.isFailed()) {
+                finish(job, watcher -> watcher.future.complete(response));
+                (job.adaptive ? adaptiveCounters : fixedCounters).record(job.queries, System.nanoTime() - job.lastPollAt);
+            } else {
+                for (Watcher watcher : job.watchers) {
+                    watcher.notifyStatus(response);
+                }
+            }
+        } catch (Exception e) {
+            queryErrors.incrementAndGet();
+            if (++job.consecutiveErrors >= maxConsecutiveErrors) {
+                logger.error("任务状态连续查询失败，停止轮询: jobId={}", job.jobId, e);
+                finish(job, watcher -> watcher.future.completeExceptionally(e));
+            } else {
+                logger.warn("任务状态查询失败，下次继续: jobId={}, error={}", job.jobId, e.getMessage());
+            }
+        } finally {
+            long now = System.nanoTime();
+            job.lastPollAt = now;
+            scheduleNext(job, now);
+            job.inFlight = false;
+            inFlightQueries.decrementAndGet();
+        }
+    }
+
+    /**
+     * 从给定时间到现在已经过的纳秒数；时间为空或在未来时为 0
+     */
+    private static long elapsedNanosSince(LocalDateTime startedAt) {
+        if (startedAt == null) {
+            return 0;
+        }
+        long elapsedMillis = Duration.between(startedAt, LocalDateTime.now()).toMillis();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, elapsedMillis));
+    }
+
+    /**
+     * 安排下一次查询：有历史耗时分布时按分布计算间隔，否则按固定间隔
+     */
+    private void scheduleNext(PolledJob job, long now) {
+        CompletionTimeModel model = modelFor(job.jobClass);
+        if (model == null) {
+            job.adaptive = false;
+            job.nextPollAt = now + job.intervalNanos;
+            return;
+        }
+        double elapsedSeconds = (now - job.startedAt) / 1e9;
+        double delay = model.nextDelaySeconds(elapsedSeconds, denseIntervalSeconds, minIntervalSeconds, maxIntervalSeconds);
+        job.adaptive = true;
+        job.nextPollAt = now + (long) (delay * 1e9);
+    }
+
+    private CompletionTimeModel modelFor(String jobClass) {
+        if (!adaptiveEnabled) {
+            return null;
+        }
+        Map<String, CompletionTimeModel> current = models;
+        CompletionTimeModel model = jobClass != null ? current.get(jobClass) : null;
+        return model != null ? model : current.get(ALL_CLASSES);
+    }
+
+    /**
+     * 从 TaskEvaluation 重建各结果格式的耗时分布，样本数不足 min-samples 的格式使用整体分布
+     */
+    private void refreshModels() {
+        try {
+            List<Object[]> rows = taskEvaluationRepository.findCompletionDurationsSince(
+                LocalDateTime.now().minusDays(historyDays), PageRequest.of(0, Math.max(1, maxSamples)));
+
+            Map<String, List<Integer>> durationsByClass = new HashMap<>();
+            for (Object[] row : rows) {
+                Number duration = (Number) row[1];
+                if (duration == null || duration.intValue() <= 0) {
+                    continue;
+                }
+                durationsByClass.computeIfAbsent(ALL_CLASSES, key -> new ArrayList<>()).add(duration.intValue());
+                String jobClass = normalizeClass((String) row[0]);
+                if (jobClass != null) {
+                    durationsByClass.computeIfAbsent(jobClass, key -> new ArrayList<>()).add(duration.intValue());
+                }
+            }
+
+            Map<String, CompletionTimeModel> refreshed = new HashMap<>();
+            durationsByClass.forEach((jobClass, durations) -> {
+                if (durations.size() >= minSamples) {
+                    refreshed.put(jobClass, CompletionTimeModel.of(durations));
+                }
+            });
+            models = refreshed;
+
+            CompletionTimeModel overall = refreshed.get(ALL_CLASSES);
+            if (overall != null) {
+                logger.info("Completion time models refreshed: classes={}, samples={}, p10={}s, p50={}s, p90={}s",
+                            refreshed.size(), overall.getSampleCount(),
+                            Math.round(overall.getP10()), Math.round(overall.getP50()), Math.round(overall.getP90()));
+            } else {
+                logger.info("Not enough completion history for adaptive polling ({} samples), using fixed intervals",
+                            rows.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to refresh completion time models", e);
+        }
+    }
+
+    private static String normalizeClass(String jobClass) {
+        return jobClass != null && !jobClass.trim().isEmpty() ? jobClass.trim().toUpperCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * 任务结束：移除登记并完成当时所有关注方；之后新的关注会重新登记
+     */
+    private void finish(PolledJob job, Consumer<Watcher> completion) {
+        jobs.remove(job.jobId, job);
+        finishedJobs.incrementAndGet();
+        for (Watcher watcher : job.watchers) {
+            completion.accept(watcher);
+        }
+    }
+
+    private void expireWatchers(PolledJob job, long now) {
+        job.watchers.removeIf(watcher -> {
+            if (watcher.future.isDone()) {
+                return true;
+            }
+            if (now - watcher.deadline >= 0) {
+                timedOutWatchers.incrementAndGet();
+                watcher.future.completeExceptionally(new TimeoutException("任务轮询超时，任务ID: " + job.jobId));
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * 被轮询的上游任务
+     */
+    private static final class PolledJob {
+        final String jobId;
+        final String jobClass;
+        /** 任务开始时间（System.nanoTime 刻度），接管之前提交的任务时早于加入轮询的时间 */
+        volatile long startedAt;
+        final CopyOnWriteArrayList<Watcher> watchers = new CopyOnWriteArrayList<>();
+        volatile long intervalNanos;
+        volatile long nextPollAt;
+        volatile long lastPollAt;
+        volatile boolean inFlight;
+        volatile boolean adaptive;
+        /** 只在查询线程中修改，同一任务同时最多一个查询 */
+        int consecutiveErrors;
+        int queries;
+
+        PolledJob(String jobId, String jobClass, long intervalNanos, long startedAt, long watchedAt) {
+            this.jobId = jobId;
+            this.jobClass = jobClass;
+            this.intervalNanos = intervalNanos;
+            this.startedAt = startedAt;
+            this.lastPollAt = watchedAt;
+        }
+    }
+
+    /**
+     * 已结束任务的查询次数和发现延迟窗口累计
+     */
+    private static final class ScheduleCounters {
+        final AtomicLong jobs = new AtomicLong(0);
+        final AtomicLong queries = new AtomicLong(0);
+        final AtomicLong detectWindowNanos = new AtomicLong(0);
+
+        void record(int jobQueries, long windowNanos) {
+            jobs.incrementAndGet();
+            queries.addAndGet(jobQueries);
+            detectWindowNanos.addAndGet(windowNanos);
+        }
+
+        ScheduleStatistics snapshot() {
+            long count = jobs.get();
+            return new ScheduleStatistics(count,
+                                          count > 0 ? (double) queries.get() / count : 0.0,
+                                          count > 0 ? detectWindowNanos.get() / 1e9 / count : 0.0);
+        }
+    }
+
+    /**
+     * 关注方
+     */
+    private static final class Watcher {
+        final CompletableFuture<QueryHunyuanTo3DJobResponse> future;
+        final long deadline;
+        final Consumer<QueryHunyuanTo3DJobResponse> statusListener;
+
+        Watcher(CompletableFuture<QueryHunyuanTo3DJobResponse> future, long deadline,
+                Consumer<QueryHunyuanTo3DJobResponse> statusListener) {
+            this.future = future;
+            this.deadline = deadline;
+            this.statusListener = statusListener;
+        }
+
+        void notifyStatus(QueryHunyuanTo3DJobResponse response) {
+            if (statusListener == null || future.isDone()) {
+                return;
+            }
+            try {
+                statusListener.accept(response);
+            } catch (Exception e) {
+                logger.warn("任务状态回调失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.qiniu.model3d.service.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * W-TinyLFU 有界缓存
+ * 新条目先进入窗口LRU（约1%容量）；被挤出窗口时与主区试用段最久未用的条目比较访问频率，
+ * 频率更高者留下。主区为分段LRU：试用段再次命中后晋升到保护段（约80%主区容量）。
+ * 所有方法在同一把锁内执行
+ *
+ * @author Qiniu Team
+ * @version 1.0.0
+ */
+final class WTinyLfuCache<K, V> {
+
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+
+    private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    private long evictions;
+    private long rejections;
+
+    WTinyLfuCache(int maximumSize) {
+        int capacity = Math.max(2, maximumSize);
+        this.windowMax = Math.max(1, capacity / 100);
+        this.mainMax = capacity - windowMax;
+        this.protectedMax = Math.max(1, mainMax * 4 / 5);
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /**
+     * 读取并记录访问频率
+     */
+    synchronized V get(K key) {
+        sketch.increment(key);
+
+        V value = window.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        value = protectedSegment.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        value = probation.remove(key);
+        if (value != null) {
+            promote(key, value);
+        }
+        return value;
+    }
+
+    synchronized void put(K key, V value) {
+        if (window.containsKey(key)) {
+            window.put(key, value);
+            return;
+        }
+        if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, value);
+            return;
+        }
+        if (probation.containsKey(key)) {
+            probation.put(key, value);
+            return;
+        }
+
+        window.put(key, value);
+        if (window.size() > windowMax) {
+            Map.Entry<K, V> candidate = removeEldest(window);
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    synchronized V remove(K key) {
+        V value = window.remove(key);
+        if (value == null) {
+            value = probation.remove(key);
+        }
+        if (value == null) {
+            value = protectedSegment.remove(key);
+        }
+        return value;
+    }
+
+    /**
+     * 删除满足条件的条目
+     *
+     * @return 删除的条目数
+     */
+    synchronized int removeIf(Predicate<V> predicate) {
+        return removeIf(window, predicate) + removeIf(probation, predicate) + removeIf(protectedSegment, predicate);
+    }
+
+    synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    synchronized long getRejections() {
+        return rejections;
+    }
+
+    private void promote(K key, V value) {
+        protectedSegment.put(key, value);
+        if (protectedSegment.size() > protectedMax) {
+            // 保护段溢出的条目降回试用段
+            Map.Entry<K, V> demoted = removeEldest(protectedSegment);
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+    }
+
+    private void admit(K candidateKey, V candidateValue) {
+        if (probation.size() + protectedSegment.size() < mainMax) {
+            probation.put(candidateKey, candidateValue);
+            return;
+        }
+
+        LinkedHashMap<K, V> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        K victimKey = victimSegment.keySet().iterator().next();
+        evictions++;
+        if (sketch.frequency(candidateKey) > sketch.frequency(victimKey)) {
+            victimSegment.remove(victimKey);
+            probation.put(candidateKey, candidateValue);
+        } else {
+            rejections++;
+        }
+    }
+
+    private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> segment) {
+        Iterator<Map.Entry<K, V>> iterator = segment.entrySet().iterator();
+        Map.Entry<K, V> eldest = iterator.next();
+        Map.Entry<K, V> copy = Map.entry(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return copy;
+    }
+
+    private static <K, V> int removeIf(LinkedHashMap<K, V> segment, Predicate<V> predicate) {
+        int removed = 0;
+        Iterator<V> iterator = segment.values().iterator();
+        while (iterator.hasNext()) {
+            if (predicate.test(iterator.next())) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,3 @@
+-- 添加MinHash签名字段，供相似度缓存的LSH近邻召回使用
+-- 64个32位哈希值的Base64编码；历史记录为空时由索引在启动时按输入文本现算
+ALTER TABLE model_tasks ADD minhash_signature VARCHAR(512) NULL;
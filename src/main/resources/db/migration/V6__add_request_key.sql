@@ -0,0 +1,5 @@
+-- 添加规范请求键字段：规范化输入文本 + 类型/复杂度/格式枚举序号的128位哈希（32位十六进制）
+-- 历史记录为空，完全匹配按 input_hash 回退命中时再回填
+ALTER TABLE model_tasks ADD request_key VARCHAR(32) NULL;
+
+CREATE INDEX idx_request_key ON model_tasks(request_key);
@@ -0,0 +1,21 @@
+-- 创建生成作业表：持久化生成队列，节点按租约认领作业并定期续约
+-- 认领使用 version 乐观条件更新（UPDATE ... WHERE id = ? AND version = ?），H2 与 MySQL 均适用
+CREATE TABLE generation_jobs (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    task_id VARCHAR(50) NOT NULL UNIQUE,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    owner_id VARCHAR(100) NULL,
+    lease_until TIMESTAMP NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    upstream_job_id VARCHAR(100) NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NULL,
+
+    -- 外键约束
+    CONSTRAINT FK_generation_jobs_task_id
+        FOREIGN KEY (task_id) REFERENCES model_tasks(task_id) ON DELETE CASCADE
+);
+
+-- 创建索引：认领扫描按状态和租约到期时间过滤
+CREATE INDEX idx_generation_jobs_status_lease ON generation_jobs(status, lease_until);
@@ -0,0 +1,261 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.dto.File3D;
+import com.qiniu.model3d.dto.QueryHunyuanTo3DJobResponse;
+import com.qiniu.model3d.service.ArtifactCacheService;
+import com.qiniu.model3d.service.ResultFileFetchService;
+import com.qiniu.model3d.service.TencentAi3dClient;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 上游结果文件本地镜像测试
+ * 使用本地 HTTP 桩服务作为上游文件地址，验证并发未命中只下载一次、慢客户端不拖慢落盘、
+ * 按最近访问淘汰、启动时重建索引，以及格式参数为 preview 时不会取到预览图
+ */
+public class ArtifactCacheServiceImplTest {
+
+    private static final int MODEL_SIZE = 256 * 1024;
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    @TempDir
+    Path cacheDir;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+    private TencentAi3dClient upstream;
+    private ArtifactCacheServiceImpl service;
+
+    private final byte[] model = randomBytes(MODEL_SIZE, 1L);
+    private final byte[] preview = randomBytes(4 * 1024, 2L);
+    private final AtomicInteger modelRequests = new AtomicInteger(0);
+    private final AtomicInteger upstreamQueries = new AtomicInteger(0);
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/model.glb", exchange -> {
+            modelRequests.incrementAndGet();
+            // 分块慢速返回，让并发请求落在同一次下载期间
+            exchange.sendResponseHeaders(200, model.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int offset = 0; offset < model.length; offset += CHUNK_SIZE) {
+                    out.write(model, offset, Math.min(CHUNK_SIZE, model.length - offset));
+                    out.flush();
+                    sleep(10);
+                }
+            }
+        });
+        server.createContext("/preview.png", exchange -> {
+            exchange.sendResponseHeaders(200, preview.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(preview);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        upstream = mock(TencentAi3dClient.class);
+        when(upstream.queryHunyuanTo3DJob(anyString())).thenAnswer(invocation -> {
+            upstreamQueries.incrementAndGet();
+            QueryHunyuanTo3DJobResponse response = new QueryHunyuanTo3DJobResponse();
+            response.setStatus("DONE");
+            response.setResultFile3Ds(Collections.singletonList(
+                new File3D("GLB", baseUrl + "/model.glb", baseUrl + "/preview.png")));
+            return response;
+        });
+        service = newService(Long.MAX_VALUE);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentMissesDownloadOnce() throws Exception {
+        int clients = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ArtifactCacheService.CachedArtifact>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return service.getModel("job-1", "glb", null);
+            }));
+        }
+        start.countDown();
+
+        Path path = null;
+        for (Future<ArtifactCacheService.CachedArtifact> result : results) {
+            ArtifactCacheService.CachedArtifact artifact = result.get(30, TimeUnit.SECONDS);
+            assertFalse(artifact.isStreamed());
+            assertArrayEquals(model, Files.readAllBytes(artifact.getPath()));
+            if (path != null) {
+                assertEquals(path, artifact.getPath());
+            }
+            path = artifact.getPath();
+        }
+        pool.shutdownNow();
+
+        assertEquals(1, modelRequests.get(), "同一文件只下载一次");
+        assertEquals(1, upstreamQueries.get());
+        ArtifactCacheService.ArtifactCacheStatistics stats = service.getStatistics();
+        assertEquals(1, stats.getMisses());
+        assertEquals(clients - 1, stats.getHits() + stats.getCoalesced());
+    }
+
+    @Test
+    public void testSlowClientDoesNotThrottleDownload() throws Exception {
+        CountDownLatch opened = new CountDownLatch(1);
+        CountDownLatch releaseClient = new CountDownLatch(1);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        ArtifactCacheService.ArtifactSink slowClient = (contentType, contentLength, filename) -> {
+            assertEquals(MODEL_SIZE, contentLength);
+            opened.countDown();
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) {
+                    // 客户端卡住，直到合并等待的请求拿到完整文件
+                    await(releaseClient);
+                    received.write(bytes, offset, length);
+                }
+            };
+        };
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<ArtifactCacheService.CachedArtifact> first = pool.submit(() -> service.getModel("job-1", "glb", slowClient));
+        assertTrue(opened.await(10, TimeUnit.SECONDS));
+
+        ArtifactCacheService.CachedArtifact waiter = service.getModel("job-1", "glb", null);
+        assertArrayEquals(model, Files.readAllBytes(waiter.getPath()), "落盘不等待慢客户端");
+        assertFalse(first.isDone());
+
+        releaseClient.countDown();
+        ArtifactCacheService.CachedArtifact streamed = first.get(30, TimeUnit.SECONDS);
+        pool.shutdownNow();
+        assertTrue(streamed.isStreamed());
+        assertEquals(waiter.getPath(), streamed.getPath());
+        assertArrayEquals(model, received.toByteArray());
+        assertEquals(1, modelRequests.get());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        service.shutdown();
+        service = newService(MODEL_SIZE * 5L / 2);
+
+        Path first = service.getModel("job-1", "glb", null).getPath();
+        Path second = service.getModel("job-2", "glb", null).getPath();
+        service.getModel("job-1", "glb", null);
+        Path third = service.getModel("job-3", "glb", null).getPath();
+
+        assertTrue(Files.exists(first), "最近访问过的文件保留");
+        assertFalse(Files.exists(second), "最久未访问的文件被淘汰");
+        assertTrue(Files.exists(third));
+        ArtifactCacheService.ArtifactCacheStatistics stats = service.getStatistics();
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getEntries());
+        assertEquals(2L * MODEL_SIZE, stats.getTotalBytes());
+    }
+
+    @Test
+    public void testRebuildsIndexOnStartup() throws Exception {
+        Path model = service.getModel("job-1", "glb", null).getPath();
+        Path leftover = cacheDir.resolve(".job-2__glb.glb.123.part");
+        Files.write(leftover, new byte[16]);
+        service.shutdown();
+
+        service = newService(Long.MAX_VALUE);
+        assertFalse(Files.exists(leftover), "未完成下载的临时文件被清理");
+        assertEquals(1, service.getStatistics().getEntries());
+
+        ArtifactCacheService.CachedArtifact artifact = service.getModel("job-1", "glb", null);
+        assertEquals(model, artifact.getPath());
+        assertEquals(1, upstreamQueries.get(), "重启后命中本地文件，不再查询上游");
+        assertEquals(1, service.getStatistics().getHits());
+    }
+
+    @Test
+    public void testPreviewFormatDoesNotCollideWithPreviewImage() throws Exception {
+        ArtifactCacheService.CachedArtifact asFormat = service.getModel("job-1", "preview", null);
+        ArtifactCacheService.CachedArtifact previewImage = service.getPreview("job-1", null);
+
+        assertNotEquals(asFormat.getPath(), previewImage.getPath());
+        assertArrayEquals(model, Files.readAllBytes(asFormat.getPath()), "未知格式按默认取第一个模型文件");
+        assertArrayEquals(preview, Files.readAllBytes(previewImage.getPath()));
+        assertEquals("application/octet-stream", asFormat.getContentType());
+        assertEquals("image/png", previewImage.getContentType());
+    }
+
+    private ArtifactCacheServiceImpl newService(long maxBytes) throws IOException {
+        ArtifactCacheServiceImpl cache = new ArtifactCacheServiceImpl();
+        ReflectionTestUtils.setField(cache, "tencentAi3dClient", upstream);
+        ReflectionTestUtils.setField(cache, "resultFileFetchService", mock(ResultFileFetchService.class));
+        ReflectionTestUtils.setField(cache, "cacheDir", cacheDir.toString());
+        ReflectionTestUtils.setField(cache, "maxBytes", maxBytes);
+        ReflectionTestUtils.setField(cache, "waitSeconds", 30L);
+        ReflectionTestUtils.setField(cache, "downloadThreads", 2);
+        ReflectionTestUtils.setField(cache, "maxDownloadSize", 16L * 1024 * 1024);
+        cache.init();
+        return cache;
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.qiniu.model3d.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 带上界编辑距离测试
+ * 与经典动态规划逐一对比，覆盖模式串短于、等于、长于 64 个字符（跨字块）、空串和含代理对的字符串，
+ * 以及超过上界时的提前返回
+ */
+public class EditDistanceTest {
+
+    private static final int[] LENGTHS = {0, 1, 2, 31, 63, 64, 65, 100, 127, 128, 129, 200};
+
+    @Test
+    public void testMatchesDynamicProgrammingAcrossBlockBoundaries() {
+        Random random = new Random(20261016L);
+        for (int length1 : LENGTHS) {
+            for (int length2 : LENGTHS) {
+                for (int round = 0; round < 5; round++) {
+                    String s1 = randomString(random, length1, "abcd");
+                    String s2 = round % 2 == 0 ? mutate(random, s1, length2) : randomString(random, length2, "abcd");
+                    assertBoundedMatches(s1, s2);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyStrings() {
+        assertEquals(0, EditDistance.bounded("", "", 10));
+        assertEquals(5, EditDistance.bounded("", "abcde", 10));
+        assertEquals(5, EditDistance.bounded("abcde", "", 10));
+        assertEquals(3, EditDistance.bounded("", "abcde", 2));
+    }
+
+    @Test
+    public void testLargeAlphabetAndSupplementaryCharacters() {
+        Random random = new Random(42L);
+        // 汉字和 emoji（代理对按两个 UTF-16 字符计算，与经典算法一致）
+        String alphabet = "模型生成三维图片文本😀🚀🎉abcXYZ";
+        for (int length1 : LENGTHS) {
+            for (int length2 : LENGTHS) {
+                String s1 = randomString(random, length1, alphabet);
+                String s2 = mutate(random, s1, length2);
+                assertBoundedMatches(s1, s2);
+            }
+        }
+        assertEquals(2, EditDistance.bounded("a😀b", "ab", 10));
+        assertEquals(1, EditDistance.bounded("😀", "😁", 10));
+    }
+
+    @Test
+    public void testWorkspaceReuseAcrossCalls() {
+        // 同一线程复用工作区，前一次调用的字符表不能影响下一次结果
+        String long1 = randomString(new Random(1L), 300, "abcdefghijklmnopqrstuvwxyz0123456789");
+        String long2 = mutate(new Random(2L), long1, 280);
+        assertBoundedMatches(long1, long2);
+        assertBoundedMatches("kitten", "sitting");
+        assertEquals(3, EditDistance.bounded("kitten", "sitting", 3));
+        assertEquals(3, EditDistance.bounded("kitten", "sitting", 2));
+    }
+
+    private static void assertBoundedMatches(String s1, String s2) {
+        int expected = classic(s1, s2);
+        for (int bound : new int[] {0, 1, expected / 2, expected - 1, expected, expected + 1, 1000}) {
+            if (bound < 0) {
+                continue;
+            }
+            int want = expected <= bound ? expected : bound + 1;
+            assertEquals(want, EditDistance.bounded(s1, s2, bound),
+                         "s1.length=" + s1.length() + ", s2.length=" + s2.length() + ", bound=" + bound);
+        }
+    }
+
+    private static int classic(String s1, String s2) {
+        int[] previous = new int[s2.length() + 1];
+        int[] current = new int[s2.length() + 1];
+        for (int j = 0; j <= s2.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= s1.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= s2.length(); j++) {
+                int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[s2.length()];
+    }
+
+    /**
+     * 随机字符串；字母表中的代理对作为一个整体取用
+     */
+    private static String randomString(Random random, int length, String alphabet) {
+        int[] codePoints = alphabet.codePoints().toArray();
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            sb.appendCodePoint(codePoints[random.nextInt(codePoints.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 在 source 上做少量随机编辑，再截断或补齐到目标长度
+     */
+    private static String mutate(Random random, String source, int length) {
+        StringBuilder sb = new StringBuilder(source);
+        int edits = random.nextInt(6);
+        for (int i = 0; i < edits && sb.length() > 0; i++) {
+            int position = random.nextInt(sb.length());
+            switch (random.nextInt(3)) {
+                case 0:
+                    sb.setCharAt(position, 'x');
+                    break;
+                case 1:
+                    sb.deleteCharAt(position);
+                    break;
+                default:
+                    sb.insert(position, 'y');
+                    break;
+            }
+        }
+        while (sb.length() < length) {
+            sb.append((char) ('a' + random.nextInt(4)));
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.service.ImageIngestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上传图片接收测试
+ * 验证按文件头识别类型、内容哈希与逐字节 MD5 一致、相同内容只保存一份、拒绝时不留下文件，
+ * 以及文件流式 Base64 编码与 JDK 一次性编码结果一致
+ */
+public class ImageIngestionServiceImplTest {
+
+    private static final byte[] PNG_HEADER = {
+        (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0x00, 0x00, 0x00, 0x0D
+    };
+
+    @TempDir
+    Path uploadDir;
+
+    private ImageIngestionServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new ImageIngestionServiceImpl();
+        ReflectionTestUtils.setField(service, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "maxFileSize", 10L * 1024 * 1024);
+    }
+
+    @Test
+    public void testIngestStoresContentAddressedFile() throws Exception {
+        byte[] content = pngContent(300 * 1024);
+        // 声明的 Content-Type 不影响识别结果
+        MockMultipartFile upload = new MockMultipartFile("image", "photo.jpeg", "application/octet-stream", content);
+
+        ImageIngestionService.IngestedImage ingested = service.ingest(upload);
+
+        String expectedHash = md5Hex(content);
+        assertEquals(expectedHash, ingested.getContentHash());
+        assertEquals("png", ingested.getImageType());
+        assertEquals(content.length, ingested.getSize());
+        assertEquals(uploadDir.resolve(expectedHash + ".png"), ingested.getPath());
+        assertArrayEquals(content, Files.readAllBytes(ingested.getPath()));
+
+        ImageIngestionService.IngestedImage again =
+            service.ingest(new MockMultipartFile("image", "copy.png", "image/png", content));
+        assertEquals(ingested.getPath(), again.getPath());
+        assertEquals(1, countFiles(), "相同内容只保存一份，临时文件已删除");
+    }
+
+    @Test
+    public void testRejectsNonImageWithoutLeavingFiles() throws Exception {
+        MockMultipartFile upload = new MockMultipartFile("image", "fake.png", "image/png",
+                                                         "<html>not an image</html>".getBytes());
+
+        assertThrows(IllegalArgumentException.class, () -> service.ingest(upload));
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    public void testSniffImageType() {
+        assertEquals("jpg", ImageIngestionServiceImpl.sniffImageType(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}, 3));
+        assertEquals("png", ImageIngestionServiceImpl.sniffImageType(PNG_HEADER, PNG_HEADER.length));
+        assertEquals("gif", ImageIngestionServiceImpl.sniffImageType("GIF89a".getBytes(), 6));
+        assertEquals("bmp", ImageIngestionServiceImpl.sniffImageType("BM".getBytes(), 2));
+        assertEquals("webp", ImageIngestionServiceImpl.sniffImageType("RIFF\0\0\0\0WEBP".getBytes(), 12));
+        assertNull(ImageIngestionServiceImpl.sniffImageType(PNG_HEADER, 4));
+    }
+
+    @Test
+    public void testBase64MatchesJdkEncoding() throws Exception {
+        Random random = new Random(20261016L);
+        for (int size : new int[] {0, 1, 2, 3, 4, ModelFileDownloader.BUFFER_SIZE + 1, 1_000_003}) {
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+            Path file = uploadDir.resolve("base64-" + size + ".bin");
+            Files.write(file, content);
+
+            assertEquals(Base64.getEncoder().encodeToString(content), Base64Files.encode(file), "size=" + size);
+        }
+    }
+
+    private static byte[] pngContent(int size) {
+        byte[] content = new byte[size];
+        new Random(42L).nextBytes(content);
+        System.arraycopy(PNG_HEADER, 0, content, 0, PNG_HEADER.length);
+        return content;
+    }
+
+    private static String md5Hex(byte[] content) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("MD5").digest(content)) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            return files.count();
+        }
+    }
+}
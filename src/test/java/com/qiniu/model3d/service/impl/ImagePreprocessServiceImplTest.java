@@ -0,0 +1,257 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.dto.SubmitHunyuanTo3DJobRequest;
+import com.qiniu.model3d.dto.ViewImage;
+import com.qiniu.model3d.service.ImagePreprocessService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上游提交图片预处理测试
+ * 验证大图缩小到目标边长并编码为 JPEG、原图保持不变且结果复用，小图和无法解码的内容原样提交，
+ * 带 EXIF 方向的 JPEG 先旋转再缩放、方向无法读取时提交原图、不需要处理的结论被记住，
+ * 以及请求中的主图和多视角图片都被替换
+ */
+public class ImagePreprocessServiceImplTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private ImagePreprocessServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new ImagePreprocessServiceImpl();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "maxEdge", 256);
+        ReflectionTestUtils.setField(service, "jpegQuality", 0.85f);
+        ReflectionTestUtils.setField(service, "skipBelowBytes", 1024L);
+        ReflectionTestUtils.setField(service, "poolSize", 2);
+        ReflectionTestUtils.setField(service, "queueCapacity", 4);
+        service.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    public void testPrepareFileDownscalesAndKeepsOriginal() throws Exception {
+        byte[] png = noisePng(1200, 900);
+        Path source = uploadDir.resolve("0123abcd.png");
+        Files.write(source, png);
+
+        Path prepared = service.prepareFile(source);
+
+        assertEquals(uploadDir.resolve("0123abcd.upstream.jpg"), prepared);
+        assertArrayEquals(png, Files.readAllBytes(source), "原图保持不变");
+        BufferedImage image = ImageIO.read(prepared.toFile());
+        assertEquals(256, image.getWidth());
+        assertEquals(192, image.getHeight());
+        assertTrue(Files.size(prepared) < png.length);
+
+        assertEquals(prepared, service.prepareFile(source), "相同图片复用已处理的结果");
+        ImagePreprocessService.PreprocessStatistics stats = service.getStatistics();
+        assertEquals(1, stats.getProcessedImages());
+        assertTrue(stats.getBytesSaved() > 0);
+    }
+
+    @Test
+    public void testSmallAndUndecodableImagesPassThrough() throws Exception {
+        Path small = uploadDir.resolve("small.png");
+        Files.write(small, new byte[512]);
+        assertEquals(small, service.prepareFile(small));
+
+        byte[] garbage = new byte[64 * 1024];
+        new Random(7L).nextBytes(garbage);
+        Path broken = uploadDir.resolve("broken.png");
+        Files.write(broken, garbage);
+        assertEquals(broken, service.prepareFile(broken));
+        assertFalse(Files.exists(uploadDir.resolve("broken.upstream.jpg")));
+    }
+
+    @Test
+    public void testExifOrientationIsAppliedBeforeScaling() throws Exception {
+        // 存储为 1200x600，上半红下半蓝；Orientation=6 表示显示时顺时针旋转 90 度
+        Path source = uploadDir.resolve("rotated.jpg");
+        Files.write(source, withExifOrientation(twoToneJpeg(1200, 600), exif('M', 6)));
+
+        Path prepared = service.prepareFile(source);
+
+        assertEquals(uploadDir.resolve("rotated.upstream.jpg"), prepared);
+        BufferedImage image = ImageIO.read(prepared.toFile());
+        assertEquals(128, image.getWidth());
+        assertEquals(256, image.getHeight());
+        assertTrue(isRed(image.getRGB(100, 128)), "原来的上半部分旋转到右侧");
+        assertTrue(isBlue(image.getRGB(28, 128)), "原来的下半部分旋转到左侧");
+    }
+
+    @Test
+    public void testLittleEndianExifOrientation() throws Exception {
+        // Orientation=3 表示旋转 180 度
+        Path source = uploadDir.resolve("upside-down.jpg");
+        Files.write(source, withExifOrientation(twoToneJpeg(1200, 600), exif('I', 3)));
+
+        BufferedImage image = ImageIO.read(service.prepareFile(source).toFile());
+        assertEquals(256, image.getWidth());
+        assertEquals(128, image.getHeight());
+        assertTrue(isBlue(image.getRGB(128, 20)));
+        assertTrue(isRed(image.getRGB(128, 108)));
+    }
+
+    @Test
+    public void testUnreadableOrientationSubmitsOriginal() throws Exception {
+        byte[] broken = exif('M', 6);
+        // 字节序标记损坏
+        broken[6] = 'X';
+        broken[7] = 'X';
+        Path source = uploadDir.resolve("unknown.jpg");
+        Files.write(source, withExifOrientation(twoToneJpeg(1200, 600), broken));
+
+        assertEquals(source, service.prepareFile(source));
+        assertFalse(Files.exists(uploadDir.resolve("unknown.upstream.jpg")));
+    }
+
+    @Test
+    public void testPassthroughDecisionIsRemembered() throws Exception {
+        Path source = uploadDir.resolve("fedcba98.jpg");
+        Files.write(source, twoToneJpeg(200, 100));
+        assertEquals(source, service.prepareFile(source));
+
+        // 上传图片按内容哈希命名，同一路径不会换内容；这里换成需要处理的图片来确认没有再次解码
+        Files.write(source, noisePng(800, 800));
+        assertEquals(source, service.prepareFile(source));
+        assertFalse(Files.exists(uploadDir.resolve("fedcba98.upstream.jpg")));
+        assertEquals(0, service.getStatistics().getProcessedImages());
+    }
+
+    @Test
+    public void testPrepareRequestReplacesMainAndViewImages() throws Exception {
+        String original = Base64.getEncoder().encodeToString(noisePng(800, 800));
+        ViewImage view = new ViewImage();
+        view.setImageBase64(original);
+        SubmitHunyuanTo3DJobRequest request = new SubmitHunyuanTo3DJobRequest();
+        request.setImageBase64(original);
+        request.setMultiViewImages(Collections.singletonList(view));
+
+        service.prepareRequest(request);
+
+        for (String prepared : new String[] {request.getImageBase64(), view.getImageBase64()}) {
+            assertTrue(prepared.length() < original.length());
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(prepared)));
+            assertEquals(256, image.getWidth());
+        }
+    }
+
+    /**
+     * 上半红、下半蓝的 JPEG，带少量噪点保证文件足够大
+     */
+    private static byte[] twoToneJpeg(int width, int height) throws Exception {
+        Random random = new Random(11L);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(40);
+                image.setRGB(x, y, y < height / 2 ? (215 + noise) << 16 | noise << 8 | noise
+                                                  : noise << 16 | noise << 8 | (215 + noise));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 只含一个 Orientation 项的 EXIF 段内容（不含 APP1 标记和长度）
+     */
+    private static byte[] exif(char byteOrder, int orientation) {
+        boolean little = byteOrder == 'I';
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[] {'E', 'x', 'i', 'f', 0, 0, (byte) byteOrder, (byte) byteOrder});
+        writeShort(out, 42, little);
+        writeInt(out, 8, little);
+        writeShort(out, 1, little);
+        writeShort(out, 0x0112, little);
+        writeShort(out, 3, little);
+        writeInt(out, 1, little);
+        writeShort(out, orientation, little);
+        writeShort(out, 0, little);
+        writeInt(out, 0, little);
+        return out.toByteArray();
+    }
+
+    /**
+     * 在 SOI 之后插入 APP1 段；有 JFIF APP0 段时插在它后面（JFIF 必须紧跟 SOI）
+     */
+    private static byte[] withExifOrientation(byte[] jpeg, byte[] exif) {
+        int insertAt = 2;
+        if ((jpeg[2] & 0xff) == 0xFF && (jpeg[3] & 0xff) == 0xE0) {
+            insertAt = 4 + ((jpeg[4] & 0xff) << 8 | (jpeg[5] & 0xff));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, insertAt);
+        out.write(0xFF);
+        out.write(0xE1);
+        writeShort(out, exif.length + 2, false);
+        out.writeBytes(exif);
+        out.write(jpeg, insertAt, jpeg.length - insertAt);
+        return out.toByteArray();
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value, boolean little) {
+        if (little) {
+            out.write(value & 0xff);
+            out.write((value >> 8) & 0xff);
+        } else {
+            out.write((value >> 8) & 0xff);
+            out.write(value & 0xff);
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value, boolean little) {
+        if (little) {
+            writeShort(out, value & 0xffff, true);
+            writeShort(out, value >>> 16, true);
+        } else {
+            writeShort(out, value >>> 16, false);
+            writeShort(out, value & 0xffff, false);
+        }
+    }
+
+    private static boolean isRed(int rgb) {
+        return ((rgb >> 16) & 0xff) > 150 && (rgb & 0xff) < 100;
+    }
+
+    private static boolean isBlue(int rgb) {
+        return (rgb & 0xff) > 150 && ((rgb >> 16) & 0xff) < 100;
+    }
+
+    private static byte[] noisePng(int width, int height) throws Exception {
+        Random random = new Random(20261016L);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
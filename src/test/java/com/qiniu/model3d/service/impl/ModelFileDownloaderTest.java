@@ -0,0 +1,140 @@
+package com.qiniu.model3d.service.impl;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型文件流式下载测试
+ * 使用本地 HTTP 桩服务返回大文件，验证文件内容、签名，以及下载过程中堆分配与文件大小无关
+ */
+public class ModelFileDownloaderTest {
+
+    private static final long PAYLOAD_SIZE = 96L * 1024 * 1024;
+    private static final long SEED = 20241016L;
+
+    @TempDir
+    Path modelDir;
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/model.glb", exchange -> {
+            exchange.sendResponseHeaders(200, PAYLOAD_SIZE);
+            try (OutputStream out = exchange.getResponseBody()) {
+                writePayload(out, PAYLOAD_SIZE);
+            }
+        });
+        server.createContext("/chunked.glb", exchange -> {
+            // 不声明长度，只能在读取过程中发现超限
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                writePayload(out, 4L * 1024 * 1024);
+            } catch (IOException ignored) {
+                // 客户端提前断开
+            }
+        });
+        server.createContext("/missing.glb", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testLargeDownloadStreamsToDiskWithBoundedHeap() throws Exception {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+
+        ModelFileDownloader.DownloadedFile downloaded =
+            ModelFileDownloader.download(baseUrl + "/model.glb", modelDir, "model_large.glb", 0);
+
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertEquals(modelDir.resolve("model_large.glb"), downloaded.getPath());
+        assertEquals(PAYLOAD_SIZE, downloaded.getSize());
+        assertEquals(PAYLOAD_SIZE, Files.size(downloaded.getPath()));
+        assertEquals(expectedSignature(PAYLOAD_SIZE), downloaded.getSignature(), "下载时计算的签名应与文件内容一致");
+        assertTrue(allocated < 16L * 1024 * 1024,
+            "下载线程分配了 " + allocated + " bytes，应与文件大小无关（文件 " + PAYLOAD_SIZE + " bytes）");
+        assertEquals(1, countFiles(), "临时文件应已重命名为目标文件");
+    }
+
+    @Test
+    public void testOversizedDownloadLeavesNoFile() {
+        IOException error = assertThrows(IOException.class, () ->
+            ModelFileDownloader.download(baseUrl + "/chunked.glb", modelDir, "model_big.glb", 1024 * 1024));
+        assertTrue(error.getMessage().contains("文件过大"));
+        assertEquals(0, countFiles(), "超限时应删除临时文件");
+    }
+
+    @Test
+    public void testHttpErrorLeavesNoFile() {
+        assertThrows(IOException.class, () ->
+            ModelFileDownloader.download(baseUrl + "/missing.glb", modelDir, "model_missing.glb", 0));
+        assertEquals(0, countFiles());
+    }
+
+    private long countFiles() {
+        try (Stream<Path> files = Files.list(modelDir)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writePayload(OutputStream out, long size) throws IOException {
+        Random random = new Random(SEED);
+        byte[] chunk = new byte[32 * 1024];
+        long remaining = size;
+        while (remaining > 0) {
+            random.nextBytes(chunk);
+            int length = (int) Math.min(chunk.length, remaining);
+            out.write(chunk, 0, length);
+            remaining -= length;
+        }
+    }
+
+    private static String expectedSignature(long size) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        Random random = new Random(SEED);
+        byte[] chunk = new byte[32 * 1024];
+        long remaining = size;
+        while (remaining > 0) {
+            random.nextBytes(chunk);
+            int length = (int) Math.min(chunk.length, remaining);
+            md.update(chunk, 0, length);
+            remaining -= length;
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : md.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,175 @@
+package com.qiniu.model3d.service.impl;
+
+import com.qiniu.model3d.dto.File3D;
+import com.qiniu.model3d.entity.ModelTask;
+import com.qiniu.model3d.service.CacheService;
+import com.qiniu.model3d.service.ResultFileFetchService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上游结果文件拉取测试
+ * 使用本地 HTTP 桩服务，验证 5xx、429 重试、4xx 不重试、主格式缺失时按实际类型命名，
+ * 以及主文件失败时删除已下载的其他文件
+ */
+public class ResultFileFetchServiceImplTest {
+
+    private static final byte[] MODEL = "solid model".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PREVIEW = "preview image".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path root;
+
+    private Path modelDir;
+    private Path previewDir;
+    private HttpServer server;
+    private String baseUrl;
+    private ResultFileFetchServiceImpl service;
+
+    private final AtomicInteger flakyRequests = new AtomicInteger(0);
+    private final AtomicInteger missingRequests = new AtomicInteger(0);
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/flaky.glb", exchange -> {
+            // 依次返回 503、429，第三次成功
+            int request = flakyRequests.incrementAndGet();
+            if (request == 1) {
+                respond(exchange, 503, null);
+            } else if (request == 2) {
+                respond(exchange, 429, null);
+            } else {
+                respond(exchange, 200, MODEL);
+            }
+        });
+        server.createContext("/missing.glb", exchange -> {
+            missingRequests.incrementAndGet();
+            respond(exchange, 404, null);
+        });
+        server.createContext("/model.obj", exchange -> respond(exchange, 200, MODEL));
+        server.createContext("/slow.stl", exchange -> {
+            // 主文件失败之后才完成
+            sleep(300);
+            respond(exchange, 200, MODEL);
+        });
+        server.createContext("/preview.png", exchange -> respond(exchange, 200, PREVIEW));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        modelDir = root.resolve("models");
+        previewDir = root.resolve("previews");
+        service = new ResultFileFetchServiceImpl();
+        ReflectionTestUtils.setField(service, "cacheService", Mockito.mock(CacheService.class));
+        ReflectionTestUtils.setField(service, "modelDir", modelDir.toString());
+        ReflectionTestUtils.setField(service, "previewDir", previewDir.toString());
+        ReflectionTestUtils.setField(service, "maxModelDownloadSize", 1024L * 1024);
+        ReflectionTestUtils.setField(service, "poolSize", 4);
+        ReflectionTestUtils.setField(service, "maxConnectionsPerHost", 4);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "retryBackoffMillis", 10L);
+        ReflectionTestUtils.setField(service, "maxPreviewSize", 1024L * 1024);
+        ReflectionTestUtils.setField(service, "registryCapacity", 16);
+        service.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testRetriesServerErrorsAndTooManyRequests() throws Exception {
+        ResultFileFetchService.FetchedResult result = service.fetchAll("job-retry",
+            Collections.singletonList(new File3D("GLB", baseUrl + "/flaky.glb", baseUrl + "/preview.png")),
+            ModelTask.OutputFormat.GLB);
+
+        assertEquals(3, flakyRequests.get());
+        assertEquals(2, service.getStatistics().getRetries());
+        assertArrayEquals(MODEL, Files.readAllBytes(Path.of(result.getPrimaryPath())));
+        assertTrue(result.getPrimaryPath().endsWith(".glb"));
+        assertEquals(1, result.getPreviewPaths().size());
+        assertSame(result, service.getByJobId("job-retry"));
+        assertSame(result, service.getByModelPath(result.getPrimaryPath()));
+    }
+
+    @Test
+    public void testClientErrorIsNotRetried() {
+        assertThrows(IOException.class, () -> service.fetchAll("job-missing",
+            Collections.singletonList(new File3D("GLB", baseUrl + "/missing.glb")), ModelTask.OutputFormat.GLB));
+
+        assertEquals(1, missingRequests.get(), "4xx 不重试");
+        assertEquals(0, service.getStatistics().getRetries());
+        assertNull(service.getByJobId("job-missing"));
+    }
+
+    @Test
+    public void testFallbackPrimaryUsesActualExtension() throws Exception {
+        ResultFileFetchService.FetchedResult result = service.fetchAll("job-fallback",
+            Collections.singletonList(new File3D("OBJ", baseUrl + "/model.obj")), ModelTask.OutputFormat.GLB);
+
+        assertTrue(result.getPrimaryPath().endsWith(".obj"), result.getPrimaryPath());
+        assertEquals(Collections.singleton(ModelTask.OutputFormat.OBJ), result.getModelFiles().keySet());
+    }
+
+    @Test
+    public void testPrimaryFailureDeletesFetchedFiles() throws Exception {
+        assertThrows(IOException.class, () -> service.fetchAll("job-partial", Arrays.asList(
+            new File3D("GLB", baseUrl + "/missing.glb", baseUrl + "/preview.png"),
+            new File3D("OBJ", baseUrl + "/model.obj"),
+            new File3D("STL", baseUrl + "/slow.stl")), ModelTask.OutputFormat.GLB));
+
+        // 其他文件可能在主文件失败之后才下载完成，完成后同样删除
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((countFiles(modelDir) > 0 || countFiles(previewDir) > 0) && System.currentTimeMillis() < deadline) {
+            sleep(20);
+        }
+        assertEquals(0, countFiles(modelDir));
+        assertEquals(0, countFiles(previewDir));
+    }
+
+    private static void respond(com.sun.net.httpserver.HttpExchange exchange, int status, byte[] body)
+            throws IOException {
+        exchange.sendResponseHeaders(status, body != null ? body.length : -1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (body != null) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static long countFiles(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}